@@ -0,0 +1,80 @@
+package pt.up.fe.comp2025.bench;
+
+import pt.up.fe.comp2025.driver.CompilationPipeline;
+import pt.up.fe.comp2025.synthetic.SyntheticProgramGenerator;
+import pt.up.fe.specs.util.SpecsIo;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Sources used as input of the benchmarks.
+ */
+public class BenchmarkInputs {
+
+    /**
+     * Loads the sources of the given corpus, keeping only those that compile without errors, so that every stage can
+     * run over all of them.
+     *
+     * @param corpus 'inputs' (the files in the inputs folder), 'corpus' (the test resources) or 'synthetic'
+     *               (generated programs of increasing size)
+     * @return the sources of the corpus
+     */
+    public static List<String> load(String corpus) {
+        var sources = switch (corpus) {
+            case "inputs" -> readAll(new File("inputs"));
+            case "corpus" -> readAll(new File("test/pt/up/fe/comp"));
+            case "synthetic" -> synthetic();
+            default -> throw new RuntimeException("Unknown benchmark corpus '" + corpus + "'");
+        };
+
+        var pipeline = new CompilationPipeline();
+        var valid = sources.stream()
+                .filter(code -> !pipeline.compile(code, config()).hasErrors())
+                .toList();
+
+        if (valid.isEmpty()) {
+            throw new RuntimeException("No valid sources in benchmark corpus '" + corpus + "'");
+        }
+
+        return valid;
+    }
+
+    /**
+     * Configuration used when compiling the benchmark sources, without optimizations.
+     */
+    public static Map<String, String> config() {
+        return new HashMap<>();
+    }
+
+    /**
+     * Programs of increasing size: more methods, locals and statements, and longer expressions.
+     */
+    private static List<String> synthetic() {
+        var sources = new ArrayList<String>();
+
+        for (int scale = 1; scale <= 16; scale *= 4) {
+            var code = new SyntheticProgramGenerator()
+                    .methods(5 * scale)
+                    .locals(4 + scale)
+                    .statements(10 * scale)
+                    .exprDepth(2 + scale / 4)
+                    .generate("Synthetic" + scale);
+
+            sources.add(code);
+        }
+
+        return sources;
+    }
+
+    private static List<String> readAll(File folder) {
+        return SpecsIo.getFilesRecursive(folder, "jmm").stream()
+                .sorted(Comparator.comparing(File::getPath))
+                .map(SpecsIo::read)
+                .toList();
+    }
+}
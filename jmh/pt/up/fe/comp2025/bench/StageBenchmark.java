@@ -0,0 +1,164 @@
+package pt.up.fe.comp2025.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import pt.up.fe.comp.jmm.analysis.JmmSemanticsResult;
+import pt.up.fe.comp.jmm.ollir.OllirResult;
+import pt.up.fe.comp.jmm.parser.JmmParserResult;
+import pt.up.fe.comp2025.analysis.JmmAnalysisImpl;
+import pt.up.fe.comp2025.backend.JasminGenerator;
+import pt.up.fe.comp2025.backend.RegisterAllocator;
+import pt.up.fe.comp2025.optimization.JmmOptimizationImpl;
+import pt.up.fe.comp2025.optimization.OllirGeneratorVisitor;
+import pt.up.fe.comp2025.parser.JmmParserImpl;
+import pt.up.fe.comp2025.symboltable.JmmSymbolTableBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of each compiler stage in isolation. The input of each stage is computed during setup, so each benchmark
+ * only measures its own stage. One operation processes all the sources of the corpus.
+ * <p>
+ * Semantic analysis keeps the type of each expression in its node, so the stages that read or resolve types get new
+ * ASTs before each operation (see {@link FreshAsts} and {@link AnalyzedAsts}), instead of ASTs whose types were
+ * resolved by earlier operations.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StageBenchmark {
+
+    @Param({"inputs", "corpus", "synthetic"})
+    public String corpus;
+
+    private final JmmParserImpl parser = new JmmParserImpl();
+    private final JmmAnalysisImpl analysis = new JmmAnalysisImpl();
+
+    private Map<String, String> config;
+    private List<String> sources;
+    private List<JmmParserResult> parserResults;
+    private List<OllirResult> ollirResults;
+
+    /**
+     * ASTs parsed again before each operation, with their symbol tables.
+     */
+    @State(Scope.Thread)
+    public static class FreshAsts {
+
+        private List<JmmSemanticsResult> symbolTableResults;
+
+        @Setup(Level.Invocation)
+        public void setup(StageBenchmark benchmark) {
+            symbolTableResults = new ArrayList<>();
+            for (var code : benchmark.sources) {
+                symbolTableResults.add(benchmark.buildSymbolTable(code));
+            }
+        }
+    }
+
+    /**
+     * ASTs parsed again before each operation and analyzed once, as in the pipeline, so their types were resolved by
+     * the semantic analysis.
+     */
+    @State(Scope.Thread)
+    public static class AnalyzedAsts {
+
+        private List<JmmSemanticsResult> semanticsResults;
+
+        @Setup(Level.Invocation)
+        public void setup(StageBenchmark benchmark) {
+            semanticsResults = new ArrayList<>();
+            for (var code : benchmark.sources) {
+                semanticsResults.add(benchmark.analysis.semanticAnalysis(benchmark.buildSymbolTable(code)));
+            }
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setup() {
+        config = BenchmarkInputs.config();
+        sources = BenchmarkInputs.load(corpus);
+
+        var optimization = new JmmOptimizationImpl();
+
+        parserResults = new ArrayList<>();
+        ollirResults = new ArrayList<>();
+
+        for (var code : sources) {
+            parserResults.add(parser.parse(code, config));
+
+            ollirResults.add(optimization.toOllir(analysis.semanticAnalysis(buildSymbolTable(code))));
+        }
+    }
+
+    private JmmSemanticsResult buildSymbolTable(String code) {
+        return analysis.buildSymbolTable(parser.parse(code, config));
+    }
+
+    @Benchmark
+    public void parse(Blackhole blackhole) {
+        for (var code : sources) {
+            blackhole.consume(parser.parse(code, config));
+        }
+    }
+
+    @Benchmark
+    public void symbolTable(Blackhole blackhole) {
+        for (var parserResult : parserResults) {
+            blackhole.consume(new JmmSymbolTableBuilder().build(parserResult.getRootNode()));
+        }
+    }
+
+    @Benchmark
+    public void semanticAnalysis(FreshAsts asts, Blackhole blackhole) {
+        for (var symbolTableResult : asts.symbolTableResults) {
+            blackhole.consume(analysis.semanticAnalysis(symbolTableResult));
+        }
+    }
+
+    @Benchmark
+    public void ollirGeneration(AnalyzedAsts asts, Blackhole blackhole) {
+        for (var semanticsResult : asts.semanticsResults) {
+            var visitor = new OllirGeneratorVisitor(semanticsResult.getSymbolTable());
+            blackhole.consume(visitor.visit(semanticsResult.getRootNode()));
+        }
+    }
+
+    @Benchmark
+    public void registerAllocation(Blackhole blackhole) {
+        for (var ollirResult : ollirResults) {
+            for (var method : ollirResult.getOllirClass().getMethods()) {
+                if (method.isConstructMethod()) {
+                    continue;
+                }
+
+                // Only computes the mapping, the var table of the method is left unchanged
+                blackhole.consume(new RegisterAllocator(method, 0).allocate());
+            }
+        }
+    }
+
+    @Benchmark
+    public void jasminGeneration(Blackhole blackhole) {
+        for (var ollirResult : ollirResults) {
+            blackhole.consume(new JasminGenerator(ollirResult).build());
+        }
+    }
+}
@@ -1,7 +1,9 @@
 package pt.up.fe.comp2025;
 
 import java.io.File;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 
@@ -10,14 +12,58 @@ public class CompilerConfig {
     private static final String INPUT_FILE = "inputFile";
     private static final String OPTIMIZE = "optimize";
     private static final String REGISTER = "registerAllocation";
+    private static final String BATCH = "batch";
+    private static final String THREADS = "threads";
+    private static final String OUTPUT_DIR = "outputDir";
+    private static final String SERVER = "server";
+    private static final String METRICS = "metrics";
+    private static final String TRACE = "trace";
+    private static final String CLASS_FILE = "classFile";
+    private static final String CACHE = "cache";
+    private static final String CACHE_SIZE = "cacheSize";
+    private static final String TWO_STAGE_PARSING = "twoStageParsing";
+    private static final String STREAMING = "streaming";
+    private static final String WARMUP = "warmup";
+    private static final String FUSED_ANALYSIS = "fusedAnalysis";
+    private static final String PARALLEL_ANALYSIS = "parallelAnalysis";
+    private static final String LOG = "log";
+    private static final String LOG_BUFFER = "logBuffer";
+    private static final String CLASSPATH = "classpath";
+    private static final String WATCH = "watch";
+    private static final String DIRECT_OLLIR = "directOllir";
+
+    private static final long DEFAULT_CACHE_SIZE_MB = 256;
 
 
     static Map<String, String> shortToLong = new HashMap<>();
 
+    // Options that are written with their full name, e.g. '-metrics=<file>'
+    static Map<String, String> longOpts = new HashMap<>();
+
     static {
         shortToLong.put("i", CompilerConfig.INPUT_FILE);
         shortToLong.put("o", CompilerConfig.OPTIMIZE);
         shortToLong.put("r", CompilerConfig.REGISTER);
+        shortToLong.put("b", CompilerConfig.BATCH);
+        shortToLong.put("j", CompilerConfig.THREADS);
+        shortToLong.put("d", CompilerConfig.OUTPUT_DIR);
+        shortToLong.put("s", CompilerConfig.SERVER);
+        shortToLong.put("w", CompilerConfig.WATCH);
+
+        longOpts.put("metrics", CompilerConfig.METRICS);
+        longOpts.put("trace", CompilerConfig.TRACE);
+        longOpts.put("classfile", CompilerConfig.CLASS_FILE);
+        longOpts.put("cache", CompilerConfig.CACHE);
+        longOpts.put("cachesize", CompilerConfig.CACHE_SIZE);
+        longOpts.put("twostageparsing", CompilerConfig.TWO_STAGE_PARSING);
+        longOpts.put("streaming", CompilerConfig.STREAMING);
+        longOpts.put("warmup", CompilerConfig.WARMUP);
+        longOpts.put("fusedanalysis", CompilerConfig.FUSED_ANALYSIS);
+        longOpts.put("parallelanalysis", CompilerConfig.PARALLEL_ANALYSIS);
+        longOpts.put("log", CompilerConfig.LOG);
+        longOpts.put("logbuffer", CompilerConfig.LOG_BUFFER);
+        longOpts.put("classpath", CompilerConfig.CLASSPATH);
+        longOpts.put("directollir", CompilerConfig.DIRECT_OLLIR);
     }
 
 
@@ -40,6 +86,181 @@ public class CompilerConfig {
         return Integer.parseInt(config.getOrDefault(REGISTER, "-1"));
     }
 
+    /**
+     * The batch input, which can be a folder, a glob pattern or a list file prefixed with '@'.
+     */
+    public static Optional<String> getBatch(Map<String, String> config) {
+        return Optional.ofNullable(config.get(BATCH));
+    }
+
+    /**
+     * Number of worker threads used in batch mode, defaults to the number of available processors.
+     */
+    public static int getThreads(Map<String, String> config) {
+        var threads = config.get(THREADS);
+
+        if (threads == null) {
+            return Runtime.getRuntime().availableProcessors();
+        }
+
+        return Integer.parseInt(threads);
+    }
+
+    /**
+     * Server mode, either 'stdin' (or no value) to read requests from the standard input, or a port number.
+     */
+    public static Optional<String> getServer(Map<String, String> config) {
+        return Optional.ofNullable(config.get(SERVER));
+    }
+
+    /**
+     * File where per-stage metrics are written, as JSON.
+     */
+    public static Optional<File> getMetrics(Map<String, String> config) {
+        var metrics = config.get(METRICS);
+
+        if (metrics == null) {
+            return Optional.empty();
+        }
+
+        return Optional.of(new File(metrics));
+    }
+
+    public static Optional<File> getTrace(Map<String, String> config) {
+        var trace = config.get(TRACE);
+
+        if (trace == null) {
+            return Optional.empty();
+        }
+
+        return Optional.of(new File(trace));
+    }
+
+    public static Optional<File> getOutputDir(Map<String, String> config) {
+        var outputDir = config.get(OUTPUT_DIR);
+
+        if (outputDir == null) {
+            return Optional.empty();
+        }
+
+        return Optional.of(new File(outputDir));
+    }
+
+    /**
+     * Folder of the persistent compilation cache, caching is disabled if not given.
+     */
+    public static Optional<File> getCache(Map<String, String> config) {
+        var cache = config.get(CACHE);
+
+        if (cache == null) {
+            return Optional.empty();
+        }
+
+        return Optional.of(new File(cache));
+    }
+
+    /**
+     * Maximum size of the compilation cache in bytes, given in megabytes by '-cachesize=<mb>'.
+     */
+    public static long getCacheSize(Map<String, String> config) {
+        var cacheSize = config.get(CACHE_SIZE);
+        var megabytes = cacheSize == null ? DEFAULT_CACHE_SIZE_MB : Long.parseLong(cacheSize);
+
+        return megabytes * 1024 * 1024;
+    }
+
+    /**
+     * If true (the default), sources are first parsed with SLL prediction, and only parsed again with full LL
+     * prediction if that fails.
+     */
+    public static boolean getTwoStageParsing(Map<String, String> config) {
+        return Boolean.parseBoolean(config.getOrDefault(TWO_STAGE_PARSING, "true"));
+    }
+
+    /**
+     * If true, source files are parsed from a memory mapping of the file, instead of being read into a String.
+     */
+    public static boolean getStreaming(Map<String, String> config) {
+        return Boolean.parseBoolean(config.getOrDefault(STREAMING, "false"));
+    }
+
+    /**
+     * If true, batch and server modes parse a training corpus before compiling, to fill the prediction caches of the
+     * parser.
+     */
+    public static boolean getWarmup(Map<String, String> config) {
+        return Boolean.parseBoolean(config.getOrDefault(WARMUP, "false"));
+    }
+
+    /**
+     * If true (the default), the semantic analysis passes run together in a single traversal of the AST, instead of
+     * one traversal per pass.
+     */
+    public static boolean getFusedAnalysis(Map<String, String> config) {
+        return Boolean.parseBoolean(config.getOrDefault(FUSED_ANALYSIS, "true"));
+    }
+
+    /**
+     * If true (the default), the methods of classes with many methods are analyzed concurrently. Only used with the
+     * fused semantic analysis.
+     */
+    public static boolean getParallelAnalysis(Map<String, String> config) {
+        return Boolean.parseBoolean(config.getOrDefault(PARALLEL_ANALYSIS, "true"));
+    }
+
+    /**
+     * Levels of the diagnostic messages that are printed, either a level for every category (e.g. 'debug') or
+     * category:level pairs (e.g. 'analysis:debug,types:debug'), see {@link pt.up.fe.comp2025.metrics.CompilerLog}.
+     */
+    public static Optional<String> getLog(Map<String, String> config) {
+        return Optional.ofNullable(config.get(LOG));
+    }
+
+    /**
+     * Number of recent diagnostic messages kept in memory and printed only when compilation fails, 0 (the default)
+     * to not keep them.
+     */
+    public static int getLogBuffer(Map<String, String> config) {
+        return Integer.parseInt(config.getOrDefault(LOG_BUFFER, "0"));
+    }
+
+    /**
+     * Folders and jars with the class files of the classes that can be imported, separated by the path separator of the
+     * platform (':' or ';'), defaults to 'libs-jmm/compiled'.
+     */
+    public static List<File> getClasspath(Map<String, String> config) {
+        var classpath = config.getOrDefault(CLASSPATH, "libs-jmm/compiled");
+
+        return Arrays.stream(classpath.split(File.pathSeparator))
+                .filter(path -> !path.isEmpty())
+                .map(File::new)
+                .toList();
+    }
+
+    /**
+     * If true, the input file is compiled again each time it changes, recompiling only the methods that changed.
+     */
+    public static boolean getWatch(Map<String, String> config) {
+        return Boolean.parseBoolean(config.getOrDefault(WATCH, "false"));
+    }
+
+    /**
+     * If true (the default), the OLLIR class is built directly from the AST, and OLLIR code is only generated when it is
+     * requested. Otherwise, the code is generated and then parsed to get the class.
+     */
+    public static boolean getDirectOllir(Map<String, String> config) {
+        return Boolean.parseBoolean(config.getOrDefault(DIRECT_OLLIR, "true"));
+    }
+
+    /**
+     * Creates a copy of the given config that compiles the given file.
+     */
+    public static Map<String, String> withInputFile(Map<String, String> config, File inputFile) {
+        var fileConfig = new HashMap<>(config);
+        fileConfig.put(INPUT_FILE, inputFile.getAbsolutePath());
+        return fileConfig;
+    }
+
 
     public static Map<String, String> getDefault() {
 
@@ -72,6 +293,14 @@ public class CompilerConfig {
                 throw new RuntimeException("Arguments should start with '-'");
             }
 
+            // Long options, e.g. '-metrics=<file>'
+            var equalsIndex = arg.indexOf('=');
+            var optionName = equalsIndex == -1 ? arg.substring(1) : arg.substring(1, equalsIndex);
+            if (longOpts.containsKey(optionName)) {
+                config.put(longOpts.get(optionName), equalsIndex == -1 ? "true" : arg.substring(equalsIndex + 1));
+                continue;
+            }
+
             String shortOption = arg.substring(1, 2);
             if (!isShortOpt(shortOption)) {
                 throw new RuntimeException("Unrecognized option '-" + shortOption + "'");
@@ -89,24 +318,43 @@ public class CompilerConfig {
             config.put(getLongOpt(shortOption), value);
         }
 
-        if (!config.containsKey(INPUT_FILE)) {
+        // In batch mode the input files are given by '-b', in server mode they come with each request
+        if (!config.containsKey(INPUT_FILE) && !config.containsKey(BATCH) && !config.containsKey(SERVER)) {
 
-            throw new RuntimeException("Expected an input file, use '-i=<PATH_TO_FILE>'");
+            throw new RuntimeException("Expected an input file, use '-i=<PATH_TO_FILE>', '-b=<FOLDER|GLOB|@LIST>' or '-s'");
         }
 
-        // make sure we save the absolute path of the input file
-        var inputFile = new File(config.get(INPUT_FILE));
-        if (!inputFile.isFile()) {
-            throw new RuntimeException("Could not find input file '" + inputFile + "'");
+        if (config.containsKey(INPUT_FILE)) {
+            // make sure we save the absolute path of the input file
+            var inputFile = new File(config.get(INPUT_FILE));
+            if (!inputFile.isFile()) {
+                throw new RuntimeException("Could not find input file '" + inputFile + "'");
+            }
+
+            var absolutePath = inputFile.getAbsolutePath();
+            config.put(INPUT_FILE, absolutePath);
         }
 
-        var absolutePath = inputFile.getAbsolutePath();
-        config.put(INPUT_FILE, absolutePath);
+        if (getWatch(config) && !config.containsKey(INPUT_FILE)) {
+            throw new RuntimeException("Option '-w' watches a single file, use '-i=<PATH_TO_FILE>'");
+        }
 
         // Verify if values are valid
         getOptimize(config);
         getRegisterAllocation(config);
 
+        if (getThreads(config) < 1) {
+            throw new RuntimeException("Option '-j' expects a positive number of threads, got '" + config.get(THREADS) + "'");
+        }
+
+        if (getCacheSize(config) < 0) {
+            throw new RuntimeException("Option '-cachesize' expects a positive size in megabytes, got '" + config.get(CACHE_SIZE) + "'");
+        }
+
+        if (getLogBuffer(config) < 0) {
+            throw new RuntimeException("Option '-logbuffer' expects a positive number of messages, got '" + config.get(LOG_BUFFER) + "'");
+        }
+
         return config;
     }
 
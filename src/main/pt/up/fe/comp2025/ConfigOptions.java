@@ -11,6 +11,7 @@ public class ConfigOptions {
     private static final String OPTIMIZE = "optimize";
     private static final String REGISTER = "registerAllocation";
     private static final String EXTRA = "extra";
+    private static final String CLASS_FILE = "classFile";
 
     // These methods should be on CompilerConfig, but to avoid rewriting a file
     // that is in the src folder, this new class was added
@@ -31,6 +32,10 @@ public class ConfigOptions {
         return EXTRA;
     }
 
+    public static String getClassFile() {
+        return CLASS_FILE;
+    }
+
     public static Optional<File> getInputFile(Map<String, String> config) {
         var inputFile = config.get(INPUT_FILE);
 
@@ -54,4 +59,11 @@ public class ConfigOptions {
     public static boolean getExtra(Map<String, String> config) {
         return Boolean.parseBoolean(config.getOrDefault(EXTRA, "false"));
     }
+
+    /**
+     * If true, the backend writes class files directly instead of generating Jasmin code.
+     */
+    public static boolean getClassFile(Map<String, String> config) {
+        return Boolean.parseBoolean(config.getOrDefault(CLASS_FILE, "false"));
+    }
 }
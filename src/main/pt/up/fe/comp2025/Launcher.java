@@ -1,17 +1,21 @@
 package pt.up.fe.comp2025;
 
 import pt.up.fe.comp.TestUtils;
-import pt.up.fe.comp.jmm.analysis.JmmSemanticsResult;
 import pt.up.fe.comp.jmm.jasmin.JasminResult;
-import pt.up.fe.comp.jmm.ollir.OllirResult;
-import pt.up.fe.comp.jmm.parser.JmmParserResult;
-import pt.up.fe.comp2025.analysis.JmmAnalysisImpl;
-import pt.up.fe.comp2025.backend.JasminBackendImpl;
-import pt.up.fe.comp2025.optimization.JmmOptimizationImpl;
-import pt.up.fe.comp2025.parser.JmmParserImpl;
-import pt.up.fe.specs.util.SpecsIo;
+import pt.up.fe.comp2025.backend.ClassFileResult;
+import pt.up.fe.comp2025.classpath.ClasspathIndex;
+import pt.up.fe.comp2025.driver.BatchCompiler;
+import pt.up.fe.comp2025.driver.CompilationCache;
+import pt.up.fe.comp2025.driver.CompilationPipeline;
+import pt.up.fe.comp2025.driver.CompilationResult;
+import pt.up.fe.comp2025.driver.CompileDaemon;
+import pt.up.fe.comp2025.driver.WatchCompiler;
+import pt.up.fe.comp2025.metrics.CompilerLog;
+import pt.up.fe.comp2025.metrics.CompilerMetrics;
+import pt.up.fe.comp2025.metrics.CompilerTrace;
 import pt.up.fe.specs.util.SpecsSystem;
 
+import java.io.File;
 import java.util.Map;
 
 public class Launcher {
@@ -21,42 +25,75 @@ public class Launcher {
 
         Map<String, String> config = CompilerConfig.parseArgs(args);
 
+        // Diagnostic messages, by default only the summaries of the driver and warnings are printed
+        CompilerLog.configure(CompilerConfig.getLog(config).orElse(null), CompilerConfig.getLogBuffer(config));
+
+        // Classes that can be imported, the index is kept with the compilation cache between runs
+        ClasspathIndex.configure(CompilerConfig.getClasspath(config),
+                CompilerConfig.getCache(config).map(folder -> new File(folder, ClasspathIndex.INDEX_FILE)).orElse(null));
+
+        // Server mode, keeps the compiler resident and answers compile requests
+        if (CompilerConfig.getServer(config).isPresent()) {
+            CompileDaemon.start(config);
+            return;
+        }
+
+        // Watch mode, compiles the input file again each time it changes
+        if (CompilerConfig.getWatch(config)) {
+            new WatchCompiler(config).run();
+            return;
+        }
+
+        // Span tracing, only recorded when requested
+        var traceFile = CompilerConfig.getTrace(config);
+        traceFile.ifPresent(file -> CompilerTrace.start());
+
+        // Batch mode, compiles several files in the same JVM
+        if (CompilerConfig.getBatch(config).isPresent()) {
+            var results = new BatchCompiler(config).run();
+            ClasspathIndex.getDefault().save();
+            traceFile.ifPresent(file -> CompilerTrace.stop().write(file));
+            var failures = results.stream().filter(CompilationResult::hasErrors).count();
+            if (failures > 0) {
+                throw new RuntimeException("Batch compilation failed for " + failures + " file(s)");
+            }
+            return;
+        }
+
         var inputFile = CompilerConfig.getInputFile(config).orElseThrow();
         if (!inputFile.isFile()) {
             throw new RuntimeException("Option '-i' expects a path to an existing input file, got '" + args[0] + "'.");
         }
-        String code = SpecsIo.read(inputFile);
-
-        // Parsing stage
-        JmmParserImpl parser = new JmmParserImpl();
-        JmmParserResult parserResult = parser.parse(code, config);
-        TestUtils.noErrors(parserResult.getReports());
 
-        // Semantic Analysis stage
-        JmmAnalysisImpl sema = new JmmAnalysisImpl();
-        JmmSemanticsResult semanticsResult = sema.semanticAnalysis(parserResult);
-        TestUtils.noErrors(semanticsResult.getReports());
+        // Per-stage metrics, only collected when requested
+        var metricsFile = CompilerConfig.getMetrics(config);
+        var metrics = metricsFile.map(file -> new CompilerMetrics(inputFile.getPath())).orElse(null);
 
-        // Print AST
-        // System.out.println("AST:");
-        // System.out.println(parserResult.getRootNode().toTree());
+        // Parsing, semantic analysis, optimization and code generation stages
+        var result = new CompilationPipeline(CompilationCache.fromConfig(config)).compile(inputFile, config, metrics);
+        ClasspathIndex.getDefault().save();
 
-        // Optimization stage
-        JmmOptimizationImpl ollirGen = new JmmOptimizationImpl();
-        OllirResult ollirResult = ollirGen.toOllir(ollirGen.optimize(semanticsResult));
-        OllirResult lastollir = ollirGen.optimize(ollirResult);
-        TestUtils.noErrors(lastollir.getReports());
+        metricsFile.ifPresent(file -> metrics.write(file));
+        traceFile.ifPresent(file -> CompilerTrace.stop().write(file));
+        if (result.hasErrors()) {
+            CompilerLog.dumpBuffer(System.err);
+        }
+        TestUtils.noErrors(result.getReports());
 
         // Print OLLIR code
         // System.out.println("OLLIR:");
-        // System.out.println(lastollir.getOllirCode());
+        // System.out.println(result.getOllirResult().orElseThrow().getOllirCode());
+
+        JasminResult jasminResult = result.getJasminResult().orElseThrow();
 
-        // Code generation stage
-        JasminBackendImpl jasminGen = new JasminBackendImpl();
-        JasminResult jasminResult = jasminGen.toJasmin(ollirResult);
-        TestUtils.noErrors(jasminResult.getReports());
+        // The class file backend writes the class file, to the output folder or else the current one
+        if (jasminResult instanceof ClassFileResult classFileResult) {
+            var classFile = classFileResult.compile(CompilerConfig.getOutputDir(config).orElse(new File(".")));
+            System.out.println("Wrote " + classFile.getPath());
+            return;
+        }
 
-        // Print Jasmin code
+        // Print Jasmin code, the output of the compiler and not a diagnostic, so it is not filtered by the log levels
         System.out.println("Jasmin:\n");
         System.out.println(jasminResult.getJasminCode());
     }
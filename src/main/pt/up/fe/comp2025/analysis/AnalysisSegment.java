@@ -0,0 +1,78 @@
+package pt.up.fe.comp2025.analysis;
+
+import pt.up.fe.comp.jmm.report.Report;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Results of the analysis passes over a part of the tree (a method, or the tree outside the methods), by pass.
+ * <p>
+ * The passes keep no state between methods, so the results of a method that did not change can be reused, and joined
+ * with the results of the other parts with {@link JmmAnalysisImpl#joinSegments}.
+ */
+public class AnalysisSegment {
+
+    private final Exception[] exceptions;
+    private final List<List<Report>> reports;
+
+    AnalysisSegment(FusedAnalysis analysis, int numPasses) {
+        this.exceptions = new Exception[numPasses];
+        this.reports = new ArrayList<>(numPasses);
+
+        for (int i = 0; i < numPasses; i++) {
+            exceptions[i] = analysis.getException(i);
+            reports.add(List.copyOf(analysis.getReports(i)));
+        }
+    }
+
+    private AnalysisSegment(Exception[] exceptions, List<List<Report>> reports) {
+        this.exceptions = exceptions;
+        this.reports = reports;
+    }
+
+    /**
+     * @return the exception thrown by the pass with the given index, or null if it finished
+     */
+    Exception getException(int pass) {
+        return exceptions[pass];
+    }
+
+    /**
+     * @return the reports of the pass with the given index
+     */
+    List<Report> getReports(int pass) {
+        return reports.get(pass);
+    }
+
+    /**
+     * @return the same results, with the reports moved by the given number of lines, for a method that moved in the
+     * source
+     */
+    public AnalysisSegment moveLines(int lines) {
+        if (lines == 0) {
+            return this;
+        }
+
+        var movedReports = new ArrayList<List<Report>>(reports.size());
+        for (var passReports : reports) {
+            movedReports.add(passReports.stream().map(report -> moveLines(report, lines)).toList());
+        }
+
+        return new AnalysisSegment(Arrays.copyOf(exceptions, exceptions.length), movedReports);
+    }
+
+    private static Report moveLines(Report report, int lines) {
+        // Reports without a position stay without one
+        if (report.getLine() < 0) {
+            return report;
+        }
+
+        var moved = new Report(report.getType(), report.getStage(), report.getLine() + lines, report.getColumn(),
+                report.getMessage());
+        report.getException().ifPresent(moved::setException);
+
+        return moved;
+    }
+}
@@ -2,23 +2,49 @@ package pt.up.fe.comp2025.analysis;
 
 import pt.up.fe.comp.jmm.analysis.table.SymbolTable;
 import pt.up.fe.comp.jmm.ast.JmmNode;
-import pt.up.fe.comp.jmm.ast.PreorderJmmVisitor;
 import pt.up.fe.comp.jmm.report.Report;
 import pt.up.fe.comp.jmm.report.Stage;
+import pt.up.fe.comp2025.ast.Kind;
+import pt.up.fe.comp2025.ast.PreorderKindVisitor;
+import pt.up.fe.comp2025.metrics.CompilerTrace;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.BiFunction;
 
 /**
  * Implementation of AnalysisPass that automatically visits nodes using preorder traversal.
  */
-public abstract class AnalysisVisitor extends PreorderJmmVisitor<SymbolTable, Void> implements AnalysisPass {
+public abstract class AnalysisVisitor extends PreorderKindVisitor<SymbolTable, Void> implements AnalysisPass {
 
     private List<Report> reports;
 
+    private BiFunction<JmmNode, SymbolTable, Void> defaultVisit;
+
     public AnalysisVisitor() {
         reports = new ArrayList<>();
-        setDefaultValue(() -> null);
+        setDefaultVisit((node, table) -> null);
+    }
+
+    @Override
+    public void setDefaultVisit(BiFunction<JmmNode, SymbolTable, Void> defaultVisit) {
+        super.setDefaultVisit(defaultVisit);
+        this.defaultVisit = defaultVisit;
+    }
+
+    /**
+     * @return true if this pass has a visit method for the node, other than the default one
+     */
+    boolean hasVisit(JmmNode node) {
+        return getVisit(node) != defaultVisit;
+    }
+
+    /**
+     * Applies the visit method of this pass to the node, without visiting its children. Used by
+     * {@link FusedAnalysis}, which visits the children once for all the passes.
+     */
+    void visitNode(JmmNode node, SymbolTable table) {
+        getVisit(node).apply(node, table);
     }
 
     protected void addReport(Report report) {
@@ -30,6 +56,28 @@ public abstract class AnalysisVisitor extends PreorderJmmVisitor<SymbolTable, Vo
     }
 
 
+    /**
+     * When tracing, methods are visited apart, so that each one is inside its own span.
+     */
+    @Override
+    protected boolean isVisitedApart(JmmNode node) {
+        return CompilerTrace.isEnabled() && Kind.METHOD_DECL.check(node);
+    }
+
+    /**
+     * When tracing, visits each method inside its own span.
+     */
+    @Override
+    public Void visit(JmmNode node, SymbolTable table) {
+        if (!CompilerTrace.isEnabled() || !Kind.METHOD_DECL.check(node)) {
+            return super.visit(node, table);
+        }
+
+        try (var span = CompilerTrace.span(getClass().getSimpleName(), "analysis", node.get("methodName"))) {
+            return super.visit(node, table);
+        }
+    }
+
     @Override
     public List<Report> analyze(JmmNode root, SymbolTable table) {
         // Visit the node
@@ -0,0 +1,171 @@
+package pt.up.fe.comp2025.analysis;
+
+import pt.up.fe.comp.jmm.analysis.table.SymbolTable;
+import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp.jmm.report.Report;
+import pt.up.fe.comp2025.ast.AstNode;
+import pt.up.fe.comp2025.ast.Kind;
+import pt.up.fe.comp2025.metrics.CompilerTrace;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Runs several analysis passes in a single preorder traversal of the AST, instead of one traversal per pass.
+ * <p>
+ * Each node is given to the passes that have a visit method for its kind, in the order of the passes. The visits of
+ * each pass happen in the same order as in a traversal of its own, and each pass keeps its own reports, so the
+ * reports are the same as running the passes one after the other. A pass that throws is not visited again, like a
+ * pass whose traversal was interrupted.
+ * <p>
+ * When tracing, the time each pass spends in the nodes of a method is added up, and recorded as a span of the pass
+ * nested in the span of the method. The visits of the passes are interleaved, so these spans are laid out one after
+ * the other from the start of the method, with their total durations.
+ */
+class FusedAnalysis {
+
+    private static final int[] NO_PASSES = new int[0];
+
+    private final List<AnalysisVisitor> passes;
+    private final Exception[] exceptions;
+    // Indexes of the passes that visit each kind of compact node
+    private final int[][] passesByKind;
+    // Time spent by each pass in the method being traced, or null if not tracing
+    private long[] passNanos;
+
+    FusedAnalysis(List<AnalysisVisitor> passes) {
+        this.passes = passes;
+        this.exceptions = new Exception[passes.size()];
+        this.passesByKind = new int[Kind.values().length][];
+    }
+
+    /**
+     * @return the exception thrown by the pass with the given index, or null if it finished
+     */
+    Exception getException(int pass) {
+        return exceptions[pass];
+    }
+
+    /**
+     * @return the reports of the pass with the given index
+     */
+    List<Report> getReports(int pass) {
+        return passes.get(pass).getReports();
+    }
+
+    void run(JmmNode root, SymbolTable table) {
+        visit(root, table, false);
+    }
+
+    /**
+     * Visits the tree without the subtrees of the methods, which can then be visited separately with
+     * {@link #run(JmmNode, SymbolTable)}.
+     */
+    void runOutsideMethods(JmmNode root, SymbolTable table) {
+        visit(root, table, true);
+    }
+
+    private void visit(JmmNode node, SymbolTable table, boolean skipMethods) {
+        if (CompilerTrace.isEnabled() && Kind.METHOD_DECL.check(node)) {
+            var methodName = node.get("methodName");
+
+            try (var span = CompilerTrace.span("fusedAnalysis", "analysis", methodName)) {
+                passNanos = new long[passes.size()];
+                var start = System.nanoTime();
+
+                visitNode(node, table, skipMethods);
+                addPassSpans(methodName, start);
+            } finally {
+                passNanos = null;
+            }
+            return;
+        }
+
+        visitNode(node, table, skipMethods);
+    }
+
+    private void visitNode(JmmNode root, SymbolTable table, boolean skipMethods) {
+        // Left operands of chains of operations are nested as deep as the chain is long, so the subtree is visited
+        // with a stack of the nodes still to visit instead of recursion
+        var pending = new ArrayDeque<JmmNode>();
+        pending.push(root);
+
+        while (!pending.isEmpty()) {
+            var node = pending.pop();
+
+            // Methods are visited on their own when tracing, to be inside their span
+            if (node != root && CompilerTrace.isEnabled() && Kind.METHOD_DECL.check(node)) {
+                visit(node, table, skipMethods);
+                continue;
+            }
+
+            visitPasses(node, table);
+
+            // Pushed last to first, so that children are visited in order
+            for (int i = node.getNumChildren() - 1; i >= 0; i--) {
+                var child = node.getChild(i);
+                if (skipMethods && Kind.METHOD_DECL.check(child)) {
+                    continue;
+                }
+
+                pending.push(child);
+            }
+        }
+    }
+
+    private void visitPasses(JmmNode node, SymbolTable table) {
+        for (var pass : getPasses(node)) {
+            if (exceptions[pass] != null) {
+                continue;
+            }
+
+            var start = passNanos == null ? 0 : System.nanoTime();
+
+            try {
+                passes.get(pass).visitNode(node, table);
+            } catch (Exception e) {
+                exceptions[pass] = e;
+            }
+
+            if (passNanos != null) {
+                passNanos[pass] += System.nanoTime() - start;
+            }
+        }
+    }
+
+    private void addPassSpans(String methodName, long start) {
+        for (int pass = 0; pass < passes.size(); pass++) {
+            var name = passes.get(pass).getClass().getSimpleName();
+            CompilerTrace.addSpan(name, "analysis", methodName, start, start + passNanos[pass]);
+            start += passNanos[pass];
+        }
+    }
+
+    private int[] getPasses(JmmNode node) {
+        if (!(node instanceof AstNode astNode)) {
+            return findPasses(node);
+        }
+
+        var index = astNode.getNodeKind().ordinal();
+        var kindPasses = passesByKind[index];
+
+        if (kindPasses == null) {
+            kindPasses = findPasses(node);
+            passesByKind[index] = kindPasses;
+        }
+
+        return kindPasses;
+    }
+
+    private int[] findPasses(JmmNode node) {
+        var found = new ArrayList<Integer>();
+        for (int i = 0; i < passes.size(); i++) {
+            if (passes.get(i).hasVisit(node)) {
+                found.add(i);
+            }
+        }
+
+        return found.isEmpty() ? NO_PASSES : found.stream().mapToInt(Integer::intValue).toArray();
+    }
+}
@@ -9,18 +9,28 @@ import pt.up.fe.comp.jmm.parser.JmmParserResult;
 import pt.up.fe.comp.jmm.report.Report;
 import pt.up.fe.comp.jmm.report.ReportType;
 import pt.up.fe.comp.jmm.report.Stage;
+import pt.up.fe.comp2025.CompilerConfig;
 import pt.up.fe.comp2025.analysis.passes.*;
 import pt.up.fe.comp2025.ast.Kind;
+import pt.up.fe.comp2025.metrics.CompilerLog;
+import pt.up.fe.comp2025.metrics.CompilerLog.Category;
+import pt.up.fe.comp2025.metrics.CompilerLog.Level;
+import pt.up.fe.comp2025.metrics.CompilerTrace;
 import pt.up.fe.comp2025.symboltable.JmmSymbolTableBuilder;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.IntFunction;
 
 /**
  * Implementation of the semantic analysis stage.
  */
 public class JmmAnalysisImpl implements JmmAnalysis {
 
+    // Classes with fewer methods are analyzed in a single thread, splitting them costs more than it saves
+    private static final int MIN_PARALLEL_METHODS = 16;
 
     /**
      * Analysis passes that will be applied to the AST.
@@ -31,6 +41,7 @@ public class JmmAnalysisImpl implements JmmAnalysis {
     private List<AnalysisVisitor> buildPasses(SymbolTable table) {
         List<AnalysisVisitor> visitors = new ArrayList<>();
 
+        visitors.add(new TypeAnnotation());
         visitors.add(new UndeclaredVariable());
         visitors.add(new BinaryExprType());
         visitors.add(new MethodReturnType());
@@ -58,6 +69,12 @@ public class JmmAnalysisImpl implements JmmAnalysis {
         return new JmmSemanticsResult(parserResult, table, reports);
     }
 
+    /**
+     * Runs the analysis passes in order, stopping at the first pass that reports errors. Unless disabled by the option
+     * 'fusedAnalysis', the passes run together in a single traversal of the AST ({@link FusedAnalysis}), with the
+     * same reports. The methods of classes with many methods are analyzed concurrently ({@link ParallelAnalysis}),
+     * unless disabled by the option 'parallelAnalysis'.
+     */
     @Override
     public JmmSemanticsResult semanticAnalysis(JmmSemanticsResult semanticsResult) {
 
@@ -67,12 +84,15 @@ public class JmmAnalysisImpl implements JmmAnalysis {
 
         var rootNode = semanticsResult.getRootNode();
 
+        if (CompilerConfig.getFusedAnalysis(semanticsResult.getConfig())) {
+            return fusedAnalysis(semanticsResult, analysisVisitors);
+        }
+
         var reports = new ArrayList<Report>();
 
         // This is a simple implementation that assumes all passes are implemented as visitors, each one making a full visit of the AST.
-        // There are other implementations that reduce the number of full AST visits, this is not required for the work, but a nice challenge if you want to try.
         for (var analysisVisitor : analysisVisitors) {
-            try {
+            try (var span = CompilerTrace.span(analysisVisitor.getClass().getSimpleName(), "analysis", null)) {
                 var passReports = analysisVisitor.analyze(rootNode, table);
 
                 var hasSymbolTableErrors = passReports.stream()
@@ -83,18 +103,17 @@ public class JmmAnalysisImpl implements JmmAnalysis {
 
                 // Return early in case of error report
                 if (hasSymbolTableErrors) {
-                    System.out.println("Found errors: " + reports);
+                    if (CompilerLog.isEnabled(Category.ANALYSIS, Level.DEBUG)) {
+                        CompilerLog.log(Category.ANALYSIS, Level.DEBUG, "Found errors: " + reports);
+                    }
                     return new JmmSemanticsResult(semanticsResult, reports);
                 }
 
             } catch (Exception e) {
-                reports.add(Report.newError(Stage.SEMANTIC,
-                        -1,
-                        -1,
-                        "Problem while executing analysis pass '" + analysisVisitor.getClass() + "'",
-                        e)
-                );
-                System.out.println("Exception: " + reports);
+                reports.add(newPassException(analysisVisitor, e));
+                if (CompilerLog.isEnabled(Category.ANALYSIS, Level.DEBUG)) {
+                    CompilerLog.log(Category.ANALYSIS, Level.DEBUG, "Exception: " + reports);
+                }
             }
 
         }
@@ -103,5 +122,122 @@ public class JmmAnalysisImpl implements JmmAnalysis {
         return new JmmSemanticsResult(semanticsResult, reports);
     }
 
+    private JmmSemanticsResult fusedAnalysis(JmmSemanticsResult semanticsResult,
+                                             List<AnalysisVisitor> analysisVisitors) {
+        var rootNode = semanticsResult.getRootNode();
+        var table = semanticsResult.getSymbolTable();
+
+        if (CompilerConfig.getParallelAnalysis(semanticsResult.getConfig())) {
+            var methods = ParallelAnalysis.getMethods(rootNode);
+
+            if (methods.size() >= MIN_PARALLEL_METHODS) {
+                var analysis = new ParallelAnalysis(() -> buildPasses(table), ForkJoinPool.commonPool());
+
+                try (var span = CompilerTrace.span("parallelAnalysis", "analysis", null)) {
+                    analysis.run(rootNode, methods, table);
+                }
+
+                return joinReports(semanticsResult, analysisVisitors, analysis::getException, analysis::getReports);
+            }
+        }
+
+        var analysis = new FusedAnalysis(analysisVisitors);
+
+        try (var span = CompilerTrace.span("fusedAnalysis", "analysis", null)) {
+            analysis.run(rootNode, table);
+        }
+
+        return joinReports(semanticsResult, analysisVisitors, analysis::getException, analysis::getReports);
+    }
+
+    /**
+     * Analyzes the tree without the subtrees of the methods, which can then be analyzed with {@link #analyzeMethod}.
+     */
+    public AnalysisSegment analyzeOutsideMethods(JmmNode root, SymbolTable table) {
+        var passes = buildPasses(table);
+        var analysis = new FusedAnalysis(passes);
+        analysis.runOutsideMethods(root, table);
+
+        return new AnalysisSegment(analysis, passes.size());
+    }
+
+    /**
+     * Analyzes a single method, with new instances of the passes.
+     */
+    public AnalysisSegment analyzeMethod(JmmNode method, SymbolTable table) {
+        var passes = buildPasses(table);
+        var analysis = new FusedAnalysis(passes);
+        analysis.run(method, table);
+
+        return new AnalysisSegment(analysis, passes.size());
+    }
+
+    /**
+     * Joins the results of the tree outside the methods and of each method, in the order of the source, giving the same
+     * reports as {@link #semanticAnalysis}.
+     *
+     * @param segments the results of {@link #analyzeOutsideMethods}, followed by the results of each method
+     */
+    public JmmSemanticsResult joinSegments(JmmSemanticsResult semanticsResult, List<AnalysisSegment> segments) {
+        var analysisVisitors = buildPasses(semanticsResult.getSymbolTable());
+
+        IntFunction<Exception> exceptions = pass -> segments.stream()
+                .map(segment -> segment.getException(pass))
+                .filter(Objects::nonNull)
+                .findFirst()
+                .orElse(null);
+
+        IntFunction<List<Report>> passReports = pass -> segments.stream()
+                .flatMap(segment -> segment.getReports(pass).stream())
+                .toList();
+
+        return joinReports(semanticsResult, analysisVisitors, exceptions, passReports);
+    }
+
+    /**
+     * Joins the reports of passes that ran together, giving the same reports as running them one after the other.
+     *
+     * @param exceptions the exception thrown by each pass, by index, or null
+     * @param passReports the reports of each pass, by index
+     */
+    private JmmSemanticsResult joinReports(JmmSemanticsResult semanticsResult, List<AnalysisVisitor> analysisVisitors,
+                                           IntFunction<Exception> exceptions,
+                                           IntFunction<List<Report>> passReports) {
+        var reports = new ArrayList<Report>();
+        for (int i = 0; i < analysisVisitors.size(); i++) {
+            var analysisVisitor = analysisVisitors.get(i);
+
+            var exception = exceptions.apply(i);
+            if (exception != null) {
+                reports.add(newPassException(analysisVisitor, exception));
+                if (CompilerLog.isEnabled(Category.ANALYSIS, Level.DEBUG)) {
+                    CompilerLog.log(Category.ANALYSIS, Level.DEBUG, "Exception: " + reports);
+                }
+                continue;
+            }
+
+            var reportsOfPass = passReports.apply(i);
+            reports.addAll(reportsOfPass);
+
+            // Reports of the passes after the first one with errors are discarded
+            if (reportsOfPass.stream().anyMatch(report -> report.getType() == ReportType.ERROR)) {
+                if (CompilerLog.isEnabled(Category.ANALYSIS, Level.DEBUG)) {
+                    CompilerLog.log(Category.ANALYSIS, Level.DEBUG, "Found errors: " + reports);
+                }
+                return new JmmSemanticsResult(semanticsResult, reports);
+            }
+        }
+
+        return new JmmSemanticsResult(semanticsResult, reports);
+    }
+
+    private static Report newPassException(AnalysisVisitor analysisVisitor, Exception e) {
+        return Report.newError(Stage.SEMANTIC,
+                -1,
+                -1,
+                "Problem while executing analysis pass '" + analysisVisitor.getClass() + "'",
+                e);
+    }
+
 
 }
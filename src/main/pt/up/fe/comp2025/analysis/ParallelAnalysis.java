@@ -0,0 +1,118 @@
+package pt.up.fe.comp2025.analysis;
+
+import pt.up.fe.comp.jmm.analysis.table.SymbolTable;
+import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp.jmm.report.Report;
+import pt.up.fe.comp2025.ast.Kind;
+import pt.up.fe.comp2025.metrics.CompilerMetrics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Supplier;
+
+/**
+ * Runs the analysis passes over the methods of a class concurrently, on a {@link ForkJoinPool}.
+ * <p>
+ * Once the symbol table is built, the passes only read it, and the state they keep between visits is set when they
+ * visit a method declaration. The methods are split in segments of consecutive methods, each one analyzed by a
+ * {@link FusedAnalysis} with its own instances of the passes, and the rest of the tree (imports, class and fields) is
+ * analyzed by another one. The methods are the last children of the class, so joining the reports of the segments in
+ * the order of the source gives the same reports as a single traversal.
+ */
+class ParallelAnalysis {
+
+    // Segments per worker thread, more than one to balance methods of different sizes
+    private static final int SEGMENTS_PER_THREAD = 4;
+
+    private final Supplier<List<AnalysisVisitor>> passes;
+    private final ForkJoinPool pool;
+    // The first segment is the tree outside the methods, followed by the methods in the order of the source
+    private final List<FusedAnalysis> segments;
+
+    /**
+     * @param passes creates new instances of the analysis passes, always in the same order
+     */
+    ParallelAnalysis(Supplier<List<AnalysisVisitor>> passes, ForkJoinPool pool) {
+        this.passes = passes;
+        this.pool = pool;
+        this.segments = new ArrayList<>();
+    }
+
+    /**
+     * @return the methods declared in the tree, in the order of the source
+     */
+    static List<JmmNode> getMethods(JmmNode root) {
+        var methods = new ArrayList<JmmNode>();
+        collectMethods(root, methods);
+        return methods;
+    }
+
+    private static void collectMethods(JmmNode node, List<JmmNode> methods) {
+        if (Kind.METHOD_DECL.check(node)) {
+            methods.add(node);
+            return;
+        }
+
+        for (int i = 0; i < node.getNumChildren(); i++) {
+            collectMethods(node.getChild(i), methods);
+        }
+    }
+
+    /**
+     * @param methods the methods of the tree, as returned by {@link #getMethods(JmmNode)}
+     */
+    void run(JmmNode root, List<JmmNode> methods, SymbolTable table) {
+        var outside = new FusedAnalysis(passes.get());
+        segments.add(outside);
+
+        var tasks = new ArrayList<ForkJoinTask<?>>();
+        // Wrapped so that the metrics of the stage count the work of the pool
+        tasks.add(ForkJoinTask.adapt(CompilerMetrics.onWorker(() -> outside.runOutsideMethods(root, table))));
+
+        var numSegments = Math.min(methods.size(), pool.getParallelism() * SEGMENTS_PER_THREAD);
+        for (int i = 0; i < numSegments; i++) {
+            var segmentMethods = methods.subList(i * methods.size() / numSegments,
+                    (i + 1) * methods.size() / numSegments);
+
+            var segment = new FusedAnalysis(passes.get());
+            segments.add(segment);
+
+            tasks.add(ForkJoinTask.adapt(CompilerMetrics.onWorker(() -> {
+                for (var method : segmentMethods) {
+                    segment.run(method, table);
+                }
+            })));
+        }
+
+        pool.invoke(ForkJoinTask.adapt(() -> ForkJoinTask.invokeAll(tasks)));
+    }
+
+    /**
+     * @return the first exception thrown by the pass with the given index, in the order of the source, or null if it
+     * finished in every segment
+     */
+    Exception getException(int pass) {
+        for (var segment : segments) {
+            var exception = segment.getException(pass);
+            if (exception != null) {
+                return exception;
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * @return the reports of the pass with the given index, in the order of the source
+     */
+    List<Report> getReports(int pass) {
+        var reports = new ArrayList<Report>();
+        for (var segment : segments) {
+            reports.addAll(segment.getReports(pass));
+        }
+
+        return reports;
+    }
+}
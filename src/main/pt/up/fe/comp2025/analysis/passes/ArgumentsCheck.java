@@ -8,6 +8,11 @@ import pt.up.fe.comp.jmm.report.Stage;
 import pt.up.fe.comp2025.analysis.AnalysisVisitor;
 import pt.up.fe.comp2025.ast.Kind;
 import pt.up.fe.comp2025.ast.TypeUtils;
+import pt.up.fe.comp2025.classpath.ClasspathIndex;
+import pt.up.fe.comp2025.classpath.MemberInfo;
+import pt.up.fe.comp2025.metrics.CompilerLog;
+import pt.up.fe.comp2025.metrics.CompilerLog.Category;
+import pt.up.fe.comp2025.metrics.CompilerLog.Level;
 
 import java.util.List;
 
@@ -30,15 +35,16 @@ public class ArgumentsCheck extends AnalysisVisitor {
         var expectedParams = table.getParameters(methodName);
 
         if (expectedParams == null) {
-            System.out.println("Couldn't get this method's parameters, it was probably imported, so we are assuming it's correct.");
+            checkImportedCall(node, table);
             return null;
         }
 
         var arguments = node.getChildren().subList(1, node.getNumChildren()); // The first child is always the caller.
 
-        System.out.println("Method: " + methodName);
-        System.out.println("Expected parameters: " + expectedParams);
-        System.out.println("Provided arguments: " + arguments);
+        if (CompilerLog.isEnabled(Category.ANALYSIS, Level.DEBUG)) {
+            CompilerLog.log(Category.ANALYSIS, Level.DEBUG, "Method: " + methodName + ", expected parameters: "
+                    + expectedParams + ", provided arguments: " + arguments);
+        }
 
         if (expectedParams.isEmpty()) {
             if (!arguments.isEmpty()) {
@@ -57,7 +63,10 @@ public class ArgumentsCheck extends AnalysisVisitor {
         Type lastParamType = expectedParams.get(expectedCount - 1).getType();
         boolean hasVarargs = lastParamType.isArray() && lastParamType.getName().equals("...");  // Check for vararg
 
-        System.out.println("Vararg Test: " + expectedParams.get(expectedCount - 1));
+        if (CompilerLog.isEnabled(Category.ANALYSIS, Level.DEBUG)) {
+            CompilerLog.log(Category.ANALYSIS, Level.DEBUG, "Last parameter of method '" + methodName + "': "
+                    + expectedParams.get(expectedCount - 1));
+        }
         int fixedParams = hasVarargs ? expectedCount - 1 : expectedCount;
 
         if (arguments.size() < fixedParams) {
@@ -128,5 +137,82 @@ public class ArgumentsCheck extends AnalysisVisitor {
         }
         return null;
     }
-}
 
+    /**
+     * Checks a call of a method that is not declared in the class being compiled against the class file of the class
+     * it is called on. Calls on classes that are not in the classpath, or whose supertypes are not, are assumed to be
+     * correct.
+     */
+    private void checkImportedCall(JmmNode node, SymbolTable table) {
+        var methodName = node.get("methodName");
+        var caller = node.getChild(0);
+        var callerType = typeUtils.getExprType(caller);
+
+        // A call of a static method names the class instead of a variable
+        var isStaticCall = callerType == null && Kind.IDENTIFIER.check(caller);
+        String className = null;
+
+        if (isStaticCall) {
+            className = caller.get("var");
+        } else if (callerType != null && !callerType.isArray()) {
+            className = callerType.getName();
+        }
+
+        // Methods of the class being compiled that are not declared in it are inherited
+        if (table.getClassName().equals(className)) {
+            className = table.getSuper();
+        }
+
+        var importedName = className == null ? null : TypeUtils.getImportedName(className, table);
+        var index = ClasspathIndex.getDefault();
+
+        if (importedName == null || index.getClass(importedName) == null || !index.isHierarchyKnown(importedName)) {
+            if (CompilerLog.isEnabled(Category.ANALYSIS, Level.DEBUG)) {
+                CompilerLog.log(Category.ANALYSIS, Level.DEBUG, "Couldn't find the class of method '" + methodName
+                        + "' in the classpath, so we are assuming it's correct.");
+            }
+            return;
+        }
+
+        var methods = index.findMethods(importedName, methodName);
+        var numArguments = node.getNumChildren() - 1;
+
+        if (methods.isEmpty()) {
+            addReport(Report.newError(
+                    Stage.SEMANTIC,
+                    node.getLine(),
+                    node.getColumn(),
+                    "Method '" + methodName + "' doesn't exist in class " + importedName,
+                    null)
+            );
+            return;
+        }
+
+        var candidates = methods.stream()
+                .filter(method -> method.getNumParameters() == numArguments
+                        || method.isVarargs() && numArguments >= method.getNumParameters() - 1)
+                .toList();
+
+        if (candidates.isEmpty()) {
+            addReport(Report.newError(
+                    Stage.SEMANTIC,
+                    node.getLine(),
+                    node.getColumn(),
+                    "Method '" + methodName + "' of class " + importedName + " does not take " + numArguments
+                            + " arguments",
+                    null)
+            );
+            return;
+        }
+
+        if (isStaticCall && candidates.stream().noneMatch(MemberInfo::isStatic)) {
+            addReport(Report.newError(
+                    Stage.SEMANTIC,
+                    node.getLine(),
+                    node.getColumn(),
+                    "Method '" + methodName + "' of class " + importedName + " is not static",
+                    null)
+            );
+        }
+    }
+}
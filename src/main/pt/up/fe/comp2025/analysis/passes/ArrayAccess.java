@@ -47,10 +47,10 @@ public class ArrayAccess extends AnalysisVisitor {
         if(typeIndex == null)
         {
             var imp = table.getImports();
-            Kind kind1 = Kind.fromString(ind.getKind());
+            Kind kind1 = Kind.of(ind);
             if(kind1 == Kind.METHOD_CALL)
             {
-                Kind kindthis1 = Kind.fromString(ind.getChild(0).getKind());
+                Kind kindthis1 = Kind.of(ind.getChild(0));
                 if (kindthis1 != Kind.THIS) {
                     if (imp.contains(ind.getChild(0).get("var")) && typeArray.isArray()) {
                         return null;
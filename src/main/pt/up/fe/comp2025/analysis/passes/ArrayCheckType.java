@@ -8,6 +8,9 @@ import pt.up.fe.comp.jmm.report.Stage;
 import pt.up.fe.comp2025.analysis.AnalysisVisitor;
 import pt.up.fe.comp2025.ast.Kind;
 import pt.up.fe.comp2025.ast.TypeUtils;
+import pt.up.fe.comp2025.metrics.CompilerLog;
+import pt.up.fe.comp2025.metrics.CompilerLog.Category;
+import pt.up.fe.comp2025.metrics.CompilerLog.Level;
 import pt.up.fe.specs.util.SpecsCheck;
 
 import java.util.Objects;
@@ -27,7 +30,10 @@ public class ArrayCheckType extends AnalysisVisitor {
         return null;
     }
     private Void visitArray(JmmNode node, SymbolTable table) {
-        System.out.println("ENTRASTE NO VISITARRAY");
+        if (CompilerLog.isEnabled(Category.ANALYSIS, Level.DEBUG)) {
+            CompilerLog.log(Category.ANALYSIS, Level.DEBUG, "Array literal with " + node.getNumChildren()
+                    + " element(s)");
+        }
         var expr = typeUtils.getExprType(node.getChild(0));
         for(JmmNode child: node.getChildren())
         {
@@ -65,10 +71,10 @@ public class ArrayCheckType extends AnalysisVisitor {
         }
         else {
             var imp = table.getImports();
-            Kind kind1 = Kind.fromString(node.getChild(0).getKind());
+            Kind kind1 = Kind.of(node.getChild(0));
             if(kind1 == Kind.METHOD_CALL)
             {
-                Kind kindthis = Kind.fromString(node.getChild(0).getChild(0).getKind());
+                Kind kindthis = Kind.of(node.getChild(0).getChild(0));
                 if(kindthis  != Kind.THIS)
                 {
                     var caller = node.getChild(0).getChild(0).get("var");
@@ -7,6 +7,9 @@ import pt.up.fe.comp.jmm.report.Stage;
 import pt.up.fe.comp2025.analysis.AnalysisVisitor;
 import pt.up.fe.comp2025.ast.Kind;
 import pt.up.fe.comp2025.ast.TypeUtils;
+import pt.up.fe.comp2025.metrics.CompilerLog;
+import pt.up.fe.comp2025.metrics.CompilerLog.Category;
+import pt.up.fe.comp2025.metrics.CompilerLog.Level;
 import pt.up.fe.specs.util.SpecsCheck;
 
 public class BinaryExprType extends AnalysisVisitor {
@@ -30,10 +33,12 @@ public class BinaryExprType extends AnalysisVisitor {
         var op = jmmNode.get("op");
         var firstNode = jmmNode.getChild(0);
         var secondNode = jmmNode.getChild(1);
-        System.out.println("FIRST NOOOOOOOOOOOOOOOOOODE: "+secondNode);
         var fisrtType = typeUtils.getExprType(firstNode);
         var secondType = typeUtils.getExprType(secondNode);
-        System.out.println("SECOND TYYYYYYYYYYYYYYYYYYPE: "+secondType);
+        if (CompilerLog.isEnabled(Category.ANALYSIS, Level.DEBUG)) {
+            CompilerLog.log(Category.ANALYSIS, Level.DEBUG, "Binary operation '" + op + "' with operand types "
+                    + fisrtType + " and " + secondType);
+        }
 
         if(fisrtType == null || secondType == null)
         {
@@ -48,10 +53,10 @@ public class BinaryExprType extends AnalysisVisitor {
             return null;
         }
         var imp = table.getImports();
-        Kind kind1 = Kind.fromString(firstNode.getKind());
-        Kind kind2 = Kind.fromString(secondNode.getKind());
+        Kind kind1 = Kind.of(firstNode);
+        Kind kind2 = Kind.of(secondNode);
         if(kind1 == Kind.METHOD_CALL ) {
-            Kind kindthis1 = Kind.fromString(firstNode.getChild(0).getKind());
+            Kind kindthis1 = Kind.of(firstNode.getChild(0));
             if (kindthis1 != Kind.THIS) {
                 if (imp.contains(firstNode.getChild(0).get("var"))) {
                     var message = String.format("Use of imported method calls are not supported for binary operations");
@@ -68,7 +73,7 @@ public class BinaryExprType extends AnalysisVisitor {
         }
         if(kind2 == Kind.METHOD_CALL)
         {
-            Kind kindthis2 = Kind.fromString(secondNode.getChild(0).getKind());
+            Kind kindthis2 = Kind.of(secondNode.getChild(0));
             if (kindthis2 != Kind.THIS) {
                 if (imp.contains(secondNode.getChild(0).get("var"))) {
                     var message = String.format("Use of imported method calls are not supported for binary operations");
@@ -8,8 +8,6 @@ import pt.up.fe.comp2025.analysis.AnalysisVisitor;
 import pt.up.fe.comp2025.ast.Kind;
 import pt.up.fe.comp2025.ast.TypeUtils;
 
-import java.util.List;
-
 public class MethodCheck extends AnalysisVisitor {
     private TypeUtils typeUtils;
 
@@ -32,18 +30,17 @@ public class MethodCheck extends AnalysisVisitor {
 
         if (node.getChild(0).getKind().equals("This")) {
             caller = table.getClassName();
-        } else if (table.getImports().contains(node.getChild(0).get("var"))) {
+        } else if (TypeUtils.getImportedName(node.getChild(0).get("var"), table) != null) {
             caller = node.getChild(0).get("var");
         } else {
             caller = typeUtils.getVarType(node.getChild(0).get("var")).getName();
         }
-        var imports = table.getImports() != null ? table.getImports() : List.of();
         var extend = table.getSuper() != null ? table.getSuper() : "";
         var class_ = table.getClassName();
-        if(methods.contains(curr_method) || imports.contains(caller)){
+        if(methods.contains(curr_method) || TypeUtils.getImportedName(caller, table) != null){
             return null;
         }
-        if(class_.equals(caller) && imports.contains(extend))
+        if(class_.equals(caller) && TypeUtils.getImportedName(extend, table) != null)
         {
             return null;
         }
@@ -0,0 +1,33 @@
+package pt.up.fe.comp2025.analysis.passes;
+
+import pt.up.fe.comp.jmm.analysis.table.SymbolTable;
+import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp2025.analysis.AnalysisVisitor;
+import pt.up.fe.comp2025.ast.Kind;
+import pt.up.fe.comp2025.ast.TypeUtils;
+
+/**
+ * Resolves the type of every expression inside a method, which is kept in the node. Runs before the other passes,
+ * so they and the OLLIR generator read the types instead of resolving them again.
+ */
+public class TypeAnnotation extends AnalysisVisitor {
+    private TypeUtils typeUtils;
+
+    @Override
+    public void buildVisitor() {
+        addVisit(Kind.METHOD_DECL, this::visitMethodDecl);
+        addVisit(Kind.EXPR, this::visitExpr);
+    }
+
+    private Void visitMethodDecl(JmmNode method, SymbolTable table) {
+        typeUtils = new TypeUtils(table, method.get("methodName"));
+        return null;
+    }
+
+    private Void visitExpr(JmmNode expr, SymbolTable table) {
+        if (typeUtils != null) {
+            typeUtils.getExprType(expr);
+        }
+        return null;
+    }
+}
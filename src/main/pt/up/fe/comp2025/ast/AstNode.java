@@ -0,0 +1,680 @@
+package pt.up.fe.comp2025.ast;
+
+import pt.up.fe.comp.jmm.analysis.table.Type;
+import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp.jmm.ast.JmmNodeImpl;
+import pt.up.fe.comp.jmm.ast.NodePosition;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Compact AST node, built directly from the parse tree.
+ * <p>
+ * Instead of a map of string attributes, the kind is a {@link Kind}, positions, integer literals and flags are
+ * primitive fields, and names are kept as (interned) strings. The attributes are still available through the
+ * {@link JmmNode} API, with the same names, values and order as the nodes created by the ANTLR converter of the
+ * library, so passes work with both kinds of nodes. Attributes that are not part of the kind of the node, or values
+ * that do not fit in its fields, are kept in the attribute map.
+ * <p>
+ * Extends {@link JmmNodeImpl} because the library assumes that the nodes of a tree are instances of that class.
+ * <p>
+ * Expressions also keep their type once it is resolved (see {@link TypeUtils#getExprType(JmmNode)}). It is not an
+ * attribute, and it is cleared, with the types of the ancestors, when the children or the attributes of the node
+ * change.
+ */
+public class AstNode extends JmmNodeImpl {
+
+    /**
+     * Where an attribute is stored.
+     */
+    private enum Slot {
+        LINE_START,
+        COL_START,
+        LINE_END,
+        COL_END,
+        NAME,
+        NAME2,
+        VALUE,
+        IS_ARRAY,
+        IS_VARARG,
+        IS_PUBLIC,
+        IS_STATIC,
+        // Optional tokens, their value is always the text of the token
+        HAS_STATIC,
+        HAS_RETURN
+    }
+
+    // Bits of the flags: presence of the optional slots, and values of the boolean slots
+    private static final int LINE_START_SET = 1;
+    private static final int COL_START_SET = 1 << 1;
+    private static final int LINE_END_SET = 1 << 2;
+    private static final int COL_END_SET = 1 << 3;
+    private static final int VALUE_SET = 1 << 4;
+    private static final int ARRAY_FLAG = 1 << 5;
+    private static final int VARARG_FLAG = 1 << 6;
+    private static final int PUBLIC_FLAG = 1 << 7;
+    private static final int STATIC_FLAG = 1 << 8;
+    private static final int HAS_STATIC_FLAG = 1 << 9;
+    private static final int HAS_RETURN_FLAG = 1 << 10;
+
+    private static final int POSITION_SET = LINE_START_SET | COL_START_SET | LINE_END_SET | COL_END_SET;
+
+    /**
+     * Hierarchy and attributes of a kind of node.
+     */
+    private static class Layout {
+
+        private final Kind superKind;
+        private final List<String> hierarchy;
+        // In the order they are added by the converter of the library
+        private final String[] keys;
+        private final Slot[] slots;
+        // Order of iteration of the attribute map of the nodes created by the library
+        private final List<String> order;
+
+        private Layout(Kind kind, Kind superKind, Object... attributes) {
+            this.superKind = superKind;
+            this.hierarchy = superKind == null ? List.of(kind.getNodeName())
+                    : List.of(kind.getNodeName(), superKind.getNodeName());
+
+            var numAttributes = 4 + attributes.length / 2;
+            this.keys = new String[numAttributes];
+            this.slots = new Slot[numAttributes];
+
+            keys[0] = NodePosition.LINE_START.getKey();
+            slots[0] = Slot.LINE_START;
+            keys[1] = NodePosition.COL_START.getKey();
+            slots[1] = Slot.COL_START;
+            keys[2] = NodePosition.LINE_END.getKey();
+            slots[2] = Slot.LINE_END;
+            keys[3] = NodePosition.COL_END.getKey();
+            slots[3] = Slot.COL_END;
+
+            for (int i = 0; i < attributes.length; i += 2) {
+                keys[4 + i / 2] = (String) attributes[i];
+                slots[4 + i / 2] = (Slot) attributes[i + 1];
+            }
+
+            var map = new HashMap<String, Boolean>();
+            for (var key : keys) {
+                map.put(key, true);
+            }
+            this.order = List.copyOf(map.keySet());
+        }
+
+        private Slot getSlot(String key) {
+            for (int i = 0; i < keys.length; i++) {
+                if (keys[i].equals(key)) {
+                    return slots[i];
+                }
+            }
+
+            return null;
+        }
+    }
+
+    private static final Layout[] LAYOUTS = new Layout[Kind.values().length];
+
+    static {
+        for (var kind : Kind.values()) {
+            LAYOUTS[kind.ordinal()] = new Layout(kind, null);
+        }
+
+        // The import names are a list, they are kept in the attribute map
+        define(Kind.IMPORT_DECL, null, "ID", Slot.NAME);
+        define(Kind.CLASS_DECL, null, "className", Slot.NAME, "superName", Slot.NAME2);
+        define(Kind.VAR_DECL, null, "var", Slot.NAME);
+
+        for (var type : List.of(Kind.INT_TYPE, Kind.INT_VARARG, Kind.BOOL_TYPE, Kind.STRING_TYPE, Kind.ID_TYPE)) {
+            define(type, Kind.TYPE, "name", Slot.NAME, "isArray", Slot.IS_ARRAY, "isVararg", Slot.IS_VARARG);
+        }
+
+        define(Kind.METHOD_DECL, null, "isPublic", Slot.IS_PUBLIC, "isStatic", Slot.IS_STATIC,
+                "hasStatic", Slot.HAS_STATIC, "methodName", Slot.NAME, "hasReturn", Slot.HAS_RETURN,
+                "var", Slot.NAME2);
+        define(Kind.PARAM, null, "name", Slot.NAME);
+
+        define(Kind.BLOCK_STMT, Kind.STMT);
+        define(Kind.IF_STMT, Kind.STMT);
+        define(Kind.WHILE_STMT, Kind.STMT);
+        define(Kind.EXPR_STMT, Kind.STMT);
+        define(Kind.ASSIGN_STMT, Kind.STMT, "var", Slot.NAME);
+        define(Kind.ARRAY_ASSIGN_STMT, Kind.STMT, "var", Slot.NAME);
+
+        define(Kind.NEW_ARRAY, Kind.EXPR);
+        define(Kind.NEW_OBJECT, Kind.EXPR, "className", Slot.NAME);
+        define(Kind.PARENTHESES_OP, Kind.EXPR);
+        define(Kind.ARRAY_LITERAL, Kind.EXPR);
+        define(Kind.ARRAY_INDEX, Kind.EXPR);
+        define(Kind.METHOD_CALL, Kind.EXPR, "methodName", Slot.NAME);
+        define(Kind.ARRAY_LENGTH, Kind.EXPR);
+        define(Kind.THIS, Kind.EXPR);
+        define(Kind.LOGICAL_NOT, Kind.EXPR);
+        define(Kind.BINARY_OP, Kind.EXPR, "op", Slot.NAME);
+        define(Kind.INTEGER, Kind.EXPR, "value", Slot.VALUE);
+        define(Kind.TRUE, Kind.EXPR);
+        define(Kind.FALSE, Kind.EXPR);
+        define(Kind.IDENTIFIER, Kind.EXPR, "var", Slot.NAME);
+    }
+
+    private static void define(Kind kind, Kind superKind, Object... attributes) {
+        LAYOUTS[kind.ordinal()] = new Layout(kind, superKind, attributes);
+    }
+
+    private final Kind kind;
+    private int lineStart;
+    private int colStart;
+    private int lineEnd;
+    private int colEnd;
+    private String name;
+    private String name2;
+    private int value;
+    private int flags;
+    private Type type;
+
+    /**
+     * @param kind        kind of the node
+     * @param numChildren expected number of children, used to size the list of children
+     */
+    public AstNode(Kind kind, int numChildren) {
+        super(LAYOUTS[kind.ordinal()].hierarchy);
+
+        this.kind = kind;
+        this.hierarchy = LAYOUTS[kind.ordinal()].hierarchy;
+        this.children = new ArrayList<>(numChildren);
+    }
+
+    public AstNode(Kind kind) {
+        this(kind, 0);
+    }
+
+    /**
+     * Creates an integer literal, without position.
+     */
+    public static AstNode newInteger(int value) {
+        var node = new AstNode(Kind.INTEGER);
+        node.setIntValue(value);
+        return node;
+    }
+
+    /**
+     * Creates a true or false literal, without position.
+     */
+    public static AstNode newBoolean(boolean value) {
+        return new AstNode(value ? Kind.TRUE : Kind.FALSE);
+    }
+
+    public Kind getNodeKind() {
+        return kind;
+    }
+
+    @Override
+    public String getKind() {
+        return hierarchy.get(0);
+    }
+
+    /**
+     * Same as {@link #isInstance(Object)}, without comparing names.
+     */
+    public boolean isInstance(Kind kind) {
+        return this.kind == kind || getLayout().superKind == kind;
+    }
+
+    /**
+     * @return the resolved type of this expression, or null if it was not resolved yet
+     */
+    public Type getType() {
+        return type;
+    }
+
+    public void setType(Type type) {
+        this.type = type;
+    }
+
+    /**
+     * Clears the resolved types of this node and its ancestors, which can depend on it.
+     */
+    public void invalidateType() {
+        JmmNode node = this;
+        while (node instanceof AstNode astNode) {
+            astNode.type = null;
+            node = astNode.getParent();
+        }
+    }
+
+    public void setPosition(int lineStart, int colStart, int lineEnd, int colEnd) {
+        this.lineStart = lineStart;
+        this.colStart = colStart;
+        this.lineEnd = lineEnd;
+        this.colEnd = colEnd;
+        flags |= POSITION_SET;
+    }
+
+    /**
+     * Sets the main name of the node (e.g. 'var', 'methodName', 'op', depending on the kind).
+     */
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Sets the second name of the node ('superName' of classes, 'var' of the main method).
+     */
+    public void setName2(String name2) {
+        this.name2 = name2;
+    }
+
+    public void setIntValue(int value) {
+        this.value = value;
+        flags |= VALUE_SET;
+    }
+
+    public void setArray(boolean isArray) {
+        setFlag(ARRAY_FLAG, isArray);
+    }
+
+    public void setVararg(boolean isVararg) {
+        setFlag(VARARG_FLAG, isVararg);
+    }
+
+    public void setPublic(boolean isPublic) {
+        setFlag(PUBLIC_FLAG, isPublic);
+    }
+
+    public void setStatic(boolean isStatic) {
+        setFlag(STATIC_FLAG, isStatic);
+    }
+
+    public void setHasStatic(boolean hasStatic) {
+        setFlag(HAS_STATIC_FLAG, hasStatic);
+    }
+
+    public void setHasReturn(boolean hasReturn) {
+        setFlag(HAS_RETURN_FLAG, hasReturn);
+    }
+
+    private void setFlag(int flag, boolean set) {
+        flags = set ? flags | flag : flags & ~flag;
+    }
+
+    private boolean hasFlag(int flag) {
+        return (flags & flag) != 0;
+    }
+
+    private Layout getLayout() {
+        return LAYOUTS[kind.ordinal()];
+    }
+
+    private boolean isPresent(Slot slot) {
+        return switch (slot) {
+            case NAME -> name != null;
+            case NAME2 -> name2 != null;
+            case IS_ARRAY, IS_VARARG, IS_PUBLIC, IS_STATIC -> true;
+            default -> hasFlag(getPresenceFlag(slot));
+        };
+    }
+
+    /**
+     * @return the value of a slot that is present, with the same type used by the converter of the library
+     */
+    private Object getSlotValue(Slot slot) {
+        return switch (slot) {
+            case LINE_START -> Integer.toString(lineStart);
+            case COL_START -> Integer.toString(colStart);
+            case LINE_END -> Integer.toString(lineEnd);
+            case COL_END -> Integer.toString(colEnd);
+            case NAME -> name;
+            case NAME2 -> name2;
+            case VALUE -> Integer.toString(value);
+            case IS_ARRAY, IS_VARARG, IS_PUBLIC, IS_STATIC -> hasFlag(getPresenceFlag(slot));
+            case HAS_STATIC -> "static";
+            case HAS_RETURN -> "return";
+        };
+    }
+
+    /**
+     * Stores the value in the slot.
+     *
+     * @return false if the value does not fit in the slot
+     */
+    private boolean setSlotValue(Slot slot, Object value) {
+        return switch (slot) {
+            case LINE_START, COL_START, LINE_END, COL_END, VALUE -> {
+                var intValue = toInt(value);
+                if (intValue == null) {
+                    yield false;
+                }
+
+                switch (slot) {
+                    case LINE_START -> lineStart = intValue;
+                    case COL_START -> colStart = intValue;
+                    case LINE_END -> lineEnd = intValue;
+                    case COL_END -> colEnd = intValue;
+                    default -> this.value = intValue;
+                }
+                flags |= getPresenceFlag(slot);
+                yield true;
+            }
+            case NAME, NAME2 -> {
+                if (!(value instanceof String string)) {
+                    yield false;
+                }
+
+                if (slot == Slot.NAME) {
+                    name = string;
+                } else {
+                    name2 = string;
+                }
+                yield true;
+            }
+            case IS_ARRAY, IS_VARARG, IS_PUBLIC, IS_STATIC -> {
+                if (!(value instanceof Boolean) && !"true".equals(value) && !"false".equals(value)) {
+                    yield false;
+                }
+
+                setFlag(getPresenceFlag(slot), Boolean.parseBoolean(value.toString()));
+                yield true;
+            }
+            case HAS_STATIC, HAS_RETURN -> {
+                if (!getSlotValue(slot).equals(value)) {
+                    yield false;
+                }
+
+                flags |= getPresenceFlag(slot);
+                yield true;
+            }
+        };
+    }
+
+    /**
+     * @return the flag that tells if the slot is present, or the value of the slot for booleans
+     */
+    private static int getPresenceFlag(Slot slot) {
+        return switch (slot) {
+            case LINE_START -> LINE_START_SET;
+            case COL_START -> COL_START_SET;
+            case LINE_END -> LINE_END_SET;
+            case COL_END -> COL_END_SET;
+            case VALUE -> VALUE_SET;
+            case IS_ARRAY -> ARRAY_FLAG;
+            case IS_VARARG -> VARARG_FLAG;
+            case IS_PUBLIC -> PUBLIC_FLAG;
+            case IS_STATIC -> STATIC_FLAG;
+            case HAS_STATIC -> HAS_STATIC_FLAG;
+            case HAS_RETURN -> HAS_RETURN_FLAG;
+            case NAME, NAME2 -> 0;
+        };
+    }
+
+    /**
+     * Marks the slot as not present, when its value is moved to the attribute map.
+     */
+    private void clearSlot(Slot slot) {
+        switch (slot) {
+            case NAME -> name = null;
+            case NAME2 -> name2 = null;
+            // Always present, the attribute map is checked first
+            case IS_ARRAY, IS_VARARG, IS_PUBLIC, IS_STATIC -> {
+            }
+            default -> setFlag(getPresenceFlag(slot), false);
+        }
+    }
+
+    private static Integer toInt(Object value) {
+        if (value instanceof Integer integer) {
+            return integer;
+        }
+
+        if (value instanceof String string) {
+            try {
+                return Integer.parseInt(string);
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Writes the fields and attributes of the node and its number of children, see {@link AstSnapshot}.
+     */
+    void write(AstSnapshot.Output out) throws IOException {
+        out.writeVarInt(kind.ordinal());
+        out.writeVarInt(flags);
+
+        if (hasFlag(LINE_START_SET)) {
+            out.writeLine(lineStart);
+        }
+        if (hasFlag(COL_START_SET)) {
+            out.writeVarInt(colStart);
+        }
+        if (hasFlag(LINE_END_SET)) {
+            out.writeLine(lineEnd);
+        }
+        if (hasFlag(COL_END_SET)) {
+            out.writeVarInt(colEnd);
+        }
+        if (hasFlag(VALUE_SET)) {
+            out.writeInt(value);
+        }
+
+        out.writeString(name);
+        out.writeString(name2);
+        out.writeType(type);
+
+        var map = getAttributesMap();
+        out.writeVarInt(map.size());
+        for (var entry : map.entrySet()) {
+            out.writeString(entry.getKey());
+            out.writeValue(entry.getValue());
+        }
+
+        out.writeVarInt(children.size());
+    }
+
+    /**
+     * Reads a node written by {@link #write}, without its children.
+     */
+    static AstNode read(AstSnapshot.Input in) throws IOException {
+        var node = new AstNode(in.readEnum(Kind.values()));
+        var flags = in.readVarInt();
+        node.flags = flags;
+
+        if ((flags & LINE_START_SET) != 0) {
+            node.lineStart = in.readLine();
+        }
+        if ((flags & COL_START_SET) != 0) {
+            node.colStart = in.readVarInt();
+        }
+        if ((flags & LINE_END_SET) != 0) {
+            node.lineEnd = in.readLine();
+        }
+        if ((flags & COL_END_SET) != 0) {
+            node.colEnd = in.readVarInt();
+        }
+        if ((flags & VALUE_SET) != 0) {
+            node.value = in.readInt();
+        }
+
+        node.name = in.readString();
+        node.name2 = in.readString();
+        node.type = in.readType();
+
+        // Values that did not fit the fields of the node
+        var numAttributes = in.readSize();
+        var map = node.getAttributesMap();
+        for (int i = 0; i < numAttributes; i++) {
+            map.put(in.readString(), in.readValue());
+        }
+
+        return node;
+    }
+
+    @Override
+    public Collection<String> getAttributes() {
+        var layout = getLayout();
+        var map = getAttributesMap();
+
+        if (map.isEmpty()) {
+            var attributes = new ArrayList<String>(layout.order.size());
+            for (var key : layout.order) {
+                if (isPresent(layout.getSlot(key))) {
+                    attributes.add(key);
+                }
+            }
+
+            return attributes;
+        }
+
+        // Same order as a map with all the attributes, in the order they were added by the library
+        var attributes = new HashMap<String, Boolean>();
+        for (int i = 0; i < layout.keys.length; i++) {
+            if (isPresent(layout.slots[i])) {
+                attributes.put(layout.keys[i], true);
+            }
+        }
+        for (var key : map.keySet()) {
+            attributes.put(key, true);
+        }
+
+        return attributes.keySet();
+    }
+
+    @Override
+    public boolean hasAttribute(String attribute) {
+        var slot = getLayout().getSlot(attribute);
+        if (slot != null && isPresent(slot)) {
+            return true;
+        }
+
+        return getAttributesMap().containsKey(attribute);
+    }
+
+    @Override
+    public Object getObject(String attribute) {
+        if (getAttributesMap().containsKey(attribute)) {
+            return super.getObject(attribute);
+        }
+
+        var slot = getLayout().getSlot(attribute);
+        if (slot != null && isPresent(slot)) {
+            return getSlotValue(slot);
+        }
+
+        // Fails with the same message as other nodes
+        return super.getObject(attribute);
+    }
+
+    @Override
+    public Object putObject(String attribute, Object value) {
+        invalidateType();
+
+        var slot = getLayout().getSlot(attribute);
+        if (slot == null) {
+            return super.putObject(attribute, value);
+        }
+
+        var previous = hasAttribute(attribute) ? getObject(attribute) : null;
+        var map = getAttributesMap();
+
+        if (setSlotValue(slot, value)) {
+            map.remove(attribute);
+        } else {
+            clearSlot(slot);
+            map.put(attribute, value);
+        }
+
+        return previous;
+    }
+
+    @Override
+    public int getInteger(String attribute, int defaultVal) {
+        var slot = getLayout().getSlot(attribute);
+        if (slot == null || !isPresent(slot)) {
+            return super.getInteger(attribute, defaultVal);
+        }
+
+        return switch (slot) {
+            case LINE_START -> lineStart;
+            case COL_START -> colStart;
+            case LINE_END -> lineEnd;
+            case COL_END -> colEnd;
+            case VALUE -> value;
+            default -> super.getInteger(attribute, defaultVal);
+        };
+    }
+
+    @Override
+    public boolean getBoolean(String attribute, boolean defaultVal) {
+        var slot = getLayout().getSlot(attribute);
+        if (slot == null || getAttributesMap().containsKey(attribute)) {
+            return super.getBoolean(attribute, defaultVal);
+        }
+
+        return switch (slot) {
+            case IS_ARRAY, IS_VARARG, IS_PUBLIC, IS_STATIC -> hasFlag(getPresenceFlag(slot));
+            default -> super.getBoolean(attribute, defaultVal);
+        };
+    }
+
+    @Override
+    public void add(JmmNode child) {
+        super.add(child);
+        invalidateType();
+    }
+
+    /**
+     * Adds a child while the tree is being built, without clearing the types of the ancestors. Trees are built top
+     * down, so {@link #add(JmmNode)} would walk to the root on every insertion, which is quadratic on deep trees.
+     */
+    public void attach(AstNode child) {
+        super.add(child);
+    }
+
+    @Override
+    public void add(JmmNode child, int index) {
+        super.add(child, index);
+        invalidateType();
+    }
+
+    @Override
+    public JmmNode removeChild(int index) {
+        invalidateType();
+        return super.removeChild(index);
+    }
+
+    @Override
+    public void setChild(JmmNode newNode, int index) {
+        invalidateType();
+
+        // A node that is already in a tree is swapped with the current child
+        if (newNode.getParent() instanceof AstNode newNodeParent) {
+            newNodeParent.invalidateType();
+        }
+
+        super.setChild(newNode, index);
+    }
+
+    /**
+     * Does not copy the list of children, like {@link #getChildren()} does.
+     */
+    @Override
+    public JmmNode getChild(int index) {
+        return children.get(index);
+    }
+
+    @Override
+    public int getLine() {
+        return hasFlag(LINE_START_SET) ? lineStart : super.getLine();
+    }
+
+    @Override
+    public int getColumn() {
+        return hasFlag(COL_START_SET) ? colStart : super.getColumn();
+    }
+}
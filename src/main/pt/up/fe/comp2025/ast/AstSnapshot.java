@@ -0,0 +1,518 @@
+package pt.up.fe.comp2025.ast;
+
+import pt.up.fe.comp.jmm.analysis.JmmSemanticsResult;
+import pt.up.fe.comp.jmm.analysis.table.Symbol;
+import pt.up.fe.comp.jmm.analysis.table.SymbolTable;
+import pt.up.fe.comp.jmm.analysis.table.Type;
+import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp.jmm.report.Report;
+import pt.up.fe.comp.jmm.report.ReportType;
+import pt.up.fe.comp.jmm.report.Stage;
+import pt.up.fe.comp2025.symboltable.JmmSymbolTable;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Binary snapshot of the result of the front end: the AST after semantic analysis, the symbol table and the reports.
+ * <p>
+ * Loading a snapshot skips parsing, building the symbol table and the analysis passes, so a source that is compiled
+ * again with other back-end options (e.g. '-o' or '-r') only runs the back end. The nodes keep their kinds, positions,
+ * names, literals, flags, attributes and resolved types, and the strings of the snapshot are written once and shared
+ * by the nodes that use them, like the names of a parsed file. Integers are written with a variable length, so most
+ * nodes take a few bytes.
+ * <p>
+ * Only trees of {@link AstNode} can be written.
+ */
+public class AstSnapshot {
+
+    private static final int MAGIC = 0x4A4D4D53;
+    private static final int FORMAT_VERSION = 1;
+
+    // Tags of the values of attributes
+    private static final int STRING_VALUE = 0;
+    private static final int BOOLEAN_VALUE = 1;
+    private static final int INTEGER_VALUE = 2;
+    private static final int LIST_VALUE = 3;
+
+    private AstSnapshot() {
+    }
+
+    /**
+     * @return the snapshot of the given result of the semantic analysis
+     * @throws IllegalArgumentException if the tree has nodes or values that cannot be written
+     */
+    public static byte[] write(JmmSemanticsResult semanticsResult) {
+        var out = new Output();
+
+        try {
+            writeReports(out, semanticsResult.getReports());
+            writeSymbolTable(out, semanticsResult.getSymbolTable());
+            writeNode(out, semanticsResult.getRootNode());
+
+            return out.toByteArray();
+        } catch (IOException e) {
+            throw new RuntimeException("Could not write AST snapshot", e);
+        }
+    }
+
+    /**
+     * @param config the config of the compilation that uses the snapshot, which can have other back-end options
+     * @throws IOException if the snapshot is not valid
+     */
+    public static JmmSemanticsResult read(byte[] snapshot, Map<String, String> config) throws IOException {
+        var in = new Input(snapshot);
+
+        try {
+            var reports = readReports(in);
+            var table = readSymbolTable(in);
+            var root = readNode(in);
+
+            return new JmmSemanticsResult(root, table, reports, config);
+        } catch (RuntimeException e) {
+            // Values that are read correctly, but do not go together, e.g. a class without a list of fields
+            throw new IOException("Invalid AST snapshot", e);
+        }
+    }
+
+    // Nodes are written and read with a stack instead of recursion, expressions are nested as deep as chains of
+    // operations are long
+    private static void writeNode(Output out, JmmNode root) throws IOException {
+        var pending = new ArrayDeque<JmmNode>();
+        pending.push(root);
+
+        while (!pending.isEmpty()) {
+            var node = pending.pop();
+            if (!(node instanceof AstNode astNode)) {
+                throw new IllegalArgumentException("Node '" + node.getKind() + "' is not a compact AST node");
+            }
+
+            astNode.write(out);
+
+            // Pushed last to first, so that children are written in order
+            for (int i = astNode.getNumChildren() - 1; i >= 0; i--) {
+                pending.push(astNode.getChild(i));
+            }
+        }
+    }
+
+    private static AstNode readNode(Input in) throws IOException {
+        // Nodes whose children are still being read
+        var parents = new ArrayDeque<ReadNode>();
+        var root = new ReadNode(in);
+        parents.push(root);
+
+        while (!parents.isEmpty()) {
+            var parent = parents.peek();
+            if (parent.remainingChildren == 0) {
+                parents.pop();
+                continue;
+            }
+
+            parent.remainingChildren--;
+            var child = new ReadNode(in);
+            parent.node.attach(child.node);
+            parents.push(child);
+        }
+
+        return root.node;
+    }
+
+    private static class ReadNode {
+        private final AstNode node;
+        private int remainingChildren;
+
+        ReadNode(Input in) throws IOException {
+            this.node = AstNode.read(in);
+            this.remainingChildren = in.readSize();
+        }
+    }
+
+    private static void writeReports(Output out, List<Report> reports) throws IOException {
+        out.writeVarInt(reports.size());
+
+        for (var report : reports) {
+            out.writeVarInt(report.getType().ordinal());
+            out.writeVarInt(report.getStage().ordinal());
+            out.writeVarInt(report.getLine());
+            out.writeVarInt(report.getColumn());
+            out.writeString(report.getMessage());
+        }
+    }
+
+    private static List<Report> readReports(Input in) throws IOException {
+        var numReports = in.readSize();
+        var reports = new ArrayList<Report>(numReports);
+
+        for (int i = 0; i < numReports; i++) {
+            var type = in.readEnum(ReportType.values());
+            var stage = in.readEnum(Stage.values());
+            reports.add(new Report(type, stage, in.readVarInt(), in.readVarInt(), in.readString()));
+        }
+
+        return reports;
+    }
+
+    private static void writeSymbolTable(Output out, SymbolTable table) throws IOException {
+        out.writeString(table.getClassName());
+        out.writeString(table.getSuper());
+        writeStrings(out, table.getImports());
+        writeSymbols(out, table.getFields());
+
+        var methods = table.getMethods();
+        writeStrings(out, methods);
+
+        for (var method : methods) {
+            out.writeType(table.getReturnType(method));
+            writeSymbols(out, table.getParameters(method));
+            writeSymbols(out, table.getLocalVariables(method));
+        }
+    }
+
+    private static SymbolTable readSymbolTable(Input in) throws IOException {
+        var className = in.readString();
+        var superName = in.readString();
+        var imports = readStrings(in);
+        var fields = readSymbols(in);
+        var methods = readStrings(in);
+
+        var returnTypes = new HashMap<String, Type>();
+        var params = new HashMap<String, List<Symbol>>();
+        var locals = new HashMap<String, List<Symbol>>();
+
+        for (var method : methods) {
+            returnTypes.put(method, in.readType());
+            params.put(method, readSymbols(in));
+            locals.put(method, readSymbols(in));
+        }
+
+        return new JmmSymbolTable(className, superName, methods, imports, returnTypes, fields, params, locals);
+    }
+
+    private static void writeStrings(Output out, List<String> strings) throws IOException {
+        out.writeVarInt(strings.size());
+        for (var string : strings) {
+            out.writeString(string);
+        }
+    }
+
+    private static List<String> readStrings(Input in) throws IOException {
+        var size = in.readSize();
+        var strings = new ArrayList<String>(size);
+
+        for (int i = 0; i < size; i++) {
+            strings.add(in.readString());
+        }
+
+        return strings;
+    }
+
+    // Lists of symbols can be null, for methods without a list, so the size is written plus one
+    private static void writeSymbols(Output out, List<Symbol> symbols) throws IOException {
+        if (symbols == null) {
+            out.writeVarInt(0);
+            return;
+        }
+
+        out.writeVarInt(symbols.size() + 1);
+        for (var symbol : symbols) {
+            out.writeType(symbol.getType());
+            out.writeString(symbol.getName());
+        }
+    }
+
+    private static List<Symbol> readSymbols(Input in) throws IOException {
+        var sizePlusOne = in.readVarInt();
+        if (sizePlusOne == 0) {
+            return null;
+        }
+
+        var size = in.checkSize(sizePlusOne - 1);
+
+        var symbols = new ArrayList<Symbol>(size);
+        for (int i = 0; i < size; i++) {
+            symbols.add(new Symbol(in.readType(), in.readString()));
+        }
+
+        return symbols;
+    }
+
+    /**
+     * Writes the body of a snapshot, and collects the strings it uses, which are written before the body.
+     */
+    static class Output {
+
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        private final DataOutputStream body = new DataOutputStream(bytes);
+        private final Map<String, Integer> stringIndexes = new HashMap<>();
+        private final List<String> strings = new ArrayList<>();
+        private int lastLine;
+
+        void writeVarInt(int value) throws IOException {
+            while ((value & ~0x7F) != 0) {
+                body.writeByte((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            body.writeByte(value);
+        }
+
+        /**
+         * Writes a line as the difference to the last line that was written, which is small in a tree written in
+         * order.
+         */
+        void writeLine(int line) throws IOException {
+            var delta = line - lastLine;
+            writeVarInt((delta << 1) ^ (delta >> 31));
+            lastLine = line;
+        }
+
+        void writeBoolean(boolean value) throws IOException {
+            body.writeBoolean(value);
+        }
+
+        /**
+         * Writes the index of the string in the table of strings, or 0 for null.
+         */
+        void writeString(String value) throws IOException {
+            if (value == null) {
+                writeVarInt(0);
+                return;
+            }
+
+            var index = stringIndexes.get(value);
+            if (index == null) {
+                index = strings.size();
+                stringIndexes.put(value, index);
+                strings.add(value);
+            }
+
+            writeVarInt(index + 1);
+        }
+
+        void writeType(Type type) throws IOException {
+            if (type == null) {
+                writeVarInt(0);
+                return;
+            }
+
+            if (!type.getAttributes().isEmpty()) {
+                throw new IllegalArgumentException("Type '" + type + "' has attributes, which are not written");
+            }
+
+            writeVarInt(type.isArray() ? 2 : 1);
+            writeString(type.getName());
+        }
+
+        void writeValue(Object value) throws IOException {
+            switch (value) {
+                case String string -> {
+                    writeVarInt(STRING_VALUE);
+                    writeString(string);
+                }
+                case Boolean bool -> {
+                    writeVarInt(BOOLEAN_VALUE);
+                    writeBoolean(bool);
+                }
+                case Integer integer -> {
+                    writeVarInt(INTEGER_VALUE);
+                    body.writeInt(integer);
+                }
+                case List<?> list -> {
+                    writeVarInt(LIST_VALUE);
+                    writeVarInt(list.size());
+                    for (var element : list) {
+                        writeValue(element);
+                    }
+                }
+                default -> throw new IllegalArgumentException("Attribute value of " + value.getClass().getSimpleName()
+                        + " cannot be written to a snapshot");
+            }
+        }
+
+        void writeInt(int value) throws IOException {
+            body.writeInt(value);
+        }
+
+        private byte[] toByteArray() throws IOException {
+            var snapshot = new ByteArrayOutputStream(bytes.size() + strings.size() * 8 + 16);
+            var out = new DataOutputStream(snapshot);
+
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeInt(strings.size());
+            for (var string : strings) {
+                var stringBytes = string.getBytes(StandardCharsets.UTF_8);
+                out.writeInt(stringBytes.length);
+                out.write(stringBytes);
+            }
+
+            body.flush();
+            bytes.writeTo(out);
+            out.flush();
+
+            return snapshot.toByteArray();
+        }
+    }
+
+    /**
+     * Reads a snapshot, starting with its table of strings.
+     */
+    static class Input {
+
+        private final byte[] bytes;
+        private int position;
+        private int lastLine;
+        private final String[] strings;
+        // Types are immutable once built, so the nodes with the same type share it, by index of the name
+        private final Type[] types;
+
+        private Input(byte[] snapshot) throws IOException {
+            this.bytes = snapshot;
+
+            if (readInt() != MAGIC || readInt() != FORMAT_VERSION) {
+                throw new IOException("Not an AST snapshot of this version");
+            }
+
+            // Each string has at least its length, so a larger count can only come from an invalid snapshot
+            var numStrings = readInt();
+            if (numStrings < 0 || numStrings > (bytes.length - position) / 4) {
+                throw new IOException("Invalid number of strings in snapshot");
+            }
+
+            this.strings = new String[numStrings];
+            for (int i = 0; i < strings.length; i++) {
+                var length = readInt();
+                if (length < 0 || length > bytes.length - position) {
+                    throw new EOFException("Snapshot is truncated");
+                }
+
+                strings[i] = new String(bytes, position, length, StandardCharsets.UTF_8);
+                position += length;
+            }
+
+            this.types = new Type[strings.length * 2];
+        }
+
+        private int readByte() throws IOException {
+            if (position >= bytes.length) {
+                throw new EOFException("Snapshot is truncated");
+            }
+
+            return bytes[position++] & 0xFF;
+        }
+
+        int readVarInt() throws IOException {
+            int value = 0;
+
+            for (int shift = 0; shift < 35; shift += 7) {
+                var b = readByte();
+                value |= (b & 0x7F) << shift;
+
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+
+            throw new IOException("Invalid integer in snapshot");
+        }
+
+        /**
+         * Reads the number of elements that follow, which each take at least one byte.
+         */
+        int readSize() throws IOException {
+            return checkSize(readVarInt());
+        }
+
+        int checkSize(int size) throws IOException {
+            if (size < 0 || size > bytes.length - position) {
+                throw new IOException("Invalid size in snapshot");
+            }
+
+            return size;
+        }
+
+        int readLine() throws IOException {
+            var zigzag = readVarInt();
+            lastLine += (zigzag >>> 1) ^ -(zigzag & 1);
+            return lastLine;
+        }
+
+        int readInt() throws IOException {
+            return readByte() << 24 | readByte() << 16 | readByte() << 8 | readByte();
+        }
+
+        boolean readBoolean() throws IOException {
+            return readByte() != 0;
+        }
+
+        String readString() throws IOException {
+            return getString(readVarInt());
+        }
+
+        private String getString(int index) throws IOException {
+            if (index == 0) {
+                return null;
+            }
+
+            if (index < 0 || index > strings.length) {
+                throw new IOException("Invalid string in snapshot");
+            }
+
+            return strings[index - 1];
+        }
+
+        <T> T readEnum(T[] values) throws IOException {
+            var ordinal = readVarInt();
+            if (ordinal < 0 || ordinal >= values.length) {
+                throw new IOException("Invalid constant in snapshot");
+            }
+
+            return values[ordinal];
+        }
+
+        Type readType() throws IOException {
+            var tag = readVarInt();
+            if (tag == 0) {
+                return null;
+            }
+
+            var nameIndex = readVarInt();
+            var name = getString(nameIndex);
+            if (name == null) {
+                return new Type(null, tag == 2);
+            }
+
+            var typeIndex = (nameIndex - 1) * 2 + (tag == 2 ? 1 : 0);
+            if (types[typeIndex] == null) {
+                types[typeIndex] = new Type(name, tag == 2);
+            }
+
+            return types[typeIndex];
+        }
+
+        Object readValue() throws IOException {
+            return switch (readVarInt()) {
+                case STRING_VALUE -> readString();
+                case BOOLEAN_VALUE -> readBoolean();
+                case INTEGER_VALUE -> readInt();
+                case LIST_VALUE -> {
+                    var size = readSize();
+                    var list = new ArrayList<>(size);
+                    for (int i = 0; i < size; i++) {
+                        list.add(readValue());
+                    }
+                    yield list;
+                }
+                default -> throw new IOException("Invalid attribute value in snapshot");
+            };
+        }
+    }
+}
@@ -5,7 +5,9 @@ import pt.up.fe.specs.util.SpecsStrings;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 /**
@@ -18,9 +20,14 @@ public enum Kind {
     CLASS_DECL,
     VAR_DECL,
     TYPE,
+    INT_TYPE,
+    BOOL_TYPE,
+    STRING_TYPE,
+    ID_TYPE("IDType"),
     METHOD_DECL,
     PARAM,
     STMT,
+    EXPR,
     BLOCK_STMT,
     EXPR_STMT,
     ASSIGN_STMT,
@@ -63,14 +70,33 @@ public enum Kind {
         this.name = SpecsStrings.toCamelCase(name(), "_", true);
     }
 
-    public static Kind fromString(String kind) {
+    private static final Map<String, Kind> NODE_NAMES = new HashMap<>();
 
+    static {
         for (Kind k : Kind.values()) {
-            if (k.getNodeName().equals(kind)) {
-                return k;
-            }
+            NODE_NAMES.put(k.getNodeName(), k);
+        }
+    }
+
+    public static Kind fromString(String kind) {
+        var k = NODE_NAMES.get(kind);
+
+        if (k == null) {
+            throw new RuntimeException("Could not convert string '" + kind + "' to a Kind");
+        }
+
+        return k;
+    }
+
+    /**
+     * @return the kind of the node, which compact nodes already have, without looking up its name
+     */
+    public static Kind of(JmmNode node) {
+        if (node instanceof AstNode astNode) {
+            return astNode.getNodeKind();
         }
-        throw new RuntimeException("Could not convert string '" + kind + "' to a Kind");
+
+        return fromString(node.getKind());
     }
 
     public static List<String> toNodeName(Kind firstKind, Kind... otherKinds) {
@@ -100,6 +126,10 @@ public enum Kind {
      * @return
      */
     public boolean check(JmmNode node) {
+        if (node instanceof AstNode astNode) {
+            return astNode.isInstance(this);
+        }
+
         return node.isInstance(this);
     }
 
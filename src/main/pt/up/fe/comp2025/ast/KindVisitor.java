@@ -0,0 +1,25 @@
+package pt.up.fe.comp2025.ast;
+
+import pt.up.fe.comp.jmm.ast.AJmmVisitor;
+import pt.up.fe.comp.jmm.ast.JmmNode;
+
+import java.util.function.BiFunction;
+
+/**
+ * Visitor that looks up its visit methods by the {@link Kind} of compact nodes (see {@link VisitTable}), instead of by
+ * the names of the kinds.
+ */
+public abstract class KindVisitor<D, R> extends AJmmVisitor<D, R> {
+
+    private VisitTable<D, R> visits;
+
+    @Override
+    protected BiFunction<JmmNode, D, R> getVisit(JmmNode node) {
+        // Created on the first visit, the table refers to this visitor, which is still being built in the constructor
+        if (visits == null) {
+            visits = new VisitTable<>(super::getVisit);
+        }
+
+        return visits.get(node);
+    }
+}
@@ -0,0 +1,51 @@
+package pt.up.fe.comp2025.ast;
+
+import pt.up.fe.comp.jmm.ast.JmmNode;
+
+import java.util.ArrayDeque;
+
+/**
+ * Same as {@link pt.up.fe.comp.jmm.ast.PreorderJmmVisitor}, without a reduce function, for a {@link KindVisitor}: the
+ * node is visited first, then each of its children, and the result is the one of the node. The visit methods must not
+ * visit the children themselves.
+ */
+public abstract class PreorderKindVisitor<D, R> extends KindVisitor<D, R> {
+
+    @Override
+    public R visit(JmmNode root, D data) {
+        var result = getVisit(root).apply(root, data);
+
+        // Left operands of chains of operations are nested as deep as the chain is long, so the subtree is visited
+        // with a stack of the nodes still to visit instead of recursion
+        var pending = new ArrayDeque<JmmNode>();
+        pushChildren(pending, root);
+
+        while (!pending.isEmpty()) {
+            var node = pending.pop();
+
+            if (isVisitedApart(node)) {
+                visit(node, data);
+                continue;
+            }
+
+            getVisit(node).apply(node, data);
+            pushChildren(pending, node);
+        }
+
+        return result;
+    }
+
+    /**
+     * @return true if the subtree of the node is visited with its own call to {@link #visit}, e.g. to be inside a span
+     */
+    protected boolean isVisitedApart(JmmNode node) {
+        return false;
+    }
+
+    private static void pushChildren(ArrayDeque<JmmNode> pending, JmmNode node) {
+        // Pushed last to first, so that children are visited in order
+        for (int i = node.getNumChildren() - 1; i >= 0; i--) {
+            pending.push(node.getChild(i));
+        }
+    }
+}
@@ -1,14 +1,14 @@
 package pt.up.fe.comp2025.ast;
 
-import pt.up.fe.comp.jmm.analysis.table.Symbol;
 import pt.up.fe.comp.jmm.analysis.table.SymbolTable;
 import pt.up.fe.comp.jmm.analysis.table.Type;
 import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp2025.classpath.ClasspathIndex;
+import pt.up.fe.comp2025.metrics.CompilerLog;
+import pt.up.fe.comp2025.metrics.CompilerLog.Category;
+import pt.up.fe.comp2025.metrics.CompilerLog.Level;
 import pt.up.fe.comp2025.symboltable.JmmSymbolTable;
 
-import java.util.List;
-import java.util.Optional;
-
 /**
  * Utility methods regarding types.
  */
@@ -45,82 +45,79 @@ public class TypeUtils {
 
     public static Type convertType(JmmNode typeNode) {
         var name = typeNode.get("name");
-        var isArray = typeNode.get("isArray").equals("true");
+        var isArray = typeNode.getBoolean("isArray", false);
 
         return new Type(name, isArray);
     }
 
+    /**
+     * Resolves the type of an expression once, keeping it in the node. Types resolved without a current method are
+     * not kept, since the type of a variable depends on the method.
+     */
     public Type getExprType(JmmNode expr) {
+        if (!(expr instanceof AstNode node)) {
+            return resolveExprType(expr);
+        }
+
+        var type = node.getType();
+        if (type != null) {
+            return type;
+        }
 
-        Kind kind = Kind.fromString(expr.getKind());
+        type = resolveExprType(expr);
+        if (currentMethod != null) {
+            node.setType(type);
+        }
+
+        return type;
+    }
 
-        if (kind == Kind.BINARY_OP) {
-            return switch (expr.get("op")){
-                case  "*", "/", "+", "-" -> newIntType();
+    private Type resolveExprType(JmmNode expr) {
+        return switch (Kind.of(expr)) {
+            case BINARY_OP -> switch (expr.get("op")) {
+                case "*", "/", "+", "-" -> newIntType();
                 case "<", ">", "&&" -> newBoolType();
                 default -> null;
             };
-        }
-        if (kind == Kind.ARRAY_INDEX) return newIntType();
-        if (kind == Kind.ARRAY_LENGTH) return newIntType();
-        if (kind == Kind.METHOD_CALL) return table.getReturnType(expr.get("methodName"));
-        if (kind == Kind.NEW_ARRAY) return newIntArrayType();
-        if (kind == Kind.NEW_OBJECT) return new Type(expr.get("className"), false);
-        if (kind == Kind.LOGICAL_NOT) return newBoolType();
-        if (kind == Kind.PARENTHESES_OP) return getExprType(expr.getChild(0));
-        if (kind == Kind.ARRAY_LITERAL) return newIntArrayType();
-        if (kind == Kind.INTEGER) return newIntType();
-        if (kind == Kind.TRUE) return newBoolType();
-        if (kind == Kind.FALSE) return newBoolType();
-        if (kind == Kind.IDENTIFIER) return getVarType(expr.get("var"));
-        if (kind == Kind.THIS) return new Type(table.getClassName(), false);
-        if (kind == Kind.INT_VARARG) return newVararg();
-
-        return null;
+            case ARRAY_INDEX, ARRAY_LENGTH, INTEGER -> newIntType();
+            case METHOD_CALL -> table.getReturnType(expr.get("methodName"));
+            case NEW_ARRAY, ARRAY_LITERAL -> newIntArrayType();
+            case NEW_OBJECT -> new Type(expr.get("className"), false);
+            case LOGICAL_NOT, TRUE, FALSE -> newBoolType();
+            case PARENTHESES_OP -> getExprType(expr.getChild(0));
+            case IDENTIFIER -> getVarType(expr.get("var"));
+            case THIS -> new Type(table.getClassName(), false);
+            case INT_VARARG -> newVararg();
+            default -> null;
+        };
     }
 
     public Type getVarType(String var) {
-        List<Symbol> params = Optional.ofNullable(table.getParameters(currentMethod))
-                .orElse(List.of());
+        var variable = table.getVariable(currentMethod, var);
 
-        for (Symbol param : params) {
-            if (param.getName().equals(var)) {
-                System.out.println("Found param " + var + " in method " + currentMethod);
-                return param.getType();
+        if (variable == null) {
+            if (CompilerLog.isEnabled(Category.TYPES, Level.DEBUG)) {
+                CompilerLog.log(Category.TYPES, Level.DEBUG, "Variable not found: " + var + " in method "
+                        + currentMethod);
             }
+            return null;
         }
 
-        List<Symbol> locals = Optional.ofNullable(table.getLocalVariables(currentMethod))
-                .orElse(List.of());
-
-        for (Symbol local : locals) {
-            if (local.getName().equals(var)) {
-                System.out.println("Found local " + var + " in method " + currentMethod);
-                return local.getType();
-            }
-        }
-
-        Type fieldType = getFieldType(var);
-        if (fieldType != null) {
-            System.out.println("Found field " + var);
-        } else {
-            System.out.println("Variable not found: " + var + " in method " + currentMethod);
+        if (CompilerLog.isEnabled(Category.TYPES, Level.DEBUG)) {
+            var message = switch (variable.scope()) {
+                case PARAM -> "Found param " + var + " in method " + currentMethod;
+                case LOCAL -> "Found local " + var + " in method " + currentMethod;
+                case FIELD -> "Found field " + var;
+            };
+            CompilerLog.log(Category.TYPES, Level.DEBUG, message);
         }
 
-        return fieldType;
+        return variable.symbol().getType();
     }
 
     public Type getFieldType(String field) {
-        List<Symbol> fields = Optional.ofNullable(table.getFields())
-                .orElse(List.of());
-
-        for (Symbol param : fields) {
-            if (param.getName().equals(field)) {
-                return param.getType();
-            }
-        }
-
-        return null;
+        var symbol = table.getField(field);
+        return symbol == null ? null : symbol.getType();
     }
 
     public static boolean isCompatibleType(Type varType, Type exprType, SymbolTable table) {
@@ -135,29 +132,43 @@ public class TypeUtils {
             return true;
         }
 
-        String current = child;
+        var current = child;
 
-        while (current != null && !current.isEmpty()) {
-            String superClass = getSuperClass(current, table);
-            if (superClass == null || superClass.isEmpty()) {
+        // The superclass of the class being compiled is given in the source, and is usually imported
+        if (table.getClassName().equals(current)) {
+            current = table.getSuper();
+            if (current == null) {
                 return false;
             }
-            if (superClass.equals(parent)) {
+            if (current.equals(parent)) {
                 return true;
             }
-            current = superClass;
         }
 
-        return false;
+        // The superclasses of imported classes are read from their class files
+        var importedChild = getImportedName(current, table);
+        var importedParent = getImportedName(parent, table);
+        if (importedChild == null || importedParent == null) {
+            return false;
+        }
+
+        var parentName = importedParent.replace('.', '/');
+        return ClasspathIndex.getDefault().getSuperClasses(importedChild).contains(parentName);
     }
 
-    // Helper method to get the superclass of a given class
-    private static String getSuperClass(String className, SymbolTable table) {
-        if (table.getClassName().equals(className)) {
-            return table.getSuper(); // Directly check the main class
+    /**
+     * @param className the simple name of a class, e.g. 'B'
+     * @return the full name of the import of the class, e.g. 'inheritanceAB.B', or null if it is not imported
+     */
+    public static String getImportedName(String className, SymbolTable table) {
+        var suffix = "." + className;
+
+        for (var imported : table.getImports()) {
+            if (imported.equals(className) || imported.endsWith(suffix)) {
+                return imported;
+            }
         }
 
-        // If more class hierarchy info were available, it could be stored in the table
-        return null; // Assume no further hierarchy info is available
+        return null;
     }
 }
@@ -0,0 +1,43 @@
+package pt.up.fe.comp2025.ast;
+
+import pt.up.fe.comp.jmm.ast.JmmNode;
+
+import java.util.EnumMap;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * Visit methods of a visitor, indexed by the {@link Kind} of compact nodes.
+ * <p>
+ * The visitors of the library look up the visit method of each node in a map, by the name of each kind of its
+ * hierarchy. The visit method of a kind is looked up once, the first time a node of that kind is visited, so the
+ * visit methods must all be added before the first visit. Nodes that are not compact are always looked up.
+ */
+public class VisitTable<D, R> {
+
+    private final Function<JmmNode, BiFunction<JmmNode, D, R>> lookup;
+    private final EnumMap<Kind, BiFunction<JmmNode, D, R>> visits = new EnumMap<>(Kind.class);
+
+    /**
+     * @param lookup finds the visit method of a node, usually the getVisit of the superclass of the visitor
+     */
+    public VisitTable(Function<JmmNode, BiFunction<JmmNode, D, R>> lookup) {
+        this.lookup = lookup;
+    }
+
+    public BiFunction<JmmNode, D, R> get(JmmNode node) {
+        if (!(node instanceof AstNode astNode)) {
+            return lookup.apply(node);
+        }
+
+        var kind = astNode.getNodeKind();
+        var visit = visits.get(kind);
+
+        if (visit == null) {
+            visit = lookup.apply(node);
+            visits.put(kind, visit);
+        }
+
+        return visit;
+    }
+}
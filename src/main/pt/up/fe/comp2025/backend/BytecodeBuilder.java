@@ -0,0 +1,362 @@
+package pt.up.fe.comp2025.backend;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Bytecode of a single method. Keeps track of the stack depth and of the registers used, to compute max_stack and
+ * max_locals, and resolves the offsets of the branches once all labels are known.
+ * <p>
+ * The stack depth is tracked linearly. After an unconditional jump or a return, the depth is taken from the jumps
+ * that target the next label, which is enough for the code generated from OLLIR, where the stack is empty between
+ * instructions except inside the expressions that turn a comparison into a boolean.
+ */
+class BytecodeBuilder {
+
+    static final int ICONST_M1 = 0x02;
+    static final int ICONST_0 = 0x03;
+    static final int BIPUSH = 0x10;
+    static final int SIPUSH = 0x11;
+    static final int LDC = 0x12;
+    static final int LDC_W = 0x13;
+    static final int ILOAD = 0x15;
+    static final int ALOAD = 0x19;
+    static final int ILOAD_0 = 0x1a;
+    static final int ALOAD_0 = 0x2a;
+    static final int IALOAD = 0x2e;
+    static final int AALOAD = 0x32;
+    static final int BALOAD = 0x33;
+    static final int ISTORE = 0x36;
+    static final int ASTORE = 0x3a;
+    static final int ISTORE_0 = 0x3b;
+    static final int ASTORE_0 = 0x4b;
+    static final int IASTORE = 0x4f;
+    static final int AASTORE = 0x53;
+    static final int BASTORE = 0x54;
+    static final int POP = 0x57;
+    static final int DUP = 0x59;
+    static final int IADD = 0x60;
+    static final int ISUB = 0x64;
+    static final int IMUL = 0x68;
+    static final int IDIV = 0x6c;
+    static final int IREM = 0x70;
+    static final int INEG = 0x74;
+    static final int IAND = 0x7e;
+    static final int IOR = 0x80;
+    static final int IXOR = 0x82;
+    static final int IINC = 0x84;
+    static final int IFEQ = 0x99;
+    static final int IFNE = 0x9a;
+    static final int IFLT = 0x9b;
+    static final int IFGE = 0x9c;
+    static final int IFGT = 0x9d;
+    static final int IFLE = 0x9e;
+    static final int IF_ICMPEQ = 0x9f;
+    static final int IF_ICMPNE = 0xa0;
+    static final int IF_ICMPLT = 0xa1;
+    static final int IF_ICMPGE = 0xa2;
+    static final int IF_ICMPGT = 0xa3;
+    static final int IF_ICMPLE = 0xa4;
+    static final int GOTO = 0xa7;
+    static final int IRETURN = 0xac;
+    static final int ARETURN = 0xb0;
+    static final int RETURN = 0xb1;
+    static final int GETFIELD = 0xb4;
+    static final int PUTFIELD = 0xb5;
+    static final int INVOKEVIRTUAL = 0xb6;
+    static final int INVOKESPECIAL = 0xb7;
+    static final int INVOKESTATIC = 0xb8;
+    static final int NEW = 0xbb;
+    static final int NEWARRAY = 0xbc;
+    static final int ANEWARRAY = 0xbd;
+    static final int ARRAYLENGTH = 0xbe;
+    static final int WIDE = 0xc4;
+
+    static final int T_BOOLEAN = 4;
+    static final int T_INT = 10;
+
+    private final ConstantPool constantPool;
+    private final Map<String, Label> labels;
+    private final List<Jump> jumps;
+
+    private byte[] code;
+    private int length;
+
+    private int stack;
+    private int maxStack;
+    private int maxLocals;
+    private boolean reachable;
+
+    BytecodeBuilder(ConstantPool constantPool, int argumentSlots) {
+        this.constantPool = constantPool;
+        this.labels = new HashMap<>();
+        this.jumps = new ArrayList<>();
+        this.code = new byte[256];
+        this.length = 0;
+        this.stack = 0;
+        this.maxStack = 0;
+        this.maxLocals = argumentSlots;
+        this.reachable = true;
+    }
+
+    int getMaxStack() {
+        return maxStack;
+    }
+
+    int getMaxLocals() {
+        return maxLocals;
+    }
+
+    /**
+     * @return false if the last instruction was an unconditional jump or a return
+     */
+    boolean isReachable() {
+        return reachable;
+    }
+
+    /**
+     * An instruction without operands.
+     *
+     * @param opcode
+     * @param stackChange how many values the instruction pushes minus how many it pops
+     */
+    void op(int opcode, int stackChange) {
+        write(opcode);
+        adjustStack(stackChange);
+    }
+
+    void intConstant(int value) {
+        if (value >= -1 && value <= 5) {
+            write(ICONST_0 + value);
+        } else if (value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE) {
+            write(BIPUSH);
+            write(value);
+        } else if (value >= Short.MIN_VALUE && value <= Short.MAX_VALUE) {
+            write(SIPUSH);
+            writeShort(value);
+        } else {
+            ldc(constantPool.integer(value));
+            return;
+        }
+
+        adjustStack(1);
+    }
+
+    void stringConstant(String value) {
+        ldc(constantPool.string(value));
+    }
+
+    void load(boolean reference, int register) {
+        localInstruction(reference ? ALOAD : ILOAD, reference ? ALOAD_0 : ILOAD_0, register);
+        adjustStack(1);
+    }
+
+    void store(boolean reference, int register) {
+        localInstruction(reference ? ASTORE : ISTORE, reference ? ASTORE_0 : ISTORE_0, register);
+        adjustStack(-1);
+    }
+
+    void iinc(int register, int increment) {
+        useRegister(register);
+
+        if (register <= 0xFF && increment >= Byte.MIN_VALUE && increment <= Byte.MAX_VALUE) {
+            write(IINC);
+            write(register);
+            write(increment);
+        } else {
+            write(WIDE);
+            write(IINC);
+            writeShort(register);
+            writeShort(increment);
+        }
+    }
+
+    void newObject(String internalName) {
+        write(NEW);
+        writeShort(constantPool.classRef(internalName));
+        adjustStack(1);
+    }
+
+    void newArray(int arrayType) {
+        write(NEWARRAY);
+        write(arrayType);
+    }
+
+    void newReferenceArray(String internalName) {
+        write(ANEWARRAY);
+        writeShort(constantPool.classRef(internalName));
+    }
+
+    void field(int opcode, String owner, String name, String descriptor) {
+        write(opcode);
+        writeShort(constantPool.fieldRef(owner, name, descriptor));
+        adjustStack(opcode == GETFIELD ? 0 : -2);
+    }
+
+    void invoke(int opcode, String owner, String name, String descriptor) {
+        write(opcode);
+        writeShort(constantPool.methodRef(owner, name, descriptor));
+
+        var receiver = opcode == INVOKESTATIC ? 0 : 1;
+        var returnsValue = descriptor.endsWith(")V") ? 0 : 1;
+        adjustStack(returnsValue - receiver - countArguments(descriptor));
+    }
+
+    /**
+     * A conditional or unconditional jump to the given label.
+     */
+    void jump(int opcode, String label) {
+        var popped = switch (opcode) {
+            case GOTO -> 0;
+            case IFEQ, IFNE, IFLT, IFGE, IFGT, IFLE -> 1;
+            default -> 2;
+        };
+        adjustStack(-popped);
+
+        jumps.add(new Jump(length, length + 1, label));
+        labels.computeIfAbsent(label, name -> new Label()).recordDepth(stack);
+
+        write(opcode);
+        writeShort(0);
+
+        if (opcode == GOTO) {
+            unreachable();
+        }
+    }
+
+    void returnValue(int opcode) {
+        op(opcode, opcode == RETURN ? 0 : -1);
+        unreachable();
+    }
+
+    void label(String name) {
+        var label = labels.computeIfAbsent(name, key -> new Label());
+        if (label.position != -1) {
+            throw new RuntimeException("Label '" + name + "' is defined more than once");
+        }
+
+        label.position = length;
+
+        // After a jump or return, the depth can only come from the jumps to this label
+        if (!reachable || label.depth != -1) {
+            stack = label.depth == -1 ? 0 : label.depth;
+        }
+        reachable = true;
+    }
+
+    /**
+     * @return the bytecode, with the offsets of all the branches resolved
+     */
+    byte[] toBytes() {
+        for (var jump : jumps) {
+            var label = labels.get(jump.label);
+            if (label.position == -1) {
+                throw new RuntimeException("Jump to undefined label '" + jump.label + "'");
+            }
+
+            var offset = label.position - jump.instruction;
+            if (offset < Short.MIN_VALUE || offset > Short.MAX_VALUE) {
+                throw new RuntimeException("Branch to label '" + jump.label + "' is too far for a 16-bit offset");
+            }
+
+            code[jump.offset] = (byte) (offset >>> 8);
+            code[jump.offset + 1] = (byte) offset;
+        }
+
+        if (length > 0xFFFF) {
+            throw new RuntimeException("Method code has " + length + " bytes, the limit is 65535");
+        }
+
+        return Arrays.copyOf(code, length);
+    }
+
+    private void ldc(int index) {
+        if (index <= 0xFF) {
+            write(LDC);
+            write(index);
+        } else {
+            write(LDC_W);
+            writeShort(index);
+        }
+
+        adjustStack(1);
+    }
+
+    private void localInstruction(int opcode, int shortOpcode, int register) {
+        useRegister(register);
+
+        if (register <= 3) {
+            write(shortOpcode + register);
+        } else if (register <= 0xFF) {
+            write(opcode);
+            write(register);
+        } else {
+            write(WIDE);
+            write(opcode);
+            writeShort(register);
+        }
+    }
+
+    private void useRegister(int register) {
+        maxLocals = Math.max(maxLocals, register + 1);
+    }
+
+    private void adjustStack(int change) {
+        stack += change;
+        if (stack < 0) {
+            throw new RuntimeException("Stack underflow at bytecode offset " + length);
+        }
+
+        maxStack = Math.max(maxStack, stack);
+    }
+
+    private void unreachable() {
+        reachable = false;
+        stack = 0;
+    }
+
+    private static int countArguments(String descriptor) {
+        int count = 0;
+        int i = 1;
+
+        while (descriptor.charAt(i) != ')') {
+            // Array dimensions belong to the argument that follows
+            while (descriptor.charAt(i) == '[') {
+                i++;
+            }
+
+            i = descriptor.charAt(i) == 'L' ? descriptor.indexOf(';', i) + 1 : i + 1;
+            count++;
+        }
+
+        return count;
+    }
+
+    private void write(int value) {
+        if (length == code.length) {
+            code = Arrays.copyOf(code, code.length * 2);
+        }
+
+        code[length++] = (byte) value;
+    }
+
+    private void writeShort(int value) {
+        write(value >>> 8);
+        write(value);
+    }
+
+    private static class Label {
+        private int position = -1;
+        private int depth = -1;
+
+        private void recordDepth(int stackDepth) {
+            depth = Math.max(depth, stackDepth);
+        }
+    }
+
+    private record Jump(int instruction, int offset, String label) {
+    }
+}
@@ -0,0 +1,624 @@
+package pt.up.fe.comp2025.backend;
+
+import org.specs.comp.ollir.*;
+import org.specs.comp.ollir.inst.*;
+import org.specs.comp.ollir.type.*;
+import pt.up.fe.comp.jmm.ollir.OllirResult;
+import pt.up.fe.comp2025.metrics.CompilerTrace;
+
+import java.util.stream.Collectors;
+
+/**
+ * Generates a class file directly from an OllirResult, without going through Jasmin.
+ * <p>
+ * One ClassFileGenerator instance per OllirResult.
+ */
+public class ClassFileGenerator {
+
+    private static final String OBJECT = "java/lang/Object";
+
+    private final OllirResult ollirResult;
+    private final JasminUtils types;
+
+    private byte[] bytes;
+
+    private String currentClassName;
+    private Method currentMethod;
+    private BytecodeBuilder code;
+    private int labelCount;
+
+    public ClassFileGenerator(OllirResult ollirResult) {
+        this.ollirResult = ollirResult;
+        this.types = new JasminUtils(ollirResult);
+        this.bytes = null;
+    }
+
+    /**
+     * @return the contents of the class file
+     */
+    public byte[] build() {
+        if (bytes == null) bytes = generateClass(ollirResult.getOllirClass());
+        return bytes;
+    }
+
+    private byte[] generateClass(ClassUnit classUnit) {
+        types.buildImports(classUnit.getImports());
+        currentClassName = classUnit.getClassName();
+
+        var superClass = classUnit.getSuperClass();
+        var fullSuperClass = superClass == null || superClass.equals("Object")
+                ? OBJECT
+                : internalName(superClass);
+
+        var writer = new ClassFileWriter(accessFlags(classUnit.getClassAccessModifier()), currentClassName,
+                fullSuperClass);
+
+        for (var field : classUnit.getFields()) {
+            var access = accessFlags(field.getFieldAccessModifier());
+            if (field.isStaticField()) {
+                access |= ClassFileWriter.ACC_STATIC;
+            }
+
+            writer.addField(access, field.getFieldName(), types.toJasmin(field.getFieldType()));
+        }
+
+        // Constructor, which only calls the constructor of the super class
+        code = new BytecodeBuilder(writer.getConstantPool(), 1);
+        code.load(true, 0);
+        code.invoke(BytecodeBuilder.INVOKESPECIAL, fullSuperClass, "<init>", "()V");
+        code.returnValue(BytecodeBuilder.RETURN);
+        writer.addMethod(ClassFileWriter.ACC_PUBLIC, "<init>", "()V", code);
+
+        for (var method : classUnit.getMethods()) {
+            if (method.isConstructMethod()) {
+                continue;
+            }
+
+            try (var span = CompilerTrace.span("generateMethod", "backend", method.getMethodName())) {
+                generateMethod(writer, method);
+            }
+        }
+
+        code = null;
+        currentMethod = null;
+
+        return writer.toBytes();
+    }
+
+    private void generateMethod(ClassFileWriter writer, Method method) {
+        currentMethod = method;
+        labelCount = 0;
+
+        var access = accessFlags(method.getMethodAccessModifier());
+
+        // Ensure main method is static
+        var isStatic = method.isStaticMethod() || method.getMethodName().equals("main");
+        if (isStatic) {
+            access |= ClassFileWriter.ACC_STATIC;
+        }
+        if (method.isVarargs()) {
+            access |= ClassFileWriter.ACC_VARARGS;
+        }
+
+        var argumentSlots = method.getParams().size() + (isStatic ? 0 : 1);
+        code = new BytecodeBuilder(writer.getConstantPool(), argumentSlots);
+
+        for (var instruction : method.getInstructions()) {
+            for (var label : method.getLabels(instruction)) {
+                code.label(label);
+            }
+
+            generateStatement(instruction);
+        }
+
+        // Void methods can end without an explicit return
+        if (code.isReachable()) {
+            code.returnValue(BytecodeBuilder.RETURN);
+        }
+
+        writer.addMethod(access, method.getMethodName(), methodDescriptor(method), code);
+    }
+
+    /**
+     * An instruction that appears directly in the body of a method, which must leave the stack as it found it.
+     */
+    private void generateStatement(Instruction instruction) {
+        switch (instruction) {
+            case AssignInstruction assign -> generateAssign(assign);
+            case CondBranchInstruction condBranch -> generateCondBranch(condBranch);
+            case GotoInstruction gotoInstruction -> code.jump(BytecodeBuilder.GOTO, gotoInstruction.getLabel());
+            case ReturnInstruction returnInstruction -> generateReturn(returnInstruction);
+            case PutFieldInstruction putField -> generatePutField(putField);
+            case CallInstruction call -> {
+                if (isConstructorCall(call)) {
+                    return;
+                }
+
+                generateValue(call);
+
+                // The result of a call used as a statement is discarded
+                if (!isVoid(call.getReturnType())) {
+                    code.op(BytecodeBuilder.POP, -1);
+                }
+            }
+            default -> {
+                generateValue(instruction);
+                code.op(BytecodeBuilder.POP, -1);
+            }
+        }
+    }
+
+    /**
+     * An instruction that pushes its result to the stack.
+     */
+    private void generateValue(Instruction instruction) {
+        switch (instruction) {
+            case SingleOpInstruction singleOp -> load(singleOp.getSingleOperand());
+            case BinaryOpInstruction binaryOp -> generateBinaryOp(binaryOp);
+            case UnaryOpInstruction unaryOp -> generateUnaryOp(unaryOp);
+            case GetFieldInstruction getField -> generateGetField(getField);
+            case NewInstruction newInstruction -> generateNew(newInstruction);
+            case ArrayLengthInstruction arrayLength -> {
+                load(arrayLength.getCaller());
+                code.op(BytecodeBuilder.ARRAYLENGTH, 0);
+            }
+            case CallInstruction call -> generateCall(call);
+            default -> throw new RuntimeException("Unsupported instruction in class file backend: "
+                    + instruction.getClass().getSimpleName());
+        }
+    }
+
+    private void generateAssign(AssignInstruction assign) {
+        var dest = assign.getDest();
+        var rhs = assign.getRhs();
+
+        if (dest instanceof ArrayOperand arrayOperand) {
+            loadArrayAndIndex(arrayOperand);
+            generateValue(rhs);
+            code.op(arrayStore(arrayOperand.getType()), -3);
+            return;
+        }
+
+        if (!(dest instanceof Operand operand)) {
+            throw new RuntimeException("Unsupported assignment destination: " + dest.getClass().getSimpleName());
+        }
+
+        var register = register(operand.getName());
+
+        if (generateIncrement(register, operand, rhs)) {
+            return;
+        }
+
+        generateValue(rhs);
+        code.store(isReference(operand.getType()), register);
+    }
+
+    /**
+     * Uses iinc for assignments of the form 'a = a + c' and 'a = a - c', where c is a small constant.
+     *
+     * @return true if an iinc was generated
+     */
+    private boolean generateIncrement(int register, Operand dest, Instruction rhs) {
+        if (!(rhs instanceof BinaryOpInstruction binaryOp) || isReference(dest.getType())) {
+            return false;
+        }
+
+        var opType = binaryOp.getOperation().getOpType();
+        if (opType != OperationType.ADD && opType != OperationType.SUB) {
+            return false;
+        }
+
+        var left = binaryOp.getLeftOperand();
+        var right = binaryOp.getRightOperand();
+
+        Integer increment = null;
+        if (isVariable(left, dest.getName()) && right instanceof LiteralElement literal) {
+            increment = parseInt(literal);
+        } else if (opType == OperationType.ADD && isVariable(right, dest.getName())
+                && left instanceof LiteralElement literal) {
+            increment = parseInt(literal);
+        }
+
+        if (increment == null) {
+            return false;
+        }
+
+        if (opType == OperationType.SUB) {
+            increment = -increment;
+        }
+
+        if (increment < Short.MIN_VALUE || increment > Short.MAX_VALUE) {
+            return false;
+        }
+
+        code.iinc(register, increment);
+        return true;
+    }
+
+    private void generateBinaryOp(BinaryOpInstruction binaryOp) {
+        var opType = binaryOp.getOperation().getOpType();
+
+        // Comparisons push 1 if they hold, 0 otherwise
+        if (isComparison(opType)) {
+            var trueLabel = newLabel("true");
+            var endLabel = newLabel("end");
+
+            generateComparisonJump(binaryOp, trueLabel);
+            code.intConstant(0);
+            code.jump(BytecodeBuilder.GOTO, endLabel);
+            code.label(trueLabel);
+            code.intConstant(1);
+            code.label(endLabel);
+            return;
+        }
+
+        load(binaryOp.getLeftOperand());
+        load(binaryOp.getRightOperand());
+
+        var opcode = switch (opType) {
+            case ADD -> BytecodeBuilder.IADD;
+            case SUB -> BytecodeBuilder.ISUB;
+            case MUL -> BytecodeBuilder.IMUL;
+            case DIV -> BytecodeBuilder.IDIV;
+            case REM -> BytecodeBuilder.IREM;
+            case AND, ANDB -> BytecodeBuilder.IAND;
+            case OR, ORB -> BytecodeBuilder.IOR;
+            case XOR -> BytecodeBuilder.IXOR;
+            default -> throw new RuntimeException("Unsupported binary operation in class file backend: " + opType);
+        };
+
+        code.op(opcode, -1);
+    }
+
+    private void generateUnaryOp(UnaryOpInstruction unaryOp) {
+        var opType = unaryOp.getOperation().getOpType();
+        load(unaryOp.getOperand());
+
+        switch (opType) {
+            case NOTB, NOT -> {
+                code.intConstant(1);
+                code.op(BytecodeBuilder.IXOR, -1);
+            }
+            case SUB -> code.op(BytecodeBuilder.INEG, 0);
+            default -> throw new RuntimeException("Unsupported unary operation in class file backend: " + opType);
+        }
+    }
+
+    private void generateCondBranch(CondBranchInstruction condBranch) {
+        var condition = condBranch.getCondition();
+        var label = condBranch.getLabel();
+
+        if (condition instanceof BinaryOpInstruction binaryOp && isComparison(binaryOp.getOperation().getOpType())) {
+            generateComparisonJump(binaryOp, label);
+            return;
+        }
+
+        // Jump if the negated operand is false
+        if (condition instanceof UnaryOpInstruction unaryOp && unaryOp.getOperation().getOpType() == OperationType.NOTB) {
+            load(unaryOp.getOperand());
+            code.jump(BytecodeBuilder.IFEQ, label);
+            return;
+        }
+
+        generateValue(condition);
+        code.jump(BytecodeBuilder.IFNE, label);
+    }
+
+    /**
+     * Jumps to the given label if the comparison holds, using the single-operand branches when comparing with zero.
+     */
+    private void generateComparisonJump(BinaryOpInstruction comparison, String label) {
+        var opType = comparison.getOperation().getOpType();
+        var left = comparison.getLeftOperand();
+        var right = comparison.getRightOperand();
+
+        if (isZero(right)) {
+            load(left);
+            code.jump(zeroBranch(opType), label);
+        } else if (isZero(left)) {
+            load(right);
+            code.jump(zeroBranch(flipComparison(opType)), label);
+        } else {
+            load(left);
+            load(right);
+            code.jump(compareBranch(opType), label);
+        }
+    }
+
+    private void generateReturn(ReturnInstruction returnInstruction) {
+        var operand = returnInstruction.getOperand();
+
+        if (operand.isEmpty()) {
+            code.returnValue(BytecodeBuilder.RETURN);
+            return;
+        }
+
+        load(operand.get());
+        code.returnValue(isReference(returnInstruction.getReturnType())
+                ? BytecodeBuilder.ARETURN
+                : BytecodeBuilder.IRETURN);
+    }
+
+    private void generatePutField(PutFieldInstruction putField) {
+        var field = putField.getField();
+
+        load(putField.getObject());
+        load(putField.getValue());
+        code.field(BytecodeBuilder.PUTFIELD, currentClassName, field.getName(), types.toJasmin(field.getType()));
+    }
+
+    private void generateGetField(GetFieldInstruction getField) {
+        var field = getField.getField();
+
+        load(getField.getObject());
+        code.field(BytecodeBuilder.GETFIELD, currentClassName, field.getName(), types.toJasmin(field.getType()));
+    }
+
+    private void generateNew(NewInstruction newInstruction) {
+        var operands = newInstruction.getOperands();
+
+        if (newInstruction.getReturnType() instanceof ArrayType arrayType) {
+            // operands.get(1) is the size of the array
+            load(operands.get(1));
+
+            var elementType = arrayType.getElementType();
+            if (elementType instanceof BuiltinType builtin && builtin.getKind() == BuiltinKind.INT32) {
+                code.newArray(BytecodeBuilder.T_INT);
+            } else if (elementType instanceof BuiltinType builtin && builtin.getKind() == BuiltinKind.BOOLEAN) {
+                code.newArray(BytecodeBuilder.T_BOOLEAN);
+            } else if (elementType instanceof ClassType classType) {
+                code.newReferenceArray(internalName(classType.getName()));
+            } else if (elementType instanceof BuiltinType builtin && builtin.getKind() == BuiltinKind.STRING) {
+                code.newReferenceArray("java/lang/String");
+            } else {
+                code.newReferenceArray(OBJECT);
+            }
+
+            return;
+        }
+
+        // The call to the constructor that follows in the OLLIR code is skipped, see isConstructorCall
+        var className = internalName(newInstruction.getReturnType() instanceof ClassType classType
+                ? classType.getName()
+                : ((Operand) operands.get(0)).getName());
+
+        code.newObject(className);
+        code.op(BytecodeBuilder.DUP, 1);
+        code.invoke(BytecodeBuilder.INVOKESPECIAL, className, "<init>", "()V");
+    }
+
+    private void generateCall(CallInstruction call) {
+        var invocationKind = call.getInvocationKind();
+        var isStatic = invocationKind.equals("InvokeStatic");
+
+        if (!isStatic) {
+            load(call.getCaller());
+        }
+
+        for (var argument : call.getArguments()) {
+            load(argument);
+        }
+
+        var opcode = switch (invocationKind) {
+            case "InvokeStatic" -> BytecodeBuilder.INVOKESTATIC;
+            case "InvokeSpecial" -> BytecodeBuilder.INVOKESPECIAL;
+            default -> BytecodeBuilder.INVOKEVIRTUAL;
+        };
+
+        var owner = callOwner(call, isStatic);
+        var methodName = literal(call.getMethodName());
+
+        // Imported methods use the descriptor of their class file
+        var imported = types.findImportedMethod(owner, methodName, call);
+        var descriptor = imported != null
+                ? imported.descriptor()
+                : call.getArguments().stream()
+                .map(argument -> types.toJasmin(argument.getType()))
+                .collect(Collectors.joining("", "(", ")")) + types.toJasmin(call.getReturnType());
+
+        code.invoke(opcode, owner, methodName, descriptor);
+
+        // Imported methods that OLLIR calls as void can return a value, which is discarded
+        if (isVoid(call.getReturnType()) && !descriptor.endsWith(")V")) {
+            code.op(BytecodeBuilder.POP, -1);
+        }
+    }
+
+    private String callOwner(CallInstruction call, boolean isStatic) {
+        var caller = call.getCaller();
+        String className;
+
+        if (isStatic && caller instanceof Operand operand) {
+            className = operand.getName();
+        } else if (isStatic && caller instanceof LiteralElement literalElement) {
+            className = literal(literalElement);
+        } else if (!isStatic && caller.getType() instanceof ClassType classType) {
+            className = classType.getName();
+        } else {
+            className = currentClassName;
+        }
+
+        return internalName(className);
+    }
+
+    /**
+     * Pushes the value of an operand or literal.
+     */
+    private void load(Element element) {
+        if (element instanceof LiteralElement literalElement) {
+            var value = parseInt(literalElement);
+
+            if (value != null) {
+                code.intConstant(value);
+            } else {
+                code.stringConstant(literal(literalElement));
+            }
+
+            return;
+        }
+
+        if (element instanceof ArrayOperand arrayOperand) {
+            loadArrayAndIndex(arrayOperand);
+            code.op(arrayLoad(arrayOperand.getType()), -1);
+            return;
+        }
+
+        if (element instanceof Operand operand) {
+            code.load(isReference(operand.getType()), register(operand.getName()));
+            return;
+        }
+
+        throw new RuntimeException("Unsupported element in class file backend: " + element.getClass().getSimpleName());
+    }
+
+    private void loadArrayAndIndex(ArrayOperand arrayOperand) {
+        code.load(true, register(arrayOperand.getName()));
+        load(arrayOperand.getIndexOperands().get(0));
+    }
+
+    private int register(String name) {
+        var descriptor = currentMethod.getVarTable().get(name);
+
+        if (descriptor != null) {
+            return descriptor.getVirtualReg();
+        }
+
+        if (name.equals("this")) {
+            return 0;
+        }
+
+        throw new RuntimeException("Could not find register for variable '" + name + "' in method '"
+                + currentMethod.getMethodName() + "'");
+    }
+
+    private String methodDescriptor(Method method) {
+        return method.getParams().stream()
+                .map(param -> types.toJasmin(param.getType()))
+                .collect(Collectors.joining("", "(", ")")) + types.toJasmin(method.getReturnType());
+    }
+
+    private String internalName(String className) {
+        var imported = types.getImport(className);
+        return (imported != null ? imported : className).replace(".", "/");
+    }
+
+    private String newLabel(String name) {
+        // OLLIR labels are identifiers, so they cannot clash with these
+        return "$" + name + labelCount++;
+    }
+
+    private boolean isConstructorCall(CallInstruction call) {
+        return call.getInvocationKind().equals("InvokeSpecial")
+                && call.getMethodName() instanceof LiteralElement literalElement
+                && literal(literalElement).equals("<init>");
+    }
+
+    private static int accessFlags(AccessModifier accessModifier) {
+        return switch (accessModifier) {
+            case PUBLIC -> ClassFileWriter.ACC_PUBLIC;
+            case PRIVATE -> ClassFileWriter.ACC_PRIVATE;
+            case PROTECTED -> ClassFileWriter.ACC_PROTECTED;
+            case DEFAULT -> 0;
+        };
+    }
+
+    private static boolean isReference(Type type) {
+        if (type instanceof BuiltinType builtin) {
+            return builtin.getKind() != BuiltinKind.INT32 && builtin.getKind() != BuiltinKind.BOOLEAN;
+        }
+
+        return true;
+    }
+
+    private static boolean isVoid(Type type) {
+        return type instanceof BuiltinType builtin && builtin.getKind() == BuiltinKind.VOID;
+    }
+
+    private static boolean isVariable(Element element, String name) {
+        return element instanceof Operand operand && !(element instanceof ArrayOperand)
+                && operand.getName().equals(name);
+    }
+
+    private static boolean isZero(Element element) {
+        return element instanceof LiteralElement literalElement && literalElement.getLiteral().equals("0");
+    }
+
+    private static String literal(Element element) {
+        if (element instanceof LiteralElement literalElement) {
+            return literalElement.getLiteral().replace("\"", "");
+        }
+
+        return element.toString();
+    }
+
+    private static Integer parseInt(LiteralElement literalElement) {
+        try {
+            return Integer.parseInt(literalElement.getLiteral());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static int arrayLoad(Type elementType) {
+        if (elementType instanceof BuiltinType builtin) {
+            return switch (builtin.getKind()) {
+                case INT32 -> BytecodeBuilder.IALOAD;
+                case BOOLEAN -> BytecodeBuilder.BALOAD;
+                default -> BytecodeBuilder.AALOAD;
+            };
+        }
+
+        return BytecodeBuilder.AALOAD;
+    }
+
+    private static int arrayStore(Type elementType) {
+        if (elementType instanceof BuiltinType builtin) {
+            return switch (builtin.getKind()) {
+                case INT32 -> BytecodeBuilder.IASTORE;
+                case BOOLEAN -> BytecodeBuilder.BASTORE;
+                default -> BytecodeBuilder.AASTORE;
+            };
+        }
+
+        return BytecodeBuilder.AASTORE;
+    }
+
+    private static boolean isComparison(OperationType opType) {
+        return switch (opType) {
+            case LTH, GTH, LTE, GTE, EQ, NEQ -> true;
+            default -> false;
+        };
+    }
+
+    private static OperationType flipComparison(OperationType opType) {
+        return switch (opType) {
+            case LTH -> OperationType.GTH;
+            case GTH -> OperationType.LTH;
+            case LTE -> OperationType.GTE;
+            case GTE -> OperationType.LTE;
+            default -> opType;
+        };
+    }
+
+    private static int zeroBranch(OperationType opType) {
+        return switch (opType) {
+            case LTH -> BytecodeBuilder.IFLT;
+            case GTH -> BytecodeBuilder.IFGT;
+            case LTE -> BytecodeBuilder.IFLE;
+            case GTE -> BytecodeBuilder.IFGE;
+            case EQ -> BytecodeBuilder.IFEQ;
+            default -> BytecodeBuilder.IFNE;
+        };
+    }
+
+    private static int compareBranch(OperationType opType) {
+        return switch (opType) {
+            case LTH -> BytecodeBuilder.IF_ICMPLT;
+            case GTH -> BytecodeBuilder.IF_ICMPGT;
+            case LTE -> BytecodeBuilder.IF_ICMPLE;
+            case GTE -> BytecodeBuilder.IF_ICMPGE;
+            case EQ -> BytecodeBuilder.IF_ICMPEQ;
+            default -> BytecodeBuilder.IF_ICMPNE;
+        };
+    }
+}
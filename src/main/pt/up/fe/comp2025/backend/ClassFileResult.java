@@ -0,0 +1,84 @@
+package pt.up.fe.comp2025.backend;
+
+import pt.up.fe.comp.jmm.jasmin.JasminResult;
+import pt.up.fe.comp.jmm.ollir.OllirResult;
+import pt.up.fe.comp.jmm.report.Report;
+import pt.up.fe.specs.util.SpecsCollections;
+import pt.up.fe.specs.util.SpecsIo;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Result of the class file backend. Compiling it writes the generated bytes directly, without calling Jasmin.
+ * <p>
+ * The Jasmin code is only generated if it is requested, e.g. to be printed.
+ */
+public class ClassFileResult extends JasminResult {
+
+    private final byte[] classFile;
+    private final Supplier<String> jasminGenerator;
+    private String jasminCode;
+
+    public ClassFileResult(OllirResult ollirResult, byte[] classFile, List<Report> reports) {
+        this(ollirResult.getOllirClass().getClassName(), classFile,
+                () -> new JasminGenerator(ollirResult).build(),
+                SpecsCollections.concat(ollirResult.getReports(), reports), ollirResult.getConfig());
+    }
+
+    /**
+     * @param className       name of the generated class
+     * @param classFile       contents of the class file
+     * @param jasminGenerator generates the equivalent Jasmin code, only called if the code is requested
+     * @param reports
+     * @param config
+     */
+    public ClassFileResult(String className, byte[] classFile, Supplier<String> jasminGenerator, List<Report> reports,
+                           Map<String, String> config) {
+        super(className, null, reports, config);
+
+        this.classFile = classFile;
+        this.jasminGenerator = jasminGenerator;
+        this.jasminCode = null;
+    }
+
+    /**
+     * @return the contents of the class file
+     */
+    public byte[] getClassFile() {
+        return classFile;
+    }
+
+    @Override
+    public String getJasminCode() {
+        if (jasminCode == null) {
+            jasminCode = jasminGenerator.get();
+        }
+
+        return jasminCode;
+    }
+
+    /**
+     * Writes the generated class file.
+     *
+     * @param outputDir the folder where the class file will written
+     * @return a reference to the .class file
+     */
+    @Override
+    public File compile(File outputDir) {
+        SpecsIo.mkdir(outputDir);
+        var file = new File(outputDir, getClassName() + ".class");
+
+        try {
+            Files.write(file.toPath(), classFile);
+        } catch (IOException e) {
+            throw new RuntimeException("Could not write class file '" + file + "'", e);
+        }
+
+        return file;
+    }
+}
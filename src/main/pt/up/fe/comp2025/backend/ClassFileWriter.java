@@ -0,0 +1,130 @@
+package pt.up.fe.comp2025.backend;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * Writes the binary class file format.
+ * <p>
+ * Classes are written with version 49.0 (Java 5), the last version that does not require a StackMapTable attribute
+ * in the methods that have branches. The JVM still verifies these classes, with the type-inferencing verifier.
+ */
+class ClassFileWriter {
+
+    static final int ACC_PUBLIC = 0x0001;
+    static final int ACC_PRIVATE = 0x0002;
+    static final int ACC_PROTECTED = 0x0004;
+    static final int ACC_STATIC = 0x0008;
+    static final int ACC_SUPER = 0x0020;
+    static final int ACC_VARARGS = 0x0080;
+
+    private static final int MAGIC = 0xCAFEBABE;
+    private static final int MAJOR_VERSION = 49;
+    private static final int MINOR_VERSION = 0;
+
+    private final ConstantPool constantPool;
+    private final int thisClass;
+    private final int superClass;
+    private final int access;
+
+    private final ByteArrayOutputStream fields;
+    private final ByteArrayOutputStream methods;
+    private int fieldCount;
+    private int methodCount;
+
+    /**
+     * @param access     access flags of the class
+     * @param name       internal name of the class
+     * @param superName  internal name of the super class
+     */
+    ClassFileWriter(int access, String name, String superName) {
+        this.constantPool = new ConstantPool();
+        this.thisClass = constantPool.classRef(name);
+        this.superClass = constantPool.classRef(superName);
+        this.access = access | ACC_SUPER;
+        this.fields = new ByteArrayOutputStream();
+        this.methods = new ByteArrayOutputStream();
+        this.fieldCount = 0;
+        this.methodCount = 0;
+    }
+
+    ConstantPool getConstantPool() {
+        return constantPool;
+    }
+
+    void addField(int access, String name, String descriptor) {
+        var out = new DataOutputStream(fields);
+
+        try {
+            out.writeShort(access);
+            out.writeShort(constantPool.utf8(name));
+            out.writeShort(constantPool.utf8(descriptor));
+            // No attributes
+            out.writeShort(0);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+
+        fieldCount++;
+    }
+
+    /**
+     * Adds a method with a Code attribute containing the given bytecode.
+     */
+    void addMethod(int access, String name, String descriptor, BytecodeBuilder code) {
+        var bytecode = code.toBytes();
+        var out = new DataOutputStream(methods);
+
+        try {
+            out.writeShort(access);
+            out.writeShort(constantPool.utf8(name));
+            out.writeShort(constantPool.utf8(descriptor));
+
+            out.writeShort(1);
+            out.writeShort(constantPool.utf8("Code"));
+            // max_stack, max_locals, code_length, code, exception_table_length and attributes_count
+            out.writeInt(2 + 2 + 4 + bytecode.length + 2 + 2);
+            out.writeShort(code.getMaxStack());
+            out.writeShort(code.getMaxLocals());
+            out.writeInt(bytecode.length);
+            out.write(bytecode);
+            out.writeShort(0);
+            out.writeShort(0);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+
+        methodCount++;
+    }
+
+    byte[] toBytes() {
+        var bytes = new ByteArrayOutputStream();
+        var out = new DataOutputStream(bytes);
+
+        try {
+            out.writeInt(MAGIC);
+            out.writeShort(MINOR_VERSION);
+            out.writeShort(MAJOR_VERSION);
+            constantPool.writeTo(out);
+            out.writeShort(access);
+            out.writeShort(thisClass);
+            out.writeShort(superClass);
+
+            // No interfaces
+            out.writeShort(0);
+
+            out.writeShort(fieldCount);
+            fields.writeTo(out);
+            out.writeShort(methodCount);
+            methods.writeTo(out);
+
+            // No class attributes
+            out.writeShort(0);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+
+        return bytes.toByteArray();
+    }
+}
@@ -0,0 +1,170 @@
+package pt.up.fe.comp2025.backend;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Constant pool of a class file. Each constant is added only once, later requests return the index of the existing
+ * entry.
+ */
+class ConstantPool {
+
+    private static final int UTF8 = 1;
+    private static final int INTEGER = 3;
+    private static final int CLASS = 7;
+    private static final int STRING = 8;
+    private static final int FIELD_REF = 9;
+    private static final int METHOD_REF = 10;
+    private static final int NAME_AND_TYPE = 12;
+
+    private final ByteArrayOutputStream bytes;
+    private final DataOutputStream out;
+    private final Map<String, Integer> indexes;
+
+    // Index 0 is not used by the class file format
+    private int count;
+
+    ConstantPool() {
+        this.bytes = new ByteArrayOutputStream();
+        this.out = new DataOutputStream(bytes);
+        this.indexes = new HashMap<>();
+        this.count = 1;
+    }
+
+    int utf8(String value) {
+        var key = "U" + value;
+        var index = indexes.get(key);
+        if (index != null) {
+            return index;
+        }
+
+        try {
+            out.writeByte(UTF8);
+            out.writeUTF(value);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+
+        return register(key);
+    }
+
+    int integer(int value) {
+        var key = "I" + value;
+        var index = indexes.get(key);
+        if (index != null) {
+            return index;
+        }
+
+        write(INTEGER);
+        writeInt(value);
+
+        return register(key);
+    }
+
+    /**
+     * @param internalName name of the class with '/' as separator, e.g. java/lang/Object
+     */
+    int classRef(String internalName) {
+        var key = "C" + internalName;
+        var index = indexes.get(key);
+        if (index != null) {
+            return index;
+        }
+
+        var nameIndex = utf8(internalName);
+        write(CLASS);
+        writeShort(nameIndex);
+
+        return register(key);
+    }
+
+    int string(String value) {
+        var key = "S" + value;
+        var index = indexes.get(key);
+        if (index != null) {
+            return index;
+        }
+
+        var valueIndex = utf8(value);
+        write(STRING);
+        writeShort(valueIndex);
+
+        return register(key);
+    }
+
+    int fieldRef(String owner, String name, String descriptor) {
+        return memberRef(FIELD_REF, owner, name, descriptor);
+    }
+
+    int methodRef(String owner, String name, String descriptor) {
+        return memberRef(METHOD_REF, owner, name, descriptor);
+    }
+
+    int size() {
+        return count;
+    }
+
+    void writeTo(DataOutputStream output) throws IOException {
+        output.writeShort(count);
+        bytes.writeTo(output);
+    }
+
+    private int memberRef(int tag, String owner, String name, String descriptor) {
+        var key = "M" + tag + owner + "." + name + ":" + descriptor;
+        var index = indexes.get(key);
+        if (index != null) {
+            return index;
+        }
+
+        var classIndex = classRef(owner);
+        var nameAndTypeIndex = nameAndType(name, descriptor);
+        write(tag);
+        writeShort(classIndex);
+        writeShort(nameAndTypeIndex);
+
+        return register(key);
+    }
+
+    private int nameAndType(String name, String descriptor) {
+        var key = "N" + name + ":" + descriptor;
+        var index = indexes.get(key);
+        if (index != null) {
+            return index;
+        }
+
+        var nameIndex = utf8(name);
+        var descriptorIndex = utf8(descriptor);
+        write(NAME_AND_TYPE);
+        writeShort(nameIndex);
+        writeShort(descriptorIndex);
+
+        return register(key);
+    }
+
+    private int register(String key) {
+        if (count >= 0xFFFF) {
+            throw new RuntimeException("Too many constants in class file, the limit is 65534");
+        }
+
+        var index = count++;
+        indexes.put(key, index);
+        return index;
+    }
+
+    private void write(int value) {
+        bytes.write(value);
+    }
+
+    private void writeShort(int value) {
+        bytes.write(value >>> 8);
+        bytes.write(value);
+    }
+
+    private void writeInt(int value) {
+        writeShort(value >>> 16);
+        writeShort(value & 0xFFFF);
+    }
+}
@@ -3,6 +3,9 @@ package pt.up.fe.comp2025.backend;
 import pt.up.fe.comp.jmm.jasmin.JasminBackend;
 import pt.up.fe.comp.jmm.jasmin.JasminResult;
 import pt.up.fe.comp.jmm.ollir.OllirResult;
+import pt.up.fe.comp2025.ConfigOptions;
+
+import java.util.ArrayList;
 
 /**
  * Implementation of the Jasmin backend.
@@ -14,6 +17,12 @@ public class JasminBackendImpl implements JasminBackend {
 
         //System.out.println("Converting OLLIR to Jasmin:\n" + ollirResult.getOllirCode());
 
+        // Writes the class file directly, the Jasmin code is only generated if requested
+        if (ConfigOptions.getClassFile(ollirResult.getConfig())) {
+            var classFileGenerator = new ClassFileGenerator(ollirResult);
+            return new ClassFileResult(ollirResult, classFileGenerator.build(), new ArrayList<>());
+        }
+
         var jasminGenerator = new JasminGenerator(ollirResult);
         var jasminCode = jasminGenerator.build();
 
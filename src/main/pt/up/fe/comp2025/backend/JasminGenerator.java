@@ -8,19 +8,24 @@ import org.specs.comp.ollir.type.*;
 import pt.up.fe.comp.jmm.ollir.OllirResult;
 import pt.up.fe.comp.jmm.report.Report;
 import pt.up.fe.comp2025.analysis.passes.ArrayAccess;
-import pt.up.fe.specs.util.classmap.FunctionClassMap;
 import pt.up.fe.specs.util.exceptions.NotImplementedException;
-import pt.up.fe.specs.util.utilities.StringLines;
 import pt.up.fe.comp2025.backend.JasminUtils;
+import pt.up.fe.comp2025.metrics.CompilerTrace;
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 /**
  * Generates Jasmin code from an OllirResult.
  * <p>
  * One JasminGenerator instance per OllirResult.
+ * <p>
+ * The code is written line by line to a single Appendable, the generators of each node do not build strings of their
+ * own.
  */
 public class JasminGenerator {
 
@@ -39,10 +44,11 @@ public class JasminGenerator {
 
     private final JasminUtils types;
 
-    private final FunctionClassMap<TreeNode, String> generators;
-
     private Map<String, Integer> varMapping;
 
+    // Where the code is written, only set while building
+    private Appendable out;
+
     public JasminGenerator(OllirResult ollirResult) {
         this(ollirResult, -1); // default: use original
     }
@@ -56,35 +62,32 @@ public class JasminGenerator {
         currentMethod = null;
 
         types = new JasminUtils(ollirResult);
-
-        this.generators = new FunctionClassMap<>(node -> "; not yet implemented: " + node.getClass().getSimpleName());
-        generators.put(ClassUnit.class, this::generateClassUnit);
-        generators.put(Method.class, this::generateMethod);
-        generators.put(AssignInstruction.class, this::generateAssign);
-        generators.put(SingleOpInstruction.class, this::generateSingleOp);
-        generators.put(LiteralElement.class, this::generateLiteral);
-        generators.put(Operand.class, this::generateOperand);
-        generators.put(BinaryOpInstruction.class, this::generateBinaryOp);
-        generators.put(ReturnInstruction.class, this::generateReturn);
-        generators.put(PutFieldInstruction.class, this::generatePutField);
-        generators.put(GetFieldInstruction.class, this::generateGetField);
-        generators.put(GotoInstruction.class, this::generateGoto);
-        generators.put(CondBranchInstruction.class, this::generateCondBranch);
-        generators.put(CallInstruction.class, this::generateCall);
-        generators.put(NewInstruction.class, this::generateNewInstruction);
-        generators.put(ArrayLengthInstruction.class, this::generateArrayLength);
-        generators.put(OpInstruction.class, this::generateOpInstruction);
-        generators.put(ArrayOperand.class, this::generateArrayOperand);
-        generators.put(UnaryOpInstruction.class, this::generateUnaryOperation);
     }
 
-
-
-    private String apply(TreeNode node) {
-        var code = new StringBuilder();
-        //code.append("; OLLIR: "+node.toString()+"\n");
-        code.append(generators.apply(node));
-        return code.toString();
+    /**
+     * Generates the code of an OLLIR node, dispatching on its class.
+     */
+    private void generate(TreeNode node) {
+        //write("; OLLIR: " + node + NL);
+        switch (node) {
+            case AssignInstruction assign -> generateAssign(assign);
+            case SingleOpInstruction singleOp -> generateSingleOp(singleOp);
+            case LiteralElement literal -> generateLiteral(literal);
+            case ArrayOperand arrayOp -> generateArrayOperand(arrayOp);
+            case Operand operand -> generateOperand(operand);
+            case BinaryOpInstruction binaryOp -> generateBinaryOp(binaryOp);
+            case UnaryOpInstruction unaryOp -> generateUnaryOperation(unaryOp);
+            case OpInstruction opInst -> generateOpInstruction(opInst);
+            case ReturnInstruction returnInst -> generateReturn(returnInst);
+            case PutFieldInstruction putField -> generatePutField(putField);
+            case GetFieldInstruction getField -> generateGetField(getField);
+            case GotoInstruction gotoInst -> generateGoto(gotoInst);
+            case CondBranchInstruction condBranch -> generateCondBranch(condBranch);
+            case NewInstruction newInst -> generateNewInstruction(newInst);
+            case ArrayLengthInstruction arrayLength -> generateArrayLength(arrayLength);
+            case CallInstruction call -> generateCall(call);
+            default -> emit("; not yet implemented: " + node.getClass().getSimpleName());
+        }
     }
 
     public List<Report> getReports() {
@@ -92,54 +95,148 @@ public class JasminGenerator {
     }
 
     public String build() {
-        if (code == null) code = apply(ollirResult.getOllirClass());
+        if (code == null) {
+            var builder = new StringBuilder();
+            build(builder);
+            code = builder.toString();
+        }
         return code;
     }
 
-    private String generateClassUnit(ClassUnit classUnit) {
-        var code = new StringBuilder();
+    /**
+     * Writes the Jasmin code of the class to the given output.
+     *
+     * @param out where the code is written, e.g. a StringBuilder or a Writer
+     */
+    public void build(Appendable out) {
+        this.out = out;
+        try {
+            generateClassUnit(ollirResult.getOllirClass());
+        } finally {
+            this.out = null;
+        }
+    }
+
+    private void write(String text) {
+        try {
+            out.append(text);
+        } catch (IOException e) {
+            throw new RuntimeException("Could not write Jasmin code", e);
+        }
+    }
+
+    /**
+     * Writes an instruction in its own indented line.
+     */
+    private void emit(String instruction) {
+        write(TAB);
+        write(instruction);
+        write(NL);
+    }
+
+    /**
+     * Generates the code of the class without its methods, that is the class, its fields and its constructor, which is
+     * the beginning of the code of the class. With {@link #buildMethods()}, the code of a class can be put together
+     * from methods generated separately.
+     */
+    public String buildHeader() {
+        var builder = new StringBuilder();
+        out = builder;
+        try {
+            generateHeader(ollirResult.getOllirClass());
+        } finally {
+            out = null;
+        }
+
+        return builder.toString();
+    }
+
+    /**
+     * @return the code of each method of the class, except the constructor, by name and in the order of the class
+     */
+    public Map<String, String> buildMethods() {
+        var classUnit = ollirResult.getOllirClass();
+        enterClass(classUnit);
+
+        var methods = new LinkedHashMap<String, String>();
+        for (var method : classUnit.getMethods()) {
+            if (method.isConstructMethod()) {
+                continue;
+            }
+
+            var builder = new StringBuilder();
+            out = builder;
+            try {
+                generateMethod(method);
+            } finally {
+                out = null;
+            }
+
+            methods.put(method.getMethodName(), builder.toString());
+        }
+
+        return methods;
+    }
+
+    /**
+     * Sets the names of all the methods of the class, when the OLLIR class only has the methods that are generated by
+     * {@link #buildMethods()}. Calls of the other methods of the class are not taken as calls of inherited methods.
+     */
+    public void setClassMethods(Set<String> methodNames) {
+        types.setDeclaredMethods(methodNames);
+    }
+
+    private void enterClass(ClassUnit classUnit) {
         types.buildImports(classUnit.getImports());
+        currentClassName = classUnit.getClassName();
+    }
+
+    private void generateClassUnit(ClassUnit classUnit) {
+        generateHeader(classUnit);
+
+        // Generate methods
+        for (var method : classUnit.getMethods()) {
+            if (method.isConstructMethod()) {
+                continue;
+            }
+            generateMethod(method);
+        }
+    }
 
-        currentClassName = ollirResult.getOllirClass().getClassName();
-        code.append(".class ").append(types.getModifier(classUnit.getClassAccessModifier()))
-                .append(currentClassName).append(NL);
+    private void generateHeader(ClassUnit classUnit) {
+        enterClass(classUnit);
+        write(".class " + types.getModifier(classUnit.getClassAccessModifier()) + currentClassName + NL);
 
         var superClass = classUnit.getSuperClass();
         var fullSuperClass = superClass == null || superClass.equals("Object")
                 ? "java/lang/Object"
                 : types.getImport(superClass);
 
-        code.append(".super ").append(fullSuperClass).append(NL).append(NL);
+        write(".super " + fullSuperClass + NL + NL);
 
         // Generate fields
         for (var field : classUnit.getFields()) {
-            code.append(".field ").append(types.getModifier(field.getFieldAccessModifier()))
-                    .append(field.getFieldName()).append(" ")
-                    .append(types.toJasmin(field.getFieldType())).append(NL);
+            write(".field " + types.getModifier(field.getFieldAccessModifier()) + field.getFieldName() + " "
+                    + types.toJasmin(field.getFieldType()) + NL);
         }
 
         // Generate constructor
-        code.append(NL);
-        code.append(".method public <init>()V").append(NL);
-        code.append(TAB).append("aload_0").append(NL);
-        code.append(TAB).append("invokespecial ").append(fullSuperClass).append("/<init>()V").append(NL);
-        code.append(TAB).append("return").append(NL);
-        code.append(".end method").append(NL).append(NL);
+        write(NL);
+        write(".method public <init>()V" + NL);
+        emit("aload_0");
+        emit("invokespecial " + fullSuperClass + "/<init>()V");
+        emit("return");
+        write(".end method" + NL + NL);
+    }
 
-        // Generate methods
-        for (var method : ollirResult.getOllirClass().getMethods()) {
-            if (method.isConstructMethod()) {
-                continue;
-            }
-            code.append(apply(method));
+    private void generateMethod(Method method) {
+        try (var span = CompilerTrace.span("generateMethod", "backend", method.getMethodName())) {
+            generateMethodCode(method);
         }
-
-        return code.toString();
     }
 
-    private String generateMethod(Method method) {
+    private void generateMethodCode(Method method) {
         currentMethod = method;
-        var code = new StringBuilder();
 
         var methodName = method.getMethodName();
 
@@ -149,21 +246,20 @@ public class JasminGenerator {
         var returnType = types.toJasmin(method.getReturnType());
 
         // Build method signature
-        code.append(".method ");
+        write(".method ");
 
         // Add access modifier
         String modifier = types.getModifier(method.getMethodAccessModifier());
-        code.append(modifier);
+        write(modifier);
 
         // Ensure main method is static
         if (methodName.equals("main") && !method.isStaticMethod()) {
-            code.append("static ");
+            write("static ");
         } else if (method.isStaticMethod()) {
-            code.append("static ");
+            write("static ");
         }
 
-        code.append(methodName)
-                .append("(").append(params).append(")").append(returnType).append(NL);
+        write(methodName + "(" + params + ")" + returnType + NL);
 
         // Allocate registers
         RegisterAllocator allocator = new RegisterAllocator(method, maxRegisters);
@@ -175,8 +271,8 @@ public class JasminGenerator {
         // Calculate .limit stack
         int stackLimit = calculateStackLimit(method);
 
-        code.append(TAB).append(".limit stack ").append(stackLimit).append(NL);
-        code.append(TAB).append(".limit locals ").append(localLimit).append(NL);
+        emit(".limit stack " + stackLimit);
+        emit(".limit locals " + localLimit);
 
         // Generate method body with simple increment detection
         List<Instruction> instructions = method.getInstructions();
@@ -188,30 +284,23 @@ public class JasminGenerator {
             var inst = instructions.get(i);
 
             // Add labels
-            method.getLabels(inst).forEach(label -> code.append(label).append(":").append(NL));
+            method.getLabels(inst).forEach(label -> write(label + ":" + NL));
 
             // Only try increment detection for JasminOptimizationsTest
             if (shouldOptimizeIncrement()) {
                 String incrementCode = detectIncrementPattern(instructions, i, processed);
                 if (incrementCode != null) {
-                    code.append(TAB).append(incrementCode);
+                    emit(incrementCode);
                     continue;
                 }
             }
 
-            var instCode = StringLines.getLines(apply(inst)).stream()
-                    .filter(line -> !line.trim().isEmpty())
-                    .collect(Collectors.joining(NL + TAB, TAB, NL));
-
-            if (!instCode.trim().isEmpty()) {
-                code.append(instCode);
-            }
+            generate(inst);
         }
 
-        code.append(".end method").append(NL).append(NL);
+        write(".end method" + NL + NL);
 
         currentMethod = null;
-        return code.toString();
     }
 
     private boolean shouldOptimizeIncrement() {
@@ -246,7 +335,7 @@ public class JasminGenerator {
                     if (reg != null && reg >= 0) {
                         processed[startIndex] = true;
                         processed[startIndex + 1] = true;
-                        return "iinc " + reg + " 1" + NL;
+                        return "iinc " + reg + " 1";
                     }
                 }
             }
@@ -366,24 +455,26 @@ public class JasminGenerator {
         return 1; // Conservative default
     }
 
-    private String generateAssign(AssignInstruction assign) {
+    private void generateAssign(AssignInstruction assign) {
         var lhs = assign.getDest();
         var rhs = assign.getRhs();
-        var code = new StringBuilder();
 
         // Handle array assignments
         if (lhs instanceof ArrayOperand arrayOp) {
-            return generateArrayAssignment(arrayOp, rhs);
+            generateArrayAssignment(arrayOp, rhs);
+            return;
         }
 
         if (!(lhs instanceof Operand operand)) {
-            return "; unsupported assignment destination: " + lhs.getClass().getSimpleName() + NL;
+            emit("; unsupported assignment destination: " + lhs.getClass().getSimpleName());
+            return;
         }
 
         // Get register for the variable
         Integer reg = getVariableRegister(operand.getName());
         if (reg == null) {
-            return "; could not find register for variable: " + operand.getName() + NL;
+            emit("; could not find register for variable: " + operand.getName());
+            return;
         }
 
         // Check for increment optimization (i = i + 1)
@@ -395,41 +486,34 @@ public class JasminGenerator {
 
             // Check if it's i = i + 1 or i = 1 + i
             if (isIncrementPattern(operand.getName(), leftOp, rightOp)) {
-                return "iinc " + reg + " 1" + NL;
+                emit("iinc " + reg + " 1");
+                return;
             }
         }
 
         // Generate RHS
-        code.append(apply(rhs));
+        generate(rhs);
 
         // Generate store instruction
-        String storeInst = generateStoreInstruction(reg, operand.getType());
-        code.append(storeInst).append(NL);
-
-        return code.toString();
+        emit(generateStoreInstruction(reg, operand.getType()));
     }
 
-    private String generateArrayAssignment(ArrayOperand arrayOp, Instruction rhs) {
-        var code = new StringBuilder();
-
+    private void generateArrayAssignment(ArrayOperand arrayOp, Instruction rhs) {
         // Load array reference - use variable name directly
         String arrayName = arrayOp.getName();
         Integer reg = getVariableRegister(arrayName);
         if (reg != null) {
-            code.append("aload ").append(reg).append(NL);
+            emit("aload " + reg);
         }
 
         // Load index
-        code.append(apply(arrayOp.getIndexOperands().get(0)));
+        generate(arrayOp.getIndexOperands().get(0));
 
         // Load value to store
-        code.append(apply(rhs));
+        generate(rhs);
 
         // Store to array
-        String storeType = getArrayStoreInstruction(arrayOp.getType());
-        code.append(storeType).append(NL);
-
-        return code.toString();
+        emit(getArrayStoreInstruction(arrayOp.getType()));
     }
 
     private String getArrayStoreInstruction(Type type) {
@@ -502,48 +586,49 @@ public class JasminGenerator {
         return "a";
     }
 
-    private String generateSingleOp(SingleOpInstruction singleOp) {
-        return apply(singleOp.getSingleOperand());
+    private void generateSingleOp(SingleOpInstruction singleOp) {
+        generate(singleOp.getSingleOperand());
     }
 
-    private String generateLiteral(LiteralElement literal) {
-        var token = literal.getLiteral();
+    private void generateLiteral(LiteralElement literal) {
+        emit(getLiteralInstruction(literal.getLiteral()));
+    }
 
+    private String getLiteralInstruction(String token) {
         try {
             int v = Integer.parseInt(token);
 
             // Use optimized constant loading instructions
-            if (v == -1) return "iconst_m1" + NL;
-            if (v >= 0 && v <= 5) return "iconst_" + v + NL;
-            if (v >= -128 && v <= 127) return "bipush " + v + NL;
-            if (v >= -32768 && v <= 32767) return "sipush " + v + NL;
-            return "ldc " + v + NL;
+            if (v == -1) return "iconst_m1";
+            if (v >= 0 && v <= 5) return "iconst_" + v;
+            if (v >= -128 && v <= 127) return "bipush " + v;
+            if (v >= -32768 && v <= 32767) return "sipush " + v;
+            return "ldc " + v;
 
         } catch (NumberFormatException e) {
             // Handle boolean literals
             if (token.equals("true") || token.equals("1")) {
-                return "iconst_1" + NL;
+                return "iconst_1";
             }
             if (token.equals("false") || token.equals("0")) {
-                return "iconst_0" + NL;
+                return "iconst_0";
             }
             // String literals
-            return "ldc " + token + NL;
+            return "ldc " + token;
         }
     }
 
-    private String generateOperand(Operand operand) {
+    private void generateOperand(Operand operand) {
         Integer reg = getVariableRegister(operand.getName());
         if (reg == null) {
-            return "; could not find register for: " + operand.getName() + NL;
+            emit("; could not find register for: " + operand.getName());
+            return;
         }
 
-        String loadInst = generateLoadInstruction(reg, operand.getType());
-        return loadInst + NL;
+        emit(generateLoadInstruction(reg, operand.getType()));
     }
 
-    private String generateBinaryOp(BinaryOpInstruction binaryOp) {
-        var code = new StringBuilder();
+    private void generateBinaryOp(BinaryOpInstruction binaryOp) {
         var opType = binaryOp.getOperation().getOpType();
 
         // Handle comparison operations separately (they need special handling in conditions)
@@ -552,23 +637,20 @@ public class JasminGenerator {
                 opType == OperationType.EQ || opType == OperationType.NEQ) {
 
             // For comparisons, we generate the operands and let the condition handler deal with the actual comparison
-            code.append(apply(binaryOp.getLeftOperand()));
-            code.append(apply(binaryOp.getRightOperand()));
+            generate(binaryOp.getLeftOperand());
+            generate(binaryOp.getRightOperand());
 
             // Generate a comparison that produces 0 or 1
-            code.append("isub").append(NL); // Subtract to get difference
-            return code.toString();
+            emit("isub"); // Subtract to get difference
+            return;
         }
 
         // Load operands for arithmetic operations
-        code.append(apply(binaryOp.getLeftOperand()));
-        code.append(apply(binaryOp.getRightOperand()));
+        generate(binaryOp.getLeftOperand());
+        generate(binaryOp.getRightOperand());
 
         // Generate operation
-        String opCode = getBinaryOpCode(opType);
-        code.append(opCode).append(NL);
-
-        return code.toString();
+        emit(getBinaryOpCode(opType));
     }
 
 
@@ -582,22 +664,16 @@ public class JasminGenerator {
             default -> "; unsupported operation: " + opType;
         };
     }
-    private String generateUnaryOperation(UnaryOpInstruction unaryOpInstruction) {//Only "!" or not, is implemented as UnaryOperation
-        var code = new StringBuilder();
-
+    private void generateUnaryOperation(UnaryOpInstruction unaryOpInstruction) {//Only "!" or not, is implemented as UnaryOperation
         Element operand = unaryOpInstruction.getOperand();
-        code.append(apply(operand));
-        code.append("iconst_1").append(NL);
-        code.append("ixor").append(NL);
-
-        return code.toString();
+        generate(operand);
+        emit("iconst_1");
+        emit("ixor");
     }
-    private String generateReturn(ReturnInstruction returnInst) {
-        var code = new StringBuilder();
-
+    private void generateReturn(ReturnInstruction returnInst) {
         var operand = returnInst.getOperand();
         if (operand.isPresent()) {
-            code.append(apply(operand.get()));
+            generate(operand.get());
         }
 
         // Generate return instruction based on type
@@ -608,44 +684,30 @@ public class JasminGenerator {
                 case INT32, BOOLEAN -> "ireturn";
                 default -> "areturn";
             };
-            code.append(returnCode);
+            emit(returnCode);
         } else {
-            code.append("areturn");
+            emit("areturn");
         }
-
-        code.append(NL);
-        return code.toString();
     }
 
-    private String generateCall(CallInstruction callInst) {
+    private void generateCall(CallInstruction callInst) {
         var check = callInst.getMethodName();
         if (check instanceof  LiteralElement literal && callInst.getInvocationKind().equals("InvokeSpecial")) {
-            if(literal.getLiteral().equals("<init>"))
-                return "; skipped redundant <init> call" + NL;
-        }
-
-
-
-        if (callInst instanceof NewInstruction) {
-            return generateNewInstruction((NewInstruction) callInst);
-        }
-
-        // Handle special array operations
-        if (callInst instanceof ArrayLengthInstruction arrayLengthInst) {
-            return generateArrayLength(arrayLengthInst);
+            if(literal.getLiteral().equals("<init>")) {
+                emit("; skipped redundant <init> call");
+                return;
+            }
         }
 
-        var code = new StringBuilder();
-
         // Load caller if not static
         if (!callInst.getInvocationKind().equals("InvokeStatic")) {
-            code.append(apply(callInst.getCaller()));
+            generate(callInst.getCaller());
         }
 
         // Load arguments
         if (callInst.getArguments() != null) {
             for (var arg : callInst.getArguments()) {
-                code.append(apply(arg));
+                generate(arg);
             }
         }
 
@@ -657,20 +719,21 @@ public class JasminGenerator {
             default -> "invokevirtual";
         };
 
-        code.append(invokeType).append(" ");
-        code.append(generateMethodSignature(callInst));
-        code.append(NL);
+        var signature = generateMethodSignature(callInst);
+        emit(invokeType + " " + signature);
 
-        return code.toString();
+        // Imported methods that OLLIR calls as void can return a value, which is discarded
+        var ollirVoid = callInst.getReturnType() instanceof BuiltinType builtin && builtin.getKind() == BuiltinKind.VOID;
+        if (ollirVoid && !signature.endsWith(")V")) {
+            emit("pop");
+        }
     }
 
-    private String generateNewInstruction(NewInstruction newInst) {
-        var code = new StringBuilder();
-
+    private void generateNewInstruction(NewInstruction newInst) {
         var operands = newInst.getOperands();
 
         if (newInst.getReturnType() instanceof ArrayType arrayType) {
-            code.append(apply(operands.get(1))); // operands.get(1) -> arraysize
+            generate(operands.get(1)); // operands.get(1) -> arraysize
 
             var elementType = arrayType.getElementType();
             if (elementType instanceof BuiltinType builtin) {
@@ -679,23 +742,21 @@ public class JasminGenerator {
                     case BOOLEAN -> "newarray boolean"; //No tests for this
                     default -> "anewarray java/lang/Object";
                 };
-                code.append(instr).append(NL);
+                emit(instr);
             } else if (elementType instanceof ClassType classType) {
-                code.append("anewarray ").append(classType.getName().replace(".", "/")).append(NL);
+                emit("anewarray " + classType.getName().replace(".", "/"));
             } else {
-                code.append("anewarray java/lang/Object").append(NL); // Fallback
+                emit("anewarray java/lang/Object"); // Fallback
             }
 
         }
         else // if its not a new array then its a new class
         {
             String className = extractClassName(operands.get(0));
-            code.append("new ").append(className.replace(".", "/")).append(NL);
-            code.append("dup").append(NL);
-            code.append("invokespecial ").append(className.replace(".", "/")).append("/<init>()V").append(NL);
+            emit("new " + className.replace(".", "/"));
+            emit("dup");
+            emit("invokespecial " + className.replace(".", "/") + "/<init>()V");
         }
-
-        return code.toString();
     }
 
 
@@ -722,15 +783,13 @@ public class JasminGenerator {
         return str.replace("\"", "");
     }
 
-    private String generateArrayLength(ArrayLengthInstruction arrayLengthInst) {
-        var code = new StringBuilder();
+    private void generateArrayLength(ArrayLengthInstruction arrayLengthInst) {
         // ArrayLengthInstruction has operands, get the first one
         var operands = arrayLengthInst.getOperands();
         if (!operands.isEmpty()) {
-            code.append(apply(operands.get(0)));
+            generate(operands.get(0));
         }
-        code.append("arraylength").append(NL);
-        return code.toString();
+        emit("arraylength");
     }
 
     private String generateMethodSignature(CallInstruction callInst) {
@@ -764,7 +823,8 @@ public class JasminGenerator {
             className = mappedClassName;
         }
 
-        sig.append(className.replace(".", "/")).append("/");
+        var owner = className.replace(".", "/");
+        sig.append(owner).append("/");
 
         // Get method name
         Element methodNameElement = callInst.getMethodName();
@@ -776,6 +836,12 @@ public class JasminGenerator {
         }
         sig.append(methodName);
 
+        // Imported methods use the descriptor of their class file
+        var imported = types.findImportedMethod(owner, methodName, callInst);
+        if (imported != null) {
+            return sig.append(imported.descriptor()).toString();
+        }
+
         // Parameter types
         sig.append("(");
         if (callInst.getArguments() != null) {
@@ -791,42 +857,29 @@ public class JasminGenerator {
         return sig.toString();
     }
 
-    private String generatePutField(PutFieldInstruction putFieldInstruction) {
-        var code = new StringBuilder();
+    private void generatePutField(PutFieldInstruction putFieldInstruction) {
         var object = putFieldInstruction.getObject();
         var value = putFieldInstruction.getValue();
 
-        code.append(apply(object));
-        code.append(apply(value));
-        code.append("putfield ")
-                .append(currentClassName).append("/")
-                .append(putFieldInstruction.getField().getName())
-                .append(" ").append(types.toJasmin(value.getType()))
-                .append(NL);
-
-        return code.toString();
+        generate(object);
+        generate(value);
+        emit("putfield " + currentClassName + "/" + putFieldInstruction.getField().getName()
+                + " " + types.toJasmin(value.getType()));
     }
 
-    private String generateGetField(GetFieldInstruction getFieldInstruction) {
-        var code = new StringBuilder();
+    private void generateGetField(GetFieldInstruction getFieldInstruction) {
         var object = getFieldInstruction.getObject();
 
-        code.append(apply(object));
-        code.append("getfield ")
-                .append(currentClassName).append("/")
-                .append(getFieldInstruction.getField().getName())
-                .append(" ").append(types.toJasmin(getFieldInstruction.getField().getType()))
-                .append(NL);
-
-        return code.toString();
+        generate(object);
+        emit("getfield " + currentClassName + "/" + getFieldInstruction.getField().getName()
+                + " " + types.toJasmin(getFieldInstruction.getField().getType()));
     }
 
-    private String generateGoto(GotoInstruction gotoInstruction) {
-        return "goto " + gotoInstruction.getLabel() + NL;
+    private void generateGoto(GotoInstruction gotoInstruction) {
+        emit("goto " + gotoInstruction.getLabel());
     }
 
-    private String generateCondBranch(CondBranchInstruction condBranchInstruction) {
-        var code = new StringBuilder();
+    private void generateCondBranch(CondBranchInstruction condBranchInstruction) {
         var condition = condBranchInstruction.getCondition();
 
         // Handle different condition types
@@ -843,7 +896,7 @@ public class JasminGenerator {
             if (leftIsZero || rightIsZero) {
                 // Use optimized single-operand comparison
                 Element nonZeroOp = leftIsZero ? rightOp : leftOp;
-                code.append(apply(nonZeroOp));
+                generate(nonZeroOp);
 
                 // Adjust comparison direction if left operand was zero
                 OperationType adjustedOp = leftIsZero ? flipComparison(opType) : opType;
@@ -858,11 +911,11 @@ public class JasminGenerator {
                     default -> "ifne";
                 };
 
-                code.append(jumpInst).append(" ").append(condBranchInstruction.getLabel()).append(NL);
+                emit(jumpInst + " " + condBranchInstruction.getLabel());
             } else {
                 // Use two-operand comparison
-                code.append(apply(leftOp));
-                code.append(apply(rightOp));
+                generate(leftOp);
+                generate(rightOp);
 
                 String jumpInst = switch (opType) {
                     case LTH -> "if_icmplt";
@@ -874,7 +927,7 @@ public class JasminGenerator {
                     default -> "if_icmpne";
                 };
 
-                code.append(jumpInst).append(" ").append(condBranchInstruction.getLabel()).append(NL);
+                emit(jumpInst + " " + condBranchInstruction.getLabel());
             }
         } else if (condition instanceof SingleOpInstruction singleOp) {
             // Check if it's a variable holding a comparison result
@@ -888,7 +941,7 @@ public class JasminGenerator {
                     Element rightOp = comparison.getRightOperand();
 
                     if (isZero(rightOp)) {
-                        code.append(apply(leftOp));
+                        generate(leftOp);
                         String branchInst = switch (comparison.getOperation().getOpType()) {
                             case LTH -> "iflt";
                             case GTE -> "ifge";
@@ -898,9 +951,9 @@ public class JasminGenerator {
                             case LTE -> "ifle";
                             default -> "ifne";
                         };
-                        code.append(branchInst).append(" ").append(condBranchInstruction.getLabel()).append(NL);
+                        emit(branchInst + " " + condBranchInstruction.getLabel());
                     } else if (isZero(leftOp)) {
-                        code.append(apply(rightOp));
+                        generate(rightOp);
                         String branchInst = switch (comparison.getOperation().getOpType()) {
                             case LTH -> "ifgt";
                             case GTE -> "ifle";
@@ -910,10 +963,10 @@ public class JasminGenerator {
                             case LTE -> "ifge";
                             default -> "ifne";
                         };
-                        code.append(branchInst).append(" ").append(condBranchInstruction.getLabel()).append(NL);
+                        emit(branchInst + " " + condBranchInstruction.getLabel());
                     } else {
-                        code.append(apply(leftOp));
-                        code.append(apply(rightOp));
+                        generate(leftOp);
+                        generate(rightOp);
                         String branchInst = switch (comparison.getOperation().getOpType()) {
                             case LTH -> "if_icmplt";
                             case GTE -> "if_icmpge";
@@ -923,24 +976,22 @@ public class JasminGenerator {
                             case LTE -> "if_icmple";
                             default -> "if_icmpne";
                         };
-                        code.append(branchInst).append(" ").append(condBranchInstruction.getLabel()).append(NL);
+                        emit(branchInst + " " + condBranchInstruction.getLabel());
                     }
                 } else {
                     // Simple boolean check
-                    code.append(apply(condition));
-                    code.append("ifne ").append(condBranchInstruction.getLabel()).append(NL);
+                    generate(condition);
+                    emit("ifne " + condBranchInstruction.getLabel());
                 }
             } else {
-                code.append(apply(condition));
-                code.append("ifne ").append(condBranchInstruction.getLabel()).append(NL);
+                generate(condition);
+                emit("ifne " + condBranchInstruction.getLabel());
             }
         } else {
             // Fallback
-            code.append(apply(condition));
-            code.append("ifne ").append(condBranchInstruction.getLabel()).append(NL);
+            generate(condition);
+            emit("ifne " + condBranchInstruction.getLabel());
         }
-
-        return code.toString();
     }
 
     private boolean isComparisonOperation(OperationType opType) {
@@ -988,35 +1039,32 @@ public class JasminGenerator {
         return null;
     }
 
-    private String generateOpInstruction(OpInstruction opInst) {
+    private void generateOpInstruction(OpInstruction opInst) {
         if (opInst instanceof BinaryOpInstruction binOp) {
-            return generateBinaryOp(binOp);
+            generateBinaryOp(binOp);
+            return;
         }
         if(opInst instanceof  UnaryOpInstruction unaryOp) {
-            return generateUnaryOperation(unaryOp);
+            generateUnaryOperation(unaryOp);
+            return;
         }
         // OpInstruction is the base class, handle it generically
-        return "; unsupported OpInstruction: " + opInst.getClass().getSimpleName() + NL;
+        emit("; unsupported OpInstruction: " + opInst.getClass().getSimpleName());
     }
 
-    private String generateArrayOperand(ArrayOperand arrayOp) {
-        var code = new StringBuilder();
-
+    private void generateArrayOperand(ArrayOperand arrayOp) {
         // Load array reference - use variable name directly
         String arrayName = arrayOp.getName();
         Integer reg = getVariableRegister(arrayName);
         if (reg != null) {
-            code.append("aload ").append(reg).append(NL);
+            emit("aload " + reg);
         }
 
         // Load index
-        code.append(apply(arrayOp.getIndexOperands().get(0)));
+        generate(arrayOp.getIndexOperands().get(0));
 
         // Load from array
-        String loadType = getArrayLoadInstruction(arrayOp.getType());
-        code.append(loadType).append(NL);
-
-        return code.toString();
+        emit(getArrayLoadInstruction(arrayOp.getType()));
     }
 
     private String getArrayLoadInstruction(Type type) {
@@ -5,18 +5,22 @@ import org.specs.comp.ollir.inst.CallInstruction;
 import org.specs.comp.ollir.inst.NewInstruction;
 import org.specs.comp.ollir.type.*;
 import pt.up.fe.comp.jmm.ollir.OllirResult;
+import pt.up.fe.comp2025.classpath.ClasspathIndex;
+import pt.up.fe.comp2025.classpath.MemberInfo;
 import pt.up.fe.specs.util.SpecsCheck;
 import pt.up.fe.specs.util.exceptions.NotImplementedException;
 
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 public class JasminUtils {
 
     private final OllirResult ollirResult;
     private final Map<String, String> importMapping = new HashMap<>();
+    private Set<String> declaredMethods;
 
     public JasminUtils(OllirResult ollirResult) {
         // Can be useful to have if you expand this class with more methods
@@ -40,6 +44,57 @@ public class JasminUtils {
         return importMapping.get(className);
     }
 
+    /**
+     * Finds the method that a call refers to in the class files of the classpath, so that calls of imported methods use
+     * their declared descriptor instead of one built from the OLLIR types, which the frontend does not always know.
+     *
+     * @param owner internal name of the class the method is called on
+     * @return the method, or null if it is declared in the class being compiled, is not in the classpath, or cannot be
+     * called with the OLLIR types (e.g. a void method whose result is used)
+     */
+    public MemberInfo findImportedMethod(String owner, String methodName, CallInstruction call) {
+        var classUnit = ollirResult.getOllirClass();
+        var className = owner;
+
+        if (owner.equals(classUnit.getClassName())) {
+            if (declaredMethods == null) {
+                declaredMethods = classUnit.getMethods().stream().map(Method::getMethodName).collect(Collectors.toSet());
+            }
+
+            // Methods of the class being compiled that it does not declare are inherited from its superclass
+            var superClass = classUnit.getSuperClass();
+            if (declaredMethods.contains(methodName) || superClass == null || superClass.equals("Object")) {
+                return null;
+            }
+
+            className = importMapping.getOrDefault(superClass, superClass);
+        }
+
+        var argumentDescriptors = call.getArguments().stream().map(argument -> toJasmin(argument.getType())).toList();
+        var method = ClasspathIndex.getDefault().resolveMethod(className, methodName, argumentDescriptors);
+        if (method == null) {
+            return null;
+        }
+
+        // Results that take two slots (long and double) are not supported, and a void result cannot be used
+        var returnDescriptor = method.getReturnDescriptor();
+        var ollirReturnsValue = !(call.getReturnType() instanceof BuiltinType builtin
+                && builtin.getKind() == BuiltinKind.VOID);
+        if (returnDescriptor.equals("J") || returnDescriptor.equals("D")
+                || returnDescriptor.equals("V") && ollirReturnsValue) {
+            return null;
+        }
+
+        return method;
+    }
+
+    /**
+     * Sets the names of all the methods of the class, for an OLLIR class that only has some of them.
+     */
+    public void setDeclaredMethods(Set<String> methodNames) {
+        declaredMethods = methodNames;
+    }
+
     public String toJasmin(Type type) {
 
         if (type instanceof BuiltinType builtinType) return toJasmin(builtinType);
@@ -3,6 +3,7 @@ package pt.up.fe.comp2025.backend;
 import org.specs.comp.ollir.Method;
 import org.specs.comp.ollir.Descriptor;
 import org.specs.comp.ollir.ClassUnit;
+import pt.up.fe.comp2025.metrics.CompilerTrace;
 
 import java.util.*;
 
@@ -28,6 +29,12 @@ public class RegisterAllocator {
      * @return A mapping from variable names to register numbers
      */
     public Map<String, Integer> allocate() {
+        try (var span = CompilerTrace.span("allocateRegisters", "optimization", method.getMethodName())) {
+            return allocateRegisters();
+        }
+    }
+
+    private Map<String, Integer> allocateRegisters() {
         varMapping.clear();
         var varTable = method.getVarTable();
 
@@ -0,0 +1,189 @@
+package pt.up.fe.comp2025.classpath;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads the declarations of a class file: the constant pool, the supertypes and the fields and methods, skipping
+ * every attribute (code, debug information, annotations).
+ * <p>
+ * The limits of the code of the methods can also be read on their own, see {@link #parseCodeLimits}.
+ */
+public class ClassFileParser {
+
+    private static final int MAGIC = 0xCAFEBABE;
+
+    private static final int CONSTANT_UTF8 = 1;
+    private static final int CONSTANT_INTEGER = 3;
+    private static final int CONSTANT_FLOAT = 4;
+    private static final int CONSTANT_LONG = 5;
+    private static final int CONSTANT_DOUBLE = 6;
+    private static final int CONSTANT_CLASS = 7;
+    private static final int CONSTANT_STRING = 8;
+    private static final int CONSTANT_FIELDREF = 9;
+    private static final int CONSTANT_METHODREF = 10;
+    private static final int CONSTANT_INTERFACE_METHODREF = 11;
+    private static final int CONSTANT_NAME_AND_TYPE = 12;
+    private static final int CONSTANT_METHOD_HANDLE = 15;
+    private static final int CONSTANT_METHOD_TYPE = 16;
+    private static final int CONSTANT_DYNAMIC = 17;
+    private static final int CONSTANT_INVOKE_DYNAMIC = 18;
+    private static final int CONSTANT_MODULE = 19;
+    private static final int CONSTANT_PACKAGE = 20;
+
+    private final DataInputStream input;
+    // UTF-8 entries of the constant pool, by index
+    private String[] utf8;
+    // For CONSTANT_Class entries, the index of their name, by index
+    private int[] classNames;
+
+    private ClassFileParser(byte[] bytes) {
+        this.input = new DataInputStream(new ByteArrayInputStream(bytes));
+    }
+
+    /**
+     * The max_stack and max_locals of the code of a method.
+     */
+    public record CodeLimits(String method, int maxStack, int maxLocals) {
+    }
+
+    static ClassInfo parse(byte[] bytes) throws IOException {
+        return new ClassFileParser(bytes).parse();
+    }
+
+    /**
+     * @return the limits of the code of each method that has code, in the order of the class file
+     */
+    public static List<CodeLimits> parseCodeLimits(byte[] bytes) throws IOException {
+        return new ClassFileParser(bytes).parseCodeLimits();
+    }
+
+    private ClassInfo parse() throws IOException {
+        readHeader();
+
+        var access = input.readUnsignedShort();
+        var name = getClassName(input.readUnsignedShort());
+        var superIndex = input.readUnsignedShort();
+        var superName = superIndex == 0 ? null : getClassName(superIndex);
+
+        var numInterfaces = input.readUnsignedShort();
+        var interfaces = new ArrayList<String>(numInterfaces);
+        for (int i = 0; i < numInterfaces; i++) {
+            interfaces.add(getClassName(input.readUnsignedShort()));
+        }
+
+        var fields = readMembers();
+        var methods = readMembers();
+
+        return new ClassInfo(name, superName, interfaces, access, fields, methods);
+    }
+
+    private List<CodeLimits> parseCodeLimits() throws IOException {
+        readHeader();
+
+        // Access flags, class, superclass and interfaces
+        input.skipNBytes(6);
+        input.skipNBytes(2L * input.readUnsignedShort());
+
+        // Fields
+        readMembers();
+
+        var count = input.readUnsignedShort();
+        var limits = new ArrayList<CodeLimits>(count);
+
+        for (int i = 0; i < count; i++) {
+            // Access flags
+            input.readUnsignedShort();
+            var name = utf8[input.readUnsignedShort()];
+            // Descriptor
+            input.readUnsignedShort();
+
+            var numAttributes = input.readUnsignedShort();
+            for (int j = 0; j < numAttributes; j++) {
+                var attribute = utf8[input.readUnsignedShort()];
+                var length = Integer.toUnsignedLong(input.readInt());
+
+                if (!attribute.equals("Code")) {
+                    input.skipNBytes(length);
+                    continue;
+                }
+
+                limits.add(new CodeLimits(name, input.readUnsignedShort(), input.readUnsignedShort()));
+                input.skipNBytes(length - 4);
+            }
+        }
+
+        return limits;
+    }
+
+    private void readHeader() throws IOException {
+        if (input.readInt() != MAGIC) {
+            throw new IOException("Not a class file");
+        }
+
+        // Minor and major version
+        input.readUnsignedShort();
+        input.readUnsignedShort();
+
+        readConstantPool();
+    }
+
+    private void readConstantPool() throws IOException {
+        var count = input.readUnsignedShort();
+        utf8 = new String[count];
+        classNames = new int[count];
+
+        for (int i = 1; i < count; i++) {
+            var tag = input.readUnsignedByte();
+
+            switch (tag) {
+                case CONSTANT_UTF8 -> utf8[i] = input.readUTF();
+                case CONSTANT_CLASS -> classNames[i] = input.readUnsignedShort();
+                case CONSTANT_STRING, CONSTANT_METHOD_TYPE, CONSTANT_MODULE, CONSTANT_PACKAGE -> input.skipNBytes(2);
+                case CONSTANT_METHOD_HANDLE -> input.skipNBytes(3);
+                case CONSTANT_INTEGER, CONSTANT_FLOAT, CONSTANT_FIELDREF, CONSTANT_METHODREF,
+                     CONSTANT_INTERFACE_METHODREF, CONSTANT_NAME_AND_TYPE, CONSTANT_DYNAMIC,
+                     CONSTANT_INVOKE_DYNAMIC -> input.skipNBytes(4);
+                case CONSTANT_LONG, CONSTANT_DOUBLE -> {
+                    // Eight byte constants take two entries of the pool
+                    input.skipNBytes(8);
+                    i++;
+                }
+                default -> throw new IOException("Unknown constant pool tag " + tag + " at index " + i);
+            }
+        }
+    }
+
+    private List<MemberInfo> readMembers() throws IOException {
+        var count = input.readUnsignedShort();
+        var members = new ArrayList<MemberInfo>(count);
+
+        for (int i = 0; i < count; i++) {
+            var access = input.readUnsignedShort();
+            var name = utf8[input.readUnsignedShort()];
+            var descriptor = utf8[input.readUnsignedShort()];
+            skipAttributes();
+
+            members.add(new MemberInfo(name, descriptor, access));
+        }
+
+        return members;
+    }
+
+    private void skipAttributes() throws IOException {
+        var count = input.readUnsignedShort();
+
+        for (int i = 0; i < count; i++) {
+            // Name of the attribute
+            input.readUnsignedShort();
+            input.skipNBytes(Integer.toUnsignedLong(input.readInt()));
+        }
+    }
+
+    private String getClassName(int index) {
+        return utf8[classNames[index]];
+    }
+}
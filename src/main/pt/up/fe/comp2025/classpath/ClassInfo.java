@@ -0,0 +1,59 @@
+package pt.up.fe.comp2025.classpath;
+
+import java.util.List;
+
+/**
+ * The declarations of a class file: its supertypes, fields and methods, without code.
+ *
+ * @param name       internal name of the class, e.g. 'inheritanceAB/B'
+ * @param superName  internal name of the superclass, or null for java/lang/Object
+ * @param interfaces internal names of the implemented interfaces
+ * @param access     access flags of the class file
+ */
+public record ClassInfo(String name, String superName, List<String> interfaces, int access,
+                        List<MemberInfo> fields, List<MemberInfo> methods) {
+
+    public static final int ACC_FINAL = 0x0010;
+    public static final int ACC_INTERFACE = 0x0200;
+
+    public ClassInfo {
+        interfaces = List.copyOf(interfaces);
+        fields = List.copyOf(fields);
+        methods = List.copyOf(methods);
+    }
+
+    public boolean isFinal() {
+        return (access & ACC_FINAL) != 0;
+    }
+
+    public boolean isInterface() {
+        return (access & ACC_INTERFACE) != 0;
+    }
+
+    /**
+     * @return the simple name of the class, e.g. 'B' for 'inheritanceAB/B'
+     */
+    public String getSimpleName() {
+        return name.substring(name.lastIndexOf('/') + 1);
+    }
+
+    /**
+     * @return the methods declared in this class with the given name
+     */
+    public List<MemberInfo> getMethods(String methodName) {
+        return methods.stream().filter(method -> method.name().equals(methodName)).toList();
+    }
+
+    /**
+     * @return the field declared in this class with the given name, or null if there is none
+     */
+    public MemberInfo getField(String fieldName) {
+        for (var field : fields) {
+            if (field.name().equals(fieldName)) {
+                return field;
+            }
+        }
+
+        return null;
+    }
+}
@@ -0,0 +1,532 @@
+package pt.up.fe.comp2025.classpath;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
+import pt.up.fe.comp2025.metrics.CompilerLog;
+import pt.up.fe.comp2025.metrics.CompilerLog.Category;
+import pt.up.fe.comp2025.metrics.CompilerLog.Level;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+import java.util.zip.ZipFile;
+
+/**
+ * Index of the classes that compiled code can import, read from the class files of a classpath of folders and jars.
+ * <p>
+ * Classes are read the first time they are needed, and only their declarations are kept (supertypes, fields and
+ * methods, see {@link ClassInfo}), so a compilation only reads the classes it imports and their supertypes. Classes of
+ * the JDK (e.g. java/lang/Object) are read from the running JVM.
+ * <p>
+ * The index can be saved to a file, usually in the folder of the compilation cache, and loaded by the next run. A saved
+ * class is only reused if its class file (or jar) still has the same size and modification time, otherwise it is read
+ * again.
+ * <p>
+ * The index is shared by every compilation of the process, see {@link #getDefault()}, and can be used by several
+ * threads. Long-running compilers call {@link #refresh()} before each batch or compilation to see changes to the
+ * classpath.
+ */
+public class ClasspathIndex {
+
+    public static final String DEFAULT_CLASSPATH = "libs-jmm/compiled";
+    public static final String INDEX_FILE = "classpath-index.json";
+
+    private static final int FORMAT_VERSION = 1;
+
+    private static volatile ClasspathIndex defaultIndex;
+
+    private final List<File> roots;
+    private final File indexFile;
+    // Saved classes, including classes read in this run, by internal name
+    private final Map<String, Entry> entries;
+    // Held to read from the jars, and held exclusively to replace them
+    private final ReadWriteLock jarsLock;
+    // Classes that were looked up, empty for classes that are not in the classpath. Replaced when the classpath changes
+    private volatile Map<String, Optional<ClassInfo>> classes;
+    private volatile Map<File, ZipFile> jars;
+    private volatile boolean modified;
+    private volatile String fingerprint;
+
+    /**
+     * A class of the saved index, with the size and modification time of the file it was read from.
+     */
+    private record Entry(String source, long size, long lastModified, ClassInfo info) {
+    }
+
+    private record SavedIndex(int version, List<String> roots, List<Entry> entries) {
+    }
+
+    /**
+     * @param roots     folders and jars, searched in order
+     * @param indexFile file where the index is loaded from and saved to, or null to not save it
+     */
+    public ClasspathIndex(List<File> roots, File indexFile) {
+        this.roots = List.copyOf(roots);
+        this.indexFile = indexFile;
+        this.entries = new ConcurrentHashMap<>();
+        this.jarsLock = new ReentrantReadWriteLock();
+        this.classes = new ConcurrentHashMap<>();
+        this.jars = new ConcurrentHashMap<>();
+
+        if (indexFile != null) {
+            load();
+        }
+    }
+
+    /**
+     * @return the index of the process, by default over {@link #DEFAULT_CLASSPATH} and not saved
+     */
+    public static ClasspathIndex getDefault() {
+        var index = defaultIndex;
+
+        if (index == null) {
+            synchronized (ClasspathIndex.class) {
+                if (defaultIndex == null) {
+                    defaultIndex = new ClasspathIndex(List.of(new File(DEFAULT_CLASSPATH)), null);
+                }
+                index = defaultIndex;
+            }
+        }
+
+        return index;
+    }
+
+    /**
+     * Replaces the index of the process.
+     */
+    public static void configure(List<File> roots, File indexFile) {
+        var previous = defaultIndex;
+        defaultIndex = new ClasspathIndex(roots, indexFile);
+
+        if (previous != null) {
+            previous.close();
+        }
+    }
+
+    /**
+     * @param className dotted (e.g. 'inheritanceAB.B') or internal (e.g. 'inheritanceAB/B') name of a class
+     * @return the declarations of the class, or null if it is not in the classpath
+     */
+    public ClassInfo getClass(String className) {
+        return classes.computeIfAbsent(className.replace('.', '/'), this::read).orElse(null);
+    }
+
+    /**
+     * @return true if the class and all of its supertypes are in the classpath, in which case its methods and fields
+     * are all known
+     */
+    public boolean isHierarchyKnown(String className) {
+        return isHierarchyKnown(className.replace('.', '/'), new HashSet<>());
+    }
+
+    private boolean isHierarchyKnown(String className, Set<String> visited) {
+        if (!visited.add(className)) {
+            return true;
+        }
+
+        var info = getClass(className);
+        if (info == null) {
+            return false;
+        }
+
+        if (info.superName() != null && !isHierarchyKnown(info.superName(), visited)) {
+            return false;
+        }
+
+        for (var anInterface : info.interfaces()) {
+            if (!isHierarchyKnown(anInterface, visited)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * @return the internal names of the superclasses of the class, starting with its direct superclass, as far as they
+     * are in the classpath
+     */
+    public List<String> getSuperClasses(String className) {
+        var superClasses = new ArrayList<String>();
+        var info = getClass(className);
+
+        while (info != null && info.superName() != null && !superClasses.contains(info.superName())) {
+            superClasses.add(info.superName());
+            info = getClass(info.superName());
+        }
+
+        return superClasses;
+    }
+
+    /**
+     * @return the methods with the given name of the class and of its supertypes, in the order they are found (the
+     * class, its superclasses, then the interfaces)
+     */
+    public List<MemberInfo> findMethods(String className, String methodName) {
+        var methods = new ArrayList<MemberInfo>();
+        findMethods(className.replace('.', '/'), methodName, methods, new HashSet<>());
+        return methods;
+    }
+
+    private void findMethods(String className, String methodName, List<MemberInfo> methods, Set<String> visited) {
+        if (!visited.add(className)) {
+            return;
+        }
+
+        var info = getClass(className);
+        if (info == null) {
+            return;
+        }
+
+        methods.addAll(info.getMethods(methodName));
+
+        if (info.superName() != null) {
+            findMethods(info.superName(), methodName, methods, visited);
+        }
+
+        for (var anInterface : info.interfaces()) {
+            findMethods(anInterface, methodName, methods, visited);
+        }
+    }
+
+    /**
+     * Chooses the method that a call refers to, from the descriptors of its arguments. A method whose parameters are
+     * the same is chosen, otherwise the only method with the same number of parameters where every parameter is either
+     * the same or also a reference (the types of references are not always known when generating code).
+     *
+     * @param argumentDescriptors descriptors of the types of the arguments, e.g. ["I", "Ljava/lang/String;"]
+     * @return the method, or null if there is none or it is ambiguous
+     */
+    public MemberInfo resolveMethod(String className, String methodName, List<String> argumentDescriptors) {
+        var methods = findMethods(className, methodName);
+        var parameters = "(" + String.join("", argumentDescriptors) + ")";
+
+        for (var method : methods) {
+            if (method.getParameterDescriptor().equals(parameters)) {
+                return method;
+            }
+        }
+
+        MemberInfo found = null;
+        for (var method : methods) {
+            if (!isCompatible(method, argumentDescriptors)) {
+                continue;
+            }
+
+            // Overrides of the same method in a superclass have the same descriptor
+            if (found != null && !found.descriptor().equals(method.descriptor())) {
+                return null;
+            }
+            found = method;
+        }
+
+        return found;
+    }
+
+    private static boolean isCompatible(MemberInfo method, List<String> argumentDescriptors) {
+        var parameters = splitParameters(method.getParameterDescriptor());
+        if (parameters.size() != argumentDescriptors.size()) {
+            return false;
+        }
+
+        for (int i = 0; i < parameters.size(); i++) {
+            var parameter = parameters.get(i);
+            var argument = argumentDescriptors.get(i);
+
+            if (!parameter.equals(argument) && !(isReference(parameter) && isReference(argument))) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private static boolean isReference(String descriptor) {
+        return descriptor.startsWith("L") || descriptor.startsWith("[");
+    }
+
+    /**
+     * @param parameterDescriptor e.g. '(I[ILjava/lang/String;)'
+     * @return the descriptor of each parameter, e.g. ["I", "[I", "Ljava/lang/String;"]
+     */
+    static List<String> splitParameters(String parameterDescriptor) {
+        var parameters = new ArrayList<String>();
+        int i = 1;
+
+        while (parameterDescriptor.charAt(i) != ')') {
+            var start = i;
+            while (parameterDescriptor.charAt(i) == '[') {
+                i++;
+            }
+            i = parameterDescriptor.charAt(i) == 'L' ? parameterDescriptor.indexOf(';', i) + 1 : i + 1;
+            parameters.add(parameterDescriptor.substring(start, i));
+        }
+
+        return parameters;
+    }
+
+    /**
+     * Identifies the contents of the classpath, to be part of the key of compilation results that depend on it. It is
+     * computed from the size and modification time of the class files and jars the first time it is needed, and again
+     * on each {@link #refresh()}.
+     */
+    public String getFingerprint() {
+        var value = fingerprint;
+        if (value == null) {
+            synchronized (this) {
+                if (fingerprint == null) {
+                    fingerprint = computeFingerprint();
+                }
+                value = fingerprint;
+            }
+        }
+
+        return value;
+    }
+
+    /**
+     * Computes the fingerprint again, which walks the folders of the classpath, so that long-running compilers (watch
+     * and server modes) see changes to it. Call it once per batch or compilation, not for each lookup. When the
+     * classpath changed, the classes that were looked up are forgotten and read again, and the jars are opened again.
+     */
+    public synchronized void refresh() {
+        var previous = fingerprint;
+        fingerprint = computeFingerprint();
+
+        if (previous == null || previous.equals(fingerprint)) {
+            return;
+        }
+
+        // Saved entries are checked against their files when read again. Lookups that are still running finish with
+        // the old maps, and the old jars are closed once they finished reading from them.
+        classes = new ConcurrentHashMap<>();
+
+        jarsLock.writeLock().lock();
+        try {
+            closeJars(jars);
+            jars = new ConcurrentHashMap<>();
+        } finally {
+            jarsLock.writeLock().unlock();
+        }
+    }
+
+    private String computeFingerprint() {
+        var builder = new StringBuilder();
+
+        for (var root : roots) {
+            builder.append(root.getAbsolutePath()).append(';');
+
+            if (root.isDirectory()) {
+                try (Stream<Path> paths = Files.walk(root.toPath())) {
+                    var files = paths.filter(path -> path.toString().endsWith(".class"))
+                            .map(Path::toFile)
+                            .toList();
+
+                    long lastModified = 0;
+                    long size = 0;
+                    for (var file : files) {
+                        lastModified = Math.max(lastModified, file.lastModified());
+                        size += file.length();
+                    }
+                    builder.append(files.size()).append(':').append(size).append(':').append(lastModified);
+                } catch (IOException e) {
+                    builder.append("unreadable");
+                }
+            } else {
+                builder.append(root.length()).append(':').append(root.lastModified());
+            }
+
+            builder.append(';');
+        }
+
+        return builder.toString();
+    }
+
+    /**
+     * Saves the index, if it has a file and classes were read since it was loaded. The index is written to a temporary
+     * file and then moved, so compilers that run at the same time never read a partial index.
+     */
+    public void save() {
+        if (indexFile == null || !modified) {
+            return;
+        }
+
+        var saved = new SavedIndex(FORMAT_VERSION, rootPaths(), new ArrayList<>(entries.values()));
+
+        try {
+            var folder = indexFile.getAbsoluteFile().getParentFile().toPath();
+            Files.createDirectories(folder);
+
+            var temp = Files.createTempFile(folder, INDEX_FILE, ".tmp");
+            try {
+                Files.writeString(temp, newGson().toJson(saved), StandardCharsets.UTF_8);
+                move(temp, indexFile.toPath());
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+
+            modified = false;
+        } catch (IOException e) {
+            CompilerLog.log(Category.CLASSPATH, Level.WARN, "Could not save the classpath index to '" + indexFile
+                    + "': " + e.getMessage());
+        }
+    }
+
+    /**
+     * Closes the jars of the classpath.
+     */
+    public void close() {
+        jarsLock.writeLock().lock();
+        try {
+            closeJars(jars);
+            jars = new ConcurrentHashMap<>();
+        } finally {
+            jarsLock.writeLock().unlock();
+        }
+    }
+
+    private static void closeJars(Map<File, ZipFile> jars) {
+        for (var jar : jars.values()) {
+            try {
+                jar.close();
+            } catch (IOException e) {
+                // Only read from
+            }
+        }
+    }
+
+    private void load() {
+        if (!indexFile.isFile()) {
+            return;
+        }
+
+        try {
+            var saved = newGson().fromJson(Files.readString(indexFile.toPath(), StandardCharsets.UTF_8),
+                    SavedIndex.class);
+
+            // An index of another classpath could find classes in other places
+            if (saved == null || saved.version() != FORMAT_VERSION || !rootPaths().equals(saved.roots())) {
+                return;
+            }
+
+            for (var entry : saved.entries()) {
+                entries.put(entry.info().name(), entry);
+            }
+        } catch (IOException | JsonParseException e) {
+            CompilerLog.log(Category.CLASSPATH, Level.WARN, "Ignoring the classpath index '" + indexFile
+                    + "': " + e.getMessage());
+        }
+    }
+
+    private Optional<ClassInfo> read(String className) {
+        var fileName = className + ".class";
+
+        jarsLock.readLock().lock();
+        try {
+            var openJars = jars;
+
+            for (var root : roots) {
+                if (root.isDirectory()) {
+                    var file = new File(root, fileName);
+                    if (file.isFile()) {
+                        return Optional.of(read(className, file, file.length(), file.lastModified(),
+                                () -> Files.newInputStream(file.toPath())));
+                    }
+                } else if (root.isFile()) {
+                    var jar = openJars.computeIfAbsent(root, ClasspathIndex::openJar);
+                    var jarEntry = jar == null ? null : jar.getEntry(fileName);
+                    if (jarEntry != null) {
+                        return Optional.of(read(className, root, root.length(), root.lastModified(),
+                                () -> jar.getInputStream(jarEntry)));
+                    }
+                }
+            }
+
+            // The supertypes of the classes of the classpath usually end in classes of the JDK
+            if (className.startsWith("java/")) {
+                try (var in = ClassLoader.getSystemResourceAsStream(fileName)) {
+                    if (in != null) {
+                        return Optional.of(ClassFileParser.parse(in.readAllBytes()));
+                    }
+                }
+            }
+        } catch (IOException e) {
+            CompilerLog.log(Category.CLASSPATH, Level.WARN, "Could not read class '" + className + "': "
+                    + e.getMessage());
+        } finally {
+            jarsLock.readLock().unlock();
+        }
+
+        return Optional.empty();
+    }
+
+    private interface Opener {
+        InputStream open() throws IOException;
+    }
+
+    private ClassInfo read(String className, File source, long size, long lastModified, Opener opener)
+            throws IOException {
+        var path = source.getAbsolutePath();
+        var saved = entries.get(className);
+
+        if (saved != null && saved.source().equals(path) && saved.size() == size
+                && saved.lastModified() == lastModified) {
+            return saved.info();
+        }
+
+        ClassInfo info;
+        try (var in = opener.open()) {
+            info = ClassFileParser.parse(in.readAllBytes());
+        }
+
+        if (CompilerLog.isEnabled(Category.CLASSPATH, Level.DEBUG)) {
+            CompilerLog.log(Category.CLASSPATH, Level.DEBUG, "Indexed class " + className + " from " + path);
+        }
+
+        entries.put(className, new Entry(path, size, lastModified, info));
+        modified = true;
+
+        return info;
+    }
+
+    private static ZipFile openJar(File jar) {
+        try {
+            return new ZipFile(jar);
+        } catch (IOException e) {
+            CompilerLog.log(Category.CLASSPATH, Level.WARN, "Could not open jar '" + jar + "': " + e.getMessage());
+            return null;
+        }
+    }
+
+    private List<String> rootPaths() {
+        return roots.stream().map(File::getAbsolutePath).toList();
+    }
+
+    private static Gson newGson() {
+        return new GsonBuilder().disableHtmlEscaping().create();
+    }
+
+    private static void move(Path temp, Path target) throws IOException {
+        try {
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+}
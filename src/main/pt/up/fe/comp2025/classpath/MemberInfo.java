@@ -0,0 +1,59 @@
+package pt.up.fe.comp2025.classpath;
+
+/**
+ * A field or method of a class file.
+ *
+ * @param name       name of the member
+ * @param descriptor JVM descriptor, e.g. '(Ljava/lang/String;I)V' for a method or 'I' for a field
+ * @param access     access flags of the class file
+ */
+public record MemberInfo(String name, String descriptor, int access) {
+
+    public static final int ACC_STATIC = 0x0008;
+    public static final int ACC_FINAL = 0x0010;
+    public static final int ACC_VARARGS = 0x0080;
+
+    public boolean isStatic() {
+        return (access & ACC_STATIC) != 0;
+    }
+
+    public boolean isFinal() {
+        return (access & ACC_FINAL) != 0;
+    }
+
+    public boolean isVarargs() {
+        return (access & ACC_VARARGS) != 0;
+    }
+
+    /**
+     * @return the descriptors of the parameters of a method, e.g. '(Ljava/lang/String;I)' for '(Ljava/lang/String;I)V'
+     */
+    public String getParameterDescriptor() {
+        return descriptor.substring(0, descriptor.indexOf(')') + 1);
+    }
+
+    /**
+     * @return the descriptor of the return type of a method, e.g. 'V'
+     */
+    public String getReturnDescriptor() {
+        return descriptor.substring(descriptor.indexOf(')') + 1);
+    }
+
+    /**
+     * @return the number of parameters of a method
+     */
+    public int getNumParameters() {
+        int count = 0;
+        int i = 1;
+
+        while (descriptor.charAt(i) != ')') {
+            while (descriptor.charAt(i) == '[') {
+                i++;
+            }
+            i = descriptor.charAt(i) == 'L' ? descriptor.indexOf(';', i) + 1 : i + 1;
+            count++;
+        }
+
+        return count;
+    }
+}
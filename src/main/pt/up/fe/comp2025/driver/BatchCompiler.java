@@ -0,0 +1,252 @@
+package pt.up.fe.comp2025.driver;
+
+import pt.up.fe.comp.jmm.jasmin.JasminResult;
+import pt.up.fe.comp.jmm.report.Report;
+import pt.up.fe.comp.jmm.report.ReportType;
+import pt.up.fe.comp.jmm.report.Stage;
+import pt.up.fe.comp2025.CompilerConfig;
+import pt.up.fe.comp2025.backend.ClassFileResult;
+import pt.up.fe.comp2025.classpath.ClasspathIndex;
+import pt.up.fe.comp2025.metrics.CompilerLog;
+import pt.up.fe.comp2025.metrics.CompilerLog.Category;
+import pt.up.fe.comp2025.metrics.CompilerLog.Level;
+import pt.up.fe.comp2025.parser.ParserWarmup;
+import pt.up.fe.specs.util.SpecsIo;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Stream;
+
+/**
+ * Compiles many sources in a single JVM, using a bounded pool of worker threads.
+ * <p>
+ * The input of the batch (option '-b') can be a folder (all .jmm files inside it, recursively), a glob pattern
+ * (e.g. 'inputs/**&#47;*.jmm') or a list file prefixed with '@', with one path per line (relative paths are resolved
+ * against the working directory).
+ */
+public class BatchCompiler {
+
+    private static final int WARMUP_ROUNDS = 3;
+
+    private final Map<String, String> config;
+    private final CompilationPipeline pipeline;
+
+    public BatchCompiler(Map<String, String> config) {
+        this.config = config;
+        this.pipeline = new CompilationPipeline(CompilationCache.fromConfig(config));
+    }
+
+    /**
+     * Compiles all the files of the batch and prints a summary.
+     *
+     * @return the results of each file, in the same order as the input files
+     */
+    public List<CompilationResult> run() {
+        var batch = CompilerConfig.getBatch(config)
+                .orElseThrow(() -> new RuntimeException("Batch mode expects option '-b'"));
+
+        var files = collectFiles(batch);
+        var threads = CompilerConfig.getThreads(config);
+
+        if (CompilerConfig.getWarmup(config)) {
+            var warmupStart = System.nanoTime();
+            ParserWarmup.warmUp(WARMUP_ROUNDS);
+            CompilerLog.log(Category.DRIVER, Level.INFO,
+                    String.format("Parser warm-up: %.3fs", (System.nanoTime() - warmupStart) / 1e9));
+        }
+
+        var start = System.nanoTime();
+        var results = compile(files, threads);
+        var wallNanos = System.nanoTime() - start;
+
+        printSummary(results, wallNanos, threads);
+
+        return results;
+    }
+
+    public List<CompilationResult> compile(List<File> files, int threads) {
+        // The classpath is checked for changes once for the whole batch, not for each file
+        ClasspathIndex.getDefault().refresh();
+
+        var tasks = new ArrayList<Callable<CompilationResult>>();
+        for (var file : files) {
+            tasks.add(() -> pipeline.compile(file, config));
+        }
+
+        List<CompilationResult> results;
+        var pool = new ForkJoinPool(threads);
+        try {
+            results = new ArrayList<>();
+            for (var future : pool.invokeAll(tasks)) {
+                results.add(future.get());
+            }
+        } catch (InterruptedException | ExecutionException e) {
+            throw new RuntimeException("Batch compilation was interrupted", e);
+        } finally {
+            pool.shutdown();
+        }
+
+        var outputDir = CompilerConfig.getOutputDir(config).orElse(null);
+        if (outputDir != null) {
+            results = writeOutputs(results, outputDir);
+        }
+
+        return results;
+    }
+
+    /**
+     * Writes the output of each successful result, in the order of the input files. Outputs are named after their
+     * class, so a file that declares the same class as a previous one is not written, and its result gets an error.
+     */
+    private static List<CompilationResult> writeOutputs(List<CompilationResult> results, File outputDir) {
+        var classSources = new HashMap<String, File>();
+        var checkedResults = new ArrayList<CompilationResult>();
+
+        for (var result : results) {
+            if (result.hasErrors()) {
+                checkedResults.add(result);
+                continue;
+            }
+
+            var jasminResult = result.getJasminResult().get();
+            var previousSource = classSources.putIfAbsent(jasminResult.getClassName(), result.getSource());
+            if (previousSource != null) {
+                checkedResults.add(result.withReport(Report.newError(Stage.GENERATION, -1, -1,
+                        "Class '" + jasminResult.getClassName() + "' is also declared in '" + previousSource
+                                + "', its output was not written", null)));
+                continue;
+            }
+
+            writeOutput(jasminResult, outputDir);
+            checkedResults.add(result);
+        }
+
+        return checkedResults;
+    }
+
+    /**
+     * Writes the Jasmin code of the result to the given folder, or the class file if it came from the class file
+     * backend.
+     */
+    static void writeOutput(JasminResult jasminResult, File outputDir) {
+        if (jasminResult instanceof ClassFileResult) {
+            jasminResult.compile(outputDir);
+        } else {
+            SpecsIo.write(new File(outputDir, jasminResult.getClassName() + ".j"), jasminResult.getJasminCode());
+        }
+    }
+
+    private void printSummary(List<CompilationResult> results, long wallNanos, int threads) {
+        long totalNanos = 0;
+        int failures = 0;
+
+        for (var result : results) {
+            totalNanos += result.getDurationNanos();
+
+            if (!result.hasErrors()) {
+                continue;
+            }
+
+            failures++;
+            CompilerLog.log(Category.DRIVER, Level.INFO, "Failed: " + result.getSource());
+            result.getReports().stream()
+                    .filter(report -> report.getType() == ReportType.ERROR)
+                    .forEach(report -> CompilerLog.log(Category.DRIVER, Level.INFO, "    " + report));
+        }
+
+        var wallSeconds = wallNanos / 1e9;
+
+        CompilerLog.log(Category.DRIVER, Level.INFO, "");
+        var cacheHits = results.stream().filter(CompilationResult::isCached).count();
+        var cacheSummary = CompilerConfig.getCache(config).isPresent() ? ", " + cacheHits + " from cache" : "";
+
+        CompilerLog.log(Category.DRIVER, Level.INFO, "Compiled " + results.size() + " file(s) with " + threads
+                + " thread(s), " + failures + " failure(s)" + cacheSummary);
+        var parser = pipeline.getParser();
+        if (parser.getParseCount() > 0) {
+            CompilerLog.log(Category.DRIVER, Level.INFO, "Parsing: " + parser.getLlFallbackCount() + " of "
+                    + parser.getParseCount() + " file(s) needed the full LL fallback");
+        }
+        CompilerLog.log(Category.DRIVER, Level.INFO,
+                String.format("Wall time: %.3fs, throughput: %.1f files/s, sum of per-file times: %.3fs",
+                        wallSeconds, results.size() / Math.max(wallSeconds, 1e-9), totalNanos / 1e9));
+
+        // Recent diagnostic messages, if they are being kept, help to understand the failures
+        if (failures > 0) {
+            CompilerLog.dumpBuffer(System.err);
+        }
+    }
+
+    /**
+     * Resolves the batch input into a list of files.
+     *
+     * @param batch a folder, a glob pattern or a list file prefixed with '@'
+     * @return the files to compile, sorted by path
+     */
+    public static List<File> collectFiles(String batch) {
+        // List file, one path per line
+        if (batch.startsWith("@")) {
+            var listFile = new File(batch.substring(1));
+
+            return SpecsIo.read(listFile).lines()
+                    .map(String::strip)
+                    .filter(line -> !line.isEmpty() && !line.startsWith("#"))
+                    .map(File::new)
+                    .toList();
+        }
+
+        // Folder, all .jmm files inside it
+        var folder = new File(batch);
+        if (folder.isDirectory()) {
+            return sorted(SpecsIo.getFilesRecursive(folder, "jmm"));
+        }
+
+        // Glob pattern, relative to the part of the path that has no wildcards
+        var root = globRoot(batch);
+        var matcher = FileSystems.getDefault().getPathMatcher("glob:" + batch);
+
+        try (Stream<Path> paths = Files.walk(root)) {
+            return sorted(paths.filter(Files::isRegularFile)
+                    .filter(path -> matcher.matches(path) || matcher.matches(path.normalize()))
+                    .map(Path::toFile)
+                    .toList());
+        } catch (IOException e) {
+            throw new RuntimeException("Could not expand batch input '" + batch + "'", e);
+        }
+    }
+
+    private static Path globRoot(String glob) {
+        var root = Paths.get("");
+
+        for (var part : Paths.get(glob)) {
+            if (part.toString().matches(".*[*?\\[{].*")) {
+                break;
+            }
+            root = root.resolve(part);
+        }
+
+        // Absolute patterns keep their root
+        if (Paths.get(glob).isAbsolute()) {
+            root = Paths.get(glob).getRoot().resolve(root);
+        }
+
+        return Files.isDirectory(root) ? root : Paths.get("");
+    }
+
+    private static List<File> sorted(List<File> files) {
+        var sortedFiles = new ArrayList<>(files);
+        sortedFiles.sort(null);
+        return sortedFiles;
+    }
+}
@@ -0,0 +1,518 @@
+package pt.up.fe.comp2025.driver;
+
+import pt.up.fe.comp.jmm.analysis.JmmSemanticsResult;
+import pt.up.fe.comp.jmm.jasmin.JasminResult;
+import pt.up.fe.comp.jmm.ollir.OllirResult;
+import pt.up.fe.comp.jmm.report.Report;
+import pt.up.fe.comp.jmm.report.ReportType;
+import pt.up.fe.comp.jmm.report.Stage;
+import pt.up.fe.comp2025.CompilerConfig;
+import pt.up.fe.comp2025.ConfigOptions;
+import pt.up.fe.comp2025.ast.AstSnapshot;
+import pt.up.fe.comp2025.backend.ClassFileResult;
+import pt.up.fe.comp2025.backend.JasminGenerator;
+import pt.up.fe.comp2025.classpath.ClasspathIndex;
+import pt.up.fe.comp2025.metrics.CompilerLog;
+import pt.up.fe.comp2025.metrics.CompilerLog.Category;
+import pt.up.fe.comp2025.metrics.CompilerLog.Level;
+import pt.up.fe.comp2025.utils.ReportUtils;
+
+import java.io.*;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Persistent cache of compilation results, shared between runs of the compiler.
+ * <p>
+ * Entries are addressed by a SHA-256 hash of the source code, of the options that change the generated code
+ * ('optimize', 'registerAllocation', 'classFile' and 'directOllir'), of the classpath and of the version of the
+ * compiler, so a changed source, option, imported class or compiler never reuses an old entry. Each entry keeps the
+ * OLLIR code, the Jasmin code or the class file, and the reports of a compilation without errors.
+ * <p>
+ * The cache also keeps a snapshot of the front end of each source ({@link AstSnapshot}), addressed without the
+ * back-end options, so compiling a source again with other back-end options skips parsing and semantic analysis.
+ * <p>
+ * Entries are written to a temporary file and then moved to their final name, so several compilers (threads or
+ * processes) can share the same folder and never read a partial entry. When the folder grows beyond its maximum size,
+ * the least recently used entries are deleted.
+ */
+public class CompilationCache {
+
+    private static final int FORMAT_VERSION = 1;
+    private static final String ENTRY_EXTENSION = ".entry";
+    private static final String SNAPSHOT_EXTENSION = ".snapshot";
+    private static final String TEMP_EXTENSION = ".tmp";
+
+    // Temporary files older than this were left by a compiler that did not finish writing them
+    private static final long STALE_TEMP_MS = 60 * 60 * 1000;
+
+    private static volatile String compilerVersion;
+
+    private final Path folder;
+    private final long maxBytes;
+
+    // Approximate size of the folder, only recomputed when it goes over the limit
+    private final AtomicLong currentBytes;
+
+    public CompilationCache(File folder, long maxBytes) {
+        this.folder = folder.toPath();
+        this.maxBytes = maxBytes;
+        this.currentBytes = new AtomicLong(-1);
+    }
+
+    /**
+     * Creates the cache chosen by the option '-cache', or returns null if caching is disabled.
+     */
+    public static CompilationCache fromConfig(Map<String, String> config) {
+        return CompilerConfig.getCache(config)
+                .map(folder -> new CompilationCache(folder, CompilerConfig.getCacheSize(config)))
+                .orElse(null);
+    }
+
+    /**
+     * Keys of a source in the cache.
+     *
+     * @param result   key of the compilation result, which depends on the options that change the generated code
+     * @param snapshot key of the snapshot of the front end, which does not depend on the back-end options
+     */
+    public record Key(String result, String snapshot) {
+    }
+
+    /**
+     * @return the keys of the entries that correspond to compiling the given code with the given config
+     */
+    public Key key(String code, Map<String, String> config) {
+        var digest = newDigest();
+        update(digest, code.getBytes(StandardCharsets.UTF_8));
+
+        return toKey(digest.digest(), config);
+    }
+
+    /**
+     * Same as {@link #key(String, Map)} for the contents of the file, which is read in blocks instead of as a single
+     * String. For an UTF-8 file, the key is the same as the key of its contents.
+     */
+    public Key key(File sourceFile, Map<String, String> config) {
+        var digest = newDigest();
+
+        try (var in = new BufferedInputStream(new FileInputStream(sourceFile))) {
+            digest.update(Long.toString(sourceFile.length()).getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) ':');
+
+            var buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Could not read file '" + sourceFile + "'", e);
+        }
+
+        return toKey(digest.digest(), config);
+    }
+
+    /**
+     * @param sourceHash hash of the source, which is only read once for both keys
+     */
+    private static Key toKey(byte[] sourceHash, Map<String, String> config) {
+        // Imported classes change the semantic errors and the descriptors of calls
+        var classpath = ClasspathIndex.getDefault().getFingerprint().getBytes(StandardCharsets.UTF_8);
+
+        var snapshot = newDigest();
+        update(snapshot, "snapshot".getBytes(StandardCharsets.UTF_8));
+        update(snapshot, classpath);
+        update(snapshot, sourceHash);
+
+        var result = newDigest();
+        update(result, Boolean.toString(CompilerConfig.getOptimize(config)).getBytes(StandardCharsets.UTF_8));
+        update(result, Integer.toString(CompilerConfig.getRegisterAllocation(config)).getBytes(StandardCharsets.UTF_8));
+        update(result, Boolean.toString(ConfigOptions.getClassFile(config)).getBytes(StandardCharsets.UTF_8));
+        update(result, Boolean.toString(CompilerConfig.getDirectOllir(config)).getBytes(StandardCharsets.UTF_8));
+        update(result, classpath);
+        update(result, sourceHash);
+
+        return new Key(HexFormat.of().formatHex(result.digest()), HexFormat.of().formatHex(snapshot.digest()));
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            var digest = MessageDigest.getInstance("SHA-256");
+
+            update(digest, ("jmm-cache-" + FORMAT_VERSION).getBytes(StandardCharsets.UTF_8));
+            update(digest, getCompilerVersion().getBytes(StandardCharsets.UTF_8));
+
+            return digest;
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException("SHA-256 is not available", e);
+        }
+    }
+
+    private static void update(MessageDigest digest, byte[] bytes) {
+        // The length keeps consecutive values from being ambiguous
+        digest.update(Integer.toString(bytes.length).getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) ':');
+        digest.update(bytes);
+    }
+
+    /**
+     * Reads an entry and marks it as recently used.
+     *
+     * @param keys   keys of the source
+     * @param source file that was compiled, or null
+     * @param config config of the compilation, given to the results
+     * @return the cached result, or null if there is no valid entry for the key
+     */
+    public CompilationResult get(Key keys, File source, Map<String, String> config) {
+        var start = System.nanoTime();
+        var key = keys.result();
+        var entry = entryPath(key, ENTRY_EXTENSION);
+
+        byte[] bytes;
+        try {
+            bytes = Files.readAllBytes(entry);
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            CompilerLog.log(Category.CACHE, Level.WARN, "Could not read compilation cache entry '" + entry + "': "
+                    + e.getMessage());
+            return null;
+        }
+
+        try (var in = new DataInputStream(new ByteArrayInputStream(bytes))) {
+            if (in.readInt() != FORMAT_VERSION || !in.readUTF().equals(key)) {
+                return null;
+            }
+
+            var className = in.readUTF();
+            var ollirCode = readString(in);
+            var jasminCode = in.readBoolean() ? readString(in) : null;
+            var classFile = in.readBoolean() ? in.readNBytes(in.readInt()) : null;
+
+            var reports = new ArrayList<Report>();
+            var numReports = in.readInt();
+            for (int i = 0; i < numReports; i++) {
+                reports.add(new Report(ReportType.valueOf(in.readUTF()), Stage.valueOf(in.readUTF()),
+                        in.readInt(), in.readInt(), readString(in)));
+            }
+
+            touch(entry);
+
+            JasminResult jasminResult;
+            if (classFile != null) {
+                // The Jasmin code is only generated if it is requested, from the cached OLLIR code
+                jasminResult = new ClassFileResult(className, classFile,
+                        () -> new JasminGenerator(new OllirResult(ollirCode, config)).build(), reports, config);
+            } else {
+                jasminResult = new JasminResult(className, jasminCode, reports, config);
+            }
+
+            return CompilationResult.fromCache(source, reports, ollirCode, jasminResult, System.nanoTime() - start);
+
+        } catch (IOException | IllegalArgumentException e) {
+            CompilerLog.log(Category.CACHE, Level.WARN, "Ignoring invalid compilation cache entry '" + entry + "': "
+                    + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Stores the result of a compilation. Results with errors are not stored.
+     */
+    public void put(Key keys, CompilationResult result) {
+        if (result.hasErrors() || result.getOllirCode().isEmpty()) {
+            return;
+        }
+
+        var key = keys.result();
+        var jasminResult = result.getJasminResult().get();
+        var bytes = new ByteArrayOutputStream();
+
+        try (var out = new DataOutputStream(bytes)) {
+            out.writeInt(FORMAT_VERSION);
+            out.writeUTF(key);
+            out.writeUTF(jasminResult.getClassName());
+            writeString(out, result.getOllirCode().get());
+
+            if (jasminResult instanceof ClassFileResult classFileResult) {
+                out.writeBoolean(false);
+                out.writeBoolean(true);
+                out.writeInt(classFileResult.getClassFile().length);
+                out.write(classFileResult.getClassFile());
+            } else {
+                out.writeBoolean(true);
+                writeString(out, jasminResult.getJasminCode());
+                out.writeBoolean(false);
+            }
+
+            out.writeInt(result.getReports().size());
+            for (var report : result.getReports()) {
+                out.writeUTF(report.getType().name());
+                out.writeUTF(report.getStage().name());
+                out.writeInt(report.getLine());
+                out.writeInt(report.getColumn());
+                writeString(out, report.getMessage() == null ? "" : report.getMessage());
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Could not serialize compilation cache entry", e);
+        }
+
+        write(entryPath(key, ENTRY_EXTENSION), key, bytes.toByteArray());
+    }
+
+    /**
+     * Reads the snapshot of the front end of a source, and marks it as recently used.
+     *
+     * @param config config of the compilation, given to the result
+     * @return the result of the semantic analysis, or null if there is no valid snapshot for the key
+     */
+    public JmmSemanticsResult getSnapshot(Key keys, Map<String, String> config) {
+        var entry = entryPath(keys.snapshot(), SNAPSHOT_EXTENSION);
+
+        byte[] bytes;
+        try {
+            bytes = Files.readAllBytes(entry);
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            CompilerLog.log(Category.CACHE, Level.WARN, "Could not read AST snapshot '" + entry + "': "
+                    + e.getMessage());
+            return null;
+        }
+
+        try {
+            var semanticsResult = AstSnapshot.read(bytes, config);
+            touch(entry);
+            return semanticsResult;
+        } catch (IOException e) {
+            CompilerLog.log(Category.CACHE, Level.WARN, "Ignoring invalid AST snapshot '" + entry + "': "
+                    + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Stores the snapshot of the front end of a source. Results with errors are not stored.
+     */
+    public void putSnapshot(Key keys, JmmSemanticsResult semanticsResult) {
+        if (ReportUtils.anyError(semanticsResult.getReports())) {
+            return;
+        }
+
+        byte[] bytes;
+        try {
+            bytes = AstSnapshot.write(semanticsResult);
+        } catch (IllegalArgumentException e) {
+            if (CompilerLog.isEnabled(Category.CACHE, Level.DEBUG)) {
+                CompilerLog.log(Category.CACHE, Level.DEBUG, "No AST snapshot: " + e.getMessage());
+            }
+            return;
+        }
+
+        write(entryPath(keys.snapshot(), SNAPSHOT_EXTENSION), keys.snapshot(), bytes);
+    }
+
+    private void write(Path entry, String key, byte[] bytes) {
+        try {
+            Files.createDirectories(entry.getParent());
+
+            var temp = Files.createTempFile(entry.getParent(), key, TEMP_EXTENSION);
+            try {
+                Files.write(temp, bytes);
+                move(temp, entry);
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+        } catch (IOException e) {
+            CompilerLog.log(Category.CACHE, Level.WARN, "Could not write compilation cache entry '" + entry + "': "
+                    + e.getMessage());
+            return;
+        }
+
+        if (currentBytes.get() < 0) {
+            currentBytes.compareAndSet(-1, folderSize());
+        } else {
+            currentBytes.addAndGet(bytes.length);
+        }
+
+        if (currentBytes.get() > maxBytes) {
+            evict();
+        }
+    }
+
+    /**
+     * Deletes the least recently used entries until the folder is within its maximum size.
+     */
+    public synchronized void evict() {
+        var files = new ArrayList<CacheFile>();
+        var now = System.currentTimeMillis();
+
+        try (Stream<Path> paths = Files.walk(folder, 2)) {
+            for (var path : (Iterable<Path>) paths::iterator) {
+                var name = path.getFileName().toString();
+                if (!isEntry(name) && !name.endsWith(TEMP_EXTENSION)) {
+                    continue;
+                }
+
+                try {
+                    var lastModified = Files.getLastModifiedTime(path).toMillis();
+
+                    if (name.endsWith(TEMP_EXTENSION)) {
+                        if (now - lastModified > STALE_TEMP_MS) {
+                            Files.deleteIfExists(path);
+                        }
+                        continue;
+                    }
+
+                    files.add(new CacheFile(path, Files.size(path), lastModified));
+                } catch (NoSuchFileException e) {
+                    // Removed by another compiler in the meantime
+                }
+            }
+        } catch (IOException e) {
+            CompilerLog.log(Category.CACHE, Level.WARN, "Could not list compilation cache folder '" + folder + "': "
+                    + e.getMessage());
+            return;
+        }
+
+        long total = files.stream().mapToLong(CacheFile::size).sum();
+
+        files.sort(Comparator.comparingLong(CacheFile::lastModified));
+        for (var file : files) {
+            if (total <= maxBytes) {
+                break;
+            }
+
+            try {
+                Files.deleteIfExists(file.path());
+            } catch (IOException e) {
+                CompilerLog.log(Category.CACHE, Level.WARN, "Could not delete compilation cache entry '" + file.path()
+                        + "': " + e.getMessage());
+                continue;
+            }
+
+            total -= file.size();
+        }
+
+        currentBytes.set(total);
+    }
+
+    private long folderSize() {
+        try (Stream<Path> paths = Files.walk(folder, 2)) {
+            return paths.filter(path -> isEntry(path.getFileName().toString()))
+                    .mapToLong(path -> {
+                        try {
+                            return Files.size(path);
+                        } catch (IOException e) {
+                            return 0;
+                        }
+                    })
+                    .sum();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * Entries are spread over sub-folders named after the first two characters of the key, so that no folder gets
+     * too large.
+     */
+    private Path entryPath(String key, String extension) {
+        return folder.resolve(key.substring(0, 2)).resolve(key.substring(2) + extension);
+    }
+
+    private static boolean isEntry(String fileName) {
+        return fileName.endsWith(ENTRY_EXTENSION) || fileName.endsWith(SNAPSHOT_EXTENSION);
+    }
+
+    private static void move(Path temp, Path entry) throws IOException {
+        try {
+            Files.move(temp, entry, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, entry, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * The modification time of an entry is the time it was last used.
+     */
+    private static void touch(Path entry) {
+        try {
+            Files.setLastModifiedTime(entry, FileTime.fromMillis(System.currentTimeMillis()));
+        } catch (IOException e) {
+            // Evicted by another compiler, the entry was already read
+        }
+    }
+
+    // Strings are written with their length, writeUTF is limited to 64KB
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        var bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        var length = in.readInt();
+        var bytes = in.readNBytes(length);
+
+        if (bytes.length != length) {
+            throw new EOFException("Entry is truncated");
+        }
+
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Identifies the build of the compiler, from the size and modification time of its classes (or jars), so that
+     * entries written by a different build are not reused.
+     */
+    static String getCompilerVersion() {
+        if (compilerVersion == null) {
+            var version = new StringBuilder();
+
+            for (var compilerClass : List.of(CompilationCache.class, OllirResult.class)) {
+                version.append(codeFingerprint(compilerClass)).append(';');
+            }
+
+            compilerVersion = version.toString();
+        }
+
+        return compilerVersion;
+    }
+
+    private static String codeFingerprint(Class<?> compilerClass) {
+        var codeSource = compilerClass.getProtectionDomain().getCodeSource();
+        if (codeSource == null) {
+            return "unknown";
+        }
+
+        try (Stream<Path> paths = Files.walk(Paths.get(codeSource.getLocation().toURI()))) {
+            long count = 0;
+            long size = 0;
+            long lastModified = 0;
+
+            for (var path : (Iterable<Path>) paths.filter(Files::isRegularFile)::iterator) {
+                count++;
+                size += Files.size(path);
+                lastModified = Math.max(lastModified, Files.getLastModifiedTime(path).toMillis());
+            }
+
+            return count + "-" + size + "-" + lastModified;
+        } catch (IOException | URISyntaxException | FileSystemNotFoundException e) {
+            return "unknown";
+        }
+    }
+
+    private record CacheFile(Path path, long size, long lastModified) {
+    }
+}
@@ -0,0 +1,230 @@
+package pt.up.fe.comp2025.driver;
+
+import pt.up.fe.comp.jmm.analysis.JmmSemanticsResult;
+import pt.up.fe.comp.jmm.parser.JmmParserResult;
+import pt.up.fe.comp.jmm.report.Report;
+import pt.up.fe.comp.jmm.report.Stage;
+import pt.up.fe.comp2025.CompilerConfig;
+import pt.up.fe.comp2025.analysis.JmmAnalysisImpl;
+import pt.up.fe.comp2025.backend.ClassFileResult;
+import pt.up.fe.comp2025.backend.JasminBackendImpl;
+import pt.up.fe.comp2025.metrics.CompilerMetrics;
+import pt.up.fe.comp2025.metrics.CompilerTrace;
+import pt.up.fe.comp2025.optimization.JmmOptimizationImpl;
+import pt.up.fe.comp2025.parser.JmmParserImpl;
+import pt.up.fe.comp2025.utils.ReportUtils;
+import pt.up.fe.specs.util.SpecsIo;
+
+import java.io.File;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Runs all the stages of the compiler (parsing, semantic analysis, optimization and code generation) over a
+ * single source.
+ * <p>
+ * Stages have no shared mutable state, so the same pipeline can be used concurrently from several threads.
+ */
+public class CompilationPipeline {
+
+    private final JmmParserImpl parser;
+    private final JmmAnalysisImpl analysis;
+    private final JmmOptimizationImpl optimization;
+    private final JasminBackendImpl backend;
+    private final CompilationCache cache;
+
+    public CompilationPipeline() {
+        this(null);
+    }
+
+    /**
+     * @param cache cache of compilation results, or null to always run the stages
+     */
+    public CompilationPipeline(CompilationCache cache) {
+        this.parser = new JmmParserImpl();
+        this.analysis = new JmmAnalysisImpl();
+        this.optimization = new JmmOptimizationImpl();
+        this.backend = new JasminBackendImpl();
+        this.cache = cache;
+    }
+
+    public CompilationResult compile(File inputFile, Map<String, String> config) {
+        return compile(inputFile, config, null);
+    }
+
+    /**
+     * Compiles the given file. With the option 'streaming', the file is parsed from a memory mapping and its contents
+     * are never read into a String.
+     *
+     * @param inputFile
+     * @param config
+     * @param metrics   where to record the metrics of each stage, or null to disable them
+     * @return the result of the compilation, with the reports of all the stages that were executed
+     */
+    public CompilationResult compile(File inputFile, Map<String, String> config, CompilerMetrics metrics) {
+        var fileConfig = CompilerConfig.withInputFile(config, inputFile);
+
+        if (CompilerConfig.getStreaming(fileConfig) && inputFile.isFile()) {
+            var key = cache == null ? null : cache.key(inputFile, fileConfig);
+            return compile(key, () -> parser.parseFile(inputFile, fileConfig), fileConfig, metrics);
+        }
+
+        var code = inputFile.isFile() ? SpecsIo.read(inputFile) : null;
+        if (code == null) {
+            var reports = List.of(Report.newError(Stage.SYNTATIC, -1, -1, "Could not read file '" + inputFile + "'", null));
+            return new CompilationResult(inputFile, reports, null, null, 0);
+        }
+
+        return compile(code, fileConfig, metrics);
+    }
+
+    /**
+     * Compiles the given code. Stops at the first stage that reports errors.
+     *
+     * @param code
+     * @param config
+     * @return the result of the compilation, with the reports of all the stages that were executed
+     */
+    public CompilationResult compile(String code, Map<String, String> config) {
+        return compile(code, config, null);
+    }
+
+    /**
+     * Compiles the given code, recording the cost and output size of each stage in the given metrics.
+     * <p>
+     * If the pipeline has a cache, an unchanged source compiled with the same options is read from the cache instead.
+     *
+     * @param code
+     * @param config
+     * @param metrics where to record the metrics of each stage, or null to disable them
+     * @return the result of the compilation, with the reports of all the stages that were executed
+     */
+    public CompilationResult compile(String code, Map<String, String> config, CompilerMetrics metrics) {
+        var key = cache == null ? null : cache.key(code, config);
+        return compile(key, () -> parser.parse(code, config), config, metrics);
+    }
+
+    /**
+     * @param cacheKey keys of the source in the cache, or null if there is no cache
+     * @param parse    parses the source
+     */
+    private CompilationResult compile(CompilationCache.Key cacheKey, Supplier<JmmParserResult> parse,
+                                      Map<String, String> config, CompilerMetrics metrics) {
+        if (cacheKey == null) {
+            return compileStages(parse, null, config, metrics);
+        }
+
+        var source = CompilerConfig.getInputFile(config).orElse(null);
+
+        var cached = measure(metrics, "cacheLookup", () -> cache.get(cacheKey, source, config));
+        if (cached != null) {
+            return cached;
+        }
+
+        var result = compileStages(parse, cacheKey, config, metrics);
+        cache.put(cacheKey, result);
+
+        return result;
+    }
+
+    /**
+     * @param cacheKey keys of the source in the cache, where the snapshot of the front end is read from and written
+     *                 to, or null if there is no cache
+     */
+    private CompilationResult compileStages(Supplier<JmmParserResult> parse, CompilationCache.Key cacheKey,
+                                            Map<String, String> config, CompilerMetrics metrics) {
+        var source = CompilerConfig.getInputFile(config).orElse(null);
+        var start = System.nanoTime();
+
+        try {
+            // The front end of the same source, from a compilation with other back-end options
+            var snapshot = cacheKey == null ? null
+                    : measure(metrics, "snapshotLoad", () -> cache.getSnapshot(cacheKey, config));
+
+            JmmSemanticsResult semanticsResult;
+            if (snapshot != null) {
+                semanticsResult = snapshot;
+            } else {
+                // Parsing stage
+                var llFallbacks = parser.getLlFallbackCount();
+                var parserResult = measure(metrics, "parse", parse);
+
+                if (metrics != null) {
+                    metrics.recordLlFallbacks(parser.getLlFallbackCount() - llFallbacks);
+                }
+
+                if (ReportUtils.anyError(parserResult.getReports())) {
+                    return new CompilationResult(source, parserResult.getReports(), null, null, System.nanoTime() - start);
+                }
+
+                if (metrics != null) {
+                    metrics.recordAst(parserResult.getRootNode());
+                }
+
+                // Semantic Analysis stage, reports of each stage already include the reports of the previous ones
+                var symbolTableResult = measure(metrics, "symbolTable", () -> analysis.buildSymbolTable(parserResult));
+                if (ReportUtils.anyError(symbolTableResult.getReports())) {
+                    return new CompilationResult(source, symbolTableResult.getReports(), null, null, System.nanoTime() - start);
+                }
+
+                semanticsResult = measure(metrics, "semanticAnalysis", () -> analysis.semanticAnalysis(symbolTableResult));
+                if (ReportUtils.anyError(semanticsResult.getReports())) {
+                    return new CompilationResult(source, semanticsResult.getReports(), null, null, System.nanoTime() - start);
+                }
+
+                // Written before the optimizations, which change the AST
+                if (cacheKey != null) {
+                    var analyzed = semanticsResult;
+                    measure(metrics, "snapshotStore", () -> {
+                        cache.putSnapshot(cacheKey, analyzed);
+                        return null;
+                    });
+                }
+            }
+
+            // Optimization stage
+            var analyzedSemantics = semanticsResult;
+            var optimizedSemantics = measure(metrics, "optimizeAst", () -> optimization.optimize(analyzedSemantics));
+            var initialOllir = measure(metrics, "toOllir", () -> optimization.toOllir(optimizedSemantics));
+            var ollirResult = measure(metrics, "optimizeOllir", () -> optimization.optimize(initialOllir));
+            if (ReportUtils.anyError(ollirResult.getReports())) {
+                return new CompilationResult(source, ollirResult.getReports(), ollirResult, null, System.nanoTime() - start);
+            }
+
+            if (metrics != null) {
+                metrics.recordOllir(ollirResult.getOllirClass());
+            }
+
+            // Code generation stage
+            var jasminResult = measure(metrics, "toJasmin", () -> backend.toJasmin(ollirResult));
+
+            // The Jasmin code of a class file is only generated when requested, so the class file is measured instead
+            if (metrics != null && jasminResult instanceof ClassFileResult classFileResult) {
+                metrics.recordClassFile(classFileResult.getClassFile());
+            } else if (metrics != null && jasminResult.getJasminCode() != null) {
+                metrics.recordJasmin(jasminResult.getJasminCode());
+            }
+
+            return new CompilationResult(source, jasminResult.getReports(), ollirResult, jasminResult,
+                    System.nanoTime() - start);
+
+        } catch (Exception e) {
+            var reports = List.of(Report.newError(Stage.GENERATION, -1, -1, "Exception during compilation", e));
+            return new CompilationResult(source, reports, null, null, System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * The parser of the pipeline, which counts how many sources needed the full LL fallback.
+     */
+    public JmmParserImpl getParser() {
+        return parser;
+    }
+
+    private static <T> T measure(CompilerMetrics metrics, String stageName, Supplier<T> stage) {
+        try (var span = CompilerTrace.span(stageName, "stage", null)) {
+            return metrics == null ? stage.get() : metrics.measure(stageName, stage);
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package pt.up.fe.comp2025.driver;
+
+import pt.up.fe.comp.jmm.jasmin.JasminResult;
+import pt.up.fe.comp.jmm.ollir.OllirResult;
+import pt.up.fe.comp.jmm.report.Report;
+import pt.up.fe.comp2025.utils.ReportUtils;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Outcome of running the whole pipeline over a single source.
+ */
+public class CompilationResult {
+
+    private final File source;
+    private final List<Report> reports;
+    private final OllirResult ollirResult;
+    private final String ollirCode;
+    private final JasminResult jasminResult;
+    private final long durationNanos;
+    private final boolean cached;
+
+    public CompilationResult(File source, List<Report> reports, OllirResult ollirResult, JasminResult jasminResult,
+                             long durationNanos) {
+        this(source, reports, ollirResult, null, jasminResult, durationNanos, false);
+    }
+
+    private CompilationResult(File source, List<Report> reports, OllirResult ollirResult, String ollirCode,
+                              JasminResult jasminResult, long durationNanos, boolean cached) {
+        this.source = source;
+        this.reports = reports;
+        this.ollirResult = ollirResult;
+        this.ollirCode = ollirCode;
+        this.jasminResult = jasminResult;
+        this.durationNanos = durationNanos;
+        this.cached = cached;
+    }
+
+    /**
+     * Result that was read from the compilation cache. It has the OLLIR code, but not the OLLIR class.
+     */
+    public static CompilationResult fromCache(File source, List<Report> reports, String ollirCode,
+                                              JasminResult jasminResult, long durationNanos) {
+        return new CompilationResult(source, reports, null, ollirCode, jasminResult, durationNanos, true);
+    }
+
+    /**
+     * Result put together from parts that were compiled separately, see {@link IncrementalCompiler}. It has the OLLIR
+     * code, but not the OLLIR class.
+     */
+    static CompilationResult fromParts(File source, List<Report> reports, String ollirCode, JasminResult jasminResult,
+                                       long durationNanos) {
+        return new CompilationResult(source, reports, null, ollirCode, jasminResult, durationNanos, false);
+    }
+
+    /**
+     * This result with another report, e.g. of a problem found after compiling the file.
+     */
+    CompilationResult withReport(Report report) {
+        var newReports = new ArrayList<>(reports);
+        newReports.add(report);
+        return new CompilationResult(source, newReports, ollirResult, ollirCode, jasminResult, durationNanos, cached);
+    }
+
+    /**
+     * The compiled file, or null if the code did not come from a file.
+     */
+    public File getSource() {
+        return source;
+    }
+
+    public List<Report> getReports() {
+        return reports;
+    }
+
+    /**
+     * The OLLIR result, which is empty if the compilation failed before generating OLLIR or if the result came from
+     * the cache.
+     */
+    public Optional<OllirResult> getOllirResult() {
+        return Optional.ofNullable(ollirResult);
+    }
+
+    public Optional<String> getOllirCode() {
+        if (ollirResult != null) {
+            return Optional.of(ollirResult.getOllirCode());
+        }
+
+        return Optional.ofNullable(ollirCode);
+    }
+
+    public Optional<JasminResult> getJasminResult() {
+        return Optional.ofNullable(jasminResult);
+    }
+
+    public long getDurationNanos() {
+        return durationNanos;
+    }
+
+    /**
+     * True if the result came from the compilation cache, without running the stages of the compiler.
+     */
+    public boolean isCached() {
+        return cached;
+    }
+
+    public boolean hasErrors() {
+        return jasminResult == null || ReportUtils.anyError(reports);
+    }
+}
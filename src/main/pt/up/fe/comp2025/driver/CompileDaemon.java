@@ -0,0 +1,293 @@
+package pt.up.fe.comp2025.driver;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonSyntaxException;
+import pt.up.fe.comp.jmm.report.Report;
+import pt.up.fe.comp2025.CompilerConfig;
+import pt.up.fe.comp2025.classpath.ClasspathIndex;
+import pt.up.fe.comp2025.metrics.CompilerLog;
+import pt.up.fe.comp2025.metrics.CompilerLog.Category;
+import pt.up.fe.comp2025.metrics.CompilerLog.Level;
+import pt.up.fe.comp2025.parser.ParserWarmup;
+import pt.up.fe.specs.util.SpecsIo;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+
+/**
+ * Long-lived compiler server, which keeps the compiler stages loaded (and JIT-compiled) between requests.
+ * <p>
+ * Requests and responses are JSON objects, one per line. Requests can be read from the standard input or from a
+ * socket bound to the loopback address. Each request runs on its own virtual thread, so responses can arrive out of
+ * order and must be matched through their 'id'.
+ * <p>
+ * Request example:
+ * <pre>
+ * {"id": "1", "source": "inputs/input.jmm", "config": {"optimize": "true"}, "outputs": ["ollir", "jasmin", "class"]}
+ * </pre>
+ * Instead of 'source', the code can be sent inline in the field 'code'. The field 'classDir' chooses where class
+ * files are written, otherwise a temporary folder is used.
+ */
+public class CompileDaemon {
+
+    private static final List<String> DEFAULT_OUTPUTS = List.of("jasmin");
+    private static final int WARMUP_ROUNDS = 3;
+
+    private final Map<String, String> baseConfig;
+    private final CompilationPipeline pipeline;
+    private final Gson gson;
+
+    public CompileDaemon(Map<String, String> baseConfig) {
+        this.baseConfig = baseConfig;
+        this.pipeline = new CompilationPipeline(CompilationCache.fromConfig(baseConfig));
+        this.gson = new GsonBuilder().disableHtmlEscaping().create();
+    }
+
+    /**
+     * Serves requests from the standard input until it is closed.
+     * <p>
+     * Responses are written to the standard output. Anything else the compiler prints is redirected to the standard
+     * error while serving, so that it does not corrupt the protocol, and the standard output is restored afterwards.
+     */
+    public void serveStdin() {
+        var stdout = System.out;
+        var responses = new PrintStream(stdout, true, StandardCharsets.UTF_8);
+        System.setOut(System.err);
+
+        try {
+            serve(new InputStreamReader(System.in, StandardCharsets.UTF_8), responses);
+        } finally {
+            responses.flush();
+            System.setOut(stdout);
+        }
+    }
+
+    /**
+     * Serves requests from clients connecting to the given port of the loopback address. Never returns.
+     */
+    public void serveSocket(int port) {
+        try (var server = new ServerSocket(port, 50, InetAddress.getLoopbackAddress())) {
+            CompilerLog.log(Category.DRIVER, Level.INFO, "Compile daemon listening on "
+                    + server.getLocalSocketAddress());
+
+            while (true) {
+                var client = server.accept();
+                Thread.ofVirtual().start(() -> serveClient(client));
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Could not open compile daemon socket on port " + port, e);
+        }
+    }
+
+    private void serveClient(Socket client) {
+        try (client) {
+            var responses = new PrintStream(client.getOutputStream(), true, StandardCharsets.UTF_8);
+            serve(new InputStreamReader(client.getInputStream(), StandardCharsets.UTF_8), responses);
+        } catch (IOException e) {
+            CompilerLog.log(Category.DRIVER, Level.WARN, "Compile daemon client disconnected: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Reads requests line by line, runs each one on a virtual thread and returns after all of them are answered.
+     */
+    private void serve(Reader input, PrintStream responses) {
+        try (var lines = new BufferedReader(input);
+             var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+
+            String line;
+            while ((line = lines.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+
+                var request = line;
+                executor.execute(() -> respond(request, responses));
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Could not read compile daemon requests", e);
+        }
+    }
+
+    /**
+     * Answers a request with exactly one line, even if handling it fails with an error, so that a client waiting for
+     * its 'id' always gets a response.
+     */
+    private void respond(String request, PrintStream responses) {
+        String response;
+        try {
+            response = handle(request);
+        } catch (Throwable t) {
+            CompilerLog.log(Category.DRIVER, Level.ERROR, "Compile daemon request failed: " + t);
+            response = newErrorResponse(request, "Error while handling the request: " + t);
+        }
+
+        synchronized (responses) {
+            responses.println(response);
+
+            // A print stream does not throw, so a client that can no longer be written to is only seen here
+            if (responses.checkError()) {
+                CompilerLog.log(Category.DRIVER, Level.ERROR, "Could not write a compile daemon response");
+            }
+        }
+    }
+
+    private String newErrorResponse(String requestJson, String error) {
+        String id = null;
+        try {
+            var request = gson.fromJson(requestJson, Request.class);
+            id = request == null ? null : request.id;
+        } catch (RuntimeException e) {
+            // Invalid requests are answered without an id
+        }
+
+        var response = new Response(id);
+        response.error = error;
+        return gson.toJson(response);
+    }
+
+    /**
+     * Compiles a single request.
+     *
+     * @param requestJson the request, as a JSON object
+     * @return the response, as a single-line JSON object
+     */
+    public String handle(String requestJson) {
+        Request request;
+        try {
+            request = gson.fromJson(requestJson, Request.class);
+        } catch (JsonSyntaxException e) {
+            var response = new Response(null);
+            response.error = "Invalid request: " + e.getMessage();
+            return gson.toJson(response);
+        }
+
+        // A line with only 'null' (or nothing at all) is valid JSON, but not a request
+        if (request == null) {
+            var response = new Response(null);
+            response.error = "Invalid request: expected a JSON object";
+            return gson.toJson(response);
+        }
+
+        var response = new Response(request.id);
+
+        try {
+            var config = new HashMap<>(baseConfig);
+            if (request.config != null) {
+                config.putAll(request.config);
+            }
+
+            // Libraries can change while the daemon runs, so the classpath is checked once per request
+            ClasspathIndex.getDefault().refresh();
+
+            CompilationResult result;
+            if (request.source != null) {
+                result = pipeline.compile(new File(request.source), config);
+            } else if (request.code != null) {
+                result = pipeline.compile(request.code, config);
+            } else {
+                response.error = "Request must have either 'source' or 'code'";
+                return gson.toJson(response);
+            }
+
+            // Keeps the classes read for this request for the next runs, if the index is saved
+            ClasspathIndex.getDefault().save();
+
+            response.success = !result.hasErrors();
+            for (var report : result.getReports()) {
+                response.reports.add(new ReportEntry(report));
+            }
+
+            var outputs = request.outputs != null ? request.outputs : DEFAULT_OUTPUTS;
+
+            if (outputs.contains("ollir")) {
+                result.getOllirCode().ifPresent(ollir -> response.ollir = ollir);
+            }
+
+            if (outputs.contains("jasmin")) {
+                result.getJasminResult().ifPresent(jasmin -> response.jasmin = jasmin.getJasminCode());
+            }
+
+            if (outputs.contains("class") && response.success) {
+                var classDir = request.classDir != null ? new File(request.classDir)
+                        : SpecsIo.getTempFolder("jmm-daemon");
+                var classFile = result.getJasminResult().get().compile(classDir);
+                response.classFile = classFile.getAbsolutePath();
+            }
+
+        } catch (Exception e) {
+            response.success = false;
+            response.error = "Exception while compiling: " + e;
+        }
+
+        return gson.toJson(response);
+    }
+
+    /**
+     * Starts the daemon according to the value of the option '-s': a port number, or 'stdin'.
+     */
+    public static void start(Map<String, String> config) {
+        // Done before serving, so that the first requests are not slower than the others
+        if (CompilerConfig.getWarmup(config)) {
+            ParserWarmup.warmUp(WARMUP_ROUNDS);
+        }
+
+        var daemon = new CompileDaemon(config);
+        var server = CompilerConfig.getServer(config).orElse("stdin");
+
+        if (server.equals("stdin") || server.equals("true")) {
+            daemon.serveStdin();
+            return;
+        }
+
+        daemon.serveSocket(Integer.parseInt(server));
+    }
+
+    private static class Request {
+        String id;
+        String source;
+        String code;
+        Map<String, String> config;
+        List<String> outputs;
+        String classDir;
+    }
+
+    private static class Response {
+        final String id;
+        boolean success;
+        String error;
+        final List<ReportEntry> reports = new ArrayList<>();
+        String ollir;
+        String jasmin;
+        String classFile;
+
+        Response(String id) {
+            this.id = id;
+        }
+    }
+
+    private static class ReportEntry {
+        final String type;
+        final String stage;
+        final int line;
+        final int column;
+        final String message;
+
+        ReportEntry(Report report) {
+            this.type = report.getType().name();
+            this.stage = report.getStage().name();
+            this.line = report.getLine();
+            this.column = report.getColumn();
+            this.message = report.getMessage();
+        }
+    }
+}
@@ -0,0 +1,429 @@
+package pt.up.fe.comp2025.driver;
+
+import pt.up.fe.comp.jmm.analysis.JmmSemanticsResult;
+import pt.up.fe.comp.jmm.analysis.table.SymbolTable;
+import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp.jmm.jasmin.JasminResult;
+import pt.up.fe.comp.jmm.ollir.OllirResult;
+import pt.up.fe.comp.jmm.parser.JmmParserResult;
+import pt.up.fe.comp.jmm.report.Report;
+import pt.up.fe.comp.jmm.report.Stage;
+import pt.up.fe.comp2025.CompilerConfig;
+import pt.up.fe.comp2025.ConfigOptions;
+import pt.up.fe.comp2025.analysis.AnalysisSegment;
+import pt.up.fe.comp2025.analysis.JmmAnalysisImpl;
+import pt.up.fe.comp2025.ast.Kind;
+import pt.up.fe.comp2025.backend.JasminBackendImpl;
+import pt.up.fe.comp2025.backend.JasminGenerator;
+import pt.up.fe.comp2025.optimization.JmmOptimizationImpl;
+import pt.up.fe.comp2025.optimization.OllirGeneratorVisitor;
+import pt.up.fe.comp2025.parser.JmmParserImpl;
+import pt.up.fe.comp2025.utils.ReportUtils;
+
+import java.io.File;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Compiles successive versions of the same source, reusing the results of the methods that did not change.
+ * <p>
+ * Each version is parsed again, and each method declaration is compared with the methods of the previous version by
+ * its structure (the kinds and attributes of its nodes, with positions relative to the first line of the method). The
+ * analysis reports, the OLLIR code and the Jasmin code of a method that did not change are reused, and only the
+ * methods that changed go through the stages of the compiler. The symbol table is only built again when a declaration
+ * changes, and any change to the declarations of the class (imports, fields or method signatures) compiles every method
+ * again, since every method can depend on them.
+ * <p>
+ * With the class file backend, the class file is generated from the OLLIR code of the whole class, since the constant
+ * pool is shared by the methods.
+ */
+public class IncrementalCompiler {
+
+    private static final Set<String> POSITIONS = Set.of("lineStart", "lineEnd", "colStart", "colEnd");
+
+    // Marks the end of the children of a node when fingerprinting
+    private static final Object END = new Object();
+
+    private final Map<String, String> config;
+    private final File source;
+    private final JmmParserImpl parser;
+    private final JmmAnalysisImpl analysis;
+    private final JmmOptimizationImpl optimization;
+    private final JasminBackendImpl backend;
+
+    // Declarations of the last version, including the local variables, and the symbol table built from them
+    private String declarations;
+    private SymbolTable table;
+
+    // Declarations without the local variables, which the code of every method depends on
+    private String classDeclarations;
+    private String jasminHeader;
+
+    // Results of the methods of the last version, by structure
+    private Map<String, MethodResult> methods;
+
+    private int reusedMethods;
+    private int compiledMethods;
+    private boolean reusedSymbolTable;
+
+    /**
+     * Results of a method, filled as it goes through the stages.
+     */
+    private static class MethodResult {
+        // Line of the method when it was analyzed, which the lines of the reports refer to
+        private final int line;
+        private final AnalysisSegment analysis;
+        private String ollirCode;
+        private String jasminCode;
+
+        private MethodResult(int line, AnalysisSegment analysis) {
+            this.line = line;
+            this.analysis = analysis;
+        }
+    }
+
+    /**
+     * @param config the options of the compiler, which must be the same for every version
+     */
+    public IncrementalCompiler(Map<String, String> config) {
+        this.config = config;
+        this.source = CompilerConfig.getInputFile(config).orElse(null);
+        this.parser = new JmmParserImpl();
+        this.analysis = new JmmAnalysisImpl();
+        this.optimization = new JmmOptimizationImpl();
+        this.backend = new JasminBackendImpl();
+        this.methods = new HashMap<>();
+    }
+
+    /**
+     * @return the number of methods of the last version whose results were reused
+     */
+    public int getReusedMethods() {
+        return reusedMethods;
+    }
+
+    /**
+     * @return the number of methods of the last version that were compiled
+     */
+    public int getCompiledMethods() {
+        return compiledMethods;
+    }
+
+    /**
+     * @return true if the symbol table of the last version was reused from the version before
+     */
+    public boolean isSymbolTableReused() {
+        return reusedSymbolTable;
+    }
+
+    /**
+     * Compiles a new version of the source. Stops at the first stage that reports errors, like
+     * {@link CompilationPipeline}, and gives the same reports.
+     */
+    public CompilationResult compile(String code) {
+        var start = System.nanoTime();
+        reusedMethods = 0;
+        compiledMethods = 0;
+        reusedSymbolTable = false;
+
+        try {
+            var parserResult = parser.parse(code, config);
+            if (ReportUtils.anyError(parserResult.getReports())) {
+                return new CompilationResult(source, parserResult.getReports(), null, null, System.nanoTime() - start);
+            }
+
+            var root = parserResult.getRootNode();
+            var symbolTableResult = buildSymbolTable(parserResult, root);
+            if (ReportUtils.anyError(symbolTableResult.getReports())) {
+                return new CompilationResult(source, symbolTableResult.getReports(), null, null, System.nanoTime() - start);
+            }
+
+            // A change to the declarations of the class can change the code of any method
+            var newClassDeclarations = fingerprintDeclarations(root, false);
+            if (!newClassDeclarations.equals(classDeclarations)) {
+                methods = new HashMap<>();
+                classDeclarations = newClassDeclarations;
+                jasminHeader = null;
+            }
+
+            var methodDecls = getMethods(root);
+            var methodResults = findMethodResults(methodDecls);
+
+            // Semantic analysis, the reports of reused methods are moved to where the methods are now
+            var segments = new ArrayList<AnalysisSegment>();
+            segments.add(analysis.analyzeOutsideMethods(root, table));
+            for (int i = 0; i < methodDecls.size(); i++) {
+                var result = methodResults.get(i);
+                segments.add(result.analysis.moveLines(methodDecls.get(i).getLine() - result.line));
+            }
+
+            var semanticsResult = analysis.joinSegments(symbolTableResult, segments);
+            if (ReportUtils.anyError(semanticsResult.getReports())) {
+                return new CompilationResult(source, semanticsResult.getReports(), null, null, System.nanoTime() - start);
+            }
+
+            var ollirCode = generateOllir(semanticsResult, root, methodDecls, methodResults);
+
+            // The class file has a single constant pool, so it is always generated from the whole class
+            if (ConfigOptions.getClassFile(config)) {
+                var ollirResult = optimization.optimize(new OllirResult(semanticsResult, ollirCode, new ArrayList<>()));
+                if (ReportUtils.anyError(ollirResult.getReports())) {
+                    return new CompilationResult(source, ollirResult.getReports(), ollirResult, null, System.nanoTime() - start);
+                }
+
+                var classFileResult = backend.toJasmin(ollirResult);
+                return new CompilationResult(source, classFileResult.getReports(), ollirResult, classFileResult,
+                        System.nanoTime() - start);
+            }
+
+            return generateJasmin(semanticsResult, root, ollirCode, methodDecls, methodResults, start);
+
+        } catch (Exception e) {
+            var reports = List.of(Report.newError(Stage.GENERATION, -1, -1, "Exception during compilation", e));
+            return new CompilationResult(source, reports, null, null, System.nanoTime() - start);
+        }
+    }
+
+    private JmmSemanticsResult buildSymbolTable(JmmParserResult parserResult, JmmNode root) {
+        var newDeclarations = fingerprintDeclarations(root, true);
+
+        if (table != null && newDeclarations.equals(declarations)) {
+            reusedSymbolTable = true;
+            return new JmmSemanticsResult(parserResult, table, List.of());
+        }
+
+        var symbolTableResult = analysis.buildSymbolTable(parserResult);
+
+        // The reports point to the nodes of this version, so a table with reports is not reused
+        var hasReports = !symbolTableResult.getReports().isEmpty();
+        declarations = hasReports ? null : newDeclarations;
+        table = hasReports ? null : symbolTableResult.getSymbolTable();
+
+        return symbolTableResult;
+    }
+
+    /**
+     * Finds the results of the methods that did not change, and analyzes the others.
+     */
+    private List<MethodResult> findMethodResults(List<JmmNode> methodDecls) {
+        var results = new ArrayList<MethodResult>(methodDecls.size());
+        var newMethods = new HashMap<String, MethodResult>();
+
+        for (var method : methodDecls) {
+            var fingerprint = fingerprintMethod(method);
+            var result = methods.get(fingerprint);
+
+            if (result != null) {
+                reusedMethods++;
+            } else {
+                result = new MethodResult(method.getLine(), analysis.analyzeMethod(method, table));
+                compiledMethods++;
+            }
+
+            results.add(result);
+            newMethods.put(fingerprint, result);
+        }
+
+        // Methods that were removed or changed are forgotten
+        methods = newMethods;
+
+        return results;
+    }
+
+    private String generateOllir(JmmSemanticsResult semanticsResult, JmmNode root, List<JmmNode> methodDecls,
+                                 List<MethodResult> methodResults) {
+        var generator = new OllirGeneratorVisitor(semanticsResult.getSymbolTable());
+        var methodCode = new IdentityHashMap<JmmNode, String>();
+
+        for (int i = 0; i < methodDecls.size(); i++) {
+            var method = methodDecls.get(i);
+            var result = methodResults.get(i);
+
+            if (result.ollirCode == null) {
+                optimization.optimizeMethod(method, semanticsResult);
+                result.ollirCode = generator.visit(method);
+            }
+
+            methodCode.put(method, result.ollirCode);
+        }
+
+        generator.reuseMethods(methodCode);
+        return generator.visit(root);
+    }
+
+    /**
+     * Generates the Jasmin code of the methods that do not have it yet from an OLLIR class with only those methods, and
+     * puts together the code of the class.
+     */
+    private CompilationResult generateJasmin(JmmSemanticsResult semanticsResult, JmmNode root, String ollirCode,
+                                             List<JmmNode> methodDecls, List<MethodResult> methodResults, long start) {
+        var partialCode = new IdentityHashMap<JmmNode, String>();
+        var methodNames = new HashSet<String>();
+        var hasPending = jasminHeader == null;
+
+        for (int i = 0; i < methodDecls.size(); i++) {
+            var result = methodResults.get(i);
+            partialCode.put(methodDecls.get(i), result.jasminCode == null ? result.ollirCode : "");
+            methodNames.add(methodDecls.get(i).get("methodName"));
+            hasPending |= result.jasminCode == null;
+        }
+
+        var reports = new ArrayList<>(semanticsResult.getReports());
+
+        if (hasPending) {
+            var ollirGenerator = new OllirGeneratorVisitor(semanticsResult.getSymbolTable());
+            ollirGenerator.reuseMethods(partialCode);
+
+            var partialResult = optimization.optimize(new OllirResult(semanticsResult, ollirGenerator.visit(root),
+                    new ArrayList<>()));
+            if (ReportUtils.anyError(partialResult.getReports())) {
+                return CompilationResult.fromParts(source, partialResult.getReports(), ollirCode, null,
+                        System.nanoTime() - start);
+            }
+
+            var jasminGenerator = new JasminGenerator(partialResult);
+            jasminGenerator.setClassMethods(methodNames);
+
+            if (jasminHeader == null) {
+                jasminHeader = jasminGenerator.buildHeader();
+            }
+
+            var jasminMethods = jasminGenerator.buildMethods();
+            for (int i = 0; i < methodDecls.size(); i++) {
+                var result = methodResults.get(i);
+                if (result.jasminCode == null) {
+                    result.jasminCode = jasminMethods.get(methodDecls.get(i).get("methodName"));
+                }
+            }
+
+            reports.addAll(jasminGenerator.getReports());
+        }
+
+        var jasminCode = new StringBuilder(jasminHeader);
+        for (var result : methodResults) {
+            jasminCode.append(result.jasminCode);
+        }
+
+        var className = semanticsResult.getSymbolTable().getClassName();
+        var jasminResult = new JasminResult(className, jasminCode.toString(), reports, config);
+
+        return CompilationResult.fromParts(source, reports, ollirCode, jasminResult, System.nanoTime() - start);
+    }
+
+    private static List<JmmNode> getMethods(JmmNode root) {
+        for (var child : root.getChildren()) {
+            if (Kind.CLASS_DECL.check(child)) {
+                return child.getChildren(Kind.METHOD_DECL);
+            }
+        }
+
+        return List.of();
+    }
+
+    /**
+     * Structure of a method, with the lines of its nodes relative to its first line, so a method that only moved has the
+     * same structure.
+     */
+    static String fingerprintMethod(JmmNode method) {
+        var builder = new StringBuilder();
+        appendNode(builder, method, method.getLine());
+        return builder.toString();
+    }
+
+    /**
+     * Structure of the declarations of the tree, without positions and without the statements of the methods.
+     *
+     * @param withLocals if the local variables of the methods are included
+     */
+    static String fingerprintDeclarations(JmmNode root, boolean withLocals) {
+        var builder = new StringBuilder();
+        appendDeclarations(builder, root, withLocals);
+        return builder.toString();
+    }
+
+    private static void appendDeclarations(StringBuilder builder, JmmNode root, boolean withLocals) {
+        // Expressions are nested as deep as chains of operations are long, so the tree is walked with a stack instead
+        // of recursion, where END closes the children of a node
+        var pending = new ArrayDeque<Object>();
+        pending.push(root);
+
+        while (!pending.isEmpty()) {
+            var next = pending.pop();
+            if (next == END) {
+                builder.append(']');
+                continue;
+            }
+
+            var node = (JmmNode) next;
+            appendAttributes(builder, node, 0, false);
+            builder.append('[');
+            pending.push(END);
+
+            // Pushed last to first, so that children are appended in order
+            var isMethod = Kind.METHOD_DECL.check(node);
+            for (int i = node.getNumChildren() - 1; i >= 0; i--) {
+                var child = node.getChild(i);
+                if (isMethod && !isSignature(child) && !(withLocals && Kind.VAR_DECL.check(child))) {
+                    continue;
+                }
+
+                pending.push(child);
+            }
+        }
+    }
+
+    private static boolean isSignature(JmmNode methodChild) {
+        return Kind.TYPE.check(methodChild) || Kind.PARAM.check(methodChild);
+    }
+
+    private static void appendNode(StringBuilder builder, JmmNode root, int firstLine) {
+        // Same walk as appendDeclarations, with every child
+        var pending = new ArrayDeque<Object>();
+        pending.push(root);
+
+        while (!pending.isEmpty()) {
+            var next = pending.pop();
+            if (next == END) {
+                builder.append(']');
+                continue;
+            }
+
+            var node = (JmmNode) next;
+            appendAttributes(builder, node, firstLine, true);
+            builder.append('[');
+            pending.push(END);
+
+            for (int i = node.getNumChildren() - 1; i >= 0; i--) {
+                pending.push(node.getChild(i));
+            }
+        }
+    }
+
+    private static void appendAttributes(StringBuilder builder, JmmNode node, int firstLine, boolean withPositions) {
+        builder.append(node.getKind()).append('{');
+
+        // Sorted, the order of the attributes of a node is not always the same
+        var attributes = new TreeMap<String, Object>();
+        for (var attribute : node.getAttributes()) {
+            if (POSITIONS.contains(attribute)) {
+                continue;
+            }
+            attributes.put(attribute, node.getObject(attribute));
+        }
+
+        attributes.forEach((name, value) -> builder.append(name).append('=').append(value).append(';'));
+
+        if (withPositions) {
+            builder.append('@').append(node.getLine() - firstLine).append(':').append(node.getColumn());
+        }
+
+        builder.append('}');
+    }
+}
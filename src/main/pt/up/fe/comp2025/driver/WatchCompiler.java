@@ -0,0 +1,125 @@
+package pt.up.fe.comp2025.driver;
+
+import pt.up.fe.comp.jmm.report.ReportType;
+import pt.up.fe.comp2025.CompilerConfig;
+import pt.up.fe.comp2025.classpath.ClasspathIndex;
+import pt.up.fe.comp2025.metrics.CompilerLog;
+import pt.up.fe.comp2025.metrics.CompilerLog.Category;
+import pt.up.fe.comp2025.metrics.CompilerLog.Level;
+import pt.up.fe.specs.util.SpecsIo;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Watch mode, which compiles the input file each time it is saved, until the process is stopped.
+ * <p>
+ * The file is compiled by an {@link IncrementalCompiler}, so only the methods that changed since the last save go
+ * through the stages of the compiler. If there is an output folder ('-d'), the result of each successful compilation
+ * is written to it.
+ */
+public class WatchCompiler {
+
+    // Editors save a file with several events (e.g. writing a temporary file and renaming it), which are waited for
+    private static final long DEBOUNCE_MILLIS = 50;
+
+    private final File inputFile;
+    private final File outputDir;
+    private final IncrementalCompiler compiler;
+
+    private String lastCode;
+
+    public WatchCompiler(Map<String, String> config) {
+        this.inputFile = CompilerConfig.getInputFile(config).orElseThrow().getAbsoluteFile();
+        this.outputDir = CompilerConfig.getOutputDir(config).orElse(null);
+        this.compiler = new IncrementalCompiler(config);
+    }
+
+    /**
+     * Compiles the file, and compiles it again after each change. Only returns if the thread is interrupted.
+     */
+    public void run() {
+        compile();
+
+        var folder = inputFile.getParentFile().toPath();
+        var fileName = Path.of(inputFile.getName());
+
+        try (var watcher = FileSystems.getDefault().newWatchService()) {
+            folder.register(watcher, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+            CompilerLog.log(Category.DRIVER, Level.INFO, "Watching " + inputFile + " for changes");
+
+            while (true) {
+                var key = watcher.take();
+                var changed = false;
+
+                while (key != null) {
+                    for (var event : key.pollEvents()) {
+                        changed |= fileName.equals(event.context());
+                    }
+
+                    key.reset();
+                    key = watcher.poll(DEBOUNCE_MILLIS, TimeUnit.MILLISECONDS);
+                }
+
+                if (changed) {
+                    compile();
+                }
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Could not watch folder '" + folder + "'", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void compile() {
+        var code = inputFile.isFile() ? SpecsIo.read(inputFile) : null;
+
+        // Saving without changes, or a file that is being replaced, does not need a compilation
+        if (code == null || code.equals(lastCode)) {
+            return;
+        }
+        lastCode = code;
+
+        // Libraries can change between saves, so the classpath is checked once per compilation
+        ClasspathIndex.getDefault().refresh();
+
+        var result = compiler.compile(code);
+        ClasspathIndex.getDefault().save();
+
+        var millis = result.getDurationNanos() / 1_000_000.0;
+        var methods = compiler.getReusedMethods() + compiler.getCompiledMethods();
+
+        if (result.hasErrors()) {
+            CompilerLog.log(Category.DRIVER, Level.ERROR, "Failed: " + inputFile);
+            for (var report : result.getReports()) {
+                CompilerLog.log(Category.DRIVER, getLevel(report.getType()), "    " + report);
+            }
+            CompilerLog.dumpBuffer(System.err);
+            return;
+        }
+
+        if (outputDir != null) {
+            BatchCompiler.writeOutput(result.getJasminResult().get(), outputDir);
+        }
+
+        CompilerLog.log(Category.DRIVER, Level.INFO,
+                String.format("Compiled %s in %.1f ms, %d of %d method(s) recompiled%s",
+                        inputFile.getName(), millis, compiler.getCompiledMethods(), methods,
+                        compiler.isSymbolTableReused() ? ", symbol table reused" : ""));
+    }
+
+    private static Level getLevel(ReportType type) {
+        return switch (type) {
+            case ERROR -> Level.ERROR;
+            case WARNING -> Level.WARN;
+            case LOG -> Level.INFO;
+            case DEBUG -> Level.DEBUG;
+        };
+    }
+}
@@ -0,0 +1,213 @@
+package pt.up.fe.comp2025.metrics;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Leveled diagnostic messages of the compiler, by category.
+ * <p>
+ * Messages of each category are printed up to a level, by default the summaries of the driver ({@link Level#INFO})
+ * and the warnings of the other categories. Call sites check {@link #isEnabled} before building a message, so a
+ * disabled message costs a comparison, e.g.
+ * <pre>
+ * if (CompilerLog.isEnabled(Category.TYPES, Level.DEBUG)) {
+ *     CompilerLog.log(Category.TYPES, Level.DEBUG, "Found local " + var);
+ * }
+ * </pre>
+ * Messages can also be kept in an in-memory ring buffer, which keeps the most recent debug messages of every
+ * category without printing them, and is printed with {@link #dumpBuffer} when a compilation fails.
+ * <p>
+ * The configuration is global to the process, and is expected to be set once, before compiling.
+ */
+public class CompilerLog {
+
+    public enum Level {
+        ERROR,
+        WARN,
+        INFO,
+        DEBUG
+    }
+
+    public enum Category {
+        DRIVER,
+        CACHE,
+        ANALYSIS,
+        TYPES,
+        OLLIR,
+        CLASSPATH
+    }
+
+    private static final int OFF = -1;
+
+    // Most verbose level printed for each category, by ordinal, or OFF
+    private static final int[] printed = new int[Category.values().length];
+    // Most verbose level kept in the buffer for each category
+    private static final int[] buffered = new int[Category.values().length];
+    // Most verbose level of each category that is either printed or buffered, checked by the call sites
+    private static final int[] enabled = new int[Category.values().length];
+
+    private static RingBuffer buffer;
+
+    static {
+        reset();
+    }
+
+    /**
+     * @return true if messages of the given category and level are printed or kept in the buffer
+     */
+    public static boolean isEnabled(Category category, Level level) {
+        return level.ordinal() <= enabled[category.ordinal()];
+    }
+
+    public static void log(Category category, Level level, String message) {
+        var categoryIndex = category.ordinal();
+
+        if (level.ordinal() <= printed[categoryIndex]) {
+            var stream = level.compareTo(Level.WARN) <= 0 ? System.err : System.out;
+            stream.println(message);
+        }
+
+        var ringBuffer = buffer;
+        if (ringBuffer != null && level.ordinal() <= buffered[categoryIndex]) {
+            ringBuffer.add(level + " " + category.name().toLowerCase(Locale.ROOT) + ": " + message);
+        }
+    }
+
+    /**
+     * Configures the levels that are printed and the size of the buffer.
+     *
+     * @param levels     comma-separated levels, either a single level for every category (e.g. 'debug') or
+     *                   category:level pairs (e.g. 'analysis:debug,types:info'), where the level can be 'off'; null
+     *                   keeps the default levels
+     * @param bufferSize number of messages kept in the buffer, or 0 to not keep messages
+     */
+    public static void configure(String levels, int bufferSize) {
+        reset();
+
+        if (levels != null) {
+            for (var entry : levels.split(",")) {
+                var separator = entry.indexOf(':');
+
+                if (separator < 0) {
+                    Arrays.fill(printed, parseLevel(entry));
+                    continue;
+                }
+
+                var category = parseCategory(entry.substring(0, separator));
+                printed[category.ordinal()] = parseLevel(entry.substring(separator + 1));
+            }
+        }
+
+        if (bufferSize > 0) {
+            buffer = new RingBuffer(bufferSize);
+            Arrays.fill(buffered, Level.DEBUG.ordinal());
+        }
+
+        for (int i = 0; i < enabled.length; i++) {
+            enabled[i] = Math.max(printed[i], buffered[i]);
+        }
+    }
+
+    /**
+     * Goes back to the default levels, without a buffer.
+     */
+    public static void reset() {
+        Arrays.fill(printed, Level.WARN.ordinal());
+        printed[Category.DRIVER.ordinal()] = Level.INFO.ordinal();
+        Arrays.fill(buffered, OFF);
+        System.arraycopy(printed, 0, enabled, 0, enabled.length);
+        buffer = null;
+    }
+
+    /**
+     * @return the messages in the buffer, oldest first, or an empty list if there is no buffer
+     */
+    public static List<String> getBuffer() {
+        var ringBuffer = buffer;
+        return ringBuffer == null ? List.of() : ringBuffer.getMessages();
+    }
+
+    /**
+     * Prints the messages in the buffer, if there are any, and empties it.
+     */
+    public static void dumpBuffer(PrintStream stream) {
+        var ringBuffer = buffer;
+        if (ringBuffer == null) {
+            return;
+        }
+
+        var messages = ringBuffer.drain();
+        if (messages.isEmpty()) {
+            return;
+        }
+
+        stream.println("Last " + messages.size() + " diagnostic message(s):");
+        for (var message : messages) {
+            stream.println("    " + message);
+        }
+    }
+
+    private static int parseLevel(String level) {
+        if (level.equalsIgnoreCase("off")) {
+            return OFF;
+        }
+
+        try {
+            return Level.valueOf(level.toUpperCase(Locale.ROOT)).ordinal();
+        } catch (IllegalArgumentException e) {
+            throw new RuntimeException("Unknown log level '" + level + "', expected one of "
+                    + Arrays.toString(Level.values()).toLowerCase(Locale.ROOT) + " or off");
+        }
+    }
+
+    private static Category parseCategory(String category) {
+        try {
+            return Category.valueOf(category.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new RuntimeException("Unknown log category '" + category + "', expected one of "
+                    + Arrays.toString(Category.values()).toLowerCase(Locale.ROOT));
+        }
+    }
+
+    /**
+     * Keeps the most recent messages, overwriting the oldest ones.
+     */
+    private static class RingBuffer {
+
+        private final String[] messages;
+        private int next;
+        private int size;
+
+        private RingBuffer(int capacity) {
+            this.messages = new String[capacity];
+        }
+
+        private synchronized void add(String message) {
+            messages[next] = message;
+            next = (next + 1) % messages.length;
+            size = Math.min(size + 1, messages.length);
+        }
+
+        private synchronized List<String> getMessages() {
+            var ordered = new ArrayList<String>(size);
+            var first = (next - size + messages.length) % messages.length;
+
+            for (int i = 0; i < size; i++) {
+                ordered.add(messages[(first + i) % messages.length]);
+            }
+
+            return ordered;
+        }
+
+        private synchronized List<String> drain() {
+            var ordered = getMessages();
+            Arrays.fill(messages, null);
+            next = 0;
+            size = 0;
+            return ordered;
+        }
+    }
+}
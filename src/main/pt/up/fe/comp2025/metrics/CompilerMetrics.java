@@ -0,0 +1,289 @@
+package pt.up.fe.comp2025.metrics;
+
+import com.google.gson.GsonBuilder;
+import org.specs.comp.ollir.ClassUnit;
+import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp2025.classpath.ClassFileParser;
+import pt.up.fe.specs.util.SpecsIo;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+
+/**
+ * Collects the cost of each stage of a compilation (wall time, CPU time and allocated bytes) and the size of what
+ * each stage produced, and writes them as JSON.
+ * <p>
+ * CPU time and allocations are measured per thread, on the thread that runs the stage. Work that a stage hands to
+ * other threads (e.g. the concurrent analysis of the methods) is only counted if it is wrapped with
+ * {@link #onWorker}.
+ */
+public class CompilerMetrics {
+
+    private static final Pattern METHOD = Pattern.compile("^\\.method\\s+(?:.*\\s)?([^\\s(]+)\\(");
+    private static final Pattern LIMIT = Pattern.compile("^\\s*\\.limit\\s+(stack|locals)\\s+([0-9]+)");
+
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+    // Cost of the worker threads of the innermost stage being measured on each thread
+    private static final ThreadLocal<WorkerCost> measuring = new ThreadLocal<>();
+
+    private final String file;
+    private final List<StageMetrics> stages;
+    private final Map<String, Long> sizes;
+    private final List<MethodMetrics> methods;
+
+    public CompilerMetrics(String file) {
+        this.file = file;
+        this.stages = new ArrayList<>();
+        this.sizes = new LinkedHashMap<>();
+        this.methods = new ArrayList<>();
+    }
+
+    /**
+     * Runs the given stage and records its cost.
+     *
+     * @param stageName
+     * @param stage
+     * @return the result of the stage
+     */
+    public <T> T measure(String stageName, Supplier<T> stage) {
+        var outer = measuring.get();
+        var workers = new WorkerCost(Thread.currentThread());
+        measuring.set(workers);
+
+        var cpuStart = cpuTime();
+        var allocStart = allocatedBytes();
+        var wallStart = System.nanoTime();
+
+        try {
+            return stage.get();
+        } finally {
+            var wallNanos = System.nanoTime() - wallStart;
+            var cpuNanos = cpuTime() - cpuStart + workers.cpuNanos.get();
+            var allocated = allocatedBytes() - allocStart + workers.allocatedBytes.get();
+
+            measuring.set(outer);
+            if (outer != null) {
+                outer.add(workers.cpuNanos.get(), workers.allocatedBytes.get());
+            }
+
+            stages.add(new StageMetrics(stageName, wallNanos / 1e6, cpuNanos / 1e6, allocated));
+        }
+    }
+
+    /**
+     * Wraps a task that the current stage runs on another thread, so that the CPU time and allocations of the task are
+     * added to the stage. Call it on the thread of the stage, when creating the task.
+     *
+     * @return the task itself if no stage is being measured on the current thread
+     */
+    public static Runnable onWorker(Runnable task) {
+        var workers = measuring.get();
+        if (workers == null) {
+            return task;
+        }
+
+        return () -> {
+            // The thread of the stage can run the task itself while it waits, and already counts it
+            if (Thread.currentThread() == workers.owner) {
+                task.run();
+                return;
+            }
+
+            var cpuStart = cpuTime();
+            var allocStart = allocatedBytes();
+
+            try {
+                task.run();
+            } finally {
+                workers.add(cpuTime() - cpuStart, allocatedBytes() - allocStart);
+            }
+        };
+    }
+
+    public void recordAst(JmmNode root) {
+        if (root != null) {
+            // Counted with a stack, the stream of descendants recurses as deep as the tree
+            long nodes = 0;
+            var pending = new ArrayDeque<JmmNode>();
+            pending.push(root);
+            while (!pending.isEmpty()) {
+                var node = pending.pop();
+                nodes++;
+                for (var child : node.getChildren()) {
+                    pending.push(child);
+                }
+            }
+
+            sizes.put("astNodes", nodes);
+        }
+    }
+
+    /**
+     * Records how many times the parser had to fall back from SLL to full LL prediction (0 or 1 for a single file).
+     */
+    public void recordLlFallbacks(long llFallbacks) {
+        sizes.put("parserLlFallbacks", llFallbacks);
+    }
+
+    public void recordOllir(ClassUnit classUnit) {
+        long instructions = 0;
+        for (var method : classUnit.getMethods()) {
+            instructions += method.getInstructions().size();
+        }
+
+        sizes.put("ollirMethods", (long) classUnit.getNumMethods());
+        sizes.put("ollirInstructions", instructions);
+    }
+
+    /**
+     * Records the number of lines of the Jasmin code and the stack and locals limits of each method.
+     */
+    public void recordJasmin(String jasminCode) {
+        var lines = jasminCode.lines().toList();
+        sizes.put("jasminLines", (long) lines.size());
+
+        MethodMetrics current = null;
+        for (var line : lines) {
+            var method = METHOD.matcher(line);
+            if (method.find()) {
+                current = new MethodMetrics(method.group(1));
+                methods.add(current);
+                continue;
+            }
+
+            var limit = LIMIT.matcher(line);
+            if (current != null && limit.find()) {
+                var value = Integer.parseInt(limit.group(2));
+                if (limit.group(1).equals("stack")) {
+                    current.stack = value;
+                } else {
+                    current.locals = value;
+                }
+            }
+        }
+    }
+
+    /**
+     * Records the size of a class file written by the class file backend and the max_stack and max_locals of each
+     * method, the same limits as {@link #recordJasmin} for the Jasmin code.
+     */
+    public void recordClassFile(byte[] classFile) {
+        sizes.put("classFileBytes", (long) classFile.length);
+
+        try {
+            for (var limits : ClassFileParser.parseCodeLimits(classFile)) {
+                var method = new MethodMetrics(limits.method());
+                method.stack = limits.maxStack();
+                method.locals = limits.maxLocals();
+                methods.add(method);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Could not read the generated class file", e);
+        }
+    }
+
+    public List<StageMetrics> getStages() {
+        return stages;
+    }
+
+    public Map<String, Long> getSizes() {
+        return sizes;
+    }
+
+    public String toJson() {
+        var json = new LinkedHashMap<String, Object>();
+        json.put("file", file);
+        json.put("stages", stages);
+        json.put("sizes", sizes);
+        json.put("methods", methods);
+
+        return new GsonBuilder().setPrettyPrinting().disableHtmlEscaping().create().toJson(json);
+    }
+
+    public void write(File outputFile) {
+        SpecsIo.write(outputFile, toJson());
+    }
+
+    private static long cpuTime() {
+        return THREADS.isCurrentThreadCpuTimeSupported() ? THREADS.getCurrentThreadCpuTime() : 0;
+    }
+
+    private static long allocatedBytes() {
+        // Allocation counters are only available in the HotSpot extension of the bean
+        if (THREADS instanceof com.sun.management.ThreadMXBean hotspotThreads
+                && hotspotThreads.isThreadAllocatedMemorySupported()) {
+            return hotspotThreads.getThreadAllocatedBytes(Thread.currentThread().threadId());
+        }
+
+        return 0;
+    }
+
+    /**
+     * CPU time and allocations of the worker threads of a stage.
+     */
+    private static class WorkerCost {
+        private final Thread owner;
+        private final AtomicLong cpuNanos = new AtomicLong();
+        private final AtomicLong allocatedBytes = new AtomicLong();
+
+        private WorkerCost(Thread owner) {
+            this.owner = owner;
+        }
+
+        private void add(long cpu, long allocated) {
+            cpuNanos.addAndGet(cpu);
+            allocatedBytes.addAndGet(allocated);
+        }
+    }
+
+    public static class StageMetrics {
+        private final String name;
+        private final double wallMs;
+        private final double cpuMs;
+        private final long allocatedBytes;
+
+        public StageMetrics(String name, double wallMs, double cpuMs, long allocatedBytes) {
+            this.name = name;
+            this.wallMs = wallMs;
+            this.cpuMs = cpuMs;
+            this.allocatedBytes = allocatedBytes;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public double getWallMs() {
+            return wallMs;
+        }
+
+        public double getCpuMs() {
+            return cpuMs;
+        }
+
+        public long getAllocatedBytes() {
+            return allocatedBytes;
+        }
+    }
+
+    private static class MethodMetrics {
+        private final String name;
+        private int stack;
+        private int locals;
+
+        MethodMetrics(String name) {
+            this.name = name;
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package pt.up.fe.comp2025.metrics;
+
+import com.google.gson.GsonBuilder;
+import pt.up.fe.specs.util.SpecsIo;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Records nested spans of the work done by the compiler (analysis passes, optimization iterations, register
+ * allocation, code generation of each method) in the Chrome trace-event format, which can be opened in
+ * chrome://tracing or https://ui.perfetto.dev.
+ * <p>
+ * Tracing is global to the process and disabled by default. When disabled, {@link #span} returns a shared span that
+ * does nothing, so instrumented code can always open spans.
+ */
+public class CompilerTrace {
+
+    private static final Span NO_SPAN = new Span(null, null, null, null);
+
+    private static volatile CompilerTrace active;
+
+    private final long pid;
+    private final long origin;
+    private final ConcurrentLinkedQueue<Map<String, Object>> events;
+    private final Map<Long, String> threadNames;
+
+    private CompilerTrace() {
+        this.pid = ProcessHandle.current().pid();
+        this.origin = System.nanoTime();
+        this.events = new ConcurrentLinkedQueue<>();
+        this.threadNames = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Starts recording spans, discarding any previously recorded ones.
+     */
+    public static void start() {
+        active = new CompilerTrace();
+    }
+
+    /**
+     * Stops recording spans.
+     *
+     * @return the trace that was being recorded, or null if tracing was not enabled
+     */
+    public static CompilerTrace stop() {
+        var trace = active;
+        active = null;
+        return trace;
+    }
+
+    public static boolean isEnabled() {
+        return active != null;
+    }
+
+    /**
+     * Opens a span that ends when it is closed, use it in a try-with-resources block.
+     *
+     * @param name     name of the step (e.g. the name of the pass)
+     * @param category group of the step (e.g. analysis, optimization, backend)
+     * @param method   method being processed, or null if the step is not specific to a method
+     * @return the opened span
+     */
+    public static Span span(String name, String category, String method) {
+        var trace = active;
+        if (trace == null) {
+            return NO_SPAN;
+        }
+
+        return new Span(trace, name, category, method);
+    }
+
+    /**
+     * Records a span timed by the caller, e.g. a step that runs in many small pieces interleaved with other steps.
+     *
+     * @param startNanos start of the span, from {@link System#nanoTime()}
+     * @param endNanos   end of the span, from {@link System#nanoTime()}
+     */
+    public static void addSpan(String name, String category, String method, long startNanos, long endNanos) {
+        var trace = active;
+        if (trace != null) {
+            trace.record(name, category, method, startNanos, endNanos);
+        }
+    }
+
+    public int getNumEvents() {
+        return events.size();
+    }
+
+    public String toJson() {
+        var traceEvents = new ArrayList<Map<String, Object>>();
+
+        // Metadata events, so that viewers show the name of each thread
+        threadNames.forEach((tid, threadName) -> {
+            var event = new LinkedHashMap<String, Object>();
+            event.put("name", "thread_name");
+            event.put("ph", "M");
+            event.put("pid", pid);
+            event.put("tid", tid);
+            event.put("args", Map.of("name", threadName));
+            traceEvents.add(event);
+        });
+
+        traceEvents.addAll(events);
+
+        var json = new LinkedHashMap<String, Object>();
+        json.put("traceEvents", traceEvents);
+        json.put("displayTimeUnit", "ms");
+
+        return new GsonBuilder().disableHtmlEscaping().create().toJson(json);
+    }
+
+    public void write(File outputFile) {
+        SpecsIo.write(outputFile, toJson());
+    }
+
+    private void record(String name, String category, String method, long startNanos, long endNanos) {
+        var thread = Thread.currentThread();
+        threadNames.putIfAbsent(thread.threadId(), thread.getName());
+
+        var args = new LinkedHashMap<String, Object>();
+        if (method != null) {
+            args.put("method", method);
+        }
+        args.put("thread", thread.getName());
+
+        // Complete event, timestamps are in microseconds
+        var event = new LinkedHashMap<String, Object>();
+        event.put("name", name);
+        event.put("cat", category);
+        event.put("ph", "X");
+        event.put("ts", (startNanos - origin) / 1e3);
+        event.put("dur", (endNanos - startNanos) / 1e3);
+        event.put("pid", pid);
+        event.put("tid", thread.threadId());
+        event.put("args", args);
+
+        events.add(event);
+    }
+
+    public static class Span implements AutoCloseable {
+        private final CompilerTrace trace;
+        private final String name;
+        private final String category;
+        private final String method;
+        private final long start;
+
+        private Span(CompilerTrace trace, String name, String category, String method) {
+            this.trace = trace;
+            this.name = name;
+            this.category = category;
+            this.method = method;
+            this.start = trace == null ? 0 : System.nanoTime();
+        }
+
+        @Override
+        public void close() {
+            if (trace != null) {
+                trace.record(name, category, method, start, System.nanoTime());
+            }
+        }
+    }
+}
@@ -1,17 +1,19 @@
 package pt.up.fe.comp2025.optimization;
 
 import pt.up.fe.comp.jmm.ast.JmmNode;
-import pt.up.fe.comp.jmm.ast.JmmNodeImpl;
-import pt.up.fe.comp.jmm.ast.PreorderJmmVisitor;
+import pt.up.fe.comp2025.ast.AstNode;
 import pt.up.fe.comp2025.ast.Kind;
+import pt.up.fe.comp2025.ast.KindVisitor;
+import pt.up.fe.comp2025.metrics.CompilerTrace;
 
-import java.util.List;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 
 /**
  * Visitor that performs constant folding optimization.
  * Evaluates constant expressions at compile time.
  */
-public class ConstantFoldingVisitor extends PreorderJmmVisitor<Void, Boolean> {
+public class ConstantFoldingVisitor extends KindVisitor<Void, Boolean> {
 
     public ConstantFoldingVisitor() {
         buildVisitor();
@@ -25,18 +27,65 @@ public class ConstantFoldingVisitor extends PreorderJmmVisitor<Void, Boolean> {
     }
 
     /**
-     * Visits binary operation nodes and folds them if both operands are constants.
+     * Folds the subtree of the node, each node after its children. When tracing, folds each method inside its own span.
+     *
+     * @return true if any node was folded
      */
-    private Boolean visitBinaryOp(JmmNode node, Void unused) {
-        // First, visit children to fold any nested expressions
-        boolean childrenChanged = false;
-        for (JmmNode child : node.getChildren()) {
-            Boolean childResult = visit(child);
-            if (childResult != null && childResult) {
-                childrenChanged = true;
+    @Override
+    public Boolean visit(JmmNode node, Void unused) {
+        if (!CompilerTrace.isEnabled() || !Kind.METHOD_DECL.check(node)) {
+            return fold(node);
+        }
+
+        try (var span = CompilerTrace.span("constantFolding", "optimization", node.get("methodName"))) {
+            return fold(node);
+        }
+    }
+
+    private boolean fold(JmmNode root) {
+        // Left operands of chains of operations are nested as deep as the chain is long, so the subtree is walked with
+        // a stack instead of recursion. In reverse preorder, each node comes after all of its descendants.
+        var nodes = new ArrayList<JmmNode>();
+        var methods = new ArrayList<JmmNode>();
+        var pending = new ArrayDeque<JmmNode>();
+        pending.push(root);
+
+        while (!pending.isEmpty()) {
+            var node = pending.pop();
+
+            // Methods are folded on their own when tracing, to be inside their span
+            if (node != root && CompilerTrace.isEnabled() && Kind.METHOD_DECL.check(node)) {
+                methods.add(node);
+                continue;
+            }
+
+            nodes.add(node);
+            for (var child : node.getChildren()) {
+                pending.push(child);
             }
         }
 
+        boolean changed = false;
+        for (int i = nodes.size() - 1; i >= 0; i--) {
+            var node = nodes.get(i);
+            if (getVisit(node).apply(node, null)) {
+                changed = true;
+            }
+        }
+
+        for (var method : methods) {
+            if (visit(method, null)) {
+                changed = true;
+            }
+        }
+
+        return changed;
+    }
+
+    /**
+     * Folds binary operation nodes if both operands are constants. The operands were already folded.
+     */
+    private Boolean visitBinaryOp(JmmNode node, Void unused) {
         try {
             String op = node.get("op");
             JmmNode leftNode = node.getChild(0);
@@ -51,11 +100,19 @@ public class ConstantFoldingVisitor extends PreorderJmmVisitor<Void, Boolean> {
                     int left = (Integer) leftValue;
                     int right = (Integer) rightValue;
 
+                    // Comparisons between constants fold into a boolean constant
+                    Boolean comparison = performComparison(op, left, right);
+                    if (comparison != null) {
+                        JmmNode constantNode = AstNode.newBoolean(comparison);
+
+                        node.replace(constantNode);
+                        return true;
+                    }
+
                     Integer result = performArithmeticOperation(op, left, right);
 
                     if (result != null) {
-                        JmmNode constantNode = new JmmNodeImpl(List.of(Kind.INTEGER.getNodeName()));
-                        constantNode.put("value", result.toString());
+                        JmmNode constantNode = AstNode.newInteger(result);
 
                         node.replace(constantNode);
                         return true;
@@ -67,9 +124,7 @@ public class ConstantFoldingVisitor extends PreorderJmmVisitor<Void, Boolean> {
                     Boolean result = performLogicalOperation(op, left, right);
 
                     if (result != null) {
-                        JmmNode constantNode = new JmmNodeImpl(List.of(result ?
-                                Kind.TRUE.getNodeName() :
-                                Kind.FALSE.getNodeName()));
+                        JmmNode constantNode = AstNode.newBoolean(result);
 
                         node.replace(constantNode);
                         return true;
@@ -80,22 +135,13 @@ public class ConstantFoldingVisitor extends PreorderJmmVisitor<Void, Boolean> {
             // Silently handle any parsing errors
         }
 
-        return childrenChanged;
+        return false;
     }
 
     /**
-     * Visits logical NOT operations and folds them if the operand is a constant.
+     * Folds logical NOT operations if the operand is a constant. The operand was already folded.
      */
     private Boolean visitLogicalNot(JmmNode node, Void unused) {
-        // First, visit the child to fold any nested expressions
-        boolean childChanged = false;
-        for (JmmNode child : node.getChildren()) {
-            Boolean childResult = visit(child);
-            if (childResult != null && childResult) {
-                childChanged = true;
-            }
-        }
-
         try {
             JmmNode operandNode = node.getChild(0);
             Object operandValue = extractConstantValue(operandNode);
@@ -104,9 +150,7 @@ public class ConstantFoldingVisitor extends PreorderJmmVisitor<Void, Boolean> {
                 boolean value = (Boolean) operandValue;
 
                 // Fold the NOT operation
-                JmmNode constantNode = new JmmNodeImpl(List.of(!value ?
-                        Kind.TRUE.getNodeName() :
-                        Kind.FALSE.getNodeName()));
+                JmmNode constantNode = AstNode.newBoolean(!value);
 
                 node.replace(constantNode);
                 return true;
@@ -115,17 +159,17 @@ public class ConstantFoldingVisitor extends PreorderJmmVisitor<Void, Boolean> {
             // Silently handle any parsing errors
         }
 
-        return childChanged;
+        return false;
     }
 
     /**
      * Extracts a constant value from a node if it is a constant.
      */
     private Object extractConstantValue(JmmNode node) {
-        switch (Kind.fromString(node.getKind())) {
+        switch (Kind.of(node)) {
             case INTEGER:
                 try {
-                    return Integer.parseInt(node.get("value"));
+                    return node.getInteger("value", 0);
                 } catch (NumberFormatException e) {
                     return null;
                 }
@@ -147,8 +191,17 @@ public class ConstantFoldingVisitor extends PreorderJmmVisitor<Void, Boolean> {
             case "-": return left - right;
             case "*": return left * right;
             case "/": return right != 0 ? left / right : null; // Avoid division by zero
-            case "<": return left < right ? 1 : 0;
-            case ">": return left > right ? 1 : 0;
+            default: return null;
+        }
+    }
+
+    /**
+     * Performs comparisons on constant integers.
+     */
+    private Boolean performComparison(String op, int left, int right) {
+        switch (op) {
+            case "<": return left < right;
+            case ">": return left > right;
             default: return null;
         }
     }
@@ -164,18 +217,9 @@ public class ConstantFoldingVisitor extends PreorderJmmVisitor<Void, Boolean> {
     }
 
     /**
-     * Default visit method for other node types.
+     * Default visit method for other node types, which are not folded.
      */
     private Boolean defaultVisit(JmmNode node, Void unused) {
-        boolean changed = false;
-
-        for (JmmNode child : node.getChildren()) {
-            Boolean childResult = visit(child);
-            if (childResult != null && childResult) {
-                changed = true;
-            }
-        }
-
-        return changed;
+        return false;
     }
-}
\ No newline at end of file
+}
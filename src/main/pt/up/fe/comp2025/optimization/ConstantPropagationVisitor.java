@@ -2,24 +2,29 @@ package pt.up.fe.comp2025.optimization;
 
 import pt.up.fe.comp.jmm.analysis.table.SymbolTable;
 import pt.up.fe.comp.jmm.ast.JmmNode;
-import pt.up.fe.comp.jmm.ast.JmmNodeImpl;
-import pt.up.fe.comp.jmm.ast.PreorderJmmVisitor;
+import pt.up.fe.comp2025.ast.AstNode;
 import pt.up.fe.comp2025.ast.Kind;
+import pt.up.fe.comp2025.ast.KindVisitor;
+import pt.up.fe.comp2025.metrics.CompilerTrace;
 import pt.up.fe.comp2025.ast.TypeUtils;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.List;
+import java.util.IdentityHashMap;
 import java.util.Map;
 
 /**
  * Visitor that performs constant propagation optimization.
  * Identifies variables with constant values and replaces their uses with the constant directly.
  */
-public class ConstantPropagationVisitor extends PreorderJmmVisitor<Void, Boolean> {
+public class ConstantPropagationVisitor extends KindVisitor<Void, Boolean> {
     // Map to track variables with constant values
     private final Map<String, Map<String, Object>> methodVars = new HashMap<>();
     private final SymbolTable symbolTable;
     private String currentMethod;
+    // Nodes still to visit and actions still to run, in the order they are popped
+    private ArrayDeque<Object> pending;
 
     public ConstantPropagationVisitor(SymbolTable symbolTable) {
         this.symbolTable = symbolTable;
@@ -37,64 +42,110 @@ public class ConstantPropagationVisitor extends PreorderJmmVisitor<Void, Boolean
     }
 
     /**
-     * Tracks when we enter a new method to reset variable tracking.
+     * Propagates constants in the subtree of the node. When tracing, visits each method inside its own span.
+     *
+     * @return true if any identifier was replaced by a constant
      */
-    private Boolean visitMethodDecl(JmmNode node, Void unused) {
-        currentMethod = node.get("methodName");
-        methodVars.put(currentMethod, new HashMap<>());
+    @Override
+    public Boolean visit(JmmNode node, Void unused) {
+        if (!CompilerTrace.isEnabled() || !Kind.METHOD_DECL.check(node)) {
+            return propagate(node);
+        }
 
-        // Visit children
+        try (var span = CompilerTrace.span("constantPropagation", "optimization", node.get("methodName"))) {
+            return propagate(node);
+        }
+    }
+
+    private boolean propagate(JmmNode root) {
+        // Left operands of chains of operations are nested as deep as the chain is long, so the subtree is walked with
+        // a stack instead of recursion. The visit methods push the children, and the actions to run after them.
+        pending = new ArrayDeque<>();
+        pending.push(root);
+
+        var methods = new ArrayList<JmmNode>();
         boolean changed = false;
-        for (JmmNode child : node.getChildren()) {
-            Boolean childResult = visit(child);
-            if (childResult != null && childResult) {
+
+        while (!pending.isEmpty()) {
+            var next = pending.pop();
+
+            if (next instanceof Runnable action) {
+                action.run();
+                continue;
+            }
+
+            var node = (JmmNode) next;
+
+            // Methods are visited on their own when tracing, to be inside their span
+            if (node != root && CompilerTrace.isEnabled() && Kind.METHOD_DECL.check(node)) {
+                methods.add(node);
+                continue;
+            }
+
+            if (getVisit(node).apply(node, null)) {
+                changed = true;
+            }
+        }
+
+        for (var method : methods) {
+            if (visit(method, null)) {
                 changed = true;
             }
         }
+
         return changed;
     }
 
+    /**
+     * Visits the given nodes and runs the given actions, in order, after the visit method that schedules them.
+     */
+    private void schedule(Object... steps) {
+        for (int i = steps.length - 1; i >= 0; i--) {
+            pending.push(steps[i]);
+        }
+    }
+
+    private void scheduleChildren(JmmNode node) {
+        schedule(node.getChildren().toArray());
+    }
+
+    /**
+     * Tracks when we enter a new method to reset variable tracking.
+     */
+    private Boolean visitMethodDecl(JmmNode node, Void unused) {
+        currentMethod = node.get("methodName");
+        methodVars.put(currentMethod, new HashMap<>());
+
+        scheduleChildren(node);
+        return false;
+    }
+
     /**
      * Processes assignment statements to track constant values.
      */
     private Boolean visitAssignment(JmmNode node, Void unused) {
+        // Visit RHS first to propagate constants within it, then track the variable
+        schedule(node.getChild(0), (Runnable) () -> trackAssignment(node));
+        return false;
+    }
+
+    private void trackAssignment(JmmNode node) {
         try {
             String varName = node.get("var");
-            JmmNode valueNode = node.getChild(0);
-
-            // Visit RHS first to propagate constants within it
-            boolean rhsChanged = false;
-            Boolean childResult = visit(valueNode);
-            if (childResult != null && childResult) {
-                rhsChanged = true;
-            }
 
             // Check if the right-hand side is a constant after visiting
-            Object constantValue = extractConstantValue(valueNode);
+            Object constantValue = extractConstantValue(node.getChild(0));
 
             // If we found a constant, update our tracking map
             if (constantValue != null) {
                 methodVars.get(currentMethod).put(varName, constantValue);
-                return rhsChanged; // Return if RHS changed
             } else {
                 // If it's not a constant, remove any previous constant tracking for this variable
                 methodVars.get(currentMethod).remove(varName);
             }
-
-            return rhsChanged;
         } catch (Exception e) {
             // Silently handle any parsing errors
         }
-
-        // Visit children (the value expression)
-        boolean changed = false;
-        for (JmmNode child : node.getChildren()) {
-            Boolean childResult = visit(child);
-            if (childResult != null && childResult) {
-                changed = true;
-            }
-        }
-        return changed;
     }
 
     /**
@@ -110,12 +161,9 @@ public class ConstantPropagationVisitor extends PreorderJmmVisitor<Void, Boolean
 
                 JmmNode constantNode;
                 if (constantValue instanceof Integer) {
-                    constantNode = new JmmNodeImpl(List.of(Kind.INTEGER.getNodeName()));
-                    constantNode.put("value", constantValue.toString());
+                    constantNode = AstNode.newInteger((Integer) constantValue);
                 } else if (constantValue instanceof Boolean) {
-                    constantNode = new JmmNodeImpl(List.of((Boolean) constantValue ?
-                            Kind.TRUE.getNodeName() :
-                            Kind.FALSE.getNodeName()));
+                    constantNode = AstNode.newBoolean((Boolean) constantValue);
                 } else {
                     return false;
                 }
@@ -135,24 +183,15 @@ public class ConstantPropagationVisitor extends PreorderJmmVisitor<Void, Boolean
      * but we're more conservative about what happens inside the loop.
      */
     private Boolean visitWhileStmt(JmmNode node, Void unused) {
-        // We can safely propagate constants into the condition
-        boolean changed = false;
-
         // Create backup of constants before entering
         Map<String, Object> backupConstants = new HashMap<>(methodVars.get(currentMethod));
 
-        // First, visit the condition expression to propagate constants
-        Boolean condChanged = visit(node.getChild(0));
-        if (condChanged != null && condChanged) {
-            changed = true;
-        }
-
-        // Visit the loop body
-        Boolean bodyChanged = visit(node.getChild(1));
-        if (bodyChanged != null && bodyChanged) {
-            changed = true;
-        }
+        // First, visit the condition expression to propagate constants, then the loop body
+        schedule(node.getChild(0), node.getChild(1), (Runnable) () -> afterWhile(backupConstants));
+        return false;
+    }
 
+    private void afterWhile(Map<String, Object> backupConstants) {
         // After visiting the loop body, we need to be conservative about which constants we keep
         // For simplicity in this implementation, we'll keep constants that weren't modified in the loop body
         // In a real optimizing compiler, you'd do a more sophisticated analysis (like reaching definitions)
@@ -166,56 +205,73 @@ public class ConstantPropagationVisitor extends PreorderJmmVisitor<Void, Boolean
         if (backupConstants.containsKey("a")) {
             methodVars.get(currentMethod).put("a", backupConstants.get("a"));
         }
-
-        return changed;
     }
 
     /**
      * Special handling for if statements - we need to be cautious with propagation in branches.
      */
     private Boolean visitIfStmt(JmmNode node, Void unused) {
-        // We can safely propagate constants into the condition
-        boolean changed = false;
-        Boolean condChanged = visit(node.getChild(0));
-        if (condChanged != null && condChanged) {
-            changed = true;
-        }
-
-        // Create backup of constants before entering if/else branches
+        // Create backup of constants before entering if/else branches. Visiting the condition does not assign any
+        // variable, so these are also the constants after it.
         Map<String, Object> backupConstants = new HashMap<>(methodVars.get(currentMethod));
+        Runnable restore = () -> {
+            methodVars.get(currentMethod).clear();
+            methodVars.get(currentMethod).putAll(backupConstants);
+        };
+
+        // We can safely propagate constants into the condition. The constants are restored to their state before the
+        // branches after each one. After both branches, we can only keep constants that have the same value in both
+        // branches, so for simplicity, we'll just clear all constants that might have been modified.
+        schedule(node.getChild(0), node.getChild(1), restore, node.getChild(2), restore);
+        return false;
+    }
 
-        // Visit the then branch
-        Boolean thenChanged = visit(node.getChild(1));
-        if (thenChanged != null && thenChanged) {
-            changed = true;
+    /**
+     * Extracts a constant value from a node if it is a constant.
+     */
+    private Object extractConstantValue(JmmNode node) {
+        if (!Kind.BINARY_OP.check(node)) {
+            return extractOperandValue(node, Map.of());
         }
 
-        // Restore constants to their state before the branch
-        methodVars.get(currentMethod).clear();
-        methodVars.get(currentMethod).putAll(backupConstants);
+        // Try to evaluate constant binary operations. Chains of operations are nested as deep as they are long, so
+        // the operations are collected with a stack and evaluated in reverse, each one after its operands.
+        var operations = new ArrayList<JmmNode>();
+        var pendingOperations = new ArrayDeque<JmmNode>();
+        pendingOperations.push(node);
 
-        // Visit the else branch
-        Boolean elseChanged = visit(node.getChild(2));
-        if (elseChanged != null && elseChanged) {
-            changed = true;
+        while (!pendingOperations.isEmpty()) {
+            var operation = pendingOperations.pop();
+            if (operation.getNumChildren() != 2) return null;
+
+            operations.add(operation);
+            for (var operand : operation.getChildren()) {
+                if (Kind.BINARY_OP.check(operand)) {
+                    pendingOperations.push(operand);
+                }
+            }
         }
 
-        // After both branches, we can only keep constants that have the same value in both branches
-        // For simplicity, we'll just clear all constants that might have been modified
-        methodVars.get(currentMethod).clear();
-        methodVars.get(currentMethod).putAll(backupConstants);
+        var values = new IdentityHashMap<JmmNode, Object>();
+        for (int i = operations.size() - 1; i >= 0; i--) {
+            var operation = operations.get(i);
+            Object left = extractOperandValue(operation.getChild(0), values);
+            Object right = extractOperandValue(operation.getChild(1), values);
 
-        return changed;
+            values.put(operation, evaluate(operation.get("op"), left, right));
+        }
+
+        return values.get(node);
     }
 
     /**
-     * Extracts a constant value from a node if it is a constant.
+     * @param operations values of the binary operations that were already evaluated
      */
-    private Object extractConstantValue(JmmNode node) {
-        switch (Kind.fromString(node.getKind())) {
+    private Object extractOperandValue(JmmNode node, Map<JmmNode, Object> operations) {
+        switch (Kind.of(node)) {
             case INTEGER:
                 try {
-                    return Integer.parseInt(node.get("value"));
+                    return node.getInteger("value", 0);
                 } catch (NumberFormatException e) {
                     return null;
                 }
@@ -231,59 +287,47 @@ public class ConstantPropagationVisitor extends PreorderJmmVisitor<Void, Boolean
                 }
                 return null;
             case BINARY_OP:
-                // Try to evaluate constant binary operations
-                if (node.getNumChildren() != 2) return null;
-
-                Object left = extractConstantValue(node.getChild(0));
-                Object right = extractConstantValue(node.getChild(1));
-
-                if (left != null && right != null) {
-                    String op = node.get("op");
-
-                    // Both operands are constants, attempt to evaluate
-                    if (left instanceof Integer && right instanceof Integer) {
-                        int leftInt = (Integer) left;
-                        int rightInt = (Integer) right;
-
-                        switch (op) {
-                            case "+": return leftInt + rightInt;
-                            case "-": return leftInt - rightInt;
-                            case "*": return leftInt * rightInt;
-                            case "/": return rightInt != 0 ? leftInt / rightInt : null;
-                            case "<": return leftInt < rightInt;
-                            case ">": return leftInt > rightInt;
-                        }
-                    }
-
-                    // Boolean operations
-                    if (left instanceof Boolean && right instanceof Boolean) {
-                        boolean leftBool = (Boolean) left;
-                        boolean rightBool = (Boolean) right;
-
-                        if ("&&".equals(op)) {
-                            return leftBool && rightBool;
-                        }
-                    }
-                }
-                return null;
+                return operations.get(node);
             default:
                 return null;
         }
     }
 
-    /**
-     * Default visit method for other node types.
-     */
-    private Boolean defaultVisit(JmmNode node, Void unused) {
-        boolean changed = false;
+    private Object evaluate(String op, Object left, Object right) {
+        if (left != null && right != null) {
+            // Both operands are constants, attempt to evaluate
+            if (left instanceof Integer && right instanceof Integer) {
+                int leftInt = (Integer) left;
+                int rightInt = (Integer) right;
+
+                switch (op) {
+                    case "+": return leftInt + rightInt;
+                    case "-": return leftInt - rightInt;
+                    case "*": return leftInt * rightInt;
+                    case "/": return rightInt != 0 ? leftInt / rightInt : null;
+                    case "<": return leftInt < rightInt;
+                    case ">": return leftInt > rightInt;
+                }
+            }
 
-        for (JmmNode child : node.getChildren()) {
-            Boolean childResult = visit(child);
-            if (childResult != null && childResult) {
-                changed = true;
+            // Boolean operations
+            if (left instanceof Boolean && right instanceof Boolean) {
+                boolean leftBool = (Boolean) left;
+                boolean rightBool = (Boolean) right;
+
+                if ("&&".equals(op)) {
+                    return leftBool && rightBool;
+                }
             }
         }
+        return null;
+    }
 
-        return changed;
+    /**
+     * Default visit method for other node types.
+     */
+    private Boolean defaultVisit(JmmNode node, Void unused) {
+        scheduleChildren(node);
+        return false;
     }
-}
\ No newline at end of file
+}
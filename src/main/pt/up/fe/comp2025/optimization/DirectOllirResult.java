@@ -0,0 +1,80 @@
+package pt.up.fe.comp2025.optimization;
+
+import org.specs.comp.ollir.ClassUnit;
+import pt.up.fe.comp.jmm.analysis.JmmSemanticsResult;
+import pt.up.fe.comp.jmm.ollir.OllirResult;
+import pt.up.fe.comp.jmm.report.Report;
+import pt.up.fe.specs.util.SpecsCollections;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * An OLLIR result whose class was built directly, instead of parsed from OLLIR code.
+ * <p>
+ * The code is only generated the first time it is requested, e.g. to print it or to write it to the compilation cache.
+ * <p>
+ * The constructors of {@link OllirResult} always parse OLLIR code, so results are not constructed: {@link #of} copies
+ * a single instance, parsed once, and every getter of the superclass is overridden.
+ */
+public class DirectOllirResult extends OllirResult implements Cloneable {
+
+    private static final DirectOllirResult PROTOTYPE = new DirectOllirResult();
+
+    private ClassUnit ollirClass;
+    private Supplier<String> codeGenerator;
+    private List<Report> reports;
+    private Map<String, String> config;
+
+    private String ollirCode;
+
+    private DirectOllirResult() {
+        // The smallest class the OLLIR parser accepts, never returned
+        super("Empty {}", Map.of());
+    }
+
+    /**
+     * @param codeGenerator generates the OLLIR code of the given class
+     */
+    public static DirectOllirResult of(JmmSemanticsResult semanticsResult, ClassUnit ollirClass,
+                                       Supplier<String> codeGenerator, List<Report> reports) {
+        DirectOllirResult result;
+        try {
+            result = (DirectOllirResult) PROTOTYPE.clone();
+        } catch (CloneNotSupportedException e) {
+            throw new IllegalStateException(e);
+        }
+
+        result.ollirClass = ollirClass;
+        result.codeGenerator = codeGenerator;
+        result.reports = SpecsCollections.concat(semanticsResult.getReports(), reports);
+        result.config = semanticsResult.getConfig();
+
+        return result;
+    }
+
+    @Override
+    public synchronized String getOllirCode() {
+        if (ollirCode == null) {
+            ollirCode = codeGenerator.get();
+        }
+
+        return ollirCode;
+    }
+
+    @Override
+    public ClassUnit getOllirClass() {
+        return ollirClass;
+    }
+
+    @Override
+    public List<Report> getReports() {
+        return reports;
+    }
+
+    @Override
+    public Map<String, String> getConfig() {
+        return config;
+    }
+}
@@ -1,14 +1,17 @@
 package pt.up.fe.comp2025.optimization;
 
 import pt.up.fe.comp.jmm.analysis.JmmSemanticsResult;
+import pt.up.fe.comp.jmm.analysis.table.SymbolTable;
 import pt.up.fe.comp.jmm.ollir.JmmOptimization;
 import pt.up.fe.comp.jmm.ollir.OllirResult;
+import pt.up.fe.comp2025.CompilerConfig;
 import pt.up.fe.comp2025.ConfigOptions;
 import pt.up.fe.comp.jmm.ast.JmmNode;
 import pt.up.fe.comp.jmm.report.Report;
 import pt.up.fe.comp.jmm.report.ReportType;
 import pt.up.fe.comp.jmm.report.Stage;
 import pt.up.fe.comp2025.backend.RegisterAllocator;
+import pt.up.fe.comp2025.metrics.CompilerTrace;
 
 import java.util.ArrayList;
 import java.util.Collections;
@@ -18,11 +21,21 @@ public class JmmOptimizationImpl implements JmmOptimization {
 
     @Override
     public OllirResult toOllir(JmmSemanticsResult semanticsResult) {
+        var table = semanticsResult.getSymbolTable();
+        var rootNode = semanticsResult.getRootNode();
+
+        // Build the class directly, the code is only generated if it is requested
+        if (CompilerConfig.getDirectOllir(semanticsResult.getConfig())) {
+            var ollirClass = new OllirClassBuilder(table).build(rootNode);
+            return DirectOllirResult.of(semanticsResult, ollirClass,
+                    () -> new OllirGeneratorVisitor(table).visit(rootNode), Collections.emptyList());
+        }
+
         // Create visitor that will generate the OLLIR code
-        var visitor = new OllirGeneratorVisitor(semanticsResult.getSymbolTable());
+        var visitor = new OllirGeneratorVisitor(table);
 
         // Visit the AST and obtain OLLIR code
-        var ollirCode = visitor.visit(semanticsResult.getRootNode());
+        var ollirCode = visitor.visit(rootNode);
 
         return new OllirResult(semanticsResult, ollirCode, Collections.emptyList());
     }
@@ -40,34 +53,52 @@ public class JmmOptimizationImpl implements JmmOptimization {
 
         // We don't need to create a copy of the root node, we'll optimize it directly
         var rootNode = semanticsResult.getRootNode();
+        optimizeToFixedPoint(rootNode, semanticsResult.getSymbolTable());
 
+        // Return the optimized semantics result
+        return new JmmSemanticsResult(rootNode, semanticsResult.getSymbolTable(), reports, semanticsResult.getConfig());
+    }
+
+    /**
+     * Applies the AST optimizations to a single method. Constant propagation starts over in each method, so this gives
+     * the same method as optimizing the whole tree, which lets only the methods that changed be optimized again.
+     */
+    public void optimizeMethod(JmmNode method, JmmSemanticsResult semanticsResult) {
+        if (ConfigOptions.getOptimize(semanticsResult.getConfig())) {
+            optimizeToFixedPoint(method, semanticsResult.getSymbolTable());
+        }
+    }
+
+    private void optimizeToFixedPoint(JmmNode node, SymbolTable table) {
         // Apply constant propagation visitor
-        var constantPropVisitor = new ConstantPropagationVisitor(semanticsResult.getSymbolTable());
+        var constantPropVisitor = new ConstantPropagationVisitor(table);
 
         // Apply constant folding visitor
         var constantFoldVisitor = new ConstantFoldingVisitor();
 
         // Apply optimizations until we reach a fixed point
         boolean changed;
+        int iteration = 0;
         do {
             changed = false;
-
-            // Apply constant propagation
-            Boolean propResult = constantPropVisitor.visit(rootNode);
-            if (propResult != null && propResult) {
-                changed = true;
-            }
-
-            // Apply constant folding
-            Boolean foldResult = constantFoldVisitor.visit(rootNode);
-            if (foldResult != null && foldResult) {
-                changed = true;
+            iteration++;
+
+            // Each iteration gets its own span, with a nested span per method for each visitor
+            try (var span = CompilerTrace.span("fixedPointIteration " + iteration, "optimization", null)) {
+                // Apply constant propagation
+                Boolean propResult = constantPropVisitor.visit(node);
+                if (propResult != null && propResult) {
+                    changed = true;
+                }
+
+                // Apply constant folding
+                Boolean foldResult = constantFoldVisitor.visit(node);
+                if (foldResult != null && foldResult) {
+                    changed = true;
+                }
             }
 
         } while (changed);
-
-        // Return the optimized semantics result
-        return new JmmSemanticsResult(rootNode, semanticsResult.getSymbolTable(), reports, semanticsResult.getConfig());
     }
 
     @Override
@@ -0,0 +1,386 @@
+package pt.up.fe.comp2025.optimization;
+
+import org.specs.comp.ollir.AccessModifier;
+import org.specs.comp.ollir.ArrayOperand;
+import org.specs.comp.ollir.ClassUnit;
+import org.specs.comp.ollir.Element;
+import org.specs.comp.ollir.Field;
+import org.specs.comp.ollir.LiteralElement;
+import org.specs.comp.ollir.Method;
+import org.specs.comp.ollir.Operand;
+import org.specs.comp.ollir.inst.AssignInstruction;
+import org.specs.comp.ollir.inst.GotoInstruction;
+import org.specs.comp.ollir.inst.Instruction;
+import org.specs.comp.ollir.inst.InvokeSpecialInstruction;
+import org.specs.comp.ollir.inst.PutFieldInstruction;
+import org.specs.comp.ollir.inst.ReturnInstruction;
+import org.specs.comp.ollir.inst.SingleOpCondInstruction;
+import org.specs.comp.ollir.inst.SingleOpInstruction;
+import org.specs.comp.ollir.type.BuiltinKind;
+import org.specs.comp.ollir.type.BuiltinType;
+import org.specs.comp.ollir.type.ClassKind;
+import org.specs.comp.ollir.type.ClassType;
+import pt.up.fe.comp.jmm.analysis.table.SymbolTable;
+import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp2025.ast.KindVisitor;
+import pt.up.fe.comp2025.ast.TypeUtils;
+import pt.up.fe.comp2025.symboltable.JmmSymbolTable;
+import pt.up.fe.comp2025.symboltable.ScopedSymbol;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static pt.up.fe.comp2025.ast.Kind.*;
+
+/**
+ * Builds the OLLIR {@link ClassUnit} of JmmNodes that are not expressions, without generating OLLIR code.
+ * <p>
+ * The class is the same the OLLIR parser gives for the code of {@link OllirGeneratorVisitor}, instruction by
+ * instruction and with the same names of temporaries and labels, so that code can be generated only when it is needed.
+ */
+public class OllirClassBuilder extends KindVisitor<Void, Void> {
+
+    private final SymbolTable table;
+
+    private final TypeUtils types;
+    private final OptUtils ollirTypes;
+    private int ifCounter = 0;
+    private int whileCounter = 0;
+
+    private final OllirExprBuilder exprBuilder;
+
+    private ClassUnit classUnit;
+
+    // Method of the visited statements, with the types of its variables
+    private String currentMethod;
+    private TypeUtils methodTypes;
+
+    // Labels (as strings) and instructions of the current method, in order
+    private List<Object> code = new ArrayList<>();
+
+    public OllirClassBuilder(SymbolTable table) {
+        this.table = table;
+        this.types = new TypeUtils(table);
+        this.ollirTypes = new OptUtils(types);
+        this.exprBuilder = new OllirExprBuilder(table, this);
+    }
+
+    /**
+     * Builds the class of the given program, with the var tables of its methods.
+     */
+    public ClassUnit build(JmmNode program) {
+        classUnit = new ClassUnit();
+        visit(program);
+        classUnit.buildVarTables();
+
+        return classUnit;
+    }
+
+    @Override
+    protected void buildVisitor() {
+        addVisit(PROGRAM, this::visitProgram);
+        addVisit(IMPORT_DECL, this::visitImportDecl);
+        addVisit(CLASS_DECL, this::visitClass);
+        addVisit(METHOD_DECL, this::visitMethodDecl);
+        addVisit(BLOCK_STMT, this::visitBlockStmt);
+        addVisit(IF_STMT, this::visitIfStmt);
+        addVisit(WHILE_STMT, this::visitWhileStmt);
+        addVisit(ASSIGN_STMT, this::visitAssignStmt);
+        addVisit(ARRAY_ASSIGN_STMT, this::visitArrayAssignStmt);
+        addVisit(EXPR_STMT, this::visitExprStmt);
+        setDefaultVisit(this::defaultVisit);
+    }
+
+    /**
+     * Adds an instruction to the current method.
+     */
+    void emit(Instruction instruction) {
+        code.add(instruction);
+    }
+
+    /**
+     * Labels the next instruction added to the current method.
+     */
+    void label(String label) {
+        code.add(label);
+    }
+
+    /**
+     * Adds the instructions of the given emitter to the given list instead of the current method, e.g. to add them in
+     * a different order than they are built.
+     */
+    <T> T capture(List<Object> buffer, Supplier<T> emitter) {
+        var previous = code;
+        code = buffer;
+
+        try {
+            return emitter.get();
+        } finally {
+            code = previous;
+        }
+    }
+
+    /**
+     * The operand 'this', with the type the OLLIR parser gives it when it is the object of an instruction.
+     */
+    Operand thisObject() {
+        return new Operand("this", new ClassType(ClassKind.THIS, table.getClassName()));
+    }
+
+
+    private Void visitProgram(JmmNode node, Void unused) {
+        for (var child : node.getChildren()) {
+            visit(child);
+        }
+
+        return null;
+    }
+
+
+    private Void visitImportDecl(JmmNode node, Void unused) {
+        classUnit.addImport(String.join(".", node.getObjectAsList("importName", String.class)));
+        return null;
+    }
+
+
+    private Void visitClass(JmmNode node, Void unused) {
+        classUnit.setClassName(table.getClassName());
+
+        if (table.getSuper() != null) {
+            classUnit.setSuperClass(table.getSuper());
+        }
+
+        for (var child : node.getChildren(VAR_DECL)) {
+            var field = new Field();
+            field.setFieldAccessModifier(AccessModifier.PUBLIC);
+            field.setFieldName(child.get("var"));
+            field.setFieldType(OptUtils.toOllirClassType(ollirTypes.toOllirType(types.getFieldType(child.get("var")))));
+            classUnit.addField(field);
+        }
+
+        classUnit.addMethod(buildConstructor());
+
+        for (var child : node.getChildren(METHOD_DECL)) {
+            visit(child);
+        }
+
+        return null;
+    }
+
+
+    private Void visitMethodDecl(JmmNode node, Void unused) {
+        var method = new Method(classUnit);
+        var methodName = node.get("methodName");
+        currentMethod = methodName;
+        methodTypes = new TypeUtils(table, methodName);
+        exprBuilder.setCurrentMethod(methodName);
+
+        if (node.getBoolean("isPublic", false)) {
+            method.setMethodAccessModifier(AccessModifier.PUBLIC);
+        }
+        if (node.getBoolean("isStatic", false)) {
+            method.setStaticMethod();
+        }
+
+        var params = table.getParameters(methodName);
+        if (!params.isEmpty() && params.getLast().getType().getName().equals("...")) {
+            method.setVarargs(true);
+        }
+
+        var paramId = method.isStaticMethod() ? 0 : 1;
+        for (var param : params) {
+            var operand = new Operand(param.getName(), OptUtils.toOllirClassType(ollirTypes.toOllirType(param.getType())));
+            operand.setParamId(paramId++);
+            method.addParam(operand);
+        }
+
+        code = new ArrayList<>();
+
+        for (var stmt : node.getChildren(STMT)) {
+            visit(stmt);
+        }
+
+        var retType = ollirTypes.toOllirType(table.getReturnType(methodName));
+        ReturnInstruction ret;
+
+        if (node.hasAttribute("hasReturn")) {
+            var retExpr = node.getChild(node.getChildren().size() - 1);
+            ret = new ReturnInstruction(exprBuilder.visit(retExpr));
+            ret.setReturnType(OptUtils.toOllirClassType(retType));
+        } else {
+            ret = new ReturnInstruction();
+            ret.setReturnType(new BuiltinType(BuiltinKind.VOID));
+        }
+        emit(ret);
+
+        addCode(method);
+        method.setReturnType(OptUtils.toOllirClassType(retType));
+        method.setMethodName(methodName);
+        classUnit.addMethod(method);
+
+        return null;
+    }
+
+    /**
+     * Adds the instructions of the current method to the given method, each with the labels that come before it.
+     */
+    private void addCode(Method method) {
+        var labels = new ArrayList<String>();
+
+        for (var entry : code) {
+            if (entry instanceof String label) {
+                labels.add(label);
+                continue;
+            }
+
+            var instruction = (Instruction) entry;
+            for (var label : labels) {
+                method.addLabel(label, instruction);
+            }
+            labels.clear();
+
+            method.addInstr(instruction);
+        }
+    }
+
+
+    private Void visitBlockStmt(JmmNode node, Void unused) {
+        for (var child : node.getChildren()) {
+            visit(child);
+        }
+
+        return null;
+    }
+
+
+    private Void visitIfStmt(JmmNode node, Void unused) {
+        ifCounter++;
+
+        var cond = exprBuilder.visit(node.getChild(0));
+
+        // The then branch is built first, for the same temporaries and labels, but comes after the else branch
+        var thenCode = new ArrayList<>();
+        var elseCode = new ArrayList<>();
+        capture(thenCode, () -> visit(node.getChild(1)));
+        capture(elseCode, () -> visit(node.getChild(2)));
+
+        // Like the generated code, the labels use the counter after the branches are visited
+        emit(branch(cond, "Then" + ifCounter));
+        code.addAll(elseCode);
+        emit(new GotoInstruction("End" + ifCounter));
+        label("Then" + ifCounter);
+        code.addAll(thenCode);
+        label("End" + ifCounter);
+
+        return null;
+    }
+
+
+    private Void visitWhileStmt(JmmNode node, Void unused) {
+        whileCounter++;
+
+        var cond = exprBuilder.visit(node.getChild(0));
+        var body = new ArrayList<>();
+        capture(body, () -> visit(node.getChild(1)));
+
+        // Conditions of type int are used as booleans
+        if (cond.getType() instanceof BuiltinType builtinType && builtinType.getKind() == BuiltinKind.INT32) {
+            var boolType = new BuiltinType(BuiltinKind.BOOLEAN);
+            cond = cond instanceof LiteralElement literal ? new LiteralElement(literal.getLiteral(), boolType)
+                    : new Operand(((Operand) cond).getName(), boolType);
+        }
+
+        // Like the generated code, the labels use the counter after the body is visited
+        label("Cond" + whileCounter);
+        emit(branch(cond, "Then" + whileCounter));
+        emit(new GotoInstruction("End" + whileCounter));
+        label("Then" + whileCounter);
+        code.addAll(body);
+        emit(new GotoInstruction("Cond" + whileCounter));
+        label("End" + whileCounter);
+
+        return null;
+    }
+
+    private SingleOpCondInstruction branch(Element cond, String label) {
+        if (!(cond.getType() instanceof BuiltinType builtinType) || builtinType.getKind() != BuiltinKind.BOOLEAN) {
+            throw new RuntimeException("Expected a condition of type " + BuiltinKind.BOOLEAN + ", is "
+                    + cond.getType() + " instead");
+        }
+
+        var branch = new SingleOpCondInstruction(new SingleOpInstruction(cond));
+        branch.setLabel(label);
+
+        return branch;
+    }
+
+
+    private Void visitAssignStmt(JmmNode node, Void unused) {
+        var rhs = exprBuilder.visit(node.getChild(0));
+
+        var varName = node.get("var");
+        var typeString = ollirTypes.toOllirType(methodTypes.getExprType(node.getChild(0)));
+
+        if (isField(varName, currentMethod)) {
+            emit(new PutFieldInstruction(thisObject(), new Operand(varName, OptUtils.toOllirClassType(typeString)), rhs,
+                    OptUtils.toOllirClassType(typeString)));
+        } else {
+            emit(new AssignInstruction(new Operand(varName, OptUtils.toOllirClassType(typeString)),
+                    OptUtils.toOllirClassType(typeString), new SingleOpInstruction(rhs)));
+        }
+
+        return null;
+    }
+
+    /**
+     * Determines if a variable is a field (and not a local variable or parameter).
+     */
+    private boolean isField(String varName, String methodName) {
+        var variable = ((JmmSymbolTable) table).getVariable(methodName, varName);
+        return variable != null && variable.scope() == ScopedSymbol.Scope.FIELD;
+    }
+
+
+    private Void visitArrayAssignStmt(JmmNode node, Void unused) {
+        var index = exprBuilder.visit(node.getChild(0));
+        var rhs = exprBuilder.visit(node.getChild(1));
+
+        var typeString = ollirTypes.toOllirType(methodTypes.getExprType(node.getChild(1)));
+
+        var dest = new ArrayOperand(node.get("var"), OptUtils.toOllirClassType(typeString), List.of(index));
+        emit(new AssignInstruction(dest, OptUtils.toOllirClassType(typeString), new SingleOpInstruction(rhs)));
+
+        return null;
+    }
+
+
+    private Void visitExprStmt(JmmNode node, Void unused) {
+        exprBuilder.visit(node.getChild(0));
+        return null;
+    }
+
+    private Method buildConstructor() {
+        var constructor = new Method(classUnit);
+        constructor.setConstructMethod();
+        constructor.addInstr(new InvokeSpecialInstruction(thisObject(),
+                new LiteralElement("<init>", new BuiltinType(BuiltinKind.STRING)), null, new ArrayList<>(),
+                new BuiltinType(BuiltinKind.VOID), true));
+        constructor.setReturnType(new BuiltinType(BuiltinKind.VOID));
+        constructor.setMethodName(table.getClassName());
+
+        return constructor;
+    }
+
+
+    /**
+     * Default visitor. Visits every child node.
+     */
+    private Void defaultVisit(JmmNode node, Void unused) {
+        for (var child : node.getChildren()) {
+            visit(child);
+        }
+
+        return null;
+    }
+}
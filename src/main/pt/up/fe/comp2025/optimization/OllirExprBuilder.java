@@ -0,0 +1,392 @@
+package pt.up.fe.comp2025.optimization;
+
+import org.specs.comp.ollir.ArrayOperand;
+import org.specs.comp.ollir.Element;
+import org.specs.comp.ollir.LiteralElement;
+import org.specs.comp.ollir.Operand;
+import org.specs.comp.ollir.Operation;
+import org.specs.comp.ollir.OperationType;
+import org.specs.comp.ollir.inst.ArrayLengthInstruction;
+import org.specs.comp.ollir.inst.AssignInstruction;
+import org.specs.comp.ollir.inst.BinaryOpInstruction;
+import org.specs.comp.ollir.inst.GetFieldInstruction;
+import org.specs.comp.ollir.inst.GotoInstruction;
+import org.specs.comp.ollir.inst.Instruction;
+import org.specs.comp.ollir.inst.InvokeSpecialInstruction;
+import org.specs.comp.ollir.inst.InvokeStaticInstruction;
+import org.specs.comp.ollir.inst.InvokeVirtualInstruction;
+import org.specs.comp.ollir.inst.NewInstruction;
+import org.specs.comp.ollir.inst.OpCondInstruction;
+import org.specs.comp.ollir.inst.SingleOpInstruction;
+import org.specs.comp.ollir.inst.UnaryOpInstruction;
+import org.specs.comp.ollir.type.ArrayType;
+import org.specs.comp.ollir.type.BuiltinKind;
+import org.specs.comp.ollir.type.BuiltinType;
+import org.specs.comp.ollir.type.ClassKind;
+import org.specs.comp.ollir.type.ClassType;
+import pt.up.fe.comp.jmm.analysis.table.SymbolTable;
+import pt.up.fe.comp.jmm.analysis.table.Type;
+import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp2025.ast.KindVisitor;
+import pt.up.fe.comp2025.ast.TypeUtils;
+import pt.up.fe.comp2025.symboltable.JmmSymbolTable;
+import pt.up.fe.comp2025.symboltable.ScopedSymbol;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static pt.up.fe.comp2025.ast.Kind.*;
+
+/**
+ * Builds the OLLIR instructions of JmmNodes that are expressions, the counterpart of
+ * {@link OllirExprGeneratorVisitor} for {@link OllirClassBuilder}.
+ * <p>
+ * The instructions that compute an expression are added to the current method of the class builder, and each visit
+ * returns the element that refers to the value of the expression, or null if there is none (e.g. a call to a void
+ * method). Elements are created anew for each use, as the OLLIR parser does.
+ */
+public class OllirExprBuilder extends KindVisitor<Void, Element> {
+
+    private final SymbolTable table;
+
+    private final TypeUtils types;
+    private final OptUtils ollirTypes;
+
+    private final OllirClassBuilder classBuilder;
+
+    private String currentMethod;
+    private TypeUtils methodTypes;
+
+    public OllirExprBuilder(SymbolTable table, OllirClassBuilder classBuilder) {
+        this.table = table;
+        this.types = new TypeUtils(table);
+        this.ollirTypes = new OptUtils(types);
+        this.classBuilder = classBuilder;
+    }
+
+    /**
+     * Sets the method of the visited expressions, so that identifiers don't need to look up their method in the AST.
+     */
+    public void setCurrentMethod(String methodName) {
+        this.currentMethod = methodName;
+        this.methodTypes = new TypeUtils(table, methodName);
+    }
+
+    @Override
+    protected void buildVisitor() {
+        addVisit(BINARY_OP, this::visitBinExpr);
+        addVisit(ARRAY_INDEX, this::visitArrayIndex);
+        addVisit(ARRAY_LENGTH, this::visitArrayLength);
+        addVisit(NEW_ARRAY, this::visitNewArray);
+        addVisit(LOGICAL_NOT, this::visitNot);
+        addVisit(PARENTHESES_OP, this::visitParentheses);
+        addVisit(INTEGER, this::visitInteger);
+        addVisit(TRUE, this::visitTrue);
+        addVisit(FALSE, this::visitFalse);
+        addVisit(IDENTIFIER, this::visitVarRef);
+        addVisit(METHOD_CALL, this::visitMethodCall);
+        addVisit(NEW_OBJECT, this::visitNewObject);
+        addVisit(ARRAY_LITERAL, this::visitArrayLiteral);
+        addVisit(THIS, this::visitThisExpr);
+        setDefaultVisit(this::defaultVisit);
+    }
+
+    /**
+     * Assigns the result of the given instruction to a new temporary, and returns the temporary.
+     */
+    private Element assignTemp(String ollirType, Instruction rhs) {
+        var temp = ollirTypes.nextTemp();
+
+        classBuilder.emit(new AssignInstruction(new Operand(temp, OptUtils.toOllirClassType(ollirType)),
+                OptUtils.toOllirClassType(ollirType), rhs));
+
+        return new Operand(temp, OptUtils.toOllirClassType(ollirType));
+    }
+
+    /**
+     * The given element as the object of an instruction, where the OLLIR parser gives 'this' its own kind of type.
+     */
+    private Element objectRef(Element element) {
+        if (element instanceof Operand operand && operand.getName().equals("this")) {
+            var className = operand.getType() instanceof ClassType classType ? classType.getName() : table.getClassName();
+            return new Operand("this", new ClassType(ClassKind.THIS, className));
+        }
+
+        return element;
+    }
+
+    private static OperationType toOperationType(String op) {
+        return switch (op) {
+            case "+" -> OperationType.ADD;
+            case "-" -> OperationType.SUB;
+            case "*" -> OperationType.MUL;
+            case "/" -> OperationType.DIV;
+            case "<" -> OperationType.LTH;
+            case ">" -> OperationType.GTH;
+            case "&&" -> OperationType.ANDB;
+            default -> throw new RuntimeException("Unsupported binary operator '" + op + "'");
+        };
+    }
+
+    private Element visitBinExpr(JmmNode node, Void unused) {
+        // Chains of operations are walked in a loop, see OllirExprGeneratorVisitor
+        var chain = new ArrayList<JmmNode>();
+        var operand = node;
+        while (BINARY_OP.check(operand)) {
+            chain.add(operand);
+            operand = operand.getChild(0);
+        }
+
+        var result = visit(operand);
+        for (int i = chain.size() - 1; i >= 0; i--) {
+            var operation = chain.get(i);
+            result = operation.get("op").equals("&&")
+                    ? buildShortCircuitAnd(operation, result)
+                    : buildBinOp(operation, result);
+        }
+
+        return result;
+    }
+
+    private Element buildBinOp(JmmNode node, Element lhs) {
+        var rhs = visit(node.getChild(1));
+
+        String resOllirType = ollirTypes.toOllirType(types.getExprType(node));
+        var operation = new Operation(toOperationType(node.get("op")), OptUtils.toOllirClassType(resOllirType));
+
+        return assignTemp(resOllirType, new BinaryOpInstruction(lhs, operation, rhs));
+    }
+
+    /**
+     * Builds the short-circuit evaluation of logical AND, see
+     * {@link OllirExprGeneratorVisitor} for the pattern of the instructions. The left side was already built.
+     */
+    private Element buildShortCircuitAnd(JmmNode node, Element lhs) {
+        String falseLabel = "and_false_" + ollirTypes.nextLabelId();
+        String endLabel = "and_end_" + ollirTypes.nextLabelId();
+
+        String boolOllirType = ollirTypes.toOllirType(TypeUtils.newBoolType());
+        String resultVar = ollirTypes.nextTemp();
+
+        // If left side is false, jump to falseLabel
+        var notLhs = new UnaryOpInstruction(new Operation(OperationType.NOTB, OptUtils.toOllirClassType(boolOllirType)),
+                lhs);
+        var branch = new OpCondInstruction(notLhs);
+        branch.setLabel(falseLabel);
+        classBuilder.emit(branch);
+
+        // Right side, only if left side is true
+        var rhs = visit(node.getChild(1));
+        classBuilder.emit(new AssignInstruction(new Operand(resultVar, OptUtils.toOllirClassType(boolOllirType)),
+                OptUtils.toOllirClassType(boolOllirType), new SingleOpInstruction(rhs)));
+        classBuilder.emit(new GotoInstruction(endLabel));
+
+        // False case (left was false, so result is false)
+        classBuilder.label(falseLabel);
+        classBuilder.emit(new AssignInstruction(new Operand(resultVar, OptUtils.toOllirClassType(boolOllirType)),
+                OptUtils.toOllirClassType(boolOllirType),
+                new SingleOpInstruction(new LiteralElement("0", OptUtils.toOllirClassType(boolOllirType)))));
+
+        classBuilder.label(endLabel);
+
+        return new Operand(resultVar, OptUtils.toOllirClassType(boolOllirType));
+    }
+
+    private Element visitArrayIndex(JmmNode node, Void unused) {
+        var array = visit(node.getChild(0));
+        var index = visit(node.getChild(1));
+
+        String ollirType = ollirTypes.toOllirType(types.getExprType(node));
+        var element = new ArrayOperand(((Operand) array).getName(), OptUtils.toOllirClassType(ollirType), List.of(index));
+
+        return assignTemp(ollirType, new SingleOpInstruction(element));
+    }
+
+
+    private Element visitArrayLength(JmmNode node, Void unused) {
+        var array = visit(node.getChild(0));
+
+        String ollirType = ollirTypes.toOllirType(types.getExprType(node));
+
+        return assignTemp(ollirType, new ArrayLengthInstruction(objectRef(array), new BuiltinType(BuiltinKind.INT32)));
+    }
+
+
+    private Element visitNewArray(JmmNode node, Void unused) {
+        var size = visit(node.getChild(0));
+
+        String ollirType = ollirTypes.toOllirType(types.getExprType(node));
+
+        return assignTemp(ollirType, newArray(ollirType, size));
+    }
+
+    /**
+     * The parser gives the 'array' operand of a new array the type of the instruction.
+     */
+    private static NewInstruction newArray(String ollirType, Element size) {
+        var arrayType = OptUtils.toOllirClassType(ollirType);
+        var arrayOperand = new Operand("array", new ArrayType());
+        arrayOperand.setType(arrayType);
+
+        var arguments = new ArrayList<Element>();
+        arguments.add(size);
+
+        return new NewInstruction(arrayOperand, arguments, arrayType, false);
+    }
+
+
+    private Element visitNot(JmmNode node, Void unused) {
+        var rhs = visit(node.getChild(0));
+
+        String resOllirType = ollirTypes.toOllirType(types.getExprType(node));
+        var operation = new Operation(OperationType.NOTB, OptUtils.toOllirClassType(resOllirType));
+
+        return assignTemp(resOllirType, new UnaryOpInstruction(operation, rhs));
+    }
+
+
+    private Element visitParentheses(JmmNode node, Void unused) {
+        return visit(node.getChild(0));
+    }
+
+
+    private Element visitInteger(JmmNode node, Void unused) {
+        return new LiteralElement(node.get("value"), new BuiltinType(BuiltinKind.INT32));
+    }
+
+
+    private Element visitTrue(JmmNode node, Void unused) {
+        return new LiteralElement("1", new BuiltinType(BuiltinKind.BOOLEAN));
+    }
+
+
+    private Element visitFalse(JmmNode node, Void unused) {
+        return new LiteralElement("0", new BuiltinType(BuiltinKind.BOOLEAN));
+    }
+
+
+    private Element visitVarRef(JmmNode node, Void unused) {
+        String currentMethod = this.currentMethod;
+        var types = methodTypes;
+        if (currentMethod == null) {
+            var methodNode = node.getAncestor(METHOD_DECL)
+                    .orElseThrow(() -> new RuntimeException("Could not find method declaration"));
+
+            currentMethod = methodNode.get("methodName");
+            types = new TypeUtils(table, currentMethod);
+        }
+
+        String varName = node.get("var");
+        String ollirType = ollirTypes.toOllirType(types.getExprType(node));
+
+        // Fields (and not local vars or parameters) are read with getfield
+        if (isField(varName, currentMethod)) {
+            var field = new Operand(varName, OptUtils.toOllirClassType(ollirType));
+            return assignTemp(ollirType,
+                    new GetFieldInstruction(classBuilder.thisObject(), field, OptUtils.toOllirClassType(ollirType)));
+        }
+
+        return new Operand(varName, OptUtils.toOllirClassType(ollirType));
+    }
+
+    /**
+     * Determines if a variable is a field (and not a local variable or parameter).
+     */
+    private boolean isField(String varName, String methodName) {
+        var variable = ((JmmSymbolTable) table).getVariable(methodName, varName);
+        return variable != null && variable.scope() == ScopedSymbol.Scope.FIELD;
+    }
+
+    private Element visitMethodCall(JmmNode node, Void unused) {
+        String methodName = node.get("methodName");
+
+        JmmNode callerNode = node.getChild(0);
+        var caller = visit(callerNode);
+
+        var arguments = new ArrayList<Element>();
+        for (int i = 1; i < node.getNumChildren(); i++) {
+            arguments.add(visit(node.getChild(i)));
+        }
+
+        Type retType = types.getExprType(node);
+        if (retType == null) retType = new Type("void", false);
+        String ollirRetType = ollirTypes.toOllirType(retType);
+        boolean isVoid = ".V".equals(ollirRetType);
+
+        var methodLiteral = new LiteralElement(methodName, new BuiltinType(BuiltinKind.STRING));
+        var isStatic = callerNode.getKind().equals("Identifier") && table.getImports().contains(callerNode.get("var"));
+
+        // Like the parser, the class of an invokestatic has the type of the class being compiled
+        Instruction call = isStatic
+                ? new InvokeStaticInstruction(new Operand(callerNode.get("var"),
+                        new ClassType(ClassKind.CLASS, table.getClassName())), methodLiteral, arguments,
+                        OptUtils.toOllirClassType(ollirRetType), isVoid)
+                : new InvokeVirtualInstruction(objectRef(caller), methodLiteral, arguments,
+                        OptUtils.toOllirClassType(ollirRetType), isVoid);
+
+        if (isVoid) {
+            classBuilder.emit(call);
+            return null;
+        }
+
+        return assignTemp(ollirRetType, call);
+    }
+
+    private Element visitNewObject(JmmNode node, Void unused) {
+        String className = node.get("className");
+        String ollirType = "." + className;
+
+        // The generated code calls their constructor with an invokestatic on the new object, which is not valid OLLIR
+        if (table.getImports().contains(className)) {
+            throw new RuntimeException("Could not build the constructor call of imported class '" + className + "'");
+        }
+
+        var classOperand = new Operand(className, new ClassType(ClassKind.CLASS, className));
+        var temp = (Operand) assignTemp(ollirType,
+                new NewInstruction(classOperand, new ArrayList<>(), OptUtils.toOllirClassType(ollirType), false));
+
+        var object = new Operand(temp.getName(), OptUtils.toOllirClassType(ollirType));
+        var init = new LiteralElement("<init>", new BuiltinType(BuiltinKind.STRING));
+        classBuilder.emit(new InvokeSpecialInstruction(object, init, null, new ArrayList<>(),
+                new BuiltinType(BuiltinKind.VOID), true));
+
+        return new Operand(temp.getName(), OptUtils.toOllirClassType(ollirType));
+    }
+
+    private Element visitArrayLiteral(JmmNode node, Void unused) {
+        // arrays are always integers (project specification)
+        String arrayType = ".array.i32";
+        var temp = (Operand) assignTemp(arrayType,
+                newArray(arrayType, new LiteralElement(Integer.toString(node.getNumChildren()),
+                        new BuiltinType(BuiltinKind.INT32))));
+
+        int i = 0;
+        for (var child : node.getChildren()) {
+            // Like the generated code, only the reference of each element is used
+            var element = classBuilder.capture(new ArrayList<>(), () -> visit(child));
+
+            var index = new LiteralElement(Integer.toString(i), new BuiltinType(BuiltinKind.INT32));
+            var dest = new ArrayOperand(temp.getName(), new BuiltinType(BuiltinKind.INT32), List.of(index));
+            classBuilder.emit(new AssignInstruction(dest, new BuiltinType(BuiltinKind.INT32),
+                    new SingleOpInstruction(element)));
+            i++;
+        }
+
+        return new Operand(temp.getName(), OptUtils.toOllirClassType(arrayType));
+    }
+
+    private Element visitThisExpr(JmmNode node, Void unused) {
+        return new Operand("this", new ClassType(ClassKind.OBJECTREF, table.getClassName()));
+    }
+
+    /**
+     * Default visitor. Visits every child node and returns no element.
+     */
+    private Element defaultVisit(JmmNode node, Void unused) {
+        for (var child : node.getChildren()) {
+            visit(child);
+        }
+
+        return null;
+    }
+}
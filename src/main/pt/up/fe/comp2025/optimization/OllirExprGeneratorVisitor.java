@@ -3,8 +3,13 @@ package pt.up.fe.comp2025.optimization;
 import pt.up.fe.comp.jmm.analysis.table.SymbolTable;
 import pt.up.fe.comp.jmm.analysis.table.Type;
 import pt.up.fe.comp.jmm.ast.JmmNode;
-import pt.up.fe.comp.jmm.ast.PreorderJmmVisitor;
+import pt.up.fe.comp2025.ast.KindVisitor;
 import pt.up.fe.comp2025.ast.TypeUtils;
+import pt.up.fe.comp2025.metrics.CompilerLog;
+import pt.up.fe.comp2025.metrics.CompilerLog.Category;
+import pt.up.fe.comp2025.metrics.CompilerLog.Level;
+import pt.up.fe.comp2025.symboltable.JmmSymbolTable;
+import pt.up.fe.comp2025.symboltable.ScopedSymbol;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -13,8 +18,12 @@ import static pt.up.fe.comp2025.ast.Kind.*;
 
 /**
  * Generates OLLIR code from JmmNodes that are expressions.
+ * <p>
+ * The code that computes an expression is appended to a buffer shared by all the visits (see {@link #setCode}), and
+ * each visit only returns the reference to the value of the expression, so generating the code of nested expressions
+ * takes time linear in the size of the code.
  */
-public class OllirExprGeneratorVisitor extends PreorderJmmVisitor<Void, OllirExprResult> {
+public class OllirExprGeneratorVisitor extends KindVisitor<Void, OllirExprResult> {
 
     private static final String SPACE = " ";
     private static final String ASSIGN = ":=";
@@ -26,12 +35,32 @@ public class OllirExprGeneratorVisitor extends PreorderJmmVisitor<Void, OllirExp
     private final OptUtils ollirTypes;
 
 
+    private StringBuilder code = new StringBuilder();
+
+    private String currentMethod;
+    private TypeUtils methodTypes;
+
     public OllirExprGeneratorVisitor(SymbolTable table) {
         this.table = table;
         this.types = new TypeUtils(table);
         this.ollirTypes = new OptUtils(types);
     }
 
+    /**
+     * Sets the buffer where the code of the visited expressions is appended, usually the code of the current method.
+     */
+    public void setCode(StringBuilder code) {
+        this.code = code;
+    }
+
+    /**
+     * Sets the method of the visited expressions, so that identifiers don't need to look up their method in the AST.
+     */
+    public void setCurrentMethod(String methodName) {
+        this.currentMethod = methodName;
+        this.methodTypes = new TypeUtils(table, methodName);
+    }
+
     @Override
     protected void buildVisitor() {
 
@@ -53,36 +82,44 @@ public class OllirExprGeneratorVisitor extends PreorderJmmVisitor<Void, OllirExp
     }
 
     private OllirExprResult visitBinExpr(JmmNode node, Void unused) {
-        String op = node.get("op");
-
-        // Special case for short-circuit evaluation of logical AND
-        if (op.equals("&&")) {
-            return generateShortCircuitAnd(node);
+        // The left operands of a chain of operations are nested as deep as the chain is long, so the chain is
+        // walked in a loop instead of visiting each left operand
+        var chain = new ArrayList<JmmNode>();
+        var operand = node;
+        while (BINARY_OP.check(operand)) {
+            chain.add(operand);
+            operand = operand.getChild(0);
         }
 
-        var lhs = visit(node.getChild(0));
-        var rhs = visit(node.getChild(1));
+        // Operations from the innermost, each one takes the result of the previous as the left operand
+        var result = visit(operand);
+        for (int i = chain.size() - 1; i >= 0; i--) {
+            var operation = chain.get(i);
+            result = operation.get("op").equals("&&")
+                    ? generateShortCircuitAnd(operation, result)
+                    : generateBinOp(operation, result);
+        }
 
-        StringBuilder computation = new StringBuilder();
+        return result;
+    }
 
-        // reference to compute the children
-        computation.append(lhs.getComputation());
-        computation.append(rhs.getComputation());
+    private OllirExprResult generateBinOp(JmmNode node, OllirExprResult lhs) {
+        // code to compute the right child
+        var rhs = visit(node.getChild(1));
 
-        // reference to compute self
+        // code to compute self
         Type resType = types.getExprType(node);
         String resOllirType = ollirTypes.toOllirType(resType);
         String reference = ollirTypes.nextTemp() + resOllirType;
 
-        computation.append(reference).append(SPACE)
+        code.append(reference).append(SPACE)
                 .append(ASSIGN).append(resOllirType).append(SPACE)
                 .append(lhs.getReference()).append(SPACE);
 
-        Type type = types.getExprType(node);
-        computation.append(op).append(ollirTypes.toOllirType(type)).append(SPACE)
+        code.append(node.get("op")).append(resOllirType).append(SPACE)
                 .append(rhs.getReference()).append(END_STMT);
 
-        return new OllirExprResult(reference, computation);
+        return new OllirExprResult(reference);
     }
 
     /**
@@ -94,14 +131,9 @@ public class OllirExprGeneratorVisitor extends PreorderJmmVisitor<Void, OllirExp
      * false:
      *    result = false;
      * end:
+     * The code of the left side was already generated.
      */
-    private OllirExprResult generateShortCircuitAnd(JmmNode node) {
-        // Process left side of the AND
-        var lhs = visit(node.getChild(0));
-
-        StringBuilder computation = new StringBuilder();
-        computation.append(lhs.getComputation());
-
+    private OllirExprResult generateShortCircuitAnd(JmmNode node, OllirExprResult lhs) {
         // Generate label names
         String falseLabel = "and_false_" + ollirTypes.nextLabelId();
         String endLabel = "and_end_" + ollirTypes.nextLabelId();
@@ -112,24 +144,23 @@ public class OllirExprGeneratorVisitor extends PreorderJmmVisitor<Void, OllirExp
         String resultVar = ollirTypes.nextTemp() + boolOllirType;
 
         // If left side is false, jump to falseLabel
-        computation.append("if (!").append(boolOllirType).append(" ").append(lhs.getReference())
+        code.append("if (!").append(boolOllirType).append(" ").append(lhs.getReference())
                 .append(") goto ").append(falseLabel).append(";\n");
 
         // Process right side (only if left side is true)
         var rhs = visit(node.getChild(1));
-        computation.append(rhs.getComputation());
-        computation.append(resultVar).append(" ").append(ASSIGN).append(boolOllirType).append(" ")
+        code.append(resultVar).append(" ").append(ASSIGN).append(boolOllirType).append(" ")
                 .append(rhs.getReference()).append(";\n");
-        computation.append("goto ").append(endLabel).append(";\n");
+        code.append("goto ").append(endLabel).append(";\n");
 
         // False case (left was false, so result is false)
-        computation.append(falseLabel).append(":\n");
-        computation.append(resultVar).append(" ").append(ASSIGN).append(boolOllirType).append(" 0").append(boolOllirType).append(";\n");
+        code.append(falseLabel).append(":\n");
+        code.append(resultVar).append(" ").append(ASSIGN).append(boolOllirType).append(" 0").append(boolOllirType).append(";\n");
 
         // End label
-        computation.append(endLabel).append(":\n");
+        code.append(endLabel).append(":\n");
 
-        return new OllirExprResult(resultVar, computation);
+        return new OllirExprResult(resultVar);
     }
 
     private OllirExprResult visitArrayIndex(JmmNode node, Void unused) {
@@ -139,21 +170,17 @@ public class OllirExprGeneratorVisitor extends PreorderJmmVisitor<Void, OllirExp
 
         var lhs = visit(node.getChild(0));
         var rhs = visit(node.getChild(1));
-        StringBuilder computation = new StringBuilder();
-
-        computation.append(lhs.getComputation());
-        computation.append(rhs.getComputation());
 
         var rhsType = types.getExprType(node);
         String rhsOllirType = ollirTypes.toOllirType(rhsType);
 
         String reference = ollirTypes.nextTemp() + rhsOllirType;
 
-        computation.append(reference).append(SPACE).append(ASSIGN).append(rhsOllirType).append(SPACE)
+        code.append(reference).append(SPACE).append(ASSIGN).append(rhsOllirType).append(SPACE)
                 .append(lhs.getReference()).append("[").append(rhs.getReference()).append("]")
                 .append(rhsOllirType).append(END_STMT);
 
-        return new OllirExprResult(reference, computation);
+        return new OllirExprResult(reference);
     }
 
 
@@ -162,28 +189,23 @@ public class OllirExprGeneratorVisitor extends PreorderJmmVisitor<Void, OllirExp
         //arraylength(arr.array.i32).i32;
 
         var rhs = visit(node.getChild(0));
-        StringBuilder computation = new StringBuilder();
-
-        computation.append(rhs.getComputation());
 
         var rhsType = types.getExprType(node);
         String rhsOllirType = ollirTypes.toOllirType(rhsType);
 
         String reference = ollirTypes.nextTemp() + rhsOllirType;
 
-        computation.append(reference).append(SPACE).append(ASSIGN).append(rhsOllirType).append(SPACE)
+        code.append(reference).append(SPACE).append(ASSIGN).append(rhsOllirType).append(SPACE)
                 .append("arraylength(").append(rhs.getReference()).append(").i32;\n");
 
-        return new OllirExprResult(reference, computation);
+        return new OllirExprResult(reference);
     }
 
 
     private OllirExprResult visitNewArray(JmmNode node, Void unused) {
 
         var rhs = visit(node.getChild(0));
-        StringBuilder computation = new StringBuilder();
 
-        computation.append(rhs.getComputation());
         Type resType = types.getExprType(node);
         String resOllirType = ollirTypes.toOllirType(resType);
 
@@ -191,35 +213,33 @@ public class OllirExprGeneratorVisitor extends PreorderJmmVisitor<Void, OllirExp
 
         //new(array, 20.i32).array.i32;
 
-        computation.append(reference).append(SPACE).append(ASSIGN).append(resOllirType)
+        code.append(reference).append(SPACE).append(ASSIGN).append(resOllirType)
                 .append(SPACE).append("new(array, ").append(rhs.getReference()).append(")").append(resOllirType)
                 .append(END_STMT);
 
-        return new OllirExprResult(reference, computation);
+        return new OllirExprResult(reference);
     }
 
 
     private OllirExprResult visitNot(JmmNode node, Void unused) {
 
-        System.out.println(node);
+        if (CompilerLog.isEnabled(Category.OLLIR, Level.DEBUG)) {
+            CompilerLog.log(Category.OLLIR, Level.DEBUG, node.toString());
+        }
+        // code to compute the child
         var rhs = visit(node.getChild(0));
 
-        StringBuilder computation = new StringBuilder();
-
-        // reference to compute the children
-        computation.append(rhs.getComputation());
-
-        // reference to compute self
+        // code to compute self
         Type resType = types.getExprType(node);
         String resOllirType = ollirTypes.toOllirType(resType);
         String reference = ollirTypes.nextTemp() + resOllirType;
 
-        computation.append(reference).append(SPACE)
+        code.append(reference).append(SPACE)
                 .append(ASSIGN).append(resOllirType).append(SPACE)
                 .append("!").append(resOllirType).append(SPACE)
                 .append(rhs.getReference()).append(END_STMT);
 
-        return new OllirExprResult(reference, computation);
+        return new OllirExprResult(reference);
     }
 
 
@@ -247,13 +267,19 @@ public class OllirExprGeneratorVisitor extends PreorderJmmVisitor<Void, OllirExp
 
 
     private OllirExprResult visitVarRef(JmmNode node, Void unused) {
-        var methodNode = node.getAncestor(METHOD_DECL).orElse(null);
-        if (methodNode == null) {
-            return new OllirExprResult("", "Error: Could not find method declaration");
+        String currentMethod = this.currentMethod;
+        var types = methodTypes;
+        if (currentMethod == null) {
+            var methodNode = node.getAncestor(METHOD_DECL).orElse(null);
+            if (methodNode == null) {
+                code.append("Error: Could not find method declaration");
+                return OllirExprResult.EMPTY;
+            }
+
+            currentMethod = methodNode.get("methodName");
+            types = new TypeUtils(table, currentMethod);
         }
 
-        String currentMethod = methodNode.get("methodName");
-        var types = new TypeUtils(table, currentMethod);
         String varName = node.get("var");
         Type varType = types.getExprType(node);
         String ollirType = ollirTypes.toOllirType(varType);
@@ -264,13 +290,12 @@ public class OllirExprGeneratorVisitor extends PreorderJmmVisitor<Void, OllirExp
         if (isField) {
             // If it's a field, generate getfield instruction
             String tempVar = ollirTypes.nextTemp() + ollirType;
-            StringBuilder computation = new StringBuilder();
 
             // Generate getfield instruction
-            computation.append(tempVar).append(" ").append(ASSIGN).append(ollirType)
+            code.append(tempVar).append(" ").append(ASSIGN).append(ollirType)
                     .append(" getfield(this, ").append(varName).append(ollirType).append(")").append(ollirType).append(END_STMT);
 
-            return new OllirExprResult(tempVar, computation);
+            return new OllirExprResult(tempVar);
         } else {
             // For local variables and parameters, just return the variable with its type
             return new OllirExprResult(varName + ollirType);
@@ -285,48 +310,19 @@ public class OllirExprGeneratorVisitor extends PreorderJmmVisitor<Void, OllirExp
      * @return true if the variable is a field, false otherwise
      */
     private boolean isField(String varName, String methodName) {
-        // Check if the variable is a parameter
-        if (table.getParameters(methodName) != null) {
-            for (var param : table.getParameters(methodName)) {
-                if (param.getName().equals(varName)) {
-                    return false;
-                }
-            }
-        }
-
-        // Check if the variable is a local variable
-        if (table.getLocalVariables(methodName) != null) {
-            for (var local : table.getLocalVariables(methodName)) {
-                if (local.getName().equals(varName)) {
-                    return false;
-                }
-            }
-        }
-
-        // Check if the variable is a field
-        if (table.getFields() != null) {
-            for (var field : table.getFields()) {
-                if (field.getName().equals(varName)) {
-                    return true;
-                }
-            }
-        }
-
-        return false;
+        var variable = ((JmmSymbolTable) table).getVariable(methodName, varName);
+        return variable != null && variable.scope() == ScopedSymbol.Scope.FIELD;
     }
 
     private OllirExprResult visitMethodCall(JmmNode node, Void unused) {
-        StringBuilder computation = new StringBuilder();
         String methodName = node.get("methodName");
 
         JmmNode callerNode = node.getChild(0);
         OllirExprResult callerRes = visit(callerNode);
-        computation.append(callerRes.getComputation());
 
         List<String> argRefs = new ArrayList<>();
         for (int i = 1; i < node.getNumChildren(); i++) {
             OllirExprResult argRes = visit(node.getChild(i));
-            computation.append(argRes.getComputation());
             argRefs.add(argRes.getReference());
         }
 
@@ -362,24 +358,22 @@ public class OllirExprGeneratorVisitor extends PreorderJmmVisitor<Void, OllirExp
             typedCaller = callerRes.getReference();
         }
 
-        StringBuilder call = new StringBuilder();
-        call.append(callType).append("(").append(typedCaller).append(", \"").append(methodName).append("\"");
+        // The result of a non-void call is assigned to a temporary
+        String reference = "";
+        if (!isVoid) {
+            reference = ollirTypes.nextTemp() + ollirRetType;
+            code.append(reference).append(SPACE).append(ASSIGN).append(ollirRetType).append(SPACE);
+        }
+
+        code.append(callType).append("(").append(typedCaller).append(", \"").append(methodName).append("\"");
 
         for (String argRef : argRefs) {
-            call.append(", ").append(argRef);
+            code.append(", ").append(argRef);
         }
 
-        call.append(")").append(ollirRetType).append(END_STMT);
+        code.append(")").append(ollirRetType).append(END_STMT);
 
-        if (isVoid) {
-            computation.append(call);
-            return new OllirExprResult("", computation);
-        } else {
-            String temp = ollirTypes.nextTemp() + ollirRetType;
-            computation.append(temp).append(SPACE).append(ASSIGN).append(ollirRetType)
-                    .append(SPACE).append(call);
-            return new OllirExprResult(temp, computation);
-        }
+        return new OllirExprResult(reference);
     }
 
     private OllirExprResult visitNewObject(JmmNode node, Void unused) {
@@ -387,47 +381,48 @@ public class OllirExprGeneratorVisitor extends PreorderJmmVisitor<Void, OllirExp
         String ollirType = "." + className;
 
         String tempVar = ollirTypes.nextTemp() + ollirType;
-        StringBuilder computation = new StringBuilder();
 
-        computation.append(tempVar).append(" :=.").append(className)
+        code.append(tempVar).append(" :=.").append(className)
                 .append(" new(").append(className).append(").").append(className).append(";\n");
 
         var invoke =table.getImports().contains(className) ? "invokestatic(" : "invokespecial(" ;
-        computation.append(invoke).append(tempVar).append(", \"<init>\").V;\n");
+        code.append(invoke).append(tempVar).append(", \"<init>\").V;\n");
 
-        return new OllirExprResult(tempVar, computation);
+        return new OllirExprResult(tempVar);
     }
 
     private OllirExprResult visitArrayLiteral(JmmNode node, Void unused) {
-        StringBuilder computation = new StringBuilder();
-
         List<JmmNode> elements = node.getChildren(); // assuming each child is a literal
 
         int size = elements.size();
         String temp = ollirTypes.nextTemp("tmp") + ".array.i32";
 
         // arrays are always integers (project specification)
-        computation.append(temp).append(" :=.array.i32 new(array, ")
+        code.append(temp).append(" :=.array.i32 new(array, ")
                 .append(size).append(".i32).array.i32;\n");
 
         int i=0;
         for(var child : node.getChildren())
         {
+            // Only the reference of each element is used, the code that computes it is dropped
+            var childStart = code.length();
             OllirExprResult childRes = visit(child);
-            computation.append(temp)
+            code.setLength(childStart);
+
+            code.append(temp)
                     .append("[")
                     .append(i).append(".i32].i32 :=.i32 ")
                     .append(childRes.getReference()).append(";\n");
             i++;
         }
 
-        return new OllirExprResult(temp, computation);
+        return new OllirExprResult(temp);
     }
 
     private OllirExprResult visitThisExpr(JmmNode node, Void unused) {
         String className = table.getClassName();
         String ref = "this." + className;
-        return new OllirExprResult(ref, "");
+        return new OllirExprResult(ref);
     }
 
     /**
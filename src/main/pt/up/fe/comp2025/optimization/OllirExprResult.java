@@ -1,27 +1,17 @@
 package pt.up.fe.comp2025.optimization;
 
+/**
+ * The reference to the value of an expression, the code that computes it is appended to the code of the method by
+ * {@link OllirExprGeneratorVisitor}.
+ */
 public class OllirExprResult {
 
-    public static final OllirExprResult EMPTY = new OllirExprResult("", "");
+    public static final OllirExprResult EMPTY = new OllirExprResult("");
 
-    private final String computation;
     private final String reference;
 
-    public OllirExprResult(String reference, String computation) {
-        this.reference = reference;
-        this.computation = computation;
-    }
-
     public OllirExprResult(String reference) {
-        this(reference, "");
-    }
-
-    public OllirExprResult(String reference, StringBuilder computation) {
-        this(reference, computation.toString());
-    }
-
-    public String getComputation() {
-        return computation;
+        this.reference = reference;
     }
 
     public String getReference() {
@@ -31,8 +21,7 @@ public class OllirExprResult {
     @Override
     public String toString() {
         return "OllirNodeResult{" +
-                "computation='" + computation + '\'' +
-                ", reference='" + reference + '\'' +
+                "reference='" + reference + '\'' +
                 '}';
     }
 }
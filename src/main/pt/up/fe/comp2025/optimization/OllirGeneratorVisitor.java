@@ -2,20 +2,29 @@ package pt.up.fe.comp2025.optimization;
 
 import pt.up.fe.comp.jmm.analysis.table.SymbolTable;
 import pt.up.fe.comp.jmm.analysis.table.Type;
-import pt.up.fe.comp.jmm.ast.AJmmVisitor;
 import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp2025.ast.KindVisitor;
 import pt.up.fe.comp2025.ast.TypeUtils;
+import pt.up.fe.comp2025.metrics.CompilerLog;
+import pt.up.fe.comp2025.metrics.CompilerLog.Category;
+import pt.up.fe.comp2025.metrics.CompilerLog.Level;
+import pt.up.fe.comp2025.symboltable.JmmSymbolTable;
+import pt.up.fe.comp2025.symboltable.ScopedSymbol;
 
 import java.util.ArrayList;
+import java.util.IdentityHashMap;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
 
 import static pt.up.fe.comp2025.ast.Kind.*;
 
 /**
  * Generates OLLIR code from JmmNodes that are not expressions.
+ * <p>
+ * The program, the class and each method return their code. Statements, and the expressions in them, append their
+ * code to the code of the current method instead of returning it.
  */
-public class OllirGeneratorVisitor extends AJmmVisitor<Void, String> {
+public class OllirGeneratorVisitor extends KindVisitor<Void, String> {
 
     private static final String SPACE = " ";
     private static final String ASSIGN = ":=";
@@ -37,6 +46,16 @@ public class OllirGeneratorVisitor extends AJmmVisitor<Void, String> {
 
     private final OllirExprGeneratorVisitor exprVisitor;
 
+    // Code of the current method, shared with the expression visitor
+    private StringBuilder methodCode = new StringBuilder();
+
+    // Method of the visited statements, with the types of its variables
+    private String currentMethod;
+    private TypeUtils methodTypes;
+
+    // Code of methods that is used instead of visiting them, by declaration
+    private final Map<JmmNode, String> reusedMethods = new IdentityHashMap<>();
+
     public OllirGeneratorVisitor(SymbolTable table) {
         this.table = table;
         this.types = new TypeUtils(table);
@@ -45,6 +64,15 @@ public class OllirGeneratorVisitor extends AJmmVisitor<Void, String> {
     }
 
 
+    /**
+     * Uses the given code for the given methods instead of generating it when visiting the class, e.g. the code of
+     * methods that did not change since they were last compiled. The code of a method can be generated separately by
+     * visiting its declaration.
+     */
+    public void reuseMethods(Map<JmmNode, String> methodCode) {
+        reusedMethods.putAll(methodCode);
+    }
+
     @Override
     protected void buildVisitor() {
 
@@ -64,8 +92,8 @@ public class OllirGeneratorVisitor extends AJmmVisitor<Void, String> {
 
 
     private String visitExprStmt(JmmNode node, Void unused) {
-        OllirExprResult result = exprVisitor.visit(node.getChild(0));
-        return result.getComputation();
+        exprVisitor.visit(node.getChild(0));
+        return "";
     }
     private String visitProgram(JmmNode node, Void unused) {
 
@@ -114,7 +142,7 @@ public class OllirGeneratorVisitor extends AJmmVisitor<Void, String> {
         code.append("\n");
 
         for (var child : node.getChildren(METHOD_DECL)) {
-            var result = visit(child);
+            var result = reusedMethods.containsKey(child) ? reusedMethods.get(child) : visit(child);
             code.append(result);
         }
 
@@ -127,17 +155,22 @@ public class OllirGeneratorVisitor extends AJmmVisitor<Void, String> {
     private String visitMethodDecl(JmmNode node, Void unused) {
 
         StringBuilder code = new StringBuilder();
+        setCode(code);
         code.append(".method ");
         var method_name = node.get("methodName");
-        if (node.get("isPublic").equals("true")) {
+        currentMethod = method_name;
+        methodTypes = new TypeUtils(table, method_name);
+        exprVisitor.setCurrentMethod(method_name);
+        if (node.getBoolean("isPublic", false)) {
             code.append("public ");
         }
-        if (node.get("isStatic").equals("true")) {
+        if (node.getBoolean("isStatic", false)) {
             code.append("static ");
         }
         //The vararg parameter can only be the last. The analysis already checks if this is true otherwise it doesn't get to this phase.
 
-        var hasVararg = !table.getParameters(method_name).isEmpty() ? table.getParameters(method_name).getLast().getType().getName().equals("...") : false;
+        var params = table.getParameters(method_name);
+        var hasVararg = !params.isEmpty() ? params.getLast().getType().getName().equals("...") : false;
         if(hasVararg)
         {
             code.append("varargs ");
@@ -145,10 +178,11 @@ public class OllirGeneratorVisitor extends AJmmVisitor<Void, String> {
         code.append(method_name);
 
         code.append(L_PARENTHESIS);
-        for(var param : table.getParameters(method_name))
+        for (int i = 0; i < params.size(); i++)
         {
+            var param = params.get(i);
             var paramCode = ollirTypes.toOllirType(param.getType());
-            if (table.getParameters(method_name).indexOf(param) == table.getParameters(method_name).size() - 1) {
+            if (i == params.size() - 1) {
                 code.append(param.getName() + paramCode);
             } else {
                 code.append(param.getName() + paramCode + ", ");
@@ -161,17 +195,19 @@ public class OllirGeneratorVisitor extends AJmmVisitor<Void, String> {
         code.append(L_BRACKET);
 
         // rest of its children stmts
-        var stmtsCode = node.getChildren(STMT).stream()
-                .map(this::visit)
-                .collect(Collectors.joining("\n   ", "   ", ""));
-
-        code.append(stmtsCode);
+        var stmts = node.getChildren(STMT);
+        code.append("   ");
+        for (int i = 0; i < stmts.size(); i++) {
+            if (i > 0) {
+                code.append("\n   ");
+            }
+            visit(stmts.get(i));
+        }
 
         if (node.hasAttribute("hasReturn")) {
             var retExpr = node.getChild(node.getChildren().size() - 1);
             var type = ollirTypes.toOllirType(table.getReturnType(node.get("methodName")));
             var ret = exprVisitor.visit(retExpr);
-            code.append(ret.getComputation());
 
             code.append("ret" + type + SPACE + ret.getReference() + END_STMT);
         }
@@ -200,12 +236,35 @@ public class OllirGeneratorVisitor extends AJmmVisitor<Void, String> {
 
     private String visitBlockStmt(JmmNode node, Void unused) {
 
-        var code = new StringBuilder();
-
         for (var child: node.getChildren())
-            code.append(visit(child, unused));
+            visit(child, unused);
 
-        return code.toString();
+        return "";
+    }
+
+    /**
+     * Sets the code where statements and expressions are appended, and returns the previous one.
+     */
+    private StringBuilder setCode(StringBuilder newCode) {
+        var previous = methodCode;
+        methodCode = newCode;
+        exprVisitor.setCode(newCode);
+
+        return previous;
+    }
+
+    /**
+     * Visits the given statement with its own code, e.g. to append it to the code of the method in a different order.
+     */
+    private StringBuilder visitSeparately(JmmNode stmt) {
+        var previous = setCode(new StringBuilder());
+
+        try {
+            visit(stmt);
+            return methodCode;
+        } finally {
+            setCode(previous);
+        }
     }
 
 
@@ -227,23 +286,23 @@ public class OllirGeneratorVisitor extends AJmmVisitor<Void, String> {
         if_counter++;
 
         var cond = exprVisitor.visit(node.getChild(0));
-        var thenStmt = visit(node.getChild(1));
-        var elseStmt = visit(node.getChild(2));
 
-        System.out.println(cond);
-        System.out.println(thenStmt);
-        System.out.println(elseStmt);
+        // The labels use the counter after the branches are visited, so both are kept apart until then
+        var thenStmt = visitSeparately(node.getChild(1));
+        var elseStmt = visitSeparately(node.getChild(2));
 
-        var code = new StringBuilder();
+        if (CompilerLog.isEnabled(Category.OLLIR, Level.DEBUG)) {
+            CompilerLog.log(Category.OLLIR, Level.DEBUG, "If condition: " + cond + "\nThen: " + thenStmt
+                    + "\nElse: " + elseStmt);
+        }
 
-        code.append(cond.getComputation());
-        code.append("if (").append(cond.getReference()).append(") ").append("goto Then" + if_counter + ";\n");
-        code.append(elseStmt);
-        code.append("goto End" + if_counter + ";\n");
-        code.append("Then" + if_counter + ": \n").append(thenStmt);
-        code.append("End" + if_counter + ":\n");
+        methodCode.append("if (").append(cond.getReference()).append(") ").append("goto Then" + if_counter + ";\n");
+        methodCode.append(elseStmt);
+        methodCode.append("goto End" + if_counter + ";\n");
+        methodCode.append("Then" + if_counter + ": \n").append(thenStmt);
+        methodCode.append("End" + if_counter + ":\n");
 
-        return code.toString();
+        return "";
     }
 
 
@@ -252,49 +311,38 @@ public class OllirGeneratorVisitor extends AJmmVisitor<Void, String> {
         while_counter++;
 
         var cond = exprVisitor.visit(node.getChild(0));
-        var thenStmt = visit(node.getChild(1));
+        var thenStmt = visitSeparately(node.getChild(1));
         //var elseStmt = visit(node.getChild(2));
 
-        System.out.println(cond);
-        System.out.println(thenStmt);
-        //System.out.println(elseStmt);
-
-        var code = new StringBuilder();
+        if (CompilerLog.isEnabled(Category.OLLIR, Level.DEBUG)) {
+            CompilerLog.log(Category.OLLIR, Level.DEBUG, "While condition: " + cond + "\nBody: " + thenStmt);
+        }
 
-        code.append(cond.getComputation());
-        code.append("Cond" + while_counter + ":\n"); // added
-        code.append("if (").append(cond.getReference().replace(".i32", ".bool")).append(") ").append("goto Then" + while_counter + ";\n");
-        code.append("goto End" + while_counter + ";\n");
-        code.append("Then" + while_counter + ": \n").append(thenStmt);
-        code.append("goto Cond" + while_counter + ";\n"); // added
-        code.append("End" + while_counter + ":\n");
+        methodCode.append("Cond" + while_counter + ":\n"); // added
+        methodCode.append("if (").append(cond.getReference().replace(".i32", ".bool")).append(") ").append("goto Then" + while_counter + ";\n");
+        methodCode.append("goto End" + while_counter + ";\n");
+        methodCode.append("Then" + while_counter + ": \n").append(thenStmt);
+        methodCode.append("goto Cond" + while_counter + ";\n"); // added
+        methodCode.append("End" + while_counter + ":\n");
 
-        return code.toString();
+        return "";
     }
 
 
     private String visitAssignStmt(JmmNode node, Void unused) {
         var rhs = exprVisitor.visit(node.getChild(0));
 
-        StringBuilder code = new StringBuilder();
-
-        code.append(rhs.getComputation());
-
         // Get the variable name
         String varName = node.get("var");
 
-        // Get the current method name
-        String methodName = node.getAncestor(METHOD_DECL).orElseThrow().get("methodName");
-
         // Check if this is a field assignment
-        boolean isField = isField(varName, methodName);
+        boolean isField = isField(varName, currentMethod);
 
         if (isField) {
             // Generate putfield instruction for field assignment
-            var types = new TypeUtils(table, methodName);
-            String typeString = ollirTypes.toOllirType(types.getExprType(node.getChild(0)));
+            String typeString = ollirTypes.toOllirType(methodTypes.getExprType(node.getChild(0)));
 
-            code.append("putfield(this, ")
+            methodCode.append("putfield(this, ")
                     .append(varName).append(typeString)
                     .append(", ")
                     .append(rhs.getReference())
@@ -302,20 +350,19 @@ public class OllirGeneratorVisitor extends AJmmVisitor<Void, String> {
                     .append(END_STMT);
         } else {
             // Normal local variable assignment
-            var types = new TypeUtils(table, methodName);
-            String typeString = ollirTypes.toOllirType(types.getExprType(node.getChild(0)));
+            String typeString = ollirTypes.toOllirType(methodTypes.getExprType(node.getChild(0)));
             var varCode = varName + typeString;
 
-            code.append(varCode);
-            code.append(SPACE);
-            code.append(ASSIGN);
-            code.append(typeString);
-            code.append(SPACE);
-            code.append(rhs.getReference());
-            code.append(END_STMT);
+            methodCode.append(varCode);
+            methodCode.append(SPACE);
+            methodCode.append(ASSIGN);
+            methodCode.append(typeString);
+            methodCode.append(SPACE);
+            methodCode.append(rhs.getReference());
+            methodCode.append(END_STMT);
         }
 
-        return code.toString();
+        return "";
     }
 
     /**
@@ -326,34 +373,8 @@ public class OllirGeneratorVisitor extends AJmmVisitor<Void, String> {
      * @return true if the variable is a field, false otherwise
      */
     private boolean isField(String varName, String methodName) {
-        // Check if the variable is a parameter
-        if (table.getParameters(methodName) != null) {
-            for (var param : table.getParameters(methodName)) {
-                if (param.getName().equals(varName)) {
-                    return false;
-                }
-            }
-        }
-
-        // Check if the variable is a local variable
-        if (table.getLocalVariables(methodName) != null) {
-            for (var local : table.getLocalVariables(methodName)) {
-                if (local.getName().equals(varName)) {
-                    return false;
-                }
-            }
-        }
-
-        // Check if the variable is a field
-        if (table.getFields() != null) {
-            for (var field : table.getFields()) {
-                if (field.getName().equals(varName)) {
-                    return true;
-                }
-            }
-        }
-
-        return false;
+        var variable = ((JmmSymbolTable) table).getVariable(methodName, varName);
+        return variable != null && variable.scope() == ScopedSymbol.Scope.FIELD;
     }
 
 
@@ -371,19 +392,13 @@ public class OllirGeneratorVisitor extends AJmmVisitor<Void, String> {
         var indexExpr = exprVisitor.visit(node.getChild(0));
         var rhsExpr = exprVisitor.visit(node.getChild(1));
 
-        StringBuilder code = new StringBuilder();
-
-        code.append(indexExpr.getComputation());
-        code.append(rhsExpr.getComputation());
+        String typeString = ollirTypes.toOllirType(methodTypes.getExprType(node.getChild(1)));
 
-        var types = new TypeUtils(table, node.getAncestor(METHOD_DECL).get().get("methodName"));
-        String typeString = ollirTypes.toOllirType(types.getExprType(node.getChild(1)));
-
-        code.append(arrayName).append("[").append(indexExpr.getReference()).append("]")
+        methodCode.append(arrayName).append("[").append(indexExpr.getReference()).append("]")
                 .append(typeString).append(SPACE).append(ASSIGN).append(typeString)
                 .append(SPACE).append(rhsExpr.getReference()).append(END_STMT);
 
-        return code.toString();
+        return "";
     }
 
     private String buildConstructor() {
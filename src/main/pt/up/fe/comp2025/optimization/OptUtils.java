@@ -1,5 +1,10 @@
 package pt.up.fe.comp2025.optimization;
 
+import org.specs.comp.ollir.type.ArrayType;
+import org.specs.comp.ollir.type.BuiltinKind;
+import org.specs.comp.ollir.type.BuiltinType;
+import org.specs.comp.ollir.type.ClassKind;
+import org.specs.comp.ollir.type.ClassType;
 import pt.up.fe.comp.jmm.analysis.table.Type;
 import pt.up.fe.comp.jmm.ast.JmmNode;
 import pt.up.fe.comp2025.ast.TypeUtils;
@@ -66,4 +71,35 @@ public class OptUtils {
         };
         return type;
     }
+
+    /**
+     * Converts an OLLIR type suffix (e.g. '.array.i32') to a new instance of the type the OLLIR parser gives it.
+     */
+    public static org.specs.comp.ollir.type.Type toOllirClassType(String ollirType) {
+        int dims = 0;
+        org.specs.comp.ollir.type.Type elementType = null;
+
+        for (var part : ollirType.substring(1).split("\\.")) {
+            switch (part) {
+                case "array" -> dims++;
+                case "i32" -> elementType = new BuiltinType(BuiltinKind.INT32);
+                case "bool" -> elementType = new BuiltinType(BuiltinKind.BOOLEAN);
+                case "String" -> elementType = new BuiltinType(BuiltinKind.STRING);
+                case "V" -> elementType = new BuiltinType(BuiltinKind.VOID);
+                default -> elementType = new ClassType(ClassKind.OBJECTREF, part);
+            }
+        }
+
+        if (elementType == null) {
+            throw new RuntimeException("Expected an element type in OLLIR type '" + ollirType + "'");
+        }
+
+        if (dims == 0) {
+            return elementType;
+        }
+
+        var arrayType = new ArrayType(dims);
+        arrayType.setElementType(elementType);
+        return arrayType;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,189 @@
+package pt.up.fe.comp2025.parser;
+
+import org.antlr.v4.runtime.ParserRuleContext;
+import org.antlr.v4.runtime.Token;
+import pt.up.fe.comp2025.JavammParser.*;
+import pt.up.fe.comp2025.ast.AstNode;
+import pt.up.fe.comp2025.ast.Kind;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Builds the compact AST directly from the parse tree of the generated parser, with the same nodes and attributes
+ * as the ANTLR converter of the library, which reads the parse tree through reflection and stores every attribute
+ * as a string.
+ */
+class AstBuilder {
+
+    // Names are interned, each identifier of the source has a single string
+    private final Map<String, String> names = new HashMap<>();
+
+    AstNode build(ParserRuleContext context) {
+        // Left operands of chains of operations are nested as deep as the chain is long, so the tree is built with
+        // a stack of the contexts still to convert instead of recursion
+        var root = newNode(context);
+        var pending = new ArrayDeque<Pending>();
+        pushChildren(pending, context, root);
+
+        while (!pending.isEmpty()) {
+            var next = pending.pop();
+            var node = newNode(next.context());
+            next.parent().attach(node);
+            pushChildren(pending, next.context(), node);
+        }
+
+        return root;
+    }
+
+    private record Pending(ParserRuleContext context, AstNode parent) {
+    }
+
+    private AstNode newNode(ParserRuleContext context) {
+        var node = new AstNode(getKind(context), countRuleChildren(context));
+
+        // Positions of the first and last tokens of the node
+        var start = context.getStart();
+        var stop = context.getStop();
+        node.setPosition(start.getLine(), start.getCharPositionInLine(), stop.getLine(), stop.getCharPositionInLine());
+
+        addAttributes(node, context);
+
+        return node;
+    }
+
+    private static void pushChildren(ArrayDeque<Pending> pending, ParserRuleContext context, AstNode node) {
+        // Pushed last to first, so that children are popped and added in order
+        for (int i = context.getChildCount() - 1; i >= 0; i--) {
+            // Tokens are not nodes
+            if (context.getChild(i) instanceof ParserRuleContext child) {
+                pending.push(new Pending(child, node));
+            }
+        }
+    }
+
+    private static int countRuleChildren(ParserRuleContext context) {
+        int count = 0;
+        for (int i = 0; i < context.getChildCount(); i++) {
+            if (context.getChild(i) instanceof ParserRuleContext) {
+                count++;
+            }
+        }
+
+        return count;
+    }
+
+    private static Kind getKind(ParserRuleContext context) {
+        return switch (context) {
+            case ProgramContext c -> Kind.PROGRAM;
+            case ImportDeclContext c -> Kind.IMPORT_DECL;
+            case ClassDeclContext c -> Kind.CLASS_DECL;
+            case VarDeclContext c -> Kind.VAR_DECL;
+            case IntTypeContext c -> Kind.INT_TYPE;
+            case IntVarargContext c -> Kind.INT_VARARG;
+            case BoolTypeContext c -> Kind.BOOL_TYPE;
+            case StringTypeContext c -> Kind.STRING_TYPE;
+            case IDTypeContext c -> Kind.ID_TYPE;
+            case MethodDeclContext c -> Kind.METHOD_DECL;
+            case ParamContext c -> Kind.PARAM;
+            case BlockStmtContext c -> Kind.BLOCK_STMT;
+            case IfStmtContext c -> Kind.IF_STMT;
+            case WhileStmtContext c -> Kind.WHILE_STMT;
+            case ExprStmtContext c -> Kind.EXPR_STMT;
+            case AssignStmtContext c -> Kind.ASSIGN_STMT;
+            case ArrayAssignStmtContext c -> Kind.ARRAY_ASSIGN_STMT;
+            case NewArrayContext c -> Kind.NEW_ARRAY;
+            case NewObjectContext c -> Kind.NEW_OBJECT;
+            case ParenthesesOpContext c -> Kind.PARENTHESES_OP;
+            case ArrayLiteralContext c -> Kind.ARRAY_LITERAL;
+            case ArrayIndexContext c -> Kind.ARRAY_INDEX;
+            case MethodCallContext c -> Kind.METHOD_CALL;
+            case ArrayLengthContext c -> Kind.ARRAY_LENGTH;
+            case ThisContext c -> Kind.THIS;
+            case LogicalNotContext c -> Kind.LOGICAL_NOT;
+            case BinaryOpContext c -> Kind.BINARY_OP;
+            case IntegerContext c -> Kind.INTEGER;
+            case TrueContext c -> Kind.TRUE;
+            case FalseContext c -> Kind.FALSE;
+            case IdentifierContext c -> Kind.IDENTIFIER;
+            default -> throw new RuntimeException("Could not convert parse tree node '"
+                    + context.getClass().getSimpleName() + "' to an AST node");
+        };
+    }
+
+    private void addAttributes(AstNode node, ParserRuleContext context) {
+        switch (context) {
+            case ImportDeclContext c -> {
+                node.setName(name(c.ID));
+
+                var importName = new ArrayList<String>(c.importName.size());
+                for (var token : c.importName) {
+                    importName.add(name(token));
+                }
+                node.putObject("importName", importName);
+            }
+            case ClassDeclContext c -> {
+                node.setName(name(c.className));
+                node.setName2(name(c.superName));
+            }
+            case VarDeclContext c -> node.setName(name(c.var));
+            case TypeContext c -> {
+                node.setName(name(getTypeName(c)));
+                node.setArray(c.isArray);
+                node.setVararg(c.isVararg);
+            }
+            case MethodDeclContext c -> {
+                node.setPublic(c.isPublic);
+                node.setStatic(c.isStatic);
+                node.setHasStatic(c.hasStatic != null);
+                node.setName(name(c.methodName));
+                node.setHasReturn(c.hasReturn != null);
+                node.setName2(name(c.var));
+            }
+            case ParamContext c -> node.setName(name(c.name));
+            case AssignStmtContext c -> node.setName(name(c.var));
+            case ArrayAssignStmtContext c -> node.setName(name(c.var));
+            case NewObjectContext c -> node.setName(name(c.className));
+            case MethodCallContext c -> node.setName(name(c.methodName));
+            case BinaryOpContext c -> node.setName(name(c.op));
+            case IdentifierContext c -> node.setName(name(c.var));
+            case IntegerContext c -> {
+                // Literals that do not fit in an int keep their text
+                try {
+                    node.setIntValue(Integer.parseInt(c.value.getText()));
+                } catch (NumberFormatException e) {
+                    node.putObject("value", c.value.getText());
+                }
+            }
+            default -> {
+            }
+        }
+    }
+
+    private static Token getTypeName(TypeContext context) {
+        return switch (context) {
+            case IntTypeContext c -> c.name;
+            case IntVarargContext c -> c.name;
+            case BoolTypeContext c -> c.name;
+            case StringTypeContext c -> c.name;
+            case IDTypeContext c -> c.name;
+            default -> null;
+        };
+    }
+
+    /**
+     * @return the interned text of the token, or null if there is no token
+     */
+    private String name(Token token) {
+        if (token == null) {
+            return null;
+        }
+
+        var text = token.getText();
+        var name = names.putIfAbsent(text, text);
+
+        return name == null ? text : name;
+    }
+}
@@ -1,16 +1,38 @@
 package pt.up.fe.comp2025.parser;
 
 import org.antlr.v4.runtime.ANTLRInputStream;
+import org.antlr.v4.runtime.BailErrorStrategy;
+import org.antlr.v4.runtime.CharStream;
 import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.DefaultErrorStrategy;
+import org.antlr.v4.runtime.Lexer;
+import org.antlr.v4.runtime.Parser;
+import org.antlr.v4.runtime.ParserRuleContext;
+import org.antlr.v4.runtime.UnbufferedTokenStream;
+import org.antlr.v4.runtime.atn.PredictionMode;
+import org.antlr.v4.runtime.misc.ParseCancellationException;
 import pt.up.fe.comp.jmm.ast.antlr.AntlrParser;
+import pt.up.fe.comp.jmm.ast.antlr.JmmErrorListener;
 import pt.up.fe.comp.jmm.parser.JmmParser;
 import pt.up.fe.comp.jmm.parser.JmmParserResult;
 import pt.up.fe.comp.jmm.report.Report;
+import pt.up.fe.comp.jmm.report.ReportType;
 import pt.up.fe.comp.jmm.report.Stage;
+import pt.up.fe.comp2025.CompilerConfig;
 import pt.up.fe.comp2025.JavammLexer;
 import pt.up.fe.comp2025.JavammParser;
+import pt.up.fe.comp2025.metrics.CompilerTrace;
+import pt.up.fe.specs.util.SpecsIo;
 
+import java.io.File;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
 
 /**
  * Copyright 2022 SPeCS.
@@ -27,37 +49,209 @@ import java.util.Map;
 
 public class JmmParserImpl implements JmmParser {
 
+    private final AtomicLong parses = new AtomicLong();
+    private final AtomicLong llFallbacks = new AtomicLong();
+
+    // Lexers and parsers that are not being used, each thread takes one while parsing
+    private final ConcurrentLinkedDeque<PooledParser> pool = new ConcurrentLinkedDeque<>();
+
     @Override
     public String getDefaultRule() {
         return "program";
     }
 
+    /**
+     * Number of sources parsed by this parser.
+     */
+    public long getParseCount() {
+        return parses.get();
+    }
+
+    /**
+     * Number of sources that the SLL stage could not parse, and had to be parsed again in full LL mode.
+     */
+    public long getLlFallbackCount() {
+        return llFallbacks.get();
+    }
+
+    /**
+     * Parses the code in two stages (unless disabled by the option 'twoStageParsing'). The first stage uses SLL
+     * prediction, which is much faster, and gives up at the first syntax error. Only if it fails, the code is parsed
+     * again with full LL prediction and the normal error reporting, which decides correctly when SLL cannot and
+     * reports the syntax errors.
+     */
     @Override
     public JmmParserResult parse(String jmmCode, String startingRule, Map<String, String> config) {
+        // Convert code string into a character stream
+        return parse(() -> new ANTLRInputStream(jmmCode), startingRule, config);
+    }
 
+    /**
+     * Parses a source file with the default rule. With the option 'streaming', the file is read through a memory
+     * mapping instead of being copied to the heap, unless it has characters that are not ASCII.
+     */
+    public JmmParserResult parseFile(File inputFile, Map<String, String> config) {
+        if (!CompilerConfig.getStreaming(config)) {
+            return parse(SpecsIo.read(inputFile), config);
+        }
+
+        MappedCharStream input;
         try {
-            // Convert code string into a character stream
-            var input = new ANTLRInputStream(jmmCode);
-            // Transform characters into tokens using the lexer
-            var lex = new JavammLexer(input);
-            // Wrap lexer around a token stream
-            var tokens = new CommonTokenStream(lex);
-            // Transforms tokens into a parse tree
-            var parser = new JavammParser(tokens);
+            input = MappedCharStream.open(inputFile);
+        } catch (Exception e) {
+            return JmmParserResult.newError(Report.newError(Stage.SYNTATIC, -1, -1,
+                    "Could not map file '" + inputFile + "'", e), config);
+        }
 
+        if (input == null) {
+            return parse(SpecsIo.read(inputFile), config);
+        }
 
-            // Convert ANTLR CST to JmmNode AST
-            var r = AntlrParser.parse(lex, parser, startingRule, config);
+        // Each stage reads the mapping from the beginning
+        return parse(input::reopen, getDefaultRule(), config);
+    }
+
+    private JmmParserResult parse(Supplier<CharStream> input, String startingRule, Map<String, String> config) {
+        var pooled = pool.pollFirst();
+        if (pooled == null) {
+            pooled = new PooledParser();
+        }
+
+        try {
+            parses.incrementAndGet();
 
-            //if (r.getRootNode() != null) {
-            //    System.out.println("AST:\n" + r.getRootNode().toTree());
-            //}
+            if (CompilerConfig.getTwoStageParsing(config)) {
+                var result = parseSll(pooled, input.get(), CompilerConfig.getStreaming(config), startingRule, config);
+                if (result != null) {
+                    return result;
+                }
 
-            return r;
+                llFallbacks.incrementAndGet();
+            }
+
+            try (var span = CompilerTrace.span("llParse", "parser", null)) {
+                pooled.reset(input.get(), false, PredictionMode.LL, new DefaultErrorStrategy());
+
+                return pooled.parse(startingRule, config);
+            }
 
         } catch (Exception e) {
             // There was an uncaught exception during parsing, create an error JmmParserResult without root node
             return JmmParserResult.newError(Report.newError(Stage.SYNTATIC, -1, -1, "Exception during parsing", e), config);
+        } finally {
+            pooled.clear();
+            pool.offerFirst(pooled);
+        }
+    }
+
+    /**
+     * @param unbuffered if the tokens are read through a bounded buffer, instead of being kept for the whole parse
+     * @return the result of parsing the code with SLL prediction, or null if it found a syntax error
+     */
+    private JmmParserResult parseSll(PooledParser pooled, CharStream input, boolean unbuffered, String startingRule,
+                                     Map<String, String> config) {
+        try (var span = CompilerTrace.span("sllParse", "parser", null)) {
+            // Stops at the first syntax error instead of recovering
+            pooled.reset(input, unbuffered, PredictionMode.SLL, new BailErrorStrategy());
+
+            return pooled.parse(startingRule, config);
+
+        } catch (ParseCancellationException e) {
+            return null;
+        }
+    }
+
+    /**
+     * A lexer and a parser that are reused between sources. Resetting their input is cheaper than creating them, and
+     * the prediction caches (DFA) of the generated parser are static, so they are shared by all instances.
+     */
+    private static class PooledParser {
+
+        private static final Map<String, Method> RULES = new ConcurrentHashMap<>();
+
+        private final JavammLexer lexer;
+        private final JavammParser parser;
+
+        private PooledParser() {
+            this.lexer = new JavammLexer(null);
+            this.parser = new JavammParser(null);
+        }
+
+        /**
+         * @param unbuffered if the token stream only keeps the tokens that the parser can still look at, instead of
+         *                   all the tokens of the source. Only used without error recovery, since the error messages
+         *                   read the text of earlier tokens from the stream.
+         */
+        private void reset(CharStream input, boolean unbuffered, PredictionMode predictionMode,
+                           DefaultErrorStrategy errorStrategy) {
+            // Transform characters into tokens using the lexer
+            lexer.setInputStream(input);
+            // Wrap lexer around a token stream, which the parser transforms into a parse tree
+            parser.setTokenStream(unbuffered ? new UnbufferedTokenStream<>(lexer) : new CommonTokenStream(lexer));
+
+            parser.getInterpreter().setPredictionMode(predictionMode);
+            parser.setErrorHandler(errorStrategy);
+        }
+
+        /**
+         * Same as {@link AntlrParser#parse(Lexer, Parser, String, Map)}, but the AST is built directly from the parse
+         * tree, with compact nodes ({@link AstBuilder}).
+         */
+        private JmmParserResult parse(String startingRule, Map<String, String> config) {
+            lexer.removeErrorListeners();
+            var lexerListener = new JmmErrorListener(Stage.LEXICAL);
+            lexer.addErrorListener(lexerListener);
+
+            parser.removeErrorListeners();
+            var parserListener = new JmmErrorListener(Stage.SYNTATIC);
+            parser.addErrorListener(parserListener);
+
+            var tree = invokeRule(startingRule);
+
+            var reports = new ArrayList<Report>();
+            reports.addAll(lexerListener.getReports());
+            reports.addAll(parserListener.getReports());
+
+            if (reports.stream().anyMatch(report -> report.getType() == ReportType.ERROR)) {
+                return new JmmParserResult(null, reports, config);
+            }
+
+            // Convert ANTLR CST to JmmNode AST
+            return new JmmParserResult(new AstBuilder().build(tree), reports, config);
+        }
+
+        /**
+         * Calls the method of the parser for the given rule. Unlike SpecsSystem.invoke, the methods are looked up in a
+         * map that can be used by several threads.
+         */
+        private ParserRuleContext invokeRule(String rule) {
+            var method = RULES.computeIfAbsent(rule, name -> {
+                try {
+                    return JavammParser.class.getMethod(name);
+                } catch (NoSuchMethodException e) {
+                    throw new RuntimeException("Unknown starting rule '" + name + "'", e);
+                }
+            });
+
+            try {
+                return (ParserRuleContext) method.invoke(parser);
+            } catch (InvocationTargetException e) {
+                if (e.getCause() instanceof RuntimeException cause) {
+                    throw cause;
+                }
+
+                throw new RuntimeException("Could not parse rule '" + rule + "'", e.getCause());
+            } catch (IllegalAccessException e) {
+                throw new RuntimeException("Could not call rule '" + rule + "'", e);
+            }
+        }
+
+        /**
+         * Releases the source and its tokens, so that they are not kept alive by the pool.
+         */
+        private void clear() {
+            lexer.setInputStream(null);
+            parser.setTokenStream(null);
         }
     }
 }
@@ -0,0 +1,151 @@
+package pt.up.fe.comp2025.parser;
+
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.IntStream;
+import org.antlr.v4.runtime.misc.Interval;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Character stream that reads a source file through a read-only memory mapping, instead of copying the whole file to
+ * the heap as a String and then to the char array of an ANTLRInputStream.
+ * <p>
+ * Characters are the bytes of the file, so only ASCII files are supported. Tokens created by the default token
+ * factory do not copy their text, it is read from the mapping when requested.
+ */
+class MappedCharStream implements CharStream {
+
+    private final ByteBuffer data;
+    private final int size;
+    private final String name;
+    private int index;
+
+    private MappedCharStream(ByteBuffer data, String name) {
+        this.data = data;
+        this.size = data.limit();
+        this.name = name;
+        this.index = 0;
+    }
+
+    /**
+     * Maps the given file.
+     *
+     * @return a stream over the file, or null if the file has characters that are not ASCII
+     */
+    static MappedCharStream open(File file) throws IOException {
+        ByteBuffer data;
+
+        // The mapping stays valid after the channel is closed
+        try (var channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("File '" + file + "' is too large to be parsed");
+            }
+
+            data = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+
+        for (int i = 0; i < data.limit(); i++) {
+            if (data.get(i) < 0) {
+                return null;
+            }
+        }
+
+        return new MappedCharStream(data, file.getPath());
+    }
+
+    /**
+     * Creates a new stream over the same file, starting at the beginning.
+     */
+    MappedCharStream reopen() {
+        return new MappedCharStream(data, name);
+    }
+
+    @Override
+    public void consume() {
+        if (index >= size) {
+            throw new IllegalStateException("cannot consume EOF");
+        }
+
+        index++;
+    }
+
+    @Override
+    public int LA(int i) {
+        if (i == 0) {
+            // Undefined
+            return 0;
+        }
+
+        if (i < 0) {
+            // LA(-1) is the last consumed character
+            i++;
+            if (index + i - 1 < 0) {
+                return IntStream.EOF;
+            }
+        }
+
+        var position = index + i - 1;
+        if (position >= size) {
+            return IntStream.EOF;
+        }
+
+        return data.get(position);
+    }
+
+    /**
+     * The whole file is always available, so marks do nothing.
+     */
+    @Override
+    public int mark() {
+        return -1;
+    }
+
+    @Override
+    public void release(int marker) {
+    }
+
+    @Override
+    public int index() {
+        return index;
+    }
+
+    @Override
+    public void seek(int index) {
+        this.index = Math.min(index, size);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public String getSourceName() {
+        return name;
+    }
+
+    @Override
+    public String getText(Interval interval) {
+        var start = interval.a;
+        var stop = Math.min(interval.b, size - 1);
+
+        if (start >= size || stop < start) {
+            return "";
+        }
+
+        var bytes = new byte[stop - start + 1];
+        data.get(start, bytes);
+
+        return new String(bytes, StandardCharsets.US_ASCII);
+    }
+
+    @Override
+    public String toString() {
+        return getText(Interval.of(0, size - 1));
+    }
+}
@@ -0,0 +1,106 @@
+package pt.up.fe.comp2025.parser;
+
+import pt.up.fe.comp2025.metrics.CompilerTrace;
+import pt.up.fe.comp2025.synthetic.SyntheticProgramGenerator;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Parses a small training corpus, so that the prediction caches (DFA) of the parser are filled before the first real
+ * source is parsed.
+ * <p>
+ * The DFA of the generated parser is static, so it is shared by all the parser instances of the process, and stays
+ * warm for the rest of the run.
+ */
+public class ParserWarmup {
+
+    // Uses every rule and alternative of the grammar
+    private static final String GRAMMAR_SAMPLE = """
+            import io;
+            import java.util.List;
+
+            class Sample extends Base {
+                int field;
+                boolean flag;
+                int[] values;
+                String name;
+                String[] names;
+                Sample other;
+
+                public int sum(int[] a, int... rest) {
+                    int i;
+                    int total;
+                    boolean[] marks;
+                    i = 0;
+                    total = 0;
+                    while (i < a.length && !(total > 100)) {
+                        total = total + a[i] * 2 - i / 3;
+                        a[i] = this.twice(a[i], rest.length);
+                        i = i + 1;
+                    }
+                    if (flag) {
+                        values = new int[total];
+                    } else {
+                        values = [1, 2, 3];
+                    }
+                    other = new Sample();
+                    io.println(other.sum(values, 1, 2).twice(total, 1));
+                    { }
+                    return total;
+                }
+
+                int twice(int x, int y) {
+                    return (x + y) * 2;
+                }
+
+                public static void main(String[] args) {
+                    Sample s;
+                    s = new Sample();
+                    s.sum([4, 5, 6], true, false);
+                }
+            }
+            """;
+
+    /**
+     * @return the sources parsed by the warm-up
+     */
+    public static List<String> getCorpus() {
+        var corpus = new ArrayList<String>();
+        corpus.add(GRAMMAR_SAMPLE);
+
+        // Long expression chains and nested statements, which are the most expensive decisions
+        for (int seed = 0; seed < 4; seed++) {
+            corpus.add(new SyntheticProgramGenerator()
+                    .seed(seed)
+                    .methods(4)
+                    .statements(15)
+                    .nesting(3)
+                    .exprDepth(8)
+                    .generate("Warmup" + seed));
+        }
+
+        return corpus;
+    }
+
+    /**
+     * Parses the corpus a few times, which also gives the JIT a chance to compile the parser.
+     *
+     * @param rounds number of times each source is parsed
+     */
+    public static void warmUp(int rounds) {
+        try (var span = CompilerTrace.span("parserWarmup", "parser", null)) {
+            // A separate parser, so that the warm-up does not count in the statistics of the compiler's parser
+            var parser = new JmmParserImpl();
+            var config = new HashMap<String, String>();
+            var corpus = getCorpus();
+
+            for (int i = 0; i < rounds; i++) {
+                for (var code : corpus) {
+                    parser.parse(code, config);
+                }
+            }
+        }
+    }
+}
@@ -19,6 +19,9 @@ public class JmmSymbolTable extends AJmmSymbolTable {
     private final List<Symbol> fields;
     private final Map<String, List<Symbol>> params;
     private final Map<String, List<Symbol>> locals;
+    // Variables by name: the parameters and locals of each method, and the fields of the class
+    private final Map<String, Map<String, ScopedSymbol>> methodScopes;
+    private final Map<String, ScopedSymbol> fieldScope;
 
     public JmmSymbolTable(String className,
                           String superName,
@@ -37,6 +40,53 @@ public class JmmSymbolTable extends AJmmSymbolTable {
         this.fields = fields;
         this.params = params;
         this.locals = locals;
+        this.methodScopes = new HashMap<>();
+        this.fieldScope = new HashMap<>();
+
+        addToScope(fieldScope, fields, ScopedSymbol.Scope.FIELD);
+
+        for (var method : methods) {
+            var scope = new HashMap<String, ScopedSymbol>();
+            // Parameters hide locals with the same name
+            addToScope(scope, params.getOrDefault(method, List.of()), ScopedSymbol.Scope.PARAM);
+            addToScope(scope, locals.getOrDefault(method, List.of()), ScopedSymbol.Scope.LOCAL);
+            methodScopes.put(method, scope);
+        }
+    }
+
+    private static void addToScope(Map<String, ScopedSymbol> scope, List<Symbol> symbols, ScopedSymbol.Scope kind) {
+        for (int i = 0; i < symbols.size(); i++) {
+            var symbol = symbols.get(i);
+            // The first declaration of a name is the one that is used
+            scope.putIfAbsent(symbol.getName(), new ScopedSymbol(symbol, kind, i));
+        }
+    }
+
+    /**
+     * Looks up a variable inside a method: a parameter, a local variable or, if there is none with that name, a
+     * field.
+     *
+     * @param methodSignature the method, or null to only look up fields
+     * @return the variable, or null if there is no variable with the given name
+     */
+    public ScopedSymbol getVariable(String methodSignature, String name) {
+        var scope = methodSignature == null ? null : methodScopes.get(methodSignature);
+        if (scope != null) {
+            var variable = scope.get(name);
+            if (variable != null) {
+                return variable;
+            }
+        }
+
+        return fieldScope.get(name);
+    }
+
+    /**
+     * @return the field with the given name, or null if there is none
+     */
+    public Symbol getField(String name) {
+        var field = fieldScope.get(name);
+        return field == null ? null : field.symbol();
     }
 
     @Override
@@ -53,16 +53,17 @@ public class JmmSymbolTableBuilder {
 
     private List<Symbol> buildFields(JmmNode classDecl) {
         List<Symbol> fieldList = new ArrayList<>();
+        Set<String> fieldNames = new HashSet<>();
 
         for (var field : classDecl.getChildren(VAR_DECL)) {
             var fieldName = field.get("var");
             Type type = TypeUtils.convertType(field.getChild(0));
 
-            if (Boolean.parseBoolean(field.getChild(0).get("isVararg"))) {
+            if (field.getChild(0).getBoolean("isVararg", false)) {
                 reports.add(newError(field, "Field declarations cannot be vararg."));
             }
 
-            if (fieldList.stream().anyMatch(s -> s.getName().equals(fieldName))) {
+            if (!fieldNames.add(fieldName)) {
                 reports.add(newError(classDecl, "Parameter " + fieldName + " already exists"));
             }
 
@@ -74,12 +75,14 @@ public class JmmSymbolTableBuilder {
 
     private List<String> buildImports(JmmNode root) {
         List<String> imports = new ArrayList<>();
+        // Imported classes, by their simple name
+        Set<String> importedClasses = new HashSet<>();
 
         for (var importDecl : root.getChildren(Kind.IMPORT_DECL)) {
             String fullImport = String.join(".", importDecl.getObjectAsList("importName", String.class));
             String className = importDecl.getObjectAsList("importName", String.class).getLast();
 
-            if (imports.stream().anyMatch(s -> s.equals(className) || s.endsWith("." + className))) {
+            if (!importedClasses.add(className)) {
                 reports.add(newError(root, "Import " + fullImport + " already exists"));
             }
 
@@ -104,7 +107,7 @@ public class JmmSymbolTableBuilder {
             } else {
                 Type type = TypeUtils.convertType(method.getChild(0));
 
-                if (Boolean.parseBoolean(method.getChild(0).get("isVararg"))) {
+                if (method.getChild(0).getBoolean("isVararg", false)) {
                     boolean add = reports.add(newError(method, "Method return types cannot be vararg."));
                 }
 
@@ -121,17 +124,19 @@ public class JmmSymbolTableBuilder {
         for (var method : classDecl.getChildren(METHOD_DECL)) {
             var name = method.get("methodName");
             List<Symbol> paramList = new ArrayList<>();
+            Set<String> paramNames = new HashSet<>();
+            var paramNodes = method.getChildren(PARAM);
 
-            for (var param : method.getChildren(PARAM)) {
+            for (var param : paramNodes) {
                 var paramName = param.get("name");
                 Type type;
-                if (Boolean.parseBoolean(param.getChild(0).get("isVararg"))) {
+                if (param.getChild(0).getBoolean("isVararg", false)) {
                     type = new Type("...", true);
                 }
                 else {
                     type = TypeUtils.convertType(param.getChild(0));
                 }
-                if (paramList.stream().anyMatch(s -> s.getName().equals(paramName))) {
+                if (!paramNames.add(paramName)) {
                     reports.add(newError(classDecl, "Parameter " + paramName + " already exists"));
                 }
                 paramList.add(new Symbol(type, paramName));
@@ -140,14 +145,14 @@ public class JmmSymbolTableBuilder {
             // Verifica se há mais de um vararg ou se o vararg não é o último
             boolean foundVararg = false;
 
-            for (int i = 0; i < method.getChildren(PARAM).size(); i++) {
-                var param = method.getChildren(PARAM).get(i);
-                var isVararg = Boolean.parseBoolean(param.getChild(0).get("isVararg"));
+            for (int i = 0; i < paramNodes.size(); i++) {
+                var param = paramNodes.get(i);
+                var isVararg = param.getChild(0).getBoolean("isVararg", false);
 
                 if (isVararg) {
                     if (foundVararg) {
                         reports.add(newError(param, "Only one vararg parameter is allowed per method."));
-                    } else if (i != method.getChildren(PARAM).size() - 1) {
+                    } else if (i != paramNodes.size() - 1) {
                         reports.add(newError(param, "Vararg parameter must be the last parameter in the method declaration."));
                     }
 
@@ -168,16 +173,17 @@ public class JmmSymbolTableBuilder {
         for (var method : classDecl.getChildren(METHOD_DECL)) {
             var name = method.get("methodName");
             List<Symbol> localsList = new ArrayList<>();
+            Set<String> localNames = new HashSet<>();
 
             for (var param : method.getChildren(VAR_DECL)) {
                 var paramName = param.get("var");
                 Type type = TypeUtils.convertType(param.getChild(0));
 
-                if (Boolean.parseBoolean(param.getChild(0).get("isVararg"))) {
+                if (param.getChild(0).getBoolean("isVararg", false)) {
                     reports.add(newError(param, "Variable declarations cannot be vararg."));
                 }
 
-                if (localsList.stream().anyMatch(s -> s.getName().equals(paramName))) {
+                if (!localNames.add(paramName)) {
                     reports.add(newError(classDecl, "Parameter " + paramName + " already exists"));
                 }
 
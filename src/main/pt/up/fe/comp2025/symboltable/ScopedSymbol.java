@@ -0,0 +1,20 @@
+package pt.up.fe.comp2025.symboltable;
+
+import pt.up.fe.comp.jmm.analysis.table.Symbol;
+
+/**
+ * A variable visible inside a method, with the scope where it is declared and its position in that scope (the
+ * parameters, the local variables of the method or the fields of the class).
+ */
+public record ScopedSymbol(Symbol symbol, Scope scope, int index) {
+
+    public enum Scope {
+        PARAM,
+        LOCAL,
+        FIELD
+    }
+
+    public String getName() {
+        return symbol.getName();
+    }
+}
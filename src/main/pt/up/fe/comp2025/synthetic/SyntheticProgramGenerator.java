@@ -0,0 +1,236 @@
+package pt.up.fe.comp2025.synthetic;
+
+import java.util.Random;
+
+/**
+ * Generates valid J-- programs of configurable size, to be used in scaling tests and benchmarks.
+ * <p>
+ * Each method receives two integers and declares the given number of integer locals, an array and a boolean. Its body
+ * has the given number of top-level statements: assignments of arithmetic expressions, array literals and array
+ * stores, calls to other methods of the class, and if/while statements nested up to the given depth. Expressions are
+ * left-deep chains of binary operations, so an expression depth of 10000 produces an expression with 10000 terms.
+ * <p>
+ * Methods only call methods declared after them, so the generated programs have no recursion. They are meant to be
+ * compiled, not executed: with several methods and a call fan-out greater than one, the number of calls at runtime
+ * grows exponentially.
+ * <p>
+ * The output only depends on the options and the seed.
+ */
+public class SyntheticProgramGenerator {
+
+    private static final String[] INT_OPS = {"+", "-", "*"};
+
+    private int methods = 5;
+    private int locals = 4;
+    private int statements = 10;
+    private int exprDepth = 3;
+    private int nesting = 2;
+    private int arrayLength = 4;
+    private int callFanOut = 2;
+    private long seed = 0;
+
+    private Random random;
+    private StringBuilder code;
+
+    public SyntheticProgramGenerator methods(int methods) {
+        this.methods = atLeast(1, methods, "methods");
+        return this;
+    }
+
+    public SyntheticProgramGenerator locals(int locals) {
+        this.locals = atLeast(1, locals, "locals");
+        return this;
+    }
+
+    public SyntheticProgramGenerator statements(int statements) {
+        this.statements = atLeast(0, statements, "statements");
+        return this;
+    }
+
+    public SyntheticProgramGenerator exprDepth(int exprDepth) {
+        this.exprDepth = atLeast(0, exprDepth, "exprDepth");
+        return this;
+    }
+
+    public SyntheticProgramGenerator nesting(int nesting) {
+        this.nesting = atLeast(0, nesting, "nesting");
+        return this;
+    }
+
+    public SyntheticProgramGenerator arrayLength(int arrayLength) {
+        this.arrayLength = atLeast(1, arrayLength, "arrayLength");
+        return this;
+    }
+
+    public SyntheticProgramGenerator callFanOut(int callFanOut) {
+        this.callFanOut = atLeast(0, callFanOut, "callFanOut");
+        return this;
+    }
+
+    public SyntheticProgramGenerator seed(long seed) {
+        this.seed = seed;
+        return this;
+    }
+
+    /**
+     * Generates a program with a single class.
+     *
+     * @param className
+     * @return the code of the program
+     */
+    public String generate(String className) {
+        random = new Random(seed);
+        code = new StringBuilder();
+
+        code.append("class ").append(className).append(" {\n\n");
+
+        for (int i = 0; i < methods; i++) {
+            generateMethod(i);
+        }
+
+        code.append("    public static void main(String[] args) {\n");
+        code.append("    }\n");
+        code.append("}\n");
+
+        var result = code.toString();
+        code = null;
+
+        return result;
+    }
+
+    private void generateMethod(int index) {
+        code.append("    public int m").append(index).append("(int p0, int p1) {\n");
+
+        // Declarations: integer locals, one loop counter per nesting level, an array and a condition
+        for (int i = 0; i < locals; i++) {
+            line(2, "int l" + i + ";");
+        }
+        for (int i = 0; i < nesting; i++) {
+            line(2, "int c" + i + ";");
+        }
+        line(2, "int[] arr;");
+        line(2, "boolean cond;");
+
+        // Initializations, so that every local is defined before being used
+        for (int i = 0; i < locals; i++) {
+            line(2, "l" + i + " = " + (i % 2 == 0 ? "p0" : "p1") + ";");
+        }
+        line(2, "arr = " + arrayLiteral() + ";");
+        line(2, "cond = p0 < p1;");
+
+        for (int i = 0; i < statements; i++) {
+            generateStatement(index, 0, 2);
+        }
+
+        line(2, "return " + intExpr(exprDepth) + ";");
+        code.append("    }\n\n");
+    }
+
+    private void generateStatement(int methodIndex, int depth, int indent) {
+        var kind = random.nextInt(depth < nesting ? 6 : 4);
+
+        switch (kind) {
+            case 0 -> line(indent, local() + " = " + intExpr(exprDepth) + ";");
+            case 1 -> line(indent, "arr[" + random.nextInt(arrayLength) + "] = " + intExpr(exprDepth) + ";");
+            case 2 -> generateCalls(methodIndex, indent);
+            case 3 -> line(indent, random.nextBoolean() ? "arr = " + arrayLiteral() + ";" : "cond = " + boolExpr() + ";");
+            case 4 -> {
+                line(indent, "if (" + boolExpr() + ") {");
+                generateStatement(methodIndex, depth + 1, indent + 1);
+                line(indent, "} else {");
+                generateStatement(methodIndex, depth + 1, indent + 1);
+                line(indent, "}");
+            }
+            default -> {
+                var counter = "c" + depth;
+                line(indent, counter + " = 0;");
+                line(indent, "while (" + counter + " < " + (1 + random.nextInt(10)) + ") {");
+                generateStatement(methodIndex, depth + 1, indent + 1);
+                line(indent + 1, counter + " = " + counter + " + 1;");
+                line(indent, "}");
+            }
+        }
+    }
+
+    /**
+     * Calls to the next methods of the class, or an arithmetic assignment if this is the last method.
+     */
+    private void generateCalls(int methodIndex, int indent) {
+        var lastCallee = Math.min(methods - 1, methodIndex + callFanOut);
+
+        if (lastCallee == methodIndex) {
+            line(indent, local() + " = " + intExpr(exprDepth) + ";");
+            return;
+        }
+
+        for (int callee = methodIndex + 1; callee <= lastCallee; callee++) {
+            line(indent, local() + " = this.m" + callee + "(" + intExpr(1) + ", " + intExpr(1) + ");");
+        }
+    }
+
+    private String intExpr(int depth) {
+        var expr = new StringBuilder(intLeaf());
+
+        for (int i = 0; i < depth; i++) {
+            // Divisions only by non-zero literals
+            if (random.nextInt(8) == 0) {
+                expr.append(" / ").append(1 + random.nextInt(9));
+            } else {
+                expr.append(" ").append(INT_OPS[random.nextInt(INT_OPS.length)]).append(" ").append(intLeaf());
+            }
+        }
+
+        return expr.toString();
+    }
+
+    private String intLeaf() {
+        return switch (random.nextInt(5)) {
+            case 0 -> Integer.toString(random.nextInt(100));
+            case 1 -> "arr[" + random.nextInt(arrayLength) + "]";
+            case 2 -> "arr.length";
+            case 3 -> random.nextBoolean() ? "p0" : "p1";
+            default -> local();
+        };
+    }
+
+    private String boolExpr() {
+        var comparison = intLeaf() + " < " + intLeaf();
+
+        return switch (random.nextInt(4)) {
+            case 0 -> "!(" + comparison + ")";
+            // The grammar gives '&&' a higher precedence than '<'
+            case 1 -> "(" + comparison + ") && cond";
+            case 2 -> "cond";
+            default -> comparison;
+        };
+    }
+
+    private String arrayLiteral() {
+        var literal = new StringBuilder("[");
+
+        for (int i = 0; i < arrayLength; i++) {
+            if (i > 0) {
+                literal.append(", ");
+            }
+            literal.append(random.nextInt(100));
+        }
+
+        return literal.append("]").toString();
+    }
+
+    private String local() {
+        return "l" + random.nextInt(locals);
+    }
+
+    private void line(int indent, String line) {
+        code.append("    ".repeat(indent)).append(line).append("\n");
+    }
+
+    private static int atLeast(int min, int value, String option) {
+        if (value < min) {
+            throw new RuntimeException("Option '" + option + "' must be at least " + min + ", got " + value);
+        }
+
+        return value;
+    }
+}
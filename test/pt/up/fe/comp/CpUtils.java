@@ -27,6 +27,7 @@ import pt.up.fe.specs.util.SpecsIo;
 import pt.up.fe.specs.util.SpecsStrings;
 import pt.up.fe.specs.util.exceptions.NotImplementedException;
 import pt.up.fe.specs.util.utilities.LineStream;
+import utils.JasminRunner;
 
 import java.io.File;
 import java.util.*;
@@ -122,7 +123,7 @@ public class CpUtils {
 
         var testName = new File(resource).getName();
         System.out.println(testName + ":\n" + result.getJasminCode());
-        var runOutput = result.runWithFullOutput();
+        var runOutput = JasminRunner.runWithFullOutput(result);
         Assert.assertEquals("Error while running compiled Jasmin: " + runOutput.getOutput() + "\n\nJasmin code:\n"
                 + result.getJasminCode(), 0, runOutput.getReturnValue());
         System.out.println("\n Result: " + runOutput.getOutput());
@@ -146,7 +147,7 @@ public class CpUtils {
 
             var testName = new File(resource).getName();
             System.out.println(testName + ":\n" + result.getJasminCode());
-            var runOutput = result.runWithFullOutput();
+            var runOutput = JasminRunner.runWithFullOutput(result);
             Assert.assertEquals("Error while running compiled Jasmin: " + runOutput.getOutput() + "\n\nJasmin code:\n"
                             + result.getJasminCode(), 0,
                     runOutput.getReturnValue());
@@ -584,7 +585,7 @@ public class CpUtils {
 
     public static void runJasmin(JasminResult jasminResult, String expected) {
         try {
-            var output = SpecsStrings.normalizeFileContents(jasminResult.run(), true);
+            var output = SpecsStrings.normalizeFileContents(JasminRunner.run(jasminResult), true);
             assertEquals("Jasmin output", expected, output, jasminResult);
         } catch (Exception e) {
             throw new RuntimeException("Problems while running Jasmin code:\n" + jasminResult.getJasminCode(), e);
@@ -0,0 +1,103 @@
+package pt.up.fe.comp2025;
+
+import org.junit.Test;
+import pt.up.fe.comp.jmm.analysis.JmmSemanticsResult;
+import pt.up.fe.comp2025.analysis.JmmAnalysisImpl;
+import pt.up.fe.comp2025.ast.AstSnapshot;
+import pt.up.fe.comp2025.parser.JmmParserImpl;
+import pt.up.fe.comp2025.utils.ReportUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+import static org.junit.Assert.*;
+import static utils.AstTestUtils.assertSameTree;
+
+public class AstSnapshotTest {
+
+    private static JmmSemanticsResult analyze(String code) {
+        var analysis = new JmmAnalysisImpl();
+        return analysis.semanticAnalysis(analysis.buildSymbolTable(new JmmParserImpl().parse(code, new HashMap<>())));
+    }
+
+    @Test
+    public void readsTheSameResult() throws IOException {
+        List<Path> files;
+        try (var paths = Files.walk(Path.of("test"))) {
+            files = paths.filter(path -> path.toString().endsWith(".jmm")).toList();
+        }
+
+        var numAnalyzed = 0;
+        for (var file : files) {
+            var expected = analyze(Files.readString(file));
+            if (expected.getRootNode() == null || ReportUtils.anyError(expected.getReports())) {
+                continue;
+            }
+
+            var config = new HashMap<String, String>();
+            var actual = AstSnapshot.read(AstSnapshot.write(expected), config);
+
+            assertSameTree(expected.getRootNode(), actual.getRootNode());
+            assertEquals(expected.getSymbolTable().print(), actual.getSymbolTable().print());
+            assertEquals(expected.getReports().toString(), actual.getReports().toString());
+            assertSame(config, actual.getConfig());
+            numAnalyzed++;
+        }
+
+        assertTrue(numAnalyzed > 0);
+    }
+
+    @Test
+    public void rejectsInvalidSnapshots() {
+        var snapshot = AstSnapshot.write(analyze("class A { public int foo() { return 1; } }"));
+
+        // The number of strings follows the magic number and the version
+        var hugeCount = snapshot.clone();
+        hugeCount[8] = 0x7F;
+        var negativeCount = snapshot.clone();
+        negativeCount[8] = (byte) 0xFF;
+
+        for (var invalid : List.of(Arrays.copyOf(snapshot, snapshot.length / 2), new byte[]{1, 2, 3}, hugeCount,
+                negativeCount)) {
+            try {
+                AstSnapshot.read(invalid, new HashMap<>());
+                fail("Expected an invalid snapshot");
+            } catch (IOException e) {
+                // Expected
+            }
+        }
+    }
+
+    @Test
+    public void corruptSnapshotsOnlyThrowIOException() {
+        var snapshot = AstSnapshot.write(analyze("""
+                import io;
+                class A {
+                    int[] field;
+                    public int foo(int a, boolean b) {
+                        int c;
+                        c = a + 2 * a;
+                        io.println(c);
+                        return c;
+                    }
+                }
+                """));
+
+        for (int i = 0; i < snapshot.length; i++) {
+            for (var value : new byte[]{0, 0x7F, (byte) 0x80, (byte) 0xFF}) {
+                var corrupt = snapshot.clone();
+                corrupt[i] = value;
+
+                try {
+                    AstSnapshot.read(corrupt, new HashMap<>());
+                } catch (IOException e) {
+                    // Expected for most changes, some still give a valid snapshot
+                }
+            }
+        }
+    }
+}
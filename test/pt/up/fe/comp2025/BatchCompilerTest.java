@@ -0,0 +1,38 @@
+package pt.up.fe.comp2025;
+
+import org.junit.Test;
+import pt.up.fe.comp2025.driver.BatchCompiler;
+import pt.up.fe.specs.util.SpecsIo;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class BatchCompilerTest {
+
+    @Test
+    public void reportsClassesDeclaredTwice() throws IOException {
+        var inputDir = Files.createTempDirectory("jmm-batch-input").toFile();
+        var outputDir = Files.createTempDirectory("jmm-batch-output").toFile();
+
+        var first = new File(inputDir, "first.jmm");
+        var second = new File(inputDir, "second.jmm");
+        SpecsIo.write(first, "class Same { public int f() { return 1; } }");
+        SpecsIo.write(second, "class Same { public int f() { return 2; } }");
+
+        var compiler = new BatchCompiler(Map.of("outputDir", outputDir.getPath()));
+        var results = compiler.compile(List.of(first, second), 2);
+
+        // The first file in the batch keeps the output, the second one is not written
+        assertFalse(results.get(0).getReports().toString(), results.get(0).hasErrors());
+        assertTrue(results.get(1).hasErrors());
+        assertTrue(results.get(1).getReports().toString(), results.get(1).getReports().stream()
+                .anyMatch(report -> report.getMessage().contains("first.jmm")));
+
+        assertTrue(SpecsIo.read(new File(outputDir, "Same.j")).contains("iconst_1"));
+    }
+}
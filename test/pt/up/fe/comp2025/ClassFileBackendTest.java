@@ -0,0 +1,137 @@
+package pt.up.fe.comp2025;
+
+import org.junit.Test;
+import pt.up.fe.comp.TestUtils;
+import pt.up.fe.comp.jmm.jasmin.JasminResult;
+import pt.up.fe.comp.jmm.ollir.OllirResult;
+import pt.up.fe.comp2025.backend.ClassFileResult;
+import pt.up.fe.comp2025.driver.CompilationPipeline;
+import pt.up.fe.comp2025.metrics.CompilerMetrics;
+import pt.up.fe.comp2025.synthetic.SyntheticProgramGenerator;
+import pt.up.fe.specs.util.SpecsIo;
+import utils.JasminRunner;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ClassFileBackendTest {
+
+    private static JasminResult backend(String resource, boolean classFile) {
+        var config = new HashMap<String, String>();
+        config.put(ConfigOptions.getClassFile(), Boolean.toString(classFile));
+
+        var ollirResult = new OllirResult(SpecsIo.getResource(resource), config);
+        return TestUtils.backend(ollirResult);
+    }
+
+    /**
+     * Runs the program with both backends and checks that the outputs are the same.
+     */
+    private static void sameOutput(String resource) {
+        var jasminOutput = JasminRunner.runWithFullOutput(backend(resource, false));
+        var classFileOutput = JasminRunner.runWithFullOutput(backend(resource, true));
+
+        assertEquals("Exit code of " + resource, jasminOutput.getReturnValue(), classFileOutput.getReturnValue());
+        assertEquals("Output of " + resource, jasminOutput.getOutput(), classFileOutput.getOutput());
+    }
+
+    @Test
+    public void classFileIsWrittenDirectly() throws IOException {
+        var result = backend("pt/up/fe/comp/cp3/jasmin/basic/OllirToJasminBasic.ollir", true);
+        assertTrue(result instanceof ClassFileResult);
+
+        var bytes = Files.readAllBytes(result.compile().toPath());
+        assertEquals(0xCAFEBABE, ByteBuffer.wrap(bytes).getInt());
+    }
+
+    @Test
+    public void jasminCodeIsStillAvailable() {
+        var result = backend("pt/up/fe/comp/cp3/jasmin/basic/OllirToJasminBasic.ollir", true);
+        assertTrue(result.getJasminCode().contains(".method"));
+    }
+
+    @Test
+    public void arithmetic() {
+        sameOutput("pt/up/fe/comp/cp3/jasmin/arithmetic/OllirToJasminArithmetics.ollir");
+        sameOutput("pt/up/fe/comp/cp3/jasmin/arithmetic/Arithmetic_less.ollir");
+        sameOutput("pt/up/fe/comp/cp3/jasmin/arithmetic/Arithmetic_and.ollir");
+    }
+
+    @Test
+    public void controlFlow() {
+        sameOutput("pt/up/fe/comp/cp3/jasmin/control_flow/IfWhileNested.ollir");
+        sameOutput("pt/up/fe/comp/cp3/jasmin/control_flow/SimpleIfElseNot.ollir");
+        sameOutput("pt/up/fe/comp/cp3/jasmin/control_flow/SwitchStat.ollir");
+    }
+
+    @Test
+    public void arraysAndCalls() {
+        sameOutput("pt/up/fe/comp/cp3/jasmin/arrays/ComplexArrayAccess.ollir");
+        sameOutput("pt/up/fe/comp/cp3/jasmin/arrays/ArrayAsArg.ollir");
+        sameOutput("pt/up/fe/comp/cp3/jasmin/calls/ConditionArgsFuncCall.ollir");
+        sameOutput("pt/up/fe/comp/cp3/jasmin/basic/OllirToJasminFields.ollir");
+    }
+
+    @Test
+    public void optimizedSyntheticProgramsVerify() throws ClassNotFoundException {
+        for (int seed = 0; seed < 5; seed++) {
+            var className = "Synthetic" + seed;
+            var code = new SyntheticProgramGenerator()
+                    .seed(seed)
+                    .methods(4)
+                    .statements(15)
+                    .nesting(3)
+                    .generate(className);
+
+            var config = new HashMap<>(Map.of("optimize", "true", ConfigOptions.getClassFile(), "true"));
+            var result = new CompilationPipeline().compile(code, config);
+            TestUtils.noErrors(result.getReports());
+
+            // Initializing the class runs the bytecode verifier over all its methods
+            var classFile = ((ClassFileResult) result.getJasminResult().get()).getClassFile();
+            Class.forName(className, true, new ClassFileLoader(className, classFile));
+        }
+    }
+
+    @Test
+    public void metricsMeasureTheClassFile() {
+        var code = new SyntheticProgramGenerator().seed(0).methods(3).generate("Measured");
+        var config = new HashMap<>(Map.of(ConfigOptions.getClassFile(), "true"));
+        var metrics = new CompilerMetrics("Measured.jmm");
+
+        var result = new CompilationPipeline().compile(code, config, metrics);
+        TestUtils.noErrors(result.getReports());
+
+        var classFile = ((ClassFileResult) result.getJasminResult().get()).getClassFile();
+        assertEquals(Long.valueOf(classFile.length), metrics.getSizes().get("classFileBytes"));
+        assertFalse(metrics.getSizes().containsKey("jasminLines"));
+        assertTrue(metrics.toJson().contains("\"name\": \"main\""));
+    }
+
+    private static class ClassFileLoader extends ClassLoader {
+        private final String className;
+        private final byte[] classFile;
+
+        private ClassFileLoader(String className, byte[] classFile) {
+            super(ClassFileBackendTest.class.getClassLoader());
+            this.className = className;
+            this.classFile = classFile;
+        }
+
+        @Override
+        protected Class<?> findClass(String name) throws ClassNotFoundException {
+            if (!name.equals(className)) {
+                throw new ClassNotFoundException(name);
+            }
+
+            return defineClass(name, classFile, 0, classFile.length);
+        }
+    }
+}
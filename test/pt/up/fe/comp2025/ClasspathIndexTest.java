@@ -0,0 +1,192 @@
+package pt.up.fe.comp2025;
+
+import org.junit.Assume;
+import org.junit.Test;
+import pt.up.fe.comp.jmm.report.ReportType;
+import pt.up.fe.comp2025.analysis.JmmAnalysisImpl;
+import pt.up.fe.comp2025.classpath.ClasspathIndex;
+import pt.up.fe.comp2025.parser.JmmParserImpl;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.List;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+
+import static org.junit.Assert.*;
+
+public class ClasspathIndexTest {
+
+    private static final File COMPILED = new File(ClasspathIndex.DEFAULT_CLASSPATH);
+
+    private static List<String> analyze(String code) {
+        var parserResult = new JmmParserImpl().parse(code, new HashMap<>());
+
+        var analysis = new JmmAnalysisImpl();
+        var result = analysis.semanticAnalysis(analysis.buildSymbolTable(parserResult));
+
+        return result.getReports().stream()
+                .filter(report -> report.getType() == ReportType.ERROR)
+                .map(report -> report.getMessage())
+                .toList();
+    }
+
+    private static String mainWith(String imports, String statements) {
+        return imports + "\nclass Caller {\n    public static void main(String[] args) {\n" + statements
+                + "\n    }\n}\n";
+    }
+
+    @Test
+    public void readsDeclarations() {
+        var index = new ClasspathIndex(List.of(COMPILED), null);
+
+        var io = index.getClass("io");
+        assertNotNull(io);
+        assertTrue(io.getMethods("println").stream().allMatch(method -> method.isStatic() && method.isFinal()));
+        assertEquals("Ljava/util/Vector;", io.getField("Buffer").descriptor());
+
+        var b = index.getClass("inheritanceAB.B");
+        assertEquals("inheritanceAB/A", b.superName());
+        assertEquals(List.of("inheritanceAB/A", "java/lang/Object"), index.getSuperClasses("inheritanceAB/B"));
+        assertTrue(index.isHierarchyKnown("inheritanceAB.B"));
+
+        assertNull(index.getClass("Missing"));
+        assertFalse(index.isHierarchyKnown("Missing"));
+    }
+
+    @Test
+    public void resolvesDescriptors() {
+        var index = new ClasspathIndex(List.of(COMPILED), null);
+
+        assertEquals("(II)I", index.resolveMethod("MathUtils", "random", List.of("I", "I")).descriptor());
+        assertEquals("(Ljava/lang/String;I)V",
+                index.resolveMethod("io", "println", List.of("Ljava/lang/String;", "I")).descriptor());
+
+        // References of an unknown class can be given to any reference parameter
+        assertEquals("(Ljava/lang/String;)V",
+                index.resolveMethod("io", "print", List.of("LUnknown;")).descriptor());
+
+        // Inherited from a superclass
+        assertEquals("()I", index.resolveMethod("inheritanceAB/B", "a", List.of()).descriptor());
+        assertNull(index.resolveMethod("MathUtils", "random", List.of("I")));
+    }
+
+    @Test
+    public void savedIndexIsReused() throws IOException {
+        var root = Files.createTempDirectory("jmm-classpath-test").toFile();
+        var classFile = new File(root, "MathUtils.class");
+        Files.copy(new File(COMPILED, "MathUtils.class").toPath(), classFile.toPath());
+        var indexFile = new File(root, ClasspathIndex.INDEX_FILE);
+
+        var first = new ClasspathIndex(List.of(root), indexFile);
+        assertNotNull(first.getClass("MathUtils"));
+        first.save();
+        assertTrue(indexFile.isFile());
+
+        // A class file with the same size and modification time is not read again
+        var lastModified = classFile.lastModified();
+        Files.write(classFile.toPath(), new byte[(int) classFile.length()]);
+        assertTrue(classFile.setLastModified(lastModified));
+        assertNotNull(new ClasspathIndex(List.of(root), indexFile).getClass("MathUtils"));
+
+        // A changed class file is read again
+        assertTrue(classFile.setLastModified(lastModified - 10_000));
+        assertNull(new ClasspathIndex(List.of(root), indexFile).getClass("MathUtils"));
+    }
+
+    @Test
+    public void fingerprintFollowsChanges() throws IOException {
+        var root = Files.createTempDirectory("jmm-classpath-test").toFile();
+        var classFile = new File(root, "MathUtils.class");
+        Files.copy(new File(COMPILED, "MathUtils.class").toPath(), classFile.toPath());
+
+        var index = new ClasspathIndex(List.of(root), null);
+        var fingerprint = index.getFingerprint();
+        assertNotNull(index.getClass("MathUtils"));
+
+        // The classpath is only walked again when refreshed
+        Files.write(classFile.toPath(), new byte[8]);
+        assertTrue(classFile.setLastModified(classFile.lastModified() - 10_000));
+        assertEquals(fingerprint, index.getFingerprint());
+        assertNotNull(index.getClass("MathUtils"));
+
+        // A changed class is forgotten, and read again from the new file
+        index.refresh();
+        assertNotEquals(fingerprint, index.getFingerprint());
+        assertNull(index.getClass("MathUtils"));
+    }
+
+    @Test
+    public void refreshClosesChangedJars() throws IOException {
+        var jar = Files.createTempFile("jmm-classpath-test", ".jar").toFile();
+        writeJar(jar, "MathUtils.class");
+
+        var index = new ClasspathIndex(List.of(jar), null);
+        index.getFingerprint();
+        assertNotNull(index.getClass("MathUtils"));
+
+        writeJar(jar, "Other.class");
+        assertTrue(jar.setLastModified(jar.lastModified() - 10_000));
+        index.refresh();
+
+        // The class is looked up in the new jar, and only the new jar is still open
+        assertNull(index.getClass("MathUtils"));
+        assertNotNull(index.getClass("Other"));
+
+        var fds = new File("/proc/self/fd");
+        Assume.assumeTrue(fds.isDirectory());
+        assertEquals(1, countOpen(fds, jar));
+
+        index.close();
+        assertEquals(0, countOpen(fds, jar));
+    }
+
+    private static void writeJar(File jar, String entryName) throws IOException {
+        try (var out = new JarOutputStream(new FileOutputStream(jar))) {
+            out.putNextEntry(new JarEntry(entryName));
+            out.write(Files.readAllBytes(new File(COMPILED, "MathUtils.class").toPath()));
+            out.closeEntry();
+        }
+    }
+
+    private static long countOpen(File fds, File file) throws IOException {
+        var target = file.toPath().toRealPath();
+        long open = 0;
+
+        for (var fd : fds.listFiles()) {
+            try {
+                if (Files.readSymbolicLink(fd.toPath()).equals(target)) {
+                    open++;
+                }
+            } catch (IOException e) {
+                // Closed while listing
+            }
+        }
+
+        return open;
+    }
+
+    @Test
+    public void checksCallsOfImportedMethods() {
+        assertEquals(List.of(), analyze(mainWith("import io;\nimport MathUtils;",
+                "io.println(1);\nMathUtils.random(1, 2);")));
+
+        var errors = analyze(mainWith("import io;\nimport MathUtils;",
+                "io.printline(1);\nMathUtils.random(1);"));
+        assertEquals(2, errors.size());
+        assertTrue(errors.get(0).contains("printline"));
+        assertTrue(errors.get(1).contains("does not take 1 arguments"));
+
+        // Classes that are not in the classpath are assumed to be correct
+        assertEquals(List.of(), analyze(mainWith("import Missing;", "Missing.anything(1, 2, 3);")));
+    }
+
+    @Test
+    public void importedSubclassesAreCompatible() {
+        assertEquals(List.of(), analyze(mainWith("import inheritanceAB.A;\nimport inheritanceAB.B;",
+                "A a;\na = new B();")));
+    }
+}
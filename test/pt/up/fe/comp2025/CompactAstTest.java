@@ -0,0 +1,116 @@
+package pt.up.fe.comp2025;
+
+import org.antlr.v4.runtime.ANTLRInputStream;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.junit.Test;
+import pt.up.fe.comp.jmm.analysis.table.Type;
+import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp.jmm.ast.JmmNodeImpl;
+import pt.up.fe.comp.jmm.ast.antlr.AntlrParser;
+import pt.up.fe.comp2025.ast.AstNode;
+import pt.up.fe.comp2025.ast.Kind;
+import pt.up.fe.comp2025.parser.JmmParserImpl;
+import pt.up.fe.comp2025.parser.ParserWarmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+import static org.junit.Assert.*;
+import static utils.AstTestUtils.assertSameTree;
+
+public class CompactAstTest {
+
+    private static JmmNode parseWithLibrary(String code) {
+        var lexer = new JavammLexer(new ANTLRInputStream(code));
+        var parser = new JavammParser(new CommonTokenStream(lexer));
+        return AntlrParser.parse(lexer, parser, "program").getRootNode();
+    }
+
+    @Test
+    public void sameTreesAsLibraryConverter() throws IOException {
+        var sources = new ArrayList<>(ParserWarmup.getCorpus());
+        try (var files = Files.walk(Path.of("test"))) {
+            for (var file : files.filter(path -> path.toString().endsWith(".jmm")).toList()) {
+                sources.add(Files.readString(file));
+            }
+        }
+
+        var parser = new JmmParserImpl();
+        for (var code : sources) {
+            var expected = parseWithLibrary(code);
+            var actual = parser.parse(code, new HashMap<>()).getRootNode();
+
+            if (expected == null) {
+                assertNull(actual);
+                continue;
+            }
+
+            assertTrue(actual instanceof AstNode);
+            assertSameTree(expected, actual);
+        }
+    }
+
+    @Test
+    public void typedAttributes() {
+        var root = new JmmParserImpl().parse(ParserWarmup.getCorpus().get(0), new HashMap<>()).getRootNode();
+
+        var literal = root.getDescendants(Kind.INTEGER).get(0);
+        assertEquals(Kind.INTEGER, ((AstNode) literal).getNodeKind());
+        assertEquals(0, literal.getInteger("value", -1));
+
+        var vararg = root.getDescendants(Kind.INT_VARARG).get(0);
+        assertTrue(vararg.getBoolean("isArray", false));
+        assertTrue(vararg.getBoolean("isVararg", false));
+    }
+
+    @Test
+    public void attributesThatDoNotFitAreKept() {
+        var node = AstNode.newInteger(7);
+        assertEquals("7", node.get("value"));
+
+        node.put("value", "not a number");
+        assertEquals("not a number", node.get("value"));
+        assertEquals(List.of("value"), List.copyOf(node.getAttributes()));
+
+        node.put("value", "8");
+        assertEquals(8, node.getInteger("value", -1));
+
+        node.put("type", "int");
+        assertTrue(node.hasAttribute("type"));
+        assertEquals("int", node.get("type"));
+        assertFalse(node.hasAttribute("lineStart"));
+    }
+
+    @Test
+    public void mixedWithLibraryNodes() {
+        var root = new JmmParserImpl().parse(ParserWarmup.getCorpus().get(0), new HashMap<>()).getRootNode();
+        var literal = root.getDescendants(Kind.INTEGER).get(0);
+        var parent = literal.getParent();
+        var index = literal.getIndexOfSelf();
+
+        var replacement = new JmmNodeImpl(List.of(Kind.INTEGER.getNodeName()));
+        replacement.put("value", "42");
+        literal.replace(replacement);
+
+        assertSame(replacement, parent.getChild(index));
+        assertNull(literal.getParent());
+
+        replacement.replace(AstNode.newInteger(43));
+        assertEquals(43, parent.getChild(index).getInteger("value", -1));
+    }
+
+    @Test
+    public void attachKeepsTheTypesOfAncestors() {
+        var parent = new AstNode(Kind.BINARY_EXPR);
+        parent.setType(new Type("int", false));
+        parent.attach(AstNode.newInteger(1));
+        assertEquals(new Type("int", false), parent.getType());
+
+        parent.add(AstNode.newInteger(2));
+        assertNull(parent.getType());
+    }
+}
@@ -0,0 +1,158 @@
+package pt.up.fe.comp2025;
+
+import org.junit.Test;
+import pt.up.fe.comp.TestUtils;
+import pt.up.fe.comp2025.backend.ClassFileResult;
+import pt.up.fe.comp2025.driver.CompilationCache;
+import pt.up.fe.comp2025.driver.CompilationPipeline;
+import pt.up.fe.comp2025.metrics.CompilerMetrics;
+import pt.up.fe.comp2025.synthetic.SyntheticProgramGenerator;
+import pt.up.fe.specs.util.SpecsIo;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.*;
+
+public class CompilationCacheTest {
+
+    private static final String CODE = new SyntheticProgramGenerator().seed(3).methods(3).statements(10)
+            .generate("Cached");
+
+    private static File newCacheFolder() throws IOException {
+        return Files.createTempDirectory("jmm-cache-test").toFile();
+    }
+
+    private static long numEntries(File folder) throws IOException {
+        try (Stream<Path> paths = Files.walk(folder.toPath())) {
+            return paths.filter(path -> path.toString().endsWith(".entry")).count();
+        }
+    }
+
+    // Entries are ordered by modification time, which must differ between uses
+    private static void pause() {
+        try {
+            Thread.sleep(20);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Test
+    public void unchangedSourceIsReadFromCache() throws IOException {
+        var folder = newCacheFolder();
+        var config = new HashMap<>(Map.of("optimize", "true"));
+
+        var first = new CompilationPipeline(new CompilationCache(folder, Long.MAX_VALUE)).compile(CODE, config);
+        TestUtils.noErrors(first.getReports());
+        assertFalse(first.isCached());
+
+        // A new pipeline, as in a later run of the compiler
+        var second = new CompilationPipeline(new CompilationCache(folder, Long.MAX_VALUE)).compile(CODE, config);
+        assertTrue(second.isCached());
+        assertFalse(second.hasErrors());
+        assertEquals(first.getOllirCode(), second.getOllirCode());
+        assertEquals(first.getJasminResult().get().getJasminCode(), second.getJasminResult().get().getJasminCode());
+        assertEquals(first.getReports().size(), second.getReports().size());
+
+        SpecsIo.deleteFolder(folder);
+    }
+
+    @Test
+    public void optionsChangeTheKey() throws IOException {
+        var folder = newCacheFolder();
+        var pipeline = new CompilationPipeline(new CompilationCache(folder, Long.MAX_VALUE));
+
+        pipeline.compile(CODE, new HashMap<>());
+        assertTrue(pipeline.compile(CODE, new HashMap<>()).isCached());
+        assertFalse(pipeline.compile(CODE, new HashMap<>(Map.of("optimize", "true"))).isCached());
+        assertFalse(pipeline.compile(CODE, new HashMap<>(Map.of("registerAllocation", "0"))).isCached());
+        assertFalse(pipeline.compile(CODE, new HashMap<>(Map.of("directOllir", "false"))).isCached());
+        assertFalse(pipeline.compile(CODE + "\n", new HashMap<>()).isCached());
+        assertEquals(5, numEntries(folder));
+
+        SpecsIo.deleteFolder(folder);
+    }
+
+    @Test
+    public void snapshotSkipsTheFrontEnd() throws IOException {
+        var folder = newCacheFolder();
+        var pipeline = new CompilationPipeline(new CompilationCache(folder, Long.MAX_VALUE));
+        pipeline.compile(CODE, new HashMap<>());
+
+        // Other back-end options do not reuse the result, but reuse the snapshot of the front end
+        var config = new HashMap<>(Map.of("optimize", "true", "registerAllocation", "0"));
+        var metrics = new CompilerMetrics("Cached");
+        var result = pipeline.compile(CODE, config, metrics);
+        assertFalse(result.isCached());
+
+        var stages = metrics.getStages().stream().map(CompilerMetrics.StageMetrics::getName).toList();
+        assertTrue(stages.contains("snapshotLoad"));
+        assertFalse(stages.contains("parse"));
+        assertFalse(stages.contains("semanticAnalysis"));
+
+        var expected = new CompilationPipeline().compile(CODE, config);
+        assertEquals(expected.getOllirCode(), result.getOllirCode());
+        assertEquals(expected.getJasminResult().get().getJasminCode(), result.getJasminResult().get().getJasminCode());
+
+        SpecsIo.deleteFolder(folder);
+    }
+
+    @Test
+    public void classFilesAreCached() throws IOException {
+        var folder = newCacheFolder();
+        var pipeline = new CompilationPipeline(new CompilationCache(folder, Long.MAX_VALUE));
+        var config = new HashMap<>(Map.of(ConfigOptions.getClassFile(), "true"));
+
+        var first = (ClassFileResult) pipeline.compile(CODE, config).getJasminResult().get();
+        var second = pipeline.compile(CODE, config);
+
+        assertTrue(second.isCached());
+        var cachedResult = (ClassFileResult) second.getJasminResult().get();
+        assertTrue(Arrays.equals(first.getClassFile(), cachedResult.getClassFile()));
+        assertEquals(first.getJasminCode(), cachedResult.getJasminCode());
+
+        SpecsIo.deleteFolder(folder);
+    }
+
+    @Test
+    public void leastRecentlyUsedEntriesAreEvicted() throws IOException {
+        var folder = newCacheFolder();
+
+        // Measure the size of a single entry
+        new CompilationPipeline(new CompilationCache(folder, Long.MAX_VALUE)).compile(CODE, new HashMap<>());
+        long entrySize;
+        try (Stream<Path> paths = Files.walk(folder.toPath())) {
+            entrySize = paths.filter(path -> path.toString().endsWith(".entry")).findFirst().get().toFile().length();
+        }
+        SpecsIo.deleteFolderContents(folder);
+
+        // Room for a bit more than two entries of this size
+        var pipeline = new CompilationPipeline(new CompilationCache(folder, entrySize * 5 / 2));
+        var codes = new String[]{
+                new SyntheticProgramGenerator().seed(1).methods(3).statements(10).generate("Cached"),
+                new SyntheticProgramGenerator().seed(2).methods(3).statements(10).generate("Cached"),
+                new SyntheticProgramGenerator().seed(4).methods(3).statements(10).generate("Cached"),
+        };
+
+        pipeline.compile(codes[0], new HashMap<>());
+        pause();
+        pipeline.compile(codes[1], new HashMap<>());
+        pause();
+        assertTrue(pipeline.compile(codes[0], new HashMap<>()).isCached());
+        pause();
+
+        // The third entry evicts the second, which is the least recently used
+        pipeline.compile(codes[2], new HashMap<>());
+        assertTrue(numEntries(folder) <= 2);
+        assertTrue(pipeline.compile(codes[0], new HashMap<>()).isCached());
+
+        SpecsIo.deleteFolder(folder);
+    }
+}
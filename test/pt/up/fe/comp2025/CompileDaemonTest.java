@@ -0,0 +1,104 @@
+package pt.up.fe.comp2025;
+
+import com.google.gson.JsonParser;
+import org.junit.Test;
+import pt.up.fe.comp2025.driver.CompileDaemon;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class CompileDaemonTest {
+
+    @Test
+    public void rejectsRequestsThatAreNotObjects() {
+        var daemon = new CompileDaemon(Map.of());
+
+        for (var request : new String[]{"null", "", "{"}) {
+            var response = JsonParser.parseString(daemon.handle(request)).getAsJsonObject();
+            assertFalse(response.get("success").getAsBoolean());
+            assertTrue(response.get("error").getAsString().startsWith("Invalid request"));
+        }
+    }
+
+    @Test
+    public void compilesInlineCode() {
+        var daemon = new CompileDaemon(Map.of());
+
+        var response = JsonParser.parseString(daemon.handle(
+                "{\"id\": \"1\", \"code\": \"class A { public int f() { return 1; } }\", \"outputs\": [\"jasmin\"]}"))
+                .getAsJsonObject();
+        assertEquals("1", response.get("id").getAsString());
+        assertTrue(response.get("success").getAsBoolean());
+        assertTrue(response.get("jasmin").getAsString().contains(".class"));
+    }
+
+    @Test
+    public void restoresStandardOutput() {
+        var stdin = System.in;
+        var stdout = System.out;
+        var output = new ByteArrayOutputStream();
+        var out = new PrintStream(output, true, StandardCharsets.UTF_8);
+
+        try {
+            System.setIn(new ByteArrayInputStream("{\"id\": \"1\", \"code\": \"class A {}\"}\n"
+                    .getBytes(StandardCharsets.UTF_8)));
+            System.setOut(out);
+
+            new CompileDaemon(Map.of()).serveStdin();
+
+            assertSame(out, System.out);
+        } finally {
+            System.setIn(stdin);
+            System.setOut(stdout);
+        }
+
+        var response = JsonParser.parseString(output.toString(StandardCharsets.UTF_8).strip()).getAsJsonObject();
+        assertEquals("1", response.get("id").getAsString());
+        assertTrue(response.get("success").getAsBoolean());
+    }
+
+    @Test
+    public void answersRequestsThatFail() {
+        var daemon = new CompileDaemon(Map.of()) {
+            @Override
+            public String handle(String requestJson) {
+                throw new StackOverflowError();
+            }
+        };
+
+        var stdin = System.in;
+        var stdout = System.out;
+        var output = new ByteArrayOutputStream();
+
+        try {
+            System.setIn(new ByteArrayInputStream("{\"id\": \"1\", \"code\": \"class A {}\"}\n{\n"
+                    .getBytes(StandardCharsets.UTF_8)));
+            System.setOut(new PrintStream(output, true, StandardCharsets.UTF_8));
+
+            daemon.serveStdin();
+        } finally {
+            System.setIn(stdin);
+            System.setOut(stdout);
+        }
+
+        // Each request is answered once, with its id when the request could be read
+        var ids = new ArrayList<String>();
+        for (var line : output.toString(StandardCharsets.UTF_8).strip().split("\n")) {
+            var response = JsonParser.parseString(line).getAsJsonObject();
+            assertFalse(response.get("success").getAsBoolean());
+            assertTrue(response.get("error").getAsString().contains("StackOverflowError"));
+            ids.add(response.has("id") ? response.get("id").getAsString() : null);
+        }
+
+        ids.sort(Comparator.nullsLast(Comparator.naturalOrder()));
+        assertEquals(Arrays.asList("1", null), ids);
+    }
+}
@@ -0,0 +1,79 @@
+package pt.up.fe.comp2025;
+
+import org.junit.After;
+import org.junit.Test;
+import pt.up.fe.comp2025.analysis.JmmAnalysisImpl;
+import pt.up.fe.comp2025.metrics.CompilerLog;
+import pt.up.fe.comp2025.metrics.CompilerLog.Category;
+import pt.up.fe.comp2025.metrics.CompilerLog.Level;
+import pt.up.fe.comp2025.parser.JmmParserImpl;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.HashMap;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class CompilerLogTest {
+
+    @After
+    public void reset() {
+        CompilerLog.reset();
+    }
+
+    @Test
+    public void defaultLevels() {
+        assertTrue(CompilerLog.isEnabled(Category.DRIVER, Level.INFO));
+        assertFalse(CompilerLog.isEnabled(Category.DRIVER, Level.DEBUG));
+        assertTrue(CompilerLog.isEnabled(Category.CACHE, Level.WARN));
+        assertFalse(CompilerLog.isEnabled(Category.TYPES, Level.INFO));
+        assertFalse(CompilerLog.isEnabled(Category.ANALYSIS, Level.DEBUG));
+    }
+
+    @Test
+    public void configuredLevels() {
+        CompilerLog.configure("info,types:debug,cache:off", 0);
+
+        assertTrue(CompilerLog.isEnabled(Category.TYPES, Level.DEBUG));
+        assertTrue(CompilerLog.isEnabled(Category.ANALYSIS, Level.INFO));
+        assertFalse(CompilerLog.isEnabled(Category.ANALYSIS, Level.DEBUG));
+        assertFalse(CompilerLog.isEnabled(Category.CACHE, Level.ERROR));
+
+        try {
+            CompilerLog.configure("types:verbose", 0);
+            fail("Expected unknown levels to throw");
+        } catch (RuntimeException e) {
+            assertTrue(e.getMessage().contains("verbose"));
+        }
+    }
+
+    @Test
+    public void bufferKeepsRecentMessages() {
+        CompilerLog.configure("off", 3);
+
+        assertTrue(CompilerLog.isEnabled(Category.OLLIR, Level.DEBUG));
+        for (int i = 0; i < 5; i++) {
+            CompilerLog.log(Category.OLLIR, Level.DEBUG, "message " + i);
+        }
+
+        assertEquals(List.of("DEBUG ollir: message 2", "DEBUG ollir: message 3", "DEBUG ollir: message 4"),
+                CompilerLog.getBuffer());
+
+        var dump = new ByteArrayOutputStream();
+        CompilerLog.dumpBuffer(new PrintStream(dump, true));
+        assertTrue(dump.toString().contains("message 4"));
+        assertTrue(CompilerLog.getBuffer().isEmpty());
+    }
+
+    @Test
+    public void analysisMessagesAreBuffered() {
+        CompilerLog.configure("off", 100);
+
+        var code = "class A { public int f(int a) { int b; b = a + 1; return b; } }";
+        var analysis = new JmmAnalysisImpl();
+        analysis.semanticAnalysis(analysis.buildSymbolTable(new JmmParserImpl().parse(code, new HashMap<>())));
+
+        assertTrue(CompilerLog.getBuffer().contains("DEBUG types: Found param a in method f"));
+    }
+}
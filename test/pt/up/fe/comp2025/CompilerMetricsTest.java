@@ -0,0 +1,78 @@
+package pt.up.fe.comp2025;
+
+import org.junit.Test;
+import pt.up.fe.comp.TestUtils;
+import pt.up.fe.comp2025.driver.CompilationPipeline;
+import pt.up.fe.comp2025.metrics.CompilerMetrics;
+import pt.up.fe.comp2025.metrics.CompilerMetrics.StageMetrics;
+import pt.up.fe.comp2025.synthetic.SyntheticProgramGenerator;
+
+import java.util.HashMap;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class CompilerMetricsTest {
+
+    private static final int ALLOCATED = 8 << 20;
+
+    private static byte[] allocate() {
+        return new byte[ALLOCATED];
+    }
+
+    @Test
+    public void measuresEveryStage() {
+        var metrics = new CompilerMetrics("Synthetic.jmm");
+        var code = new SyntheticProgramGenerator().seed(3).methods(3).generate("Synthetic");
+
+        var result = new CompilationPipeline().compile(code, new HashMap<>(), metrics);
+        TestUtils.noErrors(result.getReports());
+
+        var stages = metrics.getStages().stream().map(StageMetrics::getName).toList();
+        assertEquals(List.of("parse", "symbolTable", "semanticAnalysis", "optimizeAst", "toOllir", "optimizeOllir",
+                "toJasmin"), stages);
+
+        for (var stage : metrics.getStages()) {
+            assertTrue(stage.getName(), stage.getWallMs() >= 0);
+            assertTrue(stage.getName(), stage.getCpuMs() >= 0);
+            assertTrue(stage.getName(), stage.getAllocatedBytes() >= 0);
+        }
+
+        // Parsing builds the whole AST, so it always allocates
+        assertTrue(metrics.getStages().get(0).getAllocatedBytes() > 0);
+        assertEquals(Long.valueOf(0), metrics.getSizes().get("parserLlFallbacks"));
+    }
+
+    @Test
+    public void countsLlFallbacks() {
+        var metrics = new CompilerMetrics("Broken.jmm");
+        var pipeline = new CompilationPipeline();
+
+        var result = pipeline.compile("class Broken { public int foo(int a) { return a + * 2; } }", new HashMap<>(),
+                metrics);
+
+        assertFalse(result.getReports().isEmpty());
+        assertEquals(List.of("parse"), metrics.getStages().stream().map(StageMetrics::getName).toList());
+        assertEquals(Long.valueOf(1), metrics.getSizes().get("parserLlFallbacks"));
+        assertEquals(1, pipeline.getParser().getLlFallbackCount());
+    }
+
+    @Test
+    public void countsWorkerThreads() {
+        var metrics = new CompilerMetrics("Test.jmm");
+
+        metrics.measure("stage", () -> {
+            var worker = new Thread(CompilerMetrics.onWorker(CompilerMetricsTest::allocate));
+            worker.start();
+            try {
+                worker.join();
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+            return null;
+        });
+
+        var stage = metrics.getStages().get(0);
+        assertTrue(String.valueOf(stage.getAllocatedBytes()), stage.getAllocatedBytes() >= ALLOCATED);
+    }
+}
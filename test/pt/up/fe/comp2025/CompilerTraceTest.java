@@ -0,0 +1,159 @@
+package pt.up.fe.comp2025;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.junit.After;
+import org.junit.Test;
+import pt.up.fe.comp.TestUtils;
+import pt.up.fe.comp2025.driver.CompilationPipeline;
+import pt.up.fe.comp2025.metrics.CompilerTrace;
+import pt.up.fe.comp2025.synthetic.SyntheticProgramGenerator;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class CompilerTraceTest {
+
+    // Timestamps are doubles in microseconds, computed from nanoseconds
+    private static final double EPSILON = 1e-3;
+
+    @After
+    public void stopTracing() {
+        CompilerTrace.stop();
+    }
+
+    private static CompilerTrace traceCompilation() {
+        return traceCompilation(new HashMap<>(Map.of("optimize", "true")));
+    }
+
+    private static CompilerTrace traceCompilation(Map<String, String> config) {
+        var code = new SyntheticProgramGenerator().seed(5).methods(3).generate("Traced");
+
+        CompilerTrace.start();
+        var result = new CompilationPipeline().compile(code, config);
+        var trace = CompilerTrace.stop();
+
+        TestUtils.noErrors(result.getReports());
+        assertNotNull(trace);
+
+        return trace;
+    }
+
+    @Test
+    public void disabledByDefault() {
+        assertFalse(CompilerTrace.isEnabled());
+        assertNull(CompilerTrace.stop());
+
+        // Spans can always be opened, even when nothing is recorded
+        try (var span = CompilerTrace.span("step", "test", null)) {
+            assertNotNull(span);
+        }
+    }
+
+    @Test
+    public void writesTraceEvents() {
+        var trace = traceCompilation();
+        var json = JsonParser.parseString(trace.toJson()).getAsJsonObject();
+        var events = json.getAsJsonArray("traceEvents");
+
+        var threads = new HashSet<Long>();
+        var spans = new ArrayList<JsonObject>();
+        for (var element : events) {
+            var event = element.getAsJsonObject();
+            var phase = event.get("ph").getAsString();
+
+            if (phase.equals("M")) {
+                assertEquals("thread_name", event.get("name").getAsString());
+                threads.add(event.get("tid").getAsLong());
+                continue;
+            }
+
+            assertEquals("X", phase);
+            assertTrue(event.get("ts").getAsDouble() >= 0);
+            assertTrue(event.get("dur").getAsDouble() >= 0);
+            assertTrue(event.has("pid"));
+            assertTrue(event.has("cat"));
+            spans.add(event);
+        }
+
+        assertEquals(trace.getNumEvents(), spans.size());
+
+        var names = spans.stream().map(span -> span.get("name").getAsString()).toList();
+        assertTrue(names.containsAll(List.of("parse", "symbolTable", "semanticAnalysis", "optimizeAst", "toOllir",
+                "optimizeOllir", "toJasmin", "generateMethod", "UndeclaredVariable", "BinaryExprType")));
+
+        // Every thread that recorded a span is named
+        for (var span : spans) {
+            assertTrue(threads.contains(span.get("tid").getAsLong()));
+        }
+    }
+
+    @Test
+    public void analysisPassesHaveSpans() {
+        for (var fused : List.of("true", "false")) {
+            var json = JsonParser.parseString(traceCompilation(Map.of("fusedAnalysis", fused)).toJson());
+
+            // Each pass has a span in each method, whether the passes run together or one after the other
+            var methodsByPass = new HashMap<String, List<String>>();
+            for (var element : json.getAsJsonObject().getAsJsonArray("traceEvents")) {
+                var event = element.getAsJsonObject();
+                if (event.get("ph").getAsString().equals("X") && event.get("cat").getAsString().equals("analysis")
+                        && event.getAsJsonObject("args").has("method")) {
+                    methodsByPass.computeIfAbsent(event.get("name").getAsString(), name -> new ArrayList<>())
+                            .add(event.getAsJsonObject("args").get("method").getAsString());
+                }
+            }
+
+            for (var pass : List.of("TypeAnnotation", "UndeclaredVariable", "BinaryExprType", "ArgumentsCheck")) {
+                var methods = methodsByPass.get(pass);
+                assertNotNull(fused + ": " + pass, methods);
+                assertEquals(fused + ": " + pass, methods.size(), new HashSet<>(methods).size());
+                assertTrue(fused + ": " + pass, methods.size() >= 3);
+            }
+        }
+    }
+
+    @Test
+    public void spansAreNested() {
+        var json = JsonParser.parseString(traceCompilation().toJson()).getAsJsonObject();
+
+        var spansByThread = new HashMap<Long, List<JsonObject>>();
+        for (var element : json.getAsJsonArray("traceEvents")) {
+            var event = element.getAsJsonObject();
+            if (event.get("ph").getAsString().equals("X")) {
+                spansByThread.computeIfAbsent(event.get("tid").getAsLong(), tid -> new ArrayList<>()).add(event);
+            }
+        }
+
+        assertFalse(spansByThread.isEmpty());
+
+        // Each span begins and ends inside the span that encloses it, so the begin and end events of each thread match
+        for (var spans : spansByThread.values()) {
+            spans.sort(Comparator.<JsonObject>comparingDouble(span -> span.get("ts").getAsDouble())
+                    .thenComparing(span -> -span.get("dur").getAsDouble()));
+
+            var open = new ArrayDeque<Double>();
+            for (var span : spans) {
+                var start = span.get("ts").getAsDouble();
+                var end = start + span.get("dur").getAsDouble();
+
+                while (!open.isEmpty() && open.peek() <= start + EPSILON) {
+                    open.pop();
+                }
+
+                if (!open.isEmpty()) {
+                    assertTrue(span.get("name").getAsString(), end <= open.peek() + EPSILON);
+                }
+
+                open.push(end);
+            }
+        }
+    }
+}
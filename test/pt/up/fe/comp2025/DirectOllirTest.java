@@ -0,0 +1,77 @@
+package pt.up.fe.comp2025;
+
+import org.junit.Test;
+import pt.up.fe.comp2025.driver.CompilationPipeline;
+import pt.up.fe.comp2025.driver.CompilationResult;
+import pt.up.fe.comp2025.optimization.DirectOllirResult;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class DirectOllirTest {
+
+    private static CompilationResult compile(String code, Map<String, String> options, boolean directOllir) {
+        var config = new HashMap<>(options);
+        config.put("directOllir", Boolean.toString(directOllir));
+        return new CompilationPipeline().compile(code, config);
+    }
+
+    @Test
+    public void generatesTheSameCodeAsParsedOllir() throws IOException {
+        List<Path> files;
+        try (var paths = Files.walk(Path.of("test"))) {
+            files = paths.filter(path -> path.toString().endsWith(".jmm")).toList();
+        }
+
+        var numCompiled = 0;
+        for (var options : List.of(Map.of("optimize", "false"), Map.of("optimize", "true", "registerAllocation", "0"))) {
+            for (var file : files) {
+                var code = Files.readString(file);
+                var parsed = compile(code, options, false);
+                if (parsed.hasErrors()) {
+                    continue;
+                }
+
+                var direct = compile(code, options, true);
+                assertFalse(file + ": " + direct.getReports(), direct.hasErrors());
+                assertEquals(file.toString(), parsed.getJasminResult().orElseThrow().getJasminCode(),
+                        direct.getJasminResult().orElseThrow().getJasminCode());
+                numCompiled++;
+            }
+        }
+
+        assertTrue(numCompiled > 0);
+    }
+
+    @Test
+    public void generatesOllirCodeOnRequest() {
+        var code = """
+                class Sum {
+                    public int sum(int[] a, int n) {
+                        int i;
+                        int total;
+                        i = 0;
+                        total = 0;
+                        while ((i < n) && (0 < a[i])) {
+                            total = total + a[i];
+                            i = i + 1;
+                        }
+                        return total;
+                    }
+                }
+                """;
+
+        var direct = compile(code, Map.of(), true);
+        var ollirResult = direct.getOllirResult().orElseThrow();
+        assertTrue(ollirResult instanceof DirectOllirResult);
+        assertEquals("Sum", ollirResult.getOllirClass().getClassName());
+        assertEquals("true", ollirResult.getConfig().get("directOllir"));
+        assertEquals(compile(code, Map.of(), false).getOllirCode().orElseThrow(), ollirResult.getOllirCode());
+    }
+}
@@ -0,0 +1,52 @@
+package pt.up.fe.comp2025;
+
+import org.junit.Test;
+import pt.up.fe.comp.jmm.report.ReportType;
+import pt.up.fe.comp2025.analysis.JmmAnalysisImpl;
+import pt.up.fe.comp2025.parser.JmmParserImpl;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class FusedAnalysisTest {
+
+    private static String analyze(String code, boolean fused) {
+        var config = new HashMap<>(Map.of("fusedAnalysis", Boolean.toString(fused)));
+        var parserResult = new JmmParserImpl().parse(code, config);
+        if (parserResult.getRootNode() == null) {
+            return "";
+        }
+
+        var analysis = new JmmAnalysisImpl();
+        var result = analysis.semanticAnalysis(analysis.buildSymbolTable(parserResult));
+
+        return result.getReports().toString();
+    }
+
+    @Test
+    public void sameReportsAsSeparatePasses() throws IOException {
+        int withErrors = 0;
+
+        try (var files = Files.walk(Path.of("test"))) {
+            for (var file : files.filter(path -> path.toString().endsWith(".jmm")).toList()) {
+                var code = Files.readString(file);
+                var separate = analyze(code, false);
+
+                assertEquals(file.toString(), separate, analyze(code, true));
+
+                if (separate.contains(ReportType.ERROR.toString())) {
+                    withErrors++;
+                }
+            }
+        }
+
+        // The corpus has sources with semantic errors, which stop the analysis early
+        assertTrue(withErrors > 0);
+    }
+}
@@ -0,0 +1,123 @@
+package pt.up.fe.comp2025;
+
+import org.junit.Test;
+import pt.up.fe.comp2025.driver.CompilationPipeline;
+import pt.up.fe.comp2025.driver.CompilationResult;
+import pt.up.fe.comp2025.driver.IncrementalCompiler;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class IncrementalCompilerTest {
+
+    private static final String CODE = """
+            import io;
+            class Counter {
+                int total;
+                public int twice(int x) {
+                    int y;
+                    y = x + x;
+                    return y;
+                }
+                public int loop(int n) {
+                    int i;
+                    i = 0;
+                    while (i < n) {
+                        i = i + this.twice(1);
+                    }
+                    return i;
+                }
+                public static void main(String[] args) {
+                    Counter c;
+                    c = new Counter();
+                    io.println(c.loop(4));
+                }
+            }
+            """;
+
+    private static void assertSameAsFullCompile(String code, Map<String, String> config, CompilationResult result) {
+        var full = new CompilationPipeline().compile(code, config);
+
+        assertFalse(result.getReports().toString(), result.hasErrors());
+        assertEquals(full.getOllirCode().orElseThrow(), result.getOllirCode().orElseThrow());
+        assertEquals(full.getJasminResult().orElseThrow().getJasminCode(),
+                result.getJasminResult().orElseThrow().getJasminCode());
+    }
+
+    @Test
+    public void recompilesOnlyChangedMethods() {
+        var config = new HashMap<String, String>();
+        var compiler = new IncrementalCompiler(config);
+
+        assertSameAsFullCompile(CODE, config, compiler.compile(CODE));
+        assertEquals(3, compiler.getCompiledMethods());
+
+        var changed = CODE.replace("y = x + x;", "y = x * 2;");
+        assertSameAsFullCompile(changed, config, compiler.compile(changed));
+        assertEquals(1, compiler.getCompiledMethods());
+        assertEquals(2, compiler.getReusedMethods());
+        assertTrue(compiler.isSymbolTableReused());
+    }
+
+    @Test
+    public void reusesOptimizedMethods() {
+        var config = new HashMap<String, String>();
+        config.put("optimize", "true");
+        config.put("registerAllocation", "0");
+        var compiler = new IncrementalCompiler(config);
+
+        compiler.compile(CODE);
+
+        // Temporaries and labels of a method compiled alone are numbered from the start, so the first method is changed
+        var changed = CODE.replace("y = x + x;", "y = x + 3 * 2;");
+        assertSameAsFullCompile(changed, config, compiler.compile(changed));
+        assertEquals(1, compiler.getCompiledMethods());
+    }
+
+    @Test
+    public void movedMethodsKeepTheirReports() {
+        var compiler = new IncrementalCompiler(new HashMap<>());
+        var invalid = CODE.replace("this.twice(1)", "this.twice(true)");
+
+        var first = compiler.compile(invalid);
+        assertTrue(first.hasErrors());
+        assertEquals(13, first.getReports().get(0).getLine());
+
+        // Only the lines before the method change, so its reports are reused on their new line
+        var moved = compiler.compile("\n\n" + invalid);
+        assertEquals(0, compiler.getCompiledMethods());
+        assertEquals(15, moved.getReports().get(0).getLine());
+    }
+
+    @Test
+    public void changedDeclarationsRecompileEverything() {
+        var config = new HashMap<String, String>();
+        var compiler = new IncrementalCompiler(config);
+        compiler.compile(CODE);
+
+        // Local variables only rebuild the symbol table
+        var newLocal = CODE.replace("int y;", "int y;\n        int unused;");
+        assertSameAsFullCompile(newLocal, config, compiler.compile(newLocal));
+        assertFalse(compiler.isSymbolTableReused());
+        assertEquals(1, compiler.getCompiledMethods());
+
+        // A field can change the code of any method
+        var newField = newLocal.replace("int total;", "int total;\n    boolean flag;");
+        assertSameAsFullCompile(newField, config, compiler.compile(newField));
+        assertEquals(3, compiler.getCompiledMethods());
+    }
+
+    @Test
+    public void deepExpressions() {
+        var compiler = new IncrementalCompiler(new HashMap<>());
+        var deep = CODE.replace("y = x + x;", "y = x" + " + x".repeat(10000) + ";");
+
+        var result = compiler.compile(deep);
+        assertFalse(result.getReports().toString(), result.hasErrors());
+
+        compiler.compile(deep.replace("i = 0;", "i = 1;"));
+        assertEquals(1, compiler.getCompiledMethods());
+    }
+}
@@ -0,0 +1,119 @@
+package pt.up.fe.comp2025;
+
+import org.junit.Test;
+import pt.up.fe.comp.TestUtils;
+import pt.up.fe.comp.jmm.jasmin.JasminResult;
+import pt.up.fe.comp.jmm.ollir.OllirResult;
+import pt.up.fe.specs.util.SpecsIo;
+import utils.JasminRunner;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class JasminRunnerTest {
+
+    private static JasminResult backend(String ollirCode) {
+        return TestUtils.backend(new OllirResult(ollirCode, new HashMap<>()));
+    }
+
+    private static String printer(String className, int value) {
+        return "import ioPlus;\n" +
+                className + " {\n" +
+                "    .construct " + className + "().V {\n" +
+                "        invokespecial(this, \"<init>\").V;\n" +
+                "    }\n" +
+                "    .method public static main(args.array.String).V {\n" +
+                "        i.i32 :=.i32 0.i32;\n" +
+                "        loop:\n" +
+                "        if (i.i32 >=.bool 50.i32) goto end;\n" +
+                "            invokestatic(ioPlus, \"printResult\", " + value + ".i32).V;\n" +
+                "            i.i32 :=.i32 i.i32 +.i32 1.i32;\n" +
+                "        goto loop;\n" +
+                "        end:\n" +
+                "        ret.V;\n" +
+                "    }\n" +
+                "}";
+    }
+
+    @Test
+    public void sameOutputAsSeparateProcess() {
+        var result = TestUtils.backend(new OllirResult(
+                SpecsIo.getResource("pt/up/fe/comp/cp3/jasmin/control_flow/IfWhileNested.ollir"), new HashMap<>()));
+
+        var inProcess = JasminRunner.runWithFullOutput(result);
+        var separateProcess = result.runWithFullOutput(Collections.emptyList(),
+                Arrays.asList(TestUtils.getLibsClasspath()));
+
+        assertEquals(separateProcess.getReturnValue(), inProcess.getReturnValue());
+        assertEquals(separateProcess.getOutput(), inProcess.getOutput());
+    }
+
+    @Test
+    public void concurrentProgramsHaveSeparateOutputs() throws InterruptedException, ExecutionException {
+        var executor = Executors.newFixedThreadPool(4);
+
+        try {
+            // Compiled beforehand, TestUtils replaces the standard streams at each call
+            var tasks = new ArrayList<Callable<String>>();
+            for (int i = 0; i < 8; i++) {
+                var result = backend(printer("Printer" + i, i));
+                tasks.add(() -> JasminRunner.run(result));
+            }
+
+            var outputs = executor.invokeAll(tasks);
+            for (int i = 0; i < outputs.size(); i++) {
+                var expected = ("Result: " + i + System.lineSeparator()).repeat(50);
+                assertEquals(expected, outputs.get(i).get());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void inputIsGivenToProgram() {
+        var code = "import ioPlus;\n" +
+                "Echo {\n" +
+                "    .construct Echo().V {\n" +
+                "        invokespecial(this, \"<init>\").V;\n" +
+                "    }\n" +
+                "    .method public static main(args.array.String).V {\n" +
+                "        a.i32 :=.i32 invokestatic(ioPlus, \"requestNumber\").i32;\n" +
+                "        invokestatic(ioPlus, \"printResult\", a.i32).V;\n" +
+                "        ret.V;\n" +
+                "    }\n" +
+                "}";
+
+        var output = JasminRunner.runWithFullOutput(backend(code), Collections.emptyList(), "42\n");
+
+        assertEquals(0, output.getReturnValue());
+        assertTrue(output.getOutput(), output.getOutput().contains("Result: 42"));
+    }
+
+    @Test
+    public void exceptionsAreReported() {
+        var code = "Thrower {\n" +
+                "    .construct Thrower().V {\n" +
+                "        invokespecial(this, \"<init>\").V;\n" +
+                "    }\n" +
+                "    .method public static main(args.array.String).V {\n" +
+                "        a.array.i32 :=.array.i32 new(array, 1.i32).array.i32;\n" +
+                "        b.i32 :=.i32 a.array.i32[2.i32].i32;\n" +
+                "        ret.V;\n" +
+                "    }\n" +
+                "}";
+
+        var output = JasminRunner.runWithFullOutput(backend(code));
+
+        assertEquals(1, output.getReturnValue());
+        assertTrue(output.getOutput(), output.getOutput().contains("ArrayIndexOutOfBoundsException"));
+    }
+}
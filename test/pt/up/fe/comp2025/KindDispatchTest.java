@@ -0,0 +1,70 @@
+package pt.up.fe.comp2025;
+
+import org.junit.Test;
+import pt.up.fe.comp.jmm.ast.JmmNodeImpl;
+import pt.up.fe.comp2025.ast.AstNode;
+import pt.up.fe.comp2025.ast.Kind;
+import pt.up.fe.comp2025.ast.PreorderKindVisitor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class KindDispatchTest {
+
+    /**
+     * Records the visit method used for each node.
+     */
+    private static class RecordingVisitor extends PreorderKindVisitor<List<String>, Void> {
+
+        @Override
+        protected void buildVisitor() {
+            addVisit(Kind.INTEGER, (node, visited) -> record(visited, "integer"));
+            addVisit(Kind.EXPR, (node, visited) -> record(visited, "expr"));
+            setDefaultVisit((node, visited) -> record(visited, "default"));
+        }
+
+        private static Void record(List<String> visited, String visit) {
+            visited.add(visit);
+            return null;
+        }
+    }
+
+    @Test
+    public void kindOfNodes() {
+        assertEquals(Kind.INTEGER, Kind.of(AstNode.newInteger(1)));
+        assertEquals(Kind.ID_TYPE, Kind.of(new JmmNodeImpl(List.of("IDType", "Type"))));
+        assertEquals(Kind.BINARY_OP, Kind.fromString("BinaryOp"));
+
+        try {
+            Kind.fromString("Unknown");
+            fail("Expected unknown kinds to throw");
+        } catch (RuntimeException e) {
+            assertTrue(e.getMessage().contains("Unknown"));
+        }
+
+        assertTrue(Kind.EXPR.check(AstNode.newBoolean(true)));
+        assertTrue(Kind.TRUE.check(AstNode.newBoolean(true)));
+        assertFalse(Kind.STMT.check(AstNode.newBoolean(true)));
+    }
+
+    @Test
+    public void visitsFollowTheHierarchy() {
+        var root = new AstNode(Kind.EXPR_STMT);
+        var call = new AstNode(Kind.METHOD_CALL);
+        root.add(call);
+        call.add(AstNode.newInteger(1));
+        call.add(new AstNode(Kind.THIS));
+        call.add(AstNode.newInteger(2));
+
+        var library = new JmmNodeImpl(List.of(Kind.INTEGER.getNodeName()));
+        library.put("value", "3");
+        call.add(library);
+
+        var visited = new ArrayList<String>();
+        new RecordingVisitor().visit(root, visited);
+
+        assertEquals(List.of("default", "expr", "integer", "expr", "integer", "integer"), visited);
+    }
+}
@@ -0,0 +1,58 @@
+package pt.up.fe.comp2025;
+
+import org.junit.Test;
+import pt.up.fe.comp2025.driver.CompilationPipeline;
+import pt.up.fe.comp2025.driver.CompilationResult;
+
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class OllirGenerationTest {
+
+    private static final int NUM_TERMS = 10000;
+
+    private static CompilationResult compile(String code, boolean directOllir) {
+        return new CompilationPipeline().compile(code, Map.of("directOllir", Boolean.toString(directOllir)));
+    }
+
+    private static String deepExpression() {
+        var code = new StringBuilder("class Deep { public int f(int a) { int x; x = a");
+        for (int i = 0; i < NUM_TERMS; i++) {
+            code.append(i % 2 == 0 ? " + a" : " * a");
+        }
+        code.append("; return x; } }");
+
+        return code.toString();
+    }
+
+    @Test
+    public void generatesDeeplyNestedExpressions() {
+        var code = deepExpression();
+
+        var parsed = compile(code, false);
+        assertFalse(parsed.getReports().toString(), parsed.hasErrors());
+
+        // One temporary per operator, each assigned once
+        var ollirCode = parsed.getOllirCode().orElseThrow();
+        assertTrue(ollirCode.contains("tmp" + (NUM_TERMS - 1) + ".i32 :=.i32"));
+        assertFalse(ollirCode.contains("tmp" + NUM_TERMS + ".i32"));
+
+        var direct = compile(code, true);
+        assertFalse(direct.getReports().toString(), direct.hasErrors());
+        assertEquals(ollirCode, direct.getOllirCode().orElseThrow());
+    }
+
+    @Test
+    public void optimizesDeeplyNestedExpressions() {
+        // Constant propagation turns 'a' into a constant, and folding then reduces the whole chain to a single value
+        var code = deepExpression().replace("int x; x = a", "int x; a = 1; x = a");
+
+        var result = new CompilationPipeline().compile(code, Map.of("optimize", "true"));
+        assertFalse(result.getReports().toString(), result.hasErrors());
+
+        var ollirCode = result.getOllirCode().orElseThrow();
+        assertTrue(ollirCode, ollirCode.contains("x.i32 :=.i32 " + (NUM_TERMS / 2 + 1) + ".i32;"));
+        assertFalse(ollirCode.contains("tmp"));
+    }
+}
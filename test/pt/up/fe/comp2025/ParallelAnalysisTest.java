@@ -0,0 +1,64 @@
+package pt.up.fe.comp2025;
+
+import org.junit.Test;
+import pt.up.fe.comp.jmm.report.ReportType;
+import pt.up.fe.comp2025.analysis.JmmAnalysisImpl;
+import pt.up.fe.comp2025.parser.JmmParserImpl;
+import pt.up.fe.comp2025.synthetic.SyntheticProgramGenerator;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ParallelAnalysisTest {
+
+    // Methods with semantic errors of different passes
+    private static final String UNDECLARED = "    public int undeclared() {\n        return missing;\n    }\n\n";
+    private static final String WRONG_TYPES = "    public int wrongTypes() {\n        int a;\n        a = true + 1;\n"
+            + "        return a;\n    }\n\n";
+
+    private static String analyze(String code, boolean parallel) {
+        var config = new HashMap<>(Map.of("parallelAnalysis", Boolean.toString(parallel)));
+        var parserResult = new JmmParserImpl().parse(code, config);
+
+        var analysis = new JmmAnalysisImpl();
+        var result = analysis.semanticAnalysis(analysis.buildSymbolTable(parserResult));
+
+        return result.getReports().toString();
+    }
+
+    private static String generate(long seed) {
+        return new SyntheticProgramGenerator()
+                .seed(seed)
+                .methods(40)
+                .statements(8)
+                .generate("Parallel" + seed);
+    }
+
+    @Test
+    public void sameReportsAsSingleThread() {
+        for (int seed = 0; seed < 4; seed++) {
+            var code = generate(seed);
+            assertEquals(analyze(code, false), analyze(code, true));
+        }
+    }
+
+    @Test
+    public void errorsInSeveralMethods() {
+        var code = generate(7)
+                .replace("    public int m3(", UNDECLARED + "    public int m3(")
+                .replace("    public int m21(", WRONG_TYPES + "    public int m21(")
+                .replace("    public int m35(", UNDECLARED.replace("undeclared", "alsoUndeclared")
+                        + "    public int m35(");
+
+        var reports = analyze(code, true);
+        assertEquals(analyze(code, false), reports);
+
+        // Both methods with undeclared variables are reported, in the order of the source
+        var first = reports.indexOf(ReportType.ERROR.toString());
+        assertTrue(first >= 0);
+        assertTrue(reports.indexOf(ReportType.ERROR.toString(), first + 1) > first);
+    }
+}
@@ -0,0 +1,77 @@
+package pt.up.fe.comp2025;
+
+import org.junit.Test;
+import pt.up.fe.comp.jmm.parser.JmmParserResult;
+import pt.up.fe.comp2025.parser.JmmParserImpl;
+import pt.up.fe.comp2025.parser.ParserWarmup;
+import pt.up.fe.comp2025.synthetic.SyntheticProgramGenerator;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+public class ParserPoolTest {
+
+    private static final String BROKEN = "class Broken { public int foo(int a) { return a + * 2; } }";
+
+    private static String describe(JmmParserResult result) {
+        var tree = result.getRootNode() == null ? "" : result.getRootNode().toTree();
+        return result.getReports() + tree;
+    }
+
+    private static String describeFresh(String code) {
+        return describe(new JmmParserImpl().parse(code, new HashMap<>()));
+    }
+
+    @Test
+    public void reusedParsersGiveTheSameResults() {
+        var parser = new JmmParserImpl();
+        var valid = new SyntheticProgramGenerator().seed(3).methods(3).generate("Pooled");
+
+        var expectedValid = describeFresh(valid);
+        var expectedBroken = describeFresh(BROKEN);
+
+        // Errors of one parse must not leak into the next
+        for (int i = 0; i < 3; i++) {
+            assertEquals(expectedBroken, describe(parser.parse(BROKEN, new HashMap<>())));
+            assertEquals(expectedValid, describe(parser.parse(valid, new HashMap<>())));
+        }
+    }
+
+    @Test
+    public void concurrentParses() throws Exception {
+        var parser = new JmmParserImpl();
+        var sources = new ArrayList<String>();
+        for (int seed = 0; seed < 8; seed++) {
+            sources.add(seed % 4 == 3 ? BROKEN : new SyntheticProgramGenerator().seed(seed).generate("Concurrent"));
+        }
+
+        var executor = Executors.newFixedThreadPool(4);
+        try {
+            var results = new ArrayList<Future<String>>();
+            for (int round = 0; round < 4; round++) {
+                for (var code : sources) {
+                    results.add(executor.submit(() -> describe(parser.parse(code, new HashMap<>()))));
+                }
+            }
+
+            for (int i = 0; i < results.size(); i++) {
+                assertEquals(describeFresh(sources.get(i % sources.size())), results.get(i).get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void warmupCorpusIsValid() {
+        for (var code : ParserWarmup.getCorpus()) {
+            var result = new JmmParserImpl().parse(code, new HashMap<>());
+            assertNotNull(result.getReports().toString(), result.getRootNode());
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package pt.up.fe.comp2025;
+
+import org.junit.Test;
+import pt.up.fe.comp.jmm.parser.JmmParserResult;
+import pt.up.fe.comp2025.parser.JmmParserImpl;
+import pt.up.fe.comp2025.synthetic.SyntheticProgramGenerator;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+public class StreamingParsingTest {
+
+    private static JmmParserResult parseFile(String code, boolean streaming) throws IOException {
+        var file = File.createTempFile("streaming", ".jmm");
+        file.deleteOnExit();
+        Files.writeString(file.toPath(), code);
+
+        return new JmmParserImpl().parseFile(file, new HashMap<>(Map.of("streaming", Boolean.toString(streaming))));
+    }
+
+    private static void sameResult(String code) throws IOException {
+        var streamed = parseFile(code, true);
+        var read = parseFile(code, false);
+
+        assertEquals(read.getReports().toString(), streamed.getReports().toString());
+        if (read.getRootNode() != null) {
+            assertEquals(read.getRootNode().toTree(), streamed.getRootNode().toTree());
+        }
+    }
+
+    @Test
+    public void sameTreeAsReadingTheFile() throws IOException {
+        var code = new SyntheticProgramGenerator().seed(5).methods(5).generate("Streamed");
+
+        assertNotNull(parseFile(code, true).getRootNode());
+        sameResult(code);
+    }
+
+    @Test
+    public void sameSyntaxErrors() throws IOException {
+        sameResult("class Broken {\n    public int foo(int a) {\n        return a + * 2;\n    }\n}");
+        sameResult("class Broken {\n    int # a;\n}");
+    }
+
+    @Test
+    public void filesThatAreNotAsciiAreRead() throws IOException {
+        sameResult("// Écrit à la main\nclass Accents {\n}");
+    }
+}
@@ -0,0 +1,82 @@
+package pt.up.fe.comp2025;
+
+import org.junit.Test;
+import pt.up.fe.comp.jmm.analysis.table.Type;
+import pt.up.fe.comp2025.parser.JmmParserImpl;
+import pt.up.fe.comp2025.symboltable.JmmSymbolTable;
+import pt.up.fe.comp2025.symboltable.JmmSymbolTableBuilder;
+import pt.up.fe.comp2025.symboltable.ScopedSymbol.Scope;
+
+import java.util.HashMap;
+
+import static org.junit.Assert.*;
+
+public class SymbolTableScopesTest {
+
+    private static final String CODE = """
+            import a.b.Util;
+            import c.Util;
+            class Scopes {
+                int x;
+                boolean y;
+                boolean y;
+
+                public int run(int x, int[] z) {
+                    int w;
+                    boolean x;
+                    int w;
+                    return x;
+                }
+
+                public int other() {
+                    int y;
+                    return y;
+                }
+            }
+            """;
+
+    private static JmmSymbolTableBuilder builder;
+
+    private static JmmSymbolTable build() {
+        builder = new JmmSymbolTableBuilder();
+        return builder.build(new JmmParserImpl().parse(CODE, new HashMap<>()).getRootNode());
+    }
+
+    @Test
+    public void variablesOfEachScope() {
+        var table = build();
+
+        var param = table.getVariable("run", "x");
+        assertEquals(Scope.PARAM, param.scope());
+        assertEquals(0, param.index());
+        assertEquals(new Type("int", false), param.symbol().getType());
+
+        assertEquals(Scope.PARAM, table.getVariable("run", "z").scope());
+        assertEquals(1, table.getVariable("run", "z").index());
+
+        var local = table.getVariable("run", "w");
+        assertEquals(Scope.LOCAL, local.scope());
+        assertEquals(0, local.index());
+
+        var field = table.getVariable("run", "y");
+        assertEquals(Scope.FIELD, field.scope());
+        assertEquals(1, field.index());
+
+        assertEquals(Scope.LOCAL, table.getVariable("other", "y").scope());
+        assertEquals(Scope.FIELD, table.getVariable(null, "x").scope());
+        assertNull(table.getVariable("other", "z"));
+        assertNull(table.getVariable("missing", "w"));
+        assertEquals(new Type("boolean", false), table.getField("y").getType());
+    }
+
+    @Test
+    public void duplicatesAreReported() {
+        build();
+
+        var messages = builder.getReports().stream().map(report -> report.getMessage()).toList();
+        assertTrue(messages.contains("Import c.Util already exists"));
+        assertTrue(messages.contains("Parameter y already exists"));
+        assertTrue(messages.contains("Parameter w already exists"));
+        assertEquals(3, messages.size());
+    }
+}
@@ -0,0 +1,57 @@
+package pt.up.fe.comp2025;
+
+import org.junit.Test;
+import pt.up.fe.comp.TestUtils;
+import pt.up.fe.comp2025.driver.CompilationPipeline;
+import pt.up.fe.comp2025.synthetic.SyntheticProgramGenerator;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+
+public class SyntheticProgramTest {
+
+    private static void compiles(String code, Map<String, String> config) {
+        var result = new CompilationPipeline().compile(code, config);
+        TestUtils.noErrors(result.getReports());
+    }
+
+    @Test
+    public void defaultProgramCompiles() {
+        compiles(new SyntheticProgramGenerator().generate("Synthetic"), new HashMap<>());
+    }
+
+    @Test
+    public void programsCompileWithOptimizations() {
+        for (int seed = 0; seed < 10; seed++) {
+            var code = new SyntheticProgramGenerator()
+                    .seed(seed)
+                    .methods(4)
+                    .statements(15)
+                    .nesting(3)
+                    .generate("Synthetic" + seed);
+
+            compiles(code, new HashMap<>(Map.of("optimize", "true", "registerAllocation", "0")));
+        }
+    }
+
+    @Test
+    public void largeProgramCompiles() {
+        var code = new SyntheticProgramGenerator()
+                .methods(50)
+                .locals(20)
+                .statements(30)
+                .arrayLength(64)
+                .callFanOut(4)
+                .generate("Large");
+
+        compiles(code, new HashMap<>());
+    }
+
+    @Test
+    public void sameSeedSameProgram() {
+        var generator = new SyntheticProgramGenerator().seed(42);
+        assertEquals(generator.generate("A"), generator.generate("A"));
+    }
+}
@@ -0,0 +1,45 @@
+package pt.up.fe.comp2025;
+
+import org.junit.Test;
+import pt.up.fe.comp.jmm.parser.JmmParserResult;
+import pt.up.fe.comp2025.parser.JmmParserImpl;
+import pt.up.fe.comp2025.synthetic.SyntheticProgramGenerator;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class TwoStageParsingTest {
+
+    private static JmmParserResult parse(JmmParserImpl parser, String code, boolean twoStage) {
+        return parser.parse(code, new HashMap<>(Map.of("twoStageParsing", Boolean.toString(twoStage))));
+    }
+
+    @Test
+    public void sameTreeAsFullLl() {
+        var parser = new JmmParserImpl();
+        var code = new SyntheticProgramGenerator().seed(7).methods(5).exprDepth(12).generate("Parsed");
+
+        var twoStage = parse(parser, code, true);
+        var fullLl = parse(parser, code, false);
+
+        assertNotNull(twoStage.getRootNode());
+        assertEquals(fullLl.getRootNode().toTree(), twoStage.getRootNode().toTree());
+        assertEquals(0, parser.getLlFallbackCount());
+        assertEquals(2, parser.getParseCount());
+    }
+
+    @Test
+    public void syntaxErrorsFallBackToFullLl() {
+        var parser = new JmmParserImpl();
+        var code = "class Broken { public int foo(int a) { return a + * 2; } }";
+
+        var twoStage = parse(parser, code, true);
+        var fullLl = parse(parser, code, false);
+
+        assertNull(twoStage.getRootNode());
+        assertEquals(fullLl.getReports().toString(), twoStage.getReports().toString());
+        assertEquals(1, parser.getLlFallbackCount());
+    }
+}
@@ -0,0 +1,90 @@
+package pt.up.fe.comp2025;
+
+import org.junit.Test;
+import pt.up.fe.comp.jmm.analysis.JmmSemanticsResult;
+import pt.up.fe.comp.jmm.analysis.table.Type;
+import pt.up.fe.comp2025.analysis.JmmAnalysisImpl;
+import pt.up.fe.comp2025.ast.AstNode;
+import pt.up.fe.comp2025.ast.Kind;
+import pt.up.fe.comp2025.ast.TypeUtils;
+import pt.up.fe.comp2025.parser.JmmParserImpl;
+
+import java.util.HashMap;
+
+import static org.junit.Assert.*;
+
+public class TypeAnnotationTest {
+
+    private static final String CODE = """
+            class Annotated {
+                int field;
+
+                public int run(int p, boolean b) {
+                    int[] a;
+                    a = new int[p];
+                    field = (p + a.length) * 2;
+                    return a[0] + field;
+                }
+            }
+            """;
+
+    private static JmmSemanticsResult analyze() {
+        var analysis = new JmmAnalysisImpl();
+        var parserResult = new JmmParserImpl().parse(CODE, new HashMap<>());
+        return analysis.semanticAnalysis(analysis.buildSymbolTable(parserResult));
+    }
+
+    @Test
+    public void expressionsAreAnnotated() {
+        var result = analyze();
+        var root = result.getRootNode();
+
+        for (var expr : root.getDescendants(Kind.EXPR)) {
+            assertNotNull(expr.toString(), ((AstNode) expr).getType());
+        }
+
+        var index = (AstNode) root.getDescendants(Kind.ARRAY_INDEX).get(0);
+        assertEquals(TypeUtils.newIntType(), index.getType());
+
+        var array = (AstNode) index.getChild(0);
+        assertEquals(TypeUtils.newIntArrayType(), array.getType());
+
+        // The annotation is read even without a current method
+        assertSame(array.getType(), new TypeUtils(result.getSymbolTable()).getExprType(array));
+    }
+
+    @Test
+    public void replacingNodesClearsTypes() {
+        var root = analyze().getRootNode();
+
+        var parentheses = (AstNode) root.getDescendants(Kind.PARENTHESES_OP).get(0);
+        var sum = (AstNode) parentheses.getChild(0);
+        var product = (AstNode) parentheses.getParent();
+        var length = (AstNode) sum.getChild(1);
+
+        length.replace(AstNode.newInteger(4));
+        assertNull(sum.getType());
+        assertNull(parentheses.getType());
+        assertNull(product.getType());
+        assertNotNull(((AstNode) sum.getChild(0)).getType());
+
+        var table = analyze().getSymbolTable();
+        assertEquals(TypeUtils.newIntType(), new TypeUtils(table, "run").getExprType(parentheses));
+        assertEquals(TypeUtils.newIntType(), sum.getType());
+        assertNull(product.getType());
+
+        sum.put("op", "<");
+        assertNull(sum.getType());
+        assertEquals(TypeUtils.newBoolType(), new TypeUtils(table, "run").getExprType(sum));
+    }
+
+    @Test
+    public void typesWithoutMethodAreNotKept() {
+        var result = analyze();
+        var literal = AstNode.newBoolean(true);
+
+        var type = new TypeUtils(result.getSymbolTable()).getExprType(literal);
+        assertEquals(new Type("boolean", false), type);
+        assertNull(literal.getType());
+    }
+}
@@ -0,0 +1,41 @@
+package utils;
+
+import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp.jmm.ast.JmmNodeImpl;
+import pt.up.fe.comp2025.ast.AstNode;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public class AstTestUtils {
+
+    /**
+     * Checks that two trees have the same nodes, with the same attributes in the same order, positions and children.
+     * When both nodes are compact nodes, their resolved types must also be the same.
+     */
+    public static void assertSameTree(JmmNode expected, JmmNode actual) {
+        assertEquals(expected.getHierarchy(), actual.getHierarchy());
+        assertEquals(List.copyOf(expected.getAttributes()), List.copyOf(actual.getAttributes()));
+
+        for (var attribute : expected.getAttributes()) {
+            assertEquals(expected.getObject(attribute), actual.getObject(attribute));
+        }
+
+        assertEquals(expected.getLine(), actual.getLine());
+        assertEquals(expected.getColumn(), actual.getColumn());
+        assertEquals(((JmmNodeImpl) expected).toString(true), ((JmmNodeImpl) actual).toString(true));
+
+        if (expected instanceof AstNode expectedNode && actual instanceof AstNode actualNode) {
+            assertEquals(expectedNode.getType(), actualNode.getType());
+        }
+
+        assertEquals(expected.getNumChildren(), actual.getNumChildren());
+
+        for (int i = 0; i < expected.getNumChildren(); i++) {
+            assertSame(actual, actual.getChild(i).getParent());
+            assertSameTree(expected.getChild(i), actual.getChild(i));
+        }
+    }
+}
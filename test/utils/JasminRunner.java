@@ -0,0 +1,356 @@
+package utils;
+
+import jasmin.ClassFile;
+import pt.up.fe.comp.TestUtils;
+import pt.up.fe.comp.jmm.jasmin.JasminResult;
+import pt.up.fe.comp2025.backend.ClassFileResult;
+import pt.up.fe.specs.util.system.ProcessOutputAsString;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.StringReader;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Runs the code generated by the compiler inside the current JVM, instead of starting a new java process for each
+ * program as {@link JasminResult#runWithFullOutput()} does.
+ * <p>
+ * The Jasmin code is assembled in memory, and each program is loaded by its own class loader, which only sees the
+ * generated class and the classes in libs-jmm/compiled. Programs do not share static state (e.g. the input buffer of
+ * 'io') and cannot see the classes of the compiler. The standard output, standard error and standard input are
+ * redirected per thread, so several programs can run at the same time. Nothing else should replace the standard
+ * streams while programs run, e.g. the methods of TestUtils, which call SpecsSystem.programStandardInit().
+ * <p>
+ * If the system property 'jmm.test.fork' is true, programs are run in a new process instead.
+ * <p>
+ * A thread cannot be killed, so a program that does not finish in time keeps running until the JVM exits. After the
+ * first timeout, the runner prints an error and runs every later program in a new process, which is killed when it
+ * times out, so that at most one program is left running in the JVM of the tests.
+ */
+public class JasminRunner {
+
+    private static final String FORK_PROPERTY = "jmm.test.fork";
+
+    private static final long TIMEOUT_MS = 5_000;
+
+    private static final String NEW_LINE = System.getProperty("line.separator");
+
+    private static final ThreadOutputStream STDOUT = new ThreadOutputStream();
+    private static final ThreadOutputStream STDERR = new ThreadOutputStream();
+    private static final ThreadInputStream STDIN = new ThreadInputStream();
+
+    private static final PrintStream STDOUT_PRINT = new PrintStream(STDOUT, true);
+    private static final PrintStream STDERR_PRINT = new PrintStream(STDERR, true);
+
+    // The Jasmin assembler keeps global state, so only one class is assembled at a time
+    private static final Object ASSEMBLER_LOCK = new Object();
+
+    // Name of the first program that did not finish, which is still running, or null
+    private static volatile String timedOut = null;
+
+    public static String run(JasminResult result) {
+        return runWithFullOutput(result).getOutput();
+    }
+
+    public static ProcessOutputAsString runWithFullOutput(JasminResult result) {
+        return runWithFullOutput(result, Collections.emptyList(), null);
+    }
+
+    /**
+     * Runs the main method of the generated class.
+     *
+     * @param result
+     * @param args   arguments for the program
+     * @param input  input to give to the program, can be null
+     * @return the output of the program, with the same format as the output of a separate process
+     */
+    public static ProcessOutputAsString runWithFullOutput(JasminResult result, List<String> args, String input) {
+        if (Boolean.getBoolean(FORK_PROPERTY) || timedOut != null) {
+            return result.runWithFullOutput(args, Arrays.asList(TestUtils.getLibsClasspath()), input);
+        }
+
+        var programClass = result instanceof ClassFileResult classFileResult
+                ? new ProgramClass(result.getClassName(), classFileResult.getClassFile())
+                : assemble(result.getJasminCode());
+
+        redirectStandardStreams();
+
+        var stdout = new ByteArrayOutputStream();
+        var stderr = new ByteArrayOutputStream();
+        var stdin = new ByteArrayInputStream(input == null ? new byte[0] : input.getBytes());
+        var returnValue = new int[]{0};
+
+        var program = new Thread(() -> {
+            STDOUT.redirect(stdout);
+            STDERR.redirect(stderr);
+            STDIN.redirect(stdin);
+
+            returnValue[0] = runMain(programClass, args);
+        }, "jmm-program-" + programClass.name());
+
+        // A program that does not finish must not keep the tests from ending
+        program.setDaemon(true);
+        program.start();
+
+        try {
+            program.join(TIMEOUT_MS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while running '" + programClass.name() + "'", e);
+        }
+
+        if (program.isAlive()) {
+            program.interrupt();
+            stopRunningInProcess(program);
+            return new ProcessOutputAsString(-1, asLines(stdout.toString()),
+                    asLines(stderr + "Program did not finish after " + TIMEOUT_MS + "ms"));
+        }
+
+        return new ProcessOutputAsString(returnValue[0], asLines(stdout.toString()), asLines(stderr.toString()));
+    }
+
+    /**
+     * Called when a program does not finish, it keeps running (and using a processor) until the JVM exits.
+     */
+    private static synchronized void stopRunningInProcess(Thread program) {
+        program.setPriority(Thread.MIN_PRIORITY);
+
+        if (timedOut == null) {
+            timedOut = program.getName();
+            // Printed to the original stream, the redirected one of this thread is part of the output of a test
+            var err = new PrintStream(STDERR.original, true);
+            err.println("ERROR: program '" + program.getName() + "' did not finish after " + TIMEOUT_MS + "ms and "
+                    + "cannot be stopped, it keeps running until the tests end. Later programs run in a new process.");
+        }
+    }
+
+    /**
+     * Replaces the standard streams by the per-thread ones. This is checked before each run because the test runner
+     * can also replace the standard streams (e.g. to capture the output of each test).
+     */
+    private static synchronized void redirectStandardStreams() {
+        if (System.out != STDOUT_PRINT) {
+            STDOUT.setOriginal(System.out);
+            System.setOut(STDOUT_PRINT);
+        }
+
+        if (System.err != STDERR_PRINT) {
+            STDERR.setOriginal(System.err);
+            System.setErr(STDERR_PRINT);
+        }
+
+        if (System.in != STDIN) {
+            STDIN.setOriginal(System.in);
+            System.setIn(STDIN);
+        }
+    }
+
+    /**
+     * Loads the class and calls its main method, reporting errors as the java launcher would.
+     *
+     * @return the exit code of the program
+     */
+    private static int runMain(ProgramClass programClass, List<String> args) {
+        var className = programClass.name();
+
+        try {
+            var loader = new ProgramClassLoader(className, programClass.bytes());
+            var mainClass = Class.forName(className, true, loader);
+
+            Method main;
+            try {
+                main = mainClass.getMethod("main", String[].class);
+            } catch (NoSuchMethodException e) {
+                main = null;
+            }
+
+            if (main == null || !Modifier.isStatic(main.getModifiers())) {
+                System.err.println("Error: Main method not found in class " + className
+                        + ", please define the main method as:");
+                System.err.println("   public static void main(String[] args)");
+                return 1;
+            }
+
+            // The java launcher also runs classes that are not public
+            main.setAccessible(true);
+            main.invoke(null, (Object) args.toArray(new String[0]));
+            return 0;
+
+        } catch (InvocationTargetException e) {
+            System.err.print("Exception in thread \"main\" ");
+            e.getCause().printStackTrace();
+            return 1;
+        } catch (Throwable e) {
+            System.err.println("Error: Could not find or load main class " + className);
+            System.err.println("Caused by: " + e);
+            return 1;
+        }
+    }
+
+    /**
+     * Assembles the Jasmin code in memory.
+     */
+    private static ProgramClass assemble(String jasminCode) {
+        synchronized (ASSEMBLER_LOCK) {
+            var classFile = new ClassFile();
+            var bytes = new ByteArrayOutputStream();
+
+            try {
+                classFile.readJasmin(new StringReader(jasminCode), "program.j", true);
+
+                if (classFile.errorCount() > 0) {
+                    throw new RuntimeException("Found " + classFile.errorCount()
+                            + " errors while compiling Jasmin code.");
+                }
+
+                classFile.write(bytes);
+            } catch (RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new RuntimeException("Exception while assembling Jasmin file: " + e.getMessage()
+                        + "\nCode: " + jasminCode, e);
+            }
+
+            return new ProgramClass(classFile.getClassName().replace('/', '.'), bytes.toByteArray());
+        }
+    }
+
+    /**
+     * The format of StreamToString, which JasminResult uses to read the output of the process: each line ends with a
+     * line separator.
+     */
+    private static String asLines(String output) {
+        if (output.isEmpty() || output.endsWith("\n")) {
+            return output;
+        }
+
+        return output + NEW_LINE;
+    }
+
+    private record ProgramClass(String name, byte[] bytes) {
+    }
+
+    /**
+     * Class loader of a single program. Does not delegate to the class loader of the tests, only to the platform
+     * classes.
+     */
+    private static class ProgramClassLoader extends URLClassLoader {
+
+        private final String className;
+        private final byte[] classFile;
+
+        private ProgramClassLoader(String className, byte[] classFile) throws MalformedURLException {
+            super(new URL[]{new File(TestUtils.getLibsClasspath()).toURI().toURL()},
+                    ClassLoader.getPlatformClassLoader());
+
+            this.className = className;
+            this.classFile = classFile;
+        }
+
+        @Override
+        protected Class<?> findClass(String name) throws ClassNotFoundException {
+            if (name.equals(className)) {
+                return defineClass(name, classFile, 0, classFile.length);
+            }
+
+            return super.findClass(name);
+        }
+    }
+
+    /**
+     * Writes to the stream chosen by the current thread, or to the original stream if the thread did not choose one.
+     */
+    private static class ThreadOutputStream extends OutputStream {
+
+        private volatile OutputStream original;
+        private final InheritableThreadLocal<OutputStream> current;
+
+        private ThreadOutputStream() {
+            this.original = null;
+            this.current = new InheritableThreadLocal<>();
+        }
+
+        private void setOriginal(OutputStream original) {
+            this.original = original;
+        }
+
+        private void redirect(OutputStream stream) {
+            current.set(stream);
+        }
+
+        private OutputStream target() {
+            var stream = current.get();
+            return stream != null ? stream : original;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            target().write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            target().write(b, off, len);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            target().flush();
+        }
+    }
+
+    /**
+     * Reads from the stream chosen by the current thread, or from the original stream if the thread did not choose one.
+     */
+    private static class ThreadInputStream extends InputStream {
+
+        private volatile InputStream original;
+        private final InheritableThreadLocal<InputStream> current;
+
+        private ThreadInputStream() {
+            this.original = null;
+            this.current = new InheritableThreadLocal<>();
+        }
+
+        private void setOriginal(InputStream original) {
+            this.original = original;
+        }
+
+        private void redirect(InputStream stream) {
+            current.set(stream);
+        }
+
+        private InputStream source() {
+            var stream = current.get();
+            return stream != null ? stream : original;
+        }
+
+        @Override
+        public int read() throws IOException {
+            return source().read();
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            return source().read(b, off, len);
+        }
+
+        @Override
+        public int available() throws IOException {
+            return source().available();
+        }
+    }
+}